@@ -21,6 +21,7 @@ import org.eclipse.cmf.occi.docker.DockerPackage;
 import org.eclipse.cmf.occi.docker.Machine;
 import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
 import org.eclipse.cmf.occi.docker.connector.observer.ContainerObserver;
+import org.eclipse.cmf.occi.docker.connector.observer.ModelUpdateScheduler;
 import org.eclipse.cmf.occi.docker.connector.observer.StatsCallBack;
 import org.eclipse.cmf.occi.docker.connector.utils.EventCallBack;
 import org.eclipse.cmf.occi.infrastructure.Compute;
@@ -59,7 +60,11 @@ public class ContainerConnector extends org.eclipse.cmf.occi.docker.impl.Contain
 
 	private Map<DockerClient, CreateContainerResponse> map = null;
 
-	protected static DockerClientManager dockerClientManager = null;
+	/**
+	 * Docker clients are shared by machine in DockerClientRegistry, so each
+	 * container has its own manager.
+	 */
+	protected DockerClientManager dockerClientManager = null;
 
 	// This is a cache of containers current machine
 	protected static Map<String, Machine> listCurrentMachine = new HashMap<>();
@@ -245,6 +250,7 @@ public class ContainerConnector extends org.eclipse.cmf.occi.docker.impl.Contain
 			if (containerObserver != null) {
 				containerObserver.removeListener(this);
 			}
+			releaseDockerClientManager();
 
 		} catch (DockerException ex) {
 			LOGGER.error("Error thrown while deleting the container : " + ex.getMessage());
@@ -262,14 +268,7 @@ public class ContainerConnector extends org.eclipse.cmf.occi.docker.impl.Contain
 				machine.start();
 			}
 			stateMachine.start();
-			
-			if (containerObserver == null && machine.getOcciComputeState().equals(ComputeStatus.ACTIVE)) {
-				// Add listener here
-				containerObserver = new ContainerObserver();
-				// Ensure that observer is not set.
-				containerObserver.removeListener(this);
-				containerObserver.listener(this, machine);
-			}
+			observe(machine);
 
 		} catch (DockerException ex) {
 			LOGGER.error("Exception thrown while starting container : " + ex.getMessage());
@@ -530,6 +529,74 @@ public class ContainerConnector extends org.eclipse.cmf.occi.docker.impl.Contain
 
 	}
 
+	/**
+	 * Docker part of the deployment of this container, called from the
+	 * deployment threads of {@link MachineManager}: pull the image, create the
+	 * container if it does not exist and start it. The model is not changed, the
+	 * result is given to {@link #deployed(Compute, String)}.
+	 * 
+	 * @param machine
+	 * @param containerId
+	 *            the id of the container in the machine, null if it does not
+	 *            exist.
+	 * @param containerDependency
+	 *            the links between the containers, may be null.
+	 * @return the id of the started container.
+	 * @throws DockerException
+	 */
+	public String deployContainer(Compute machine, String containerId, Multimap<String, String> containerDependency)
+			throws DockerException {
+		if (dockerClientManager == null) {
+			dockerClientManager = new DockerClientManager(machine, eventCallBack);
+		}
+		String id = containerId;
+		if (id == null) {
+			LOGGER.info("Creating the container : " + getName());
+			dockerClientManager.pullImage(machine, this.image);
+			id = dockerClientManager.execCreateContainer(machine, this, containerDependency).getId();
+		}
+		LOGGER.info("Starting the container : " + getName());
+		dockerClientManager.execStartContainer(machine, id);
+		return id;
+	}
+
+	/**
+	 * Model part of the deployment, called from the deploying thread once the
+	 * container is started : set its id and state in a write transaction, then
+	 * collect its stats and observe its changes.
+	 * 
+	 * @param machine
+	 * @param containerId
+	 * @throws DockerException
+	 */
+	public void deployed(final Compute machine, final String containerId) throws DockerException {
+		ModelUpdateScheduler.getInstance().execute(this, new Runnable() {
+			@Override
+			public void run() {
+				setContainerid(containerId);
+				setOcciComputeState(ComputeStatus.ACTIVE);
+			}
+		});
+		dockerClientManager.monitorContainer(machine, this, getStatsCallBack());
+		observe(machine);
+		LOGGER.info("Container " + getName() + " started");
+	}
+
+	/**
+	 * Observe the changes of this container once its machine is active.
+	 * 
+	 * @param machine
+	 */
+	private void observe(Compute machine) {
+		if (containerObserver == null && machine.getOcciComputeState().equals(ComputeStatus.ACTIVE)) {
+			// Add listener here
+			containerObserver = new ContainerObserver();
+			// Ensure that observer is not set.
+			containerObserver.removeListener(this);
+			containerObserver.listener(this, machine);
+		}
+	}
+
 	/**
 	 * 
 	 * @param observer
@@ -551,6 +618,23 @@ public class ContainerConnector extends org.eclipse.cmf.occi.docker.impl.Contain
 		return machine;
 	}
 
+	/**
+	 * Unregister this container from the events stream of its machine and give
+	 * back its docker clients.
+	 */
+	public void releaseDockerClientManager() {
+		eventCallBack.close();
+		eventCallBack = new EventCallBack(this);
+		if (dockerClientManager != null) {
+			dockerClientManager.releaseDockerClients();
+			dockerClientManager = null;
+		}
+	}
+
+	public EventCallBack getEventCallBack() {
+		return eventCallBack;
+	}
+
 	public StatsCallBack getStatsCallBack() {
 		return statsCallBack;
 	}
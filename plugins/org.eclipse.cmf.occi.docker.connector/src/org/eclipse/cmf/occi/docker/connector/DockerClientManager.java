@@ -18,14 +18,12 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
@@ -36,9 +34,16 @@ import org.eclipse.cmf.occi.docker.Network;
 import org.eclipse.cmf.occi.docker.Networklink;
 import org.eclipse.cmf.occi.docker.Volumesfrom;
 import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
-import org.eclipse.cmf.occi.docker.connector.helpers.DockerConfigurationHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerClientRegistry;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerClientRegistry.ClientKind;
+import org.eclipse.cmf.occi.docker.connector.helpers.ContainerIndex;
+import org.eclipse.cmf.occi.docker.connector.helpers.DaemonStateMirror;
 import org.eclipse.cmf.occi.docker.connector.helpers.DockerMachineHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.ManagedLabels;
+import org.eclipse.cmf.occi.docker.connector.helpers.SshSessionPool;
+import org.eclipse.cmf.occi.docker.connector.observer.MetricsStore;
 import org.eclipse.cmf.occi.docker.connector.observer.StatsCallBack;
+import org.eclipse.cmf.occi.docker.connector.observer.StatsCollector;
 import org.eclipse.cmf.occi.docker.connector.utils.EventCallBack;
 import org.eclipse.cmf.occi.docker.connector.utils.ModelHandler;
 import org.eclipse.cmf.occi.infrastructure.Compute;
@@ -53,6 +58,7 @@ import com.github.dockerjava.api.command.CreateNetworkCmd;
 import com.github.dockerjava.api.command.CreateNetworkResponse;
 import com.github.dockerjava.api.command.InspectContainerResponse;
 import com.github.dockerjava.api.exception.InternalServerErrorException;
+import com.github.dockerjava.api.exception.NotFoundException;
 import com.github.dockerjava.api.model.Bind;
 import com.github.dockerjava.api.model.ExposedPort;
 import com.github.dockerjava.api.model.Link;
@@ -66,11 +72,6 @@ import com.github.dockerjava.api.model.VolumesFrom;
 import com.github.dockerjava.core.command.PullImageResultCallback;
 import com.github.dockerjava.core.command.WaitContainerResultCallback;
 import com.google.common.collect.Multimap;
-import com.jcraft.jsch.Channel;
-import com.jcraft.jsch.ChannelExec;
-import com.jcraft.jsch.JSch;
-import com.jcraft.jsch.JSchException;
-import com.jcraft.jsch.Session;
 
 /**
  * Manage the docker client and used by connector when executing actions.
@@ -96,13 +97,27 @@ public class DockerClientManager {
 		this.compute = compute;
 		// Build a docker client related to this compute, if compute is null,
 		// dockerclient will be relative to this local machine.
-		this.dockerClient = DockerConfigurationHelper.buildDockerClient(compute);
+		this.dockerClient = DockerClientRegistry.getInstance().acquire(compute, ClientKind.REQUEST);
 	}
 
+	/**
+	 * 
+	 * @param compute
+	 * @param event
+	 *            registered in the events stream of the machine, shared by all
+	 *            its containers.
+	 * @throws DockerException
+	 */
 	public DockerClientManager(Compute compute, EventCallBack event) throws DockerException {
 		this.compute = compute;
-		this.dockerClient = DockerConfigurationHelper.buildDockerClient(compute);
-		this.dockerClient.eventsCmd().exec(event);
+		this.dockerClient = DockerClientRegistry.getInstance().acquire(compute, ClientKind.REQUEST);
+		try {
+			event.subscribe(compute);
+		} catch (DockerException | RuntimeException ex) {
+			// The manager is not built, nobody else can release its client.
+			releaseDockerClients();
+			throw ex;
+		}
 	}
 
 	public DockerClientManager() {
@@ -169,14 +184,18 @@ public class DockerClientManager {
 	 * @throws DockerException
 	 */
 	public boolean containerIsInsideMachine(Compute compute, final Container container) throws DockerException {
-
-		// Check if it exist on compute.
-		InspectContainerResponse containerResponse = inspectContainer(compute, container);
-		if (containerResponse == null) {
+		preCheckDockerClient(compute);
+		if (container == null || container.getName() == null) {
+			return false;
+		}
+		// Check if it exist on compute, the index avoids to list all containers.
+		String containerId = ContainerIndex.getInstance(compute).getContainerId(compute, dockerClient,
+				container.getName());
+		if (containerId == null) {
 			// Not found on real virtal machine.
 			return false;
 		}
-		String name = containerResponse.getName().replaceAll("/", "");
+		String name = container.getName();
 
 		// On model level...
 		List<Container> listContainer = DockerMachineHelper.listContainerModels(compute);
@@ -198,11 +217,7 @@ public class DockerClientManager {
 	 */
 	public CreateContainerResponse createContainer(Compute computeMachine, Container container) throws DockerException {
 
-		preCheckDockerClient(computeMachine);
-
-		CreateContainerCmd createContainer = containerBuilder(container, null);
-
-		CreateContainerResponse createContainerResponse = createContainer.exec();
+		CreateContainerResponse createContainerResponse = execCreateContainer(computeMachine, container, null);
 		container.setContainerid(createContainerResponse.getId());
 		System.out.println("Created container:" + container.getContainerid());
 
@@ -219,10 +234,8 @@ public class DockerClientManager {
 	 */
 	public Map<DockerClient, CreateContainerResponse> createContainer(Compute computeMachine, Container container,
 			Multimap<String, String> containerDependency) throws DockerException {
-		preCheckDockerClient(computeMachine);
-		CreateContainerCmd createContainer = containerBuilder(container, containerDependency);
-
-		CreateContainerResponse createContainerResponse = createContainer.exec();
+		CreateContainerResponse createContainerResponse = execCreateContainer(computeMachine, container,
+				containerDependency);
 		container.setContainerid(createContainerResponse.getId());
 		System.out.println("Created container: " + container.getContainerid());
 
@@ -232,6 +245,29 @@ public class DockerClientManager {
 		return result;
 	}
 
+	/**
+	 * Create the container in the machine without changing the model, the id of
+	 * the new container must be set by the caller.
+	 * 
+	 * @param computeMachine
+	 * @param container
+	 * @param containerDependency
+	 *            the links between the containers, may be null.
+	 * @return A response docker-java object CreateContainerResponse.
+	 * @throws DockerException
+	 */
+	public CreateContainerResponse execCreateContainer(Compute computeMachine, Container container,
+			Multimap<String, String> containerDependency) throws DockerException {
+		preCheckDockerClient(computeMachine);
+		CreateContainerCmd createContainer = containerBuilder(container, containerDependency);
+
+		CreateContainerResponse createContainerResponse = createContainer.exec();
+		ContainerIndex.getInstance(computeMachine).put(createContainerResponse.getId(), container.getName(),
+				container.getImage());
+		markContainer(computeMachine, createContainerResponse.getId());
+		return createContainerResponse;
+	}
+
 	/**
 	 * 
 	 * @param container
@@ -550,6 +586,9 @@ public class DockerClientManager {
 			}
 		}
 
+		// Mark the container as managed by this connector.
+		createContainer.withLabels(ManagedLabels.labelsFor(compute, container));
+
 		return createContainer;
 	}
 
@@ -593,8 +632,8 @@ public class DockerClientManager {
 	 */
 	public void preCheckDockerClient(Compute computeMachine) throws DockerException {
 		if (this.dockerClient == null) {
-			// Build a new Docker client for this machine.
-			this.dockerClient = DockerConfigurationHelper.buildDockerClient(computeMachine);
+			// Get the shared Docker client of this machine.
+			this.dockerClient = DockerClientRegistry.getInstance().acquire(computeMachine, ClientKind.REQUEST);
 			this.compute = computeMachine;
 		}
 
@@ -605,12 +644,23 @@ public class DockerClientManager {
 		if (compute != null && compute instanceof Machine && computeMachine instanceof Machine
 				&& !(((Machine) compute).getName().equalsIgnoreCase(((Machine) computeMachine).getName()))) {
 
-			this.dockerClient = DockerConfigurationHelper.buildDockerClient(computeMachine);
+			// Give back the clients of the previous machine.
+			releaseDockerClients();
+			this.dockerClient = DockerClientRegistry.getInstance().acquire(computeMachine, ClientKind.REQUEST);
 			this.compute = computeMachine;
 		}
 
 	}
 
+	/**
+	 * Release the docker client used by this manager, it will be closed by the
+	 * registry when idle.
+	 */
+	public void releaseDockerClients() {
+		DockerClientRegistry.getInstance().release(this.dockerClient);
+		this.dockerClient = null;
+	}
+
 	/**
 	 * Inspect/describe a container.
 	 * 
@@ -626,6 +676,12 @@ public class DockerClientManager {
 			throw new DockerException("Container id is not set !");
 		}
 
+		if (DaemonStateMirror.isEnabled()) {
+			// Read from the state mirror of the machine, inspected again only after an
+			// event of this container.
+			return DaemonStateMirror.getInstance(computeMachine).inspectContainer(computeMachine, dockerClient,
+					containerId);
+		}
 		InspectContainerResponse containerResponse = dockerClient.inspectContainerCmd(containerId).exec();
 
 		return containerResponse;
@@ -646,19 +702,8 @@ public class DockerClientManager {
 			throw new DockerException("Container model or container name is not set !");
 		}
 		// Search the containerId for this container.
-		List<com.github.dockerjava.api.model.Container> containers = listContainer(computeMachine);
-		String inspectName;
-		String containerId = null;
-		for (com.github.dockerjava.api.model.Container con : containers) {
-			if (con.getNames() != null && con.getNames().length > 0 && con.getNames()[0] != null) {
-				inspectName = con.getNames()[0];
-				inspectName = inspectName.replaceAll("/", "");
-				if (inspectName.equalsIgnoreCase(container.getName())) {
-					containerId = con.getId();
-					break;
-				}
-			}
-		}
+		String containerId = ContainerIndex.getInstance(computeMachine).getContainerId(computeMachine, dockerClient,
+				container.getName());
 		if (containerId == null) {
 			LOGGER.warn("No id defined for this container, cannot retrieve its informations.");
 		} else {
@@ -718,6 +763,7 @@ public class DockerClientManager {
 		if (StringUtils.isNotBlank(network.getDriver())) {
 			createNetworkCmd = createNetworkCmd.withDriver(network.getDriver());
 		}
+		createNetworkCmd = createNetworkCmd.withLabels(ManagedLabels.labelsFor(computeMachine, network));
 
 		CreateNetworkResponse createNetworkResponse = null;
 		com.github.dockerjava.api.model.Network updateNetwork = null;
@@ -754,6 +800,7 @@ public class DockerClientManager {
 					try {
 						dockerClient.connectToNetworkCmd().withNetworkId(((Network) netLink.getTarget()).getNetworkId())
 								.withContainerId(entry.getKey().getContainerid()).exec();
+						markContainer(computeMachine, entry.getKey().getContainerid());
 					} catch (InternalServerErrorException exception) {
 						LOGGER.error("InternalServerErrorException: " + exception.getMessage());
 						throw new DockerException(exception);
@@ -772,11 +819,14 @@ public class DockerClientManager {
 		preCheckDockerClient(computeMachine);
 		// TODO : Check response !!!
 		dockerClient.removeContainerCmd(containerId).exec();
+		ContainerIndex.getInstance(computeMachine).remove(containerId);
+		markContainer(computeMachine, containerId);
 	}
 
 	public void killContainer(Compute computeMachine, String containerId) throws DockerException {
 		preCheckDockerClient(computeMachine);
 		dockerClient.killContainerCmd(containerId);
+		markContainer(computeMachine, containerId);
 	}
 
 	/**
@@ -787,27 +837,57 @@ public class DockerClientManager {
 	 * @throws DockerException
 	 */
 	public void startContainer(Compute computeMachine, Container container, StatsCallBack statsCallBack) throws DockerException {
+		execStartContainer(computeMachine, container.getContainerid());
+		monitorContainer(computeMachine, container, statsCallBack);
+	}
+
+	/**
+	 * Start a container without changing the model.
+	 * 
+	 * @param computeMachine
+	 * @param containerId
+	 * @throws DockerException
+	 */
+	public void execStartContainer(Compute computeMachine, String containerId) throws DockerException {
 		preCheckDockerClient(computeMachine);
 		try {
-			dockerClient.startContainerCmd(container.getContainerid()).exec();
-
-			if (container.isMonitored()) { // Allow the monitoring of a container.
-				// Collect monitoring data
-				System.out.println("Starting metrics collection");
-
-				// Load new docker client to fix blocking thread problem
-				this.dockerClient = DockerConfigurationHelper.buildDockerClient(computeMachine);
-				if (statsCallBack != null) {
-					System.out.println("Launch docker stats command for container : " + container.getName());
-					dockerClient.statsCmd(container.getContainerid()).exec(statsCallBack);
-				} 
-			}
+			dockerClient.startContainerCmd(containerId).exec();
+			markContainer(computeMachine, containerId);
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			throw new DockerException(ex.getMessage(), ex);
 		}
 	}
 
+	/**
+	 * Collect the stats of a started container if it is monitored.
+	 * 
+	 * @param computeMachine
+	 * @param container
+	 * @param statsCallBack
+	 * @throws DockerException
+	 */
+	public void monitorContainer(Compute computeMachine, Container container, StatsCallBack statsCallBack)
+			throws DockerException {
+		if (container.isMonitored()) { // Allow the monitoring of a container.
+			// Collect monitoring data
+			LOGGER.debug("Starting metrics collection");
+
+			// The stats of all the containers of the machine are collected over a
+			// shared connection pool.
+			if (statsCallBack != null) {
+				LOGGER.info("Launch stats collection for container : " + container.getName());
+				try {
+					StatsCollector.getInstance(computeMachine).register(computeMachine, container, statsCallBack);
+				} catch (Exception ex) {
+					LOGGER.error("Cannot collect the stats of the container " + container.getName() + " : "
+							+ ex.getMessage(), ex);
+					throw new DockerException(ex.getMessage(), ex);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Stop a container.
 	 * 
@@ -820,6 +900,7 @@ public class DockerClientManager {
 		if (container.isMonitored()) {
 			System.out.println("Stopping monitoring container : " + container.getName());
 			// Stop the statscallbacks and recreate a new one.
+			StatsCollector.getInstance(computeMachine).unregister(container.getContainerid());
 			try {
 				((ContainerConnector)container).getStatsCallBack().close();
 				((ContainerConnector)container).setStatsCallBack(new StatsCallBack(container));
@@ -829,7 +910,8 @@ public class DockerClientManager {
 		}
 		System.out.println("Effectively stop the container : " + container.getName());
 		dockerClient.stopContainerCmd(container.getContainerid()).exec();
-		
+		markContainer(computeMachine, container.getContainerid());
+
 	}
 
 	/**
@@ -855,6 +937,7 @@ public class DockerClientManager {
 	public void renameContainer(Compute computeMachine, Container container, String name) throws DockerException {
 		preCheckDockerClient(computeMachine);
 		dockerClient.renameContainerCmd(container.getContainerid()).withName(name).exec();
+		markContainer(computeMachine, container.getContainerid());
 	}
 
 	/**
@@ -882,6 +965,10 @@ public class DockerClientManager {
 		}
 
 		this.dockerClient.removeContainerCmd(container.getContainerid()).exec();
+		ContainerIndex.getInstance(computeMachine).remove(container.getContainerid());
+		markContainer(computeMachine, container.getContainerid());
+		StatsCollector.getInstance(computeMachine).unregister(container.getContainerid());
+		MetricsStore.getInstance().remove(container.getContainerid());
 	}
 
 	/**
@@ -896,8 +983,12 @@ public class DockerClientManager {
 			throws DockerException {
 		preCheckDockerClient(computeMachine);
 		List<com.github.dockerjava.api.model.Container> containers = null;
+		if (DaemonStateMirror.isEnabled()) {
+			// Read from the state mirror of the machine, kept up to date by its events.
+			return DaemonStateMirror.getInstance(computeMachine).getContainers(computeMachine, dockerClient);
+		}
 		try {
-			containers = dockerClient.listContainersCmd().withShowAll(true).exec();
+			containers = ManagedLabels.listContainersCmd(dockerClient).exec();
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			throw new DockerException(ex.getMessage(), ex);
@@ -973,52 +1064,26 @@ public class DockerClientManager {
 		}
 	}
 
+	/**
+	 * Execute a command as root on a host, on the pooled ssh session of this
+	 * host.
+	 * 
+	 * @param host
+	 * @param privateKey
+	 * @param command
+	 * @throws DockerException
+	 *             if the command cannot be executed or exits with a non zero
+	 *             status.
+	 */
 	public void connect(String host, String privateKey, String command) throws DockerException {
-		Session session = null;
-		String user = "docker";
-		String tempDir = createTempDir("knowHosts").getAbsolutePath();
-		File test = new File(tempDir + "/hosts");
+		String exCommand = "sudo sh -c " + "\"" + command + "\"";
+		LOGGER.debug("Execute on host " + host + " : " + exCommand);
 
-		// Do not remove an existing file
-		if (!test.exists()) {
-			try {
-				test.createNewFile();
-			} catch (IOException ex) {
-				throw new DockerException(ex);
-			}
+		SshSessionPool.ExecResult result = SshSessionPool.getInstance().exec(host, privateKey, exCommand);
+		if (!result.isSuccess()) {
+			throw new DockerException("Command failed on host " + host + " with exit status "
+					+ result.getExitStatus() + " : " + result.getError().trim());
 		}
-
-		try {
-			JSch jsc = new JSch();
-
-			jsc.setKnownHosts("/dev/null");
-			Properties config = new Properties();
-			// TODO : Support host key checking... with ssh connection.
-			config.put("StrictHostKeyChecking", "no");
-			jsc.addIdentity(privateKey);
-			System.out.println("Identity added ..");
-
-			String exCommand = "sudo sh -c " + "\"" + command + "\"";
-			System.out.println(exCommand);
-
-			// TODO : Support ssh connection on other ports than 22.
-			session = jsc.getSession(user, host, 22);
-			System.out.println("Session created ..");
-			session.setConfig(config);
-			System.out.println("Session config ..");
-
-			session.connect();
-			System.out.println("Session connected ..");
-
-			Channel channel = session.openChannel("exec");
-			((ChannelExec) channel).setCommand(exCommand);
-			((ChannelExec) channel).setErrStream(System.err);
-			channel.connect();
-		} catch (JSchException e) {
-			System.out.println(e.getMessage());
-
-		}
-		session.disconnect();
 	}
 
 	/**
@@ -1095,27 +1160,21 @@ public class DockerClientManager {
 	 * @return true if container name exist, false if not.
 	 */
 	public boolean containerNameExists(final String containerName, final Compute compute) throws DockerException {
-		List<com.github.dockerjava.api.model.Container> containers = listContainer(compute);
-		String nameTmp = "";
-		List<String> names;
-		String linkName = "LinkTo";
-		for (com.github.dockerjava.api.model.Container container : containers) {
-			names = Arrays.asList(container.getNames());
-			if (names != null) {
-				for (String name : names) {
-					int index = name.indexOf(linkName);
-					if (index == -1) {
-						nameTmp = name.replaceAll("/", "");
-					} else {
-						nameTmp = name.substring(index + linkName.length());
-					}
-					if (nameTmp.equals(containerName)) {
-						return true;
-					}
-				}
-			}
+		preCheckDockerClient(compute);
+		if (ContainerIndex.getInstance(compute).getContainerId(compute, dockerClient, containerName) != null) {
+			return true;
+		}
+		if (!ManagedLabels.isManagedOnly()) {
+			return false;
+		}
+		// The index has only the managed containers, the name may be used by another
+		// container of the machine. The daemon also resolves an id prefix.
+		try {
+			InspectContainerResponse resp = dockerClient.inspectContainerCmd(containerName).exec();
+			return ("/" + containerName).equals(resp.getName());
+		} catch (NotFoundException ex) {
+			return false;
 		}
-		return false;
 	}
 
 	/**
@@ -1149,4 +1208,18 @@ public class DockerClientManager {
 		return computeStatus;
 	}
 
+	/**
+	 * The connector changed this container, its state is read again from the
+	 * daemon without waiting for its event.
+	 * 
+	 * @param computeMachine
+	 * @param containerId
+	 * @throws DockerException
+	 */
+	private void markContainer(Compute computeMachine, String containerId) throws DockerException {
+		if (DaemonStateMirror.isEnabled()) {
+			DaemonStateMirror.getInstance(computeMachine).markContainer(containerId);
+		}
+	}
+
 }
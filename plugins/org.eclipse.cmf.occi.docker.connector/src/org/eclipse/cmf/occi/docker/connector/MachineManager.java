@@ -12,6 +12,7 @@
  */
 package org.eclipse.cmf.occi.docker.connector;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -20,6 +21,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.cmf.occi.core.Link;
@@ -30,8 +38,13 @@ import org.eclipse.cmf.occi.docker.Network;
 import org.eclipse.cmf.occi.docker.Networklink;
 import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
 import org.eclipse.cmf.occi.docker.connector.exceptions.ValueNotSetException;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConfigurationHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConnectorConfig;
 import org.eclipse.cmf.occi.docker.connector.helpers.DockerMachineHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.HostStateService;
+import org.eclipse.cmf.occi.docker.connector.helpers.MachineProvisioner;
 import org.eclipse.cmf.occi.docker.connector.helpers.ProcessManager;
+import org.eclipse.cmf.occi.docker.connector.helpers.SshSessionPool;
 import org.eclipse.cmf.occi.docker.connector.utils.DockerUtil;
 import org.eclipse.cmf.occi.docker.connector.utils.Graph;
 import org.eclipse.cmf.occi.docker.connector.utils.GraphNode;
@@ -68,6 +81,13 @@ public abstract class MachineManager extends ComputeStateMachine<Compute> {
 
 	protected Multimap<String, String> containerDependency = ArrayListMultimap.<String, String>create();
 
+	/**
+	 * Default maximum number of containers deployed at the same time on a machine.
+	 */
+	public static final int DEFAULT_CONTAINER_PARALLELISM = 4;
+
+	private int containerParallelism = 0;
+
 	/**
 	 * 
 	 * @param c
@@ -138,7 +158,10 @@ public abstract class MachineManager extends ComputeStateMachine<Compute> {
 
 		if (!hosts.containsKey(machineName)) { // Check if machine exists in the real environment
 			// Create the machine and start it
+			// A previous machine with this name may have left its host key.
+			SshSessionPool.getInstance().forget(machineName);
 			ProcessManager.runCommand(command.toString(), runtime, true);
+			HostStateService.getInstance().invalidate();
 		} else {
 			if (!activeHosts.containsKey(machineName)) {
 				// Start the machine
@@ -203,6 +226,7 @@ public abstract class MachineManager extends ComputeStateMachine<Compute> {
 		if (!hosts.containsKey(machineName)) { // Check if machine exists in the real environment
 			// Create the machine and start it
 			ProcessManager.runCommand(command.toString(), runtime, true);
+			HostStateService.getInstance().invalidate();
 
 			// Set state
 			compute.setOcciComputeState(ComputeStatus.ACTIVE);
@@ -210,184 +234,171 @@ public abstract class MachineManager extends ComputeStateMachine<Compute> {
 			// Create the network if it exists
 			this.createNetwork(networks);
 
-			// Create the Containers belong to this machine.
-			List<com.github.dockerjava.api.model.Container> listContainers = dockerContainerManager
-					.listContainer(compute);
+		} else if (!activeHosts.containsKey(machineName)) {
+			// The machine exits, just start it and create the containers inside it
 
-			if (!compute.getLinks().isEmpty()) {
-
-				// Start the containers without create graph
-				if (!this.linkFound()) {
-					for (Link link : compute.getLinks()) {
-						if (link instanceof Contains) {
-							Contains contains = (Contains) link;
-							if (contains.getTarget() instanceof org.eclipse.cmf.occi.docker.Container) {
-								ContainerConnector con = (ContainerConnector) contains.getTarget();
+			// Start the machine
+			DockerMachineHelper.startCmd(runtime, machineName);
 
-								// The container does not exists in the machine
-								if (!containerIsDeployed(con.getName(), this.compute, listContainers)) {
+			// Regenerate Cert when IP addresses change
+			DockerMachineHelper.regenerateCert(runtime, machineName);
 
-									// Create container
-									con.createContainer(this.compute);
+			// Set state
+			compute.setOcciComputeState(ComputeStatus.ACTIVE);
 
-									// Start container
-									con.start();
-								} else { // The container exists, then just starts it
-									// Start container
-									con.start();
-								}
-							}
-						}
-					}
-				} else { // Create the graph
-					Multimap<String, String> dependencies = this.containerDependency;
-					for (Container c : this.deploymentOrder()) {
-						ContainerConnector con = (ContainerConnector) c;
-						if (!containerIsDeployed(con.getName(), compute, listContainers)) {
+			// Create the network if it exists
+			this.createNetwork(networks);
 
-							// Create container
-							con.createContainer(this.compute, dependencies);
+		} else {
+			// The machine is running, the containers must not try to start it again.
+			compute.setOcciComputeState(ComputeStatus.ACTIVE);
+		}
 
-							// Start container
-							con.start();
-						} else {
+		// The machine is up, the other machines may start during the deployment.
+		MachineProvisioner.machineUp();
 
-							// Start container
-							con.start();
-						}
-					}
-				}
-			}
-		} else { // The machine exits, just start it and create the containers inside it
-			if (!activeHosts.containsKey(machineName)) {
+		// Create the Containers belong to this machine.
+		this.deployContainers();
 
-				// Start the machine
-				DockerMachineHelper.startCmd(runtime, machineName);
+		// Connect all container to network overlay
+		this.connectToNetwork(this.compute, networks);
 
-				// Regenerate Cert when IP addresses change
-				DockerMachineHelper.regenerateCert(runtime, machineName);
+		System.out.println("EXECUTE COMMAND: " + command.toString());
+	}
 
-				// Set state
-				compute.setOcciComputeState(ComputeStatus.ACTIVE);
-
-				// Create the network if it exists
-				this.createNetwork(networks);
-
-				// Create the Containers belong to this machine.
-				List<com.github.dockerjava.api.model.Container> listContainers = dockerContainerManager
-						.listContainer(compute);
-				if (!compute.getLinks().isEmpty()) {
-
-					// Start the containers without create graph
-					if (!this.linkFound()) {
-						for (Link link : compute.getLinks()) {
-							if (link instanceof Contains) {
-								Contains contains = (Contains) link;
-								if (contains.getTarget() instanceof Container) {
-									ContainerConnector con = (ContainerConnector) contains.getTarget();
-
-									// The container does not exists in the machine
-									if (!containerIsDeployed(con.getName(), this.compute, listContainers)) {
-
-										// Create container
-										System.out.println("Creating the container: " + con.getName());
-										con.createContainer(this.compute);
-										System.out.println("The container is created");
-
-										// Start container
-										con.start();
-									} else { // The machine exists
-										// Start container
-										System.out.println("Trying to start container: " + con.getName());
-										con.start();
-										System.out.println("Started ...");
-									}
-								}
-							}
-						}
-					} else {
-						for (Container c : this.deploymentOrder()) {
-							ContainerConnector con = (ContainerConnector) c;
-
-							// The container does not exists in the machine
-							if (!containerIsDeployed(con.getName(), compute, listContainers)) {
-
-								// Create container
-								con.createContainer(this.compute, this.containerDependency);
-
-								// Start container
-								con.start();
-							} else { // The container exists
-								// Start container
-								System.out.println("Trying to start container: " + con.getName());
-								con.start();
-								System.out.println("Started ... ");
-							}
-						}
+	/**
+	 * Create and start all the containers of this machine. Without link between
+	 * the containers, they are all deployed concurrently. Else they are deployed
+	 * level by level from the dependency graph, the containers of a level are
+	 * deployed concurrently once all the containers of the previous levels are
+	 * running.
+	 * 
+	 * @throws DockerException
+	 *             if a container cannot be created or started, the next levels
+	 *             are not deployed.
+	 */
+	public void deployContainers() throws DockerException {
+		if (compute.getLinks().isEmpty()) {
+			return;
+		}
+		String machineName = getMachineName(compute);
+		List<com.github.dockerjava.api.model.Container> listContainers = dockerContainerManager
+				.listContainer(compute);
+		int parallelism = getContainerParallelism();
+		final AtomicInteger count = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "docker-deploy-" + machineName + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			if (!this.linkFound()) {
+				// Start the containers without create graph
+				List<Container> containers = new ArrayList<>();
+				for (Link link : compute.getLinks()) {
+					if (link instanceof Contains && link.getTarget() instanceof Container) {
+						containers.add((Container) link.getTarget());
 					}
 				}
+				deployLevel(executor, containers, listContainers, null);
 			} else {
-
-				// Create the Containers belong to this machine.
-				List<com.github.dockerjava.api.model.Container> listContainers = dockerContainerManager
-						.listContainer(compute);
-				if (!compute.getLinks().isEmpty()) {
-
-					// Start the containers without create graph
-					if (!this.linkFound()) {
-						for (Link link : compute.getLinks()) {
-							if (link instanceof Contains) {
-								Contains contains = (Contains) link;
-								if (contains.getTarget() instanceof Container) {
-									ContainerConnector con = (ContainerConnector) contains.getTarget();
-									if (!containerIsDeployed(con.getName(), this.compute, listContainers)) {
-
-										// Create container
-										con.createContainer(this.compute);
-
-										// Start container
-										con.start();
-									} else {
-
-										// Start container
-										System.out.println("Trying to start container: " + con.getName());
-										con.start();
-										System.out.println("Started ...");
-									}
-								}
-							}
-						}
-					} else {
-						for (Container c : this.deploymentOrder()) {
-							ContainerConnector con = (ContainerConnector) c;
-
-							// The container does not exists in the machine
-							if (!containerIsDeployed(con.getName(), compute, listContainers)) {
-
-								// Create container
-								con.createContainer(this.compute, this.containerDependency);
-
-								// Start container
-								System.out.println("Trying to start container: " + con.getName());
-								con.start();
-								System.out.println("Started ... ");
-							} else { // The container exists
-								// Start container
-								System.out.println("Trying to start container: " + con.getName());
-								System.out.println("Started ... ");
-								con.start();
-							}
-						}
-					}
+				List<List<Container>> levels = this.deploymentLevels();
+				for (int i = 0; i < levels.size(); i++) {
+					LOGGER.info("Deploying level " + i + " of machine " + machineName + " : " + levels.get(i).size()
+							+ " containers");
+					deployLevel(executor, levels.get(i), listContainers, this.containerDependency);
 				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
 
+	/**
+	 * Deploy the containers of a level concurrently and wait for all of them.
+	 * The docker calls are done by the executor threads, the model of the
+	 * started containers is updated by this thread.
+	 * 
+	 * @param executor
+	 * @param level
+	 * @param listContainers
+	 *            the containers already deployed on the machine.
+	 * @param dependencies
+	 *            the links between the containers, null if there is no link.
+	 * @throws DockerException
+	 */
+	private void deployLevel(final ExecutorService executor, final List<Container> level,
+			final List<com.github.dockerjava.api.model.Container> listContainers,
+			final Multimap<String, String> dependencies) throws DockerException {
+		Map<ContainerConnector, Future<String>> futures = new LinkedHashMap<>();
+		for (Container c : level) {
+			final ContainerConnector con = (ContainerConnector) c;
+			com.github.dockerjava.api.model.Container deployed = getDeployedContainer(con.getName(), this.compute,
+					listContainers);
+			final String containerId = deployed != null ? deployed.getId() : null;
+			futures.put(con, executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return con.deployContainer(compute, containerId, dependencies);
+				}
+			}));
+		}
+		DockerException failure = null;
+		for (Map.Entry<ContainerConnector, Future<String>> entry : futures.entrySet()) {
+			String name = entry.getKey().getName();
+			try {
+				entry.getKey().deployed(this.compute, entry.getValue().get());
+			} catch (InterruptedException ex) {
+				for (Future<String> future : futures.values()) {
+					future.cancel(true);
+				}
+				Thread.currentThread().interrupt();
+				throw new DockerException("Interrupted while deploying the containers", ex);
+			} catch (ExecutionException ex) {
+				LOGGER.error("Cannot deploy container " + name + " : " + ex.getCause().getMessage());
+				if (failure == null) {
+					failure = new DockerException("Cannot deploy container " + name, ex.getCause());
+				}
+			} catch (DockerException ex) {
+				LOGGER.error("Cannot monitor container " + name + " : " + ex.getMessage());
+				if (failure == null) {
+					failure = ex;
+				}
 			}
 		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
 
-		// Connect all container to network overlay
-		this.connectToNetwork(this.compute, networks);
+	/**
+	 * 
+	 * @return the maximum number of containers deployed at the same time on this
+	 *         machine.
+	 */
+	public int getContainerParallelism() {
+		if (containerParallelism > 0) {
+			return containerParallelism;
+		}
+		try {
+			return Math.max(1, DockerConnectorConfig.getCurrent().getIntProperty(
+					DockerConfigurationHelper.KEY_CONTAINER_DEPLOY_PARALLELISM, DEFAULT_CONTAINER_PARALLELISM));
+		} catch (IOException ex) {
+			return DEFAULT_CONTAINER_PARALLELISM;
+		}
+	}
 
-		System.out.println("EXECUTE COMMAND: " + command.toString());
+	/**
+	 * 
+	 * @param containerParallelism
+	 *            the maximum number of containers deployed at the same time on
+	 *            this machine, 0 to use the configuration value.
+	 */
+	public void setContainerParallelism(int containerParallelism) {
+		this.containerParallelism = containerParallelism;
 	}
 
 	/**
@@ -440,6 +451,11 @@ public abstract class MachineManager extends ComputeStateMachine<Compute> {
 		// refreshing compute state :
 		// (else synchronize useless, because fails if machine stopped without the model
 		// knowing it)
+		if (HostStateService.HOST_TIMEOUT.equals(hosts.get(machineName))) {
+			// The daemon has not answered in time, its state is unknown.
+			LOGGER.warn("State of machine " + machineName + " is unknown, not synchronized");
+			return;
+		}
 		if (hosts.containsKey(machineName) && !DockerUtil.HOST_RUNNING.equalsIgnoreCase(hosts.get(machineName))) { // else
 																													// #193
 																													// several
@@ -461,7 +477,8 @@ public abstract class MachineManager extends ComputeStateMachine<Compute> {
 
 		if (this.compute.getOcciComputeState().equals(ComputeStatus.ACTIVE)) {
 			ModelHandler instanceMH = new ModelHandler();
-			DockerClientManager instance = new DockerClientManager(this.compute);
+			// Reuse the machine manager, its client is shared by the registry.
+			DockerClientManager instance = dockerContainerManager;
 			List<com.github.dockerjava.api.model.Container> listContainers = dockerContainerManager
 					.listContainer(compute);
 			if (!this.compute.getLinks().isEmpty()) {
@@ -601,10 +618,9 @@ public abstract class MachineManager extends ComputeStateMachine<Compute> {
 	}
 
 	/**
-	 * Provide the containers deployment order.
+	 * Build the dependency graph of the containers linked to other containers.
 	 */
-	public List<Container> deploymentOrder() {
-		List<Container> containers = new ArrayList<>();
+	private Graph<Container> dependencyGraph() {
 		Graph<Container> graph = new Graph<Container>();
 
 		for (Link l : compute.getLinks()) {
@@ -612,42 +628,75 @@ public abstract class MachineManager extends ComputeStateMachine<Compute> {
 				Contains contains = (Contains) l;
 				if (contains.getTarget() instanceof Container) {
 					Container container = (Container) contains.getTarget();
+					graph.addNode(container);
 					for (Link cl : container.getLinks()) {
 						if (cl.getTarget() instanceof Container) {
 							graph.addDependency(container, ((Container) cl.getTarget()));
-							this.containerDependency.put(container.getName(), ((Container) cl.getTarget()).getName());
+							if (!this.containerDependency.containsEntry(container.getName(),
+									((Container) cl.getTarget()).getName())) {
+								this.containerDependency.put(container.getName(),
+										((Container) cl.getTarget()).getName());
+							}
 						}
 					}
 
 				}
 			}
 		}
-		System.out.println("------------------- GRAPH : " + graph);
-		try {
-			if (graph.deploymentOrder() != null) {
-				for (GraphNode<Container> c : graph.deploymentOrder()) {
+		return graph;
+	}
 
-					containers.add(c.value);
-					System.out.println("--->" + c.value);
-				}
+	/**
+	 * Provide the containers deployment order.
+	 * 
+	 * @throws DockerException
+	 *             if the links between the containers form a cycle.
+	 */
+	public List<Container> deploymentOrder() throws DockerException {
+		List<Container> containers = new ArrayList<>();
+		for (List<Container> level : deploymentLevels()) {
+			containers.addAll(level);
+		}
+		if (LOGGER.isDebugEnabled()) {
+			for (Container container : containers) {
+				LOGGER.debug("Container : " + container.getName());
 			}
-
-		} catch (NullPointerException exception) { // TODO : Conception problem, remove this try catch nullpointer...
-
 		}
+		return containers;
+	}
 
+	/**
+	 * Provide the containers grouped by deployment level. The containers of a
+	 * level only depend on containers of the previous levels, the standalone
+	 * containers are in the first level.
+	 * 
+	 * @throws DockerException
+	 *             if the links between the containers form a cycle.
+	 */
+	public List<List<Container>> deploymentLevels() throws DockerException {
+		Graph<Container> graph = dependencyGraph();
+		LOGGER.debug("Dependency graph : " + graph);
+		List<List<Container>> levels = new ArrayList<>();
+		Set<Container> deployed = new HashSet<>();
+		for (List<GraphNode<Container>> nodes : graph.deploymentLevels()) {
+			List<Container> level = new ArrayList<>();
+			for (GraphNode<Container> node : nodes) {
+				if (deployed.add(node.value)) {
+					level.add(node.value);
+				}
+			}
+			levels.add(level);
+		}
 		// Add standalone container
+		if (levels.isEmpty()) {
+			levels.add(new ArrayList<Container>());
+		}
 		for (Container standaloneContainer : this.leafContainers()) {
-			if (!containers.contains(standaloneContainer)) {
-				containers.add(standaloneContainer);
+			if (deployed.add(standaloneContainer)) {
+				levels.get(0).add(standaloneContainer);
 			}
 		}
-
-		for (Container container : containers) {
-			System.out.println("Container : " + container.getName());
-		}
-
-		return containers;
+		return levels;
 	}
 
 	/**
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.exceptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when the links between the containers form a cycle, so they cannot be
+ * deployed.
+ * 
+ * @author Christophe Gourdin
+ *
+ */
+public class DependencyCycleException extends DockerException {
+
+	private static final long serialVersionUID = 2460935245176314706L;
+
+	private final List<Object> cycle;
+
+	/**
+	 * 
+	 * @param cycle
+	 *            the values of the cycle, the first value depends on the second
+	 *            one and so on, the last one depends on the first one.
+	 */
+	public DependencyCycleException(List<?> cycle) {
+		super("Dependency cycle detected : " + format(cycle));
+		this.cycle = Collections.unmodifiableList(new ArrayList<Object>(cycle));
+	}
+
+	public List<Object> getCycle() {
+		return cycle;
+	}
+
+	private static String format(List<?> cycle) {
+		StringBuilder sb = new StringBuilder();
+		for (Object value : cycle) {
+			sb.append(value).append(" -> ");
+		}
+		if (!cycle.isEmpty()) {
+			sb.append(cycle.get(0));
+		}
+		return sb.toString();
+	}
+
+}
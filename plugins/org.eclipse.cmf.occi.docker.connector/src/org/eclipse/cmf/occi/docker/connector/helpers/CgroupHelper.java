@@ -13,7 +13,6 @@
 package org.eclipse.cmf.occi.docker.connector.helpers;
 
 import org.eclipse.cmf.occi.docker.Container;
-import org.eclipse.cmf.occi.docker.connector.DockerClientManager;
 import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +48,8 @@ public class CgroupHelper {
 	public static final String cpu_cfs_quota = "cpu.cfs_quota_us";
 
 	/**
+	 * Write a value in a cgroup file of a container, the previous value is
+	 * restored if the write fails.
 	 * 
 	 * @param host
 	 * @param privateKey
@@ -60,21 +61,38 @@ public class CgroupHelper {
 	 */
 	public static void SetValue(String host, String privateKey, Container container, String subsystem, String file,
 			String value) throws DockerException {
-		if (subsystem == null) {
-			System.out.println("Cant set value in cgroup, the subsystem is null for container : " + container.getName());
-			return;
-		}
-		if (file == null) {
-			System.out.println("Cant set value in cgroup, the file is null for container : " + container.getName());
-			return;
-		}
-		if (value == null) {
-			System.out.println("Cant set value in cgroup, this value is null for container : " + container.getName());
-			return;
-		}
-		if (container.getContainerid() == null) {
-			System.out.println("Cant set value in cgroup, the container id is not set for container : " + container.getName());
-			return;
+		CgroupWriteBatch batch = new CgroupWriteBatch(host, privateKey);
+		batch.add(container, subsystem, file, value);
+		batch.execute();
+	}
+
+	/**
+	 * 
+	 * @param container
+	 * @param subsystem
+	 * @param file
+	 * @return the path of the cgroup file of the container.
+	 */
+	public static String getFilePath(Container container, String subsystem, String file) {
+		return cGroupPath + subsystem + "/docker/" + container.getContainerid() + "/" + file;
+	}
+
+	/**
+	 * Convert a model value to the content of a cgroup file.
+	 * 
+	 * @param container
+	 * @param file
+	 * @param value
+	 * @return the content to write, null if this file is not supported (the cpu
+	 *         cfs files are not written until the quota is computed from the
+	 *         speed of the machine).
+	 * @throws DockerException
+	 *             if the value is not a number.
+	 */
+	public static String formatValue(Container container, String file, String value) throws DockerException {
+		if (file.equalsIgnoreCase(blkio_read) || file.equalsIgnoreCase(blkio_write)) {
+			// Already formatted as "major:minor bytes".
+			return value;
 		}
 		Float valueFlt = 0.0F;
 		Integer valueInt = 0;
@@ -91,32 +109,31 @@ public class CgroupHelper {
 			ex.printStackTrace();
 			throw new DockerException(ex.getClass().getName() + " --> " + ex.getMessage() + " : value is not an integer");
 		}
-		
-		String filePath = cGroupPath + subsystem + "/docker/" + container.getContainerid() + "/" + file;
-		String command = "";
-		
-		
-		System.out.println("CGroup FilePath : " + filePath);
-		
-		DockerClientManager dockerClientManager = new DockerClientManager();
 
-		if (file.equalsIgnoreCase(memory_max_mem)) {
-			command = "echo '" + valueInt + "' > " + filePath;
-			System.out.println("EXECUTE COMMAND: " + command);
-			dockerClientManager.connect(host, privateKey, command);
-		} else if (file.equalsIgnoreCase(cpuset_cpus)) {
-			command = "echo '" + cpuSetGenerator(value, container) + "' > " + filePath;
-			System.out.println("EXECUTE COMMAND: " + command);
-			dockerClientManager.connect(host, privateKey, command);
-		} else if (file.equalsIgnoreCase(net_cls_classid)) {
-			command = "echo '" + valueInt + "' > " + filePath;
-			System.out.println("EXECUTE COMMAND: " + command);
-			dockerClientManager.connect(host, privateKey, command);
-		} else if (file.equalsIgnoreCase(memory_swap)) {
-			command = "echo '" + valueInt + "' > " + filePath;
-			System.out.println("EXECUTE COMMAND: " + command);
-			dockerClientManager.connect(host, privateKey, command);
+		if (file.equalsIgnoreCase(cpuset_cpus)) {
+			return cpuSetGenerator(value, container);
+		}
+		if (file.equalsIgnoreCase(memory_max_mem) || file.equalsIgnoreCase(net_cls_classid)
+				|| file.equalsIgnoreCase(memory_swap)) {
+			return String.valueOf(valueInt);
+		}
+		return null;
+	}
+
+	/**
+	 * 
+	 * @param file
+	 * @param value
+	 *            the new content of the file.
+	 * @return the content removing the limit set by value, used to roll back a
+	 *         file that was empty, null if not needed.
+	 */
+	public static String resetValue(String file, String value) {
+		if ((file.equalsIgnoreCase(blkio_read) || file.equalsIgnoreCase(blkio_write)) && value.contains(" ")) {
+			// A throttle is removed by a zero limit on its device.
+			return value.substring(0, value.indexOf(' ')) + " 0";
 		}
+		return null;
 	}
 
 	/**
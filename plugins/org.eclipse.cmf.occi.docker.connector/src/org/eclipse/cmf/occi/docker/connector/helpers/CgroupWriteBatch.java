@@ -0,0 +1,359 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.cmf.occi.docker.Container;
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cgroup writes of a host executed by one remote script. The writes are done
+ * in order, the previous content of each file is read before its write. When
+ * a write fails, the next ones are not done and the files already written get
+ * back their previous content.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class CgroupWriteBatch {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(CgroupWriteBatch.class);
+
+	public enum Status {
+		/**
+		 * Not done, a previous write has failed.
+		 */
+		SKIPPED,
+		/**
+		 * Written.
+		 */
+		APPLIED,
+		/**
+		 * The write has failed.
+		 */
+		FAILED,
+		/**
+		 * Written then restored to its previous content.
+		 */
+		ROLLED_BACK,
+		/**
+		 * Written but its previous content cannot be restored.
+		 */
+		ROLLBACK_FAILED
+	}
+
+	/**
+	 * A write of the batch and its outcome.
+	 */
+	public static class Write {
+
+		private final String containerName;
+
+		private final String path;
+
+		private final String value;
+
+		private final String resetValue;
+
+		private Status status = Status.SKIPPED;
+
+		private String previousValue = null;
+
+		private String error = null;
+
+		Write(final String containerName, final String path, final String value, final String resetValue) {
+			this.containerName = containerName;
+			this.path = path;
+			this.value = value;
+			this.resetValue = resetValue;
+		}
+
+		public String getContainerName() {
+			return containerName;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 *
+		 * @return the content of the file before the write, null if not read.
+		 */
+		public String getPreviousValue() {
+			return previousValue;
+		}
+
+		/**
+		 *
+		 * @return the error of the write or of its rollback, null if none.
+		 */
+		public String getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return path + "=" + value + " : " + status + (error != null ? " (" + error + ")" : "");
+		}
+	}
+
+	private final String host;
+
+	private final String privateKey;
+
+	private final List<Write> writes = new ArrayList<>();
+
+	private boolean executed = false;
+
+	/**
+	 *
+	 * @param host
+	 * @param privateKey
+	 */
+	public CgroupWriteBatch(final String host, final String privateKey) {
+		this.host = host;
+		this.privateKey = privateKey;
+	}
+
+	/**
+	 * Add a write of a cgroup file of a container, the value is converted like
+	 * {@link CgroupHelper#SetValue}. A write without subsystem, file, value or
+	 * container id is ignored.
+	 *
+	 * @param container
+	 * @param subsystem
+	 * @param file
+	 * @param value
+	 * @return this batch.
+	 * @throws DockerException
+	 *             if the value is not a number, or the batch is already
+	 *             executed.
+	 */
+	public CgroupWriteBatch add(final Container container, final String subsystem, final String file,
+			final String value) throws DockerException {
+		if (executed) {
+			throw new DockerException("Cgroup write batch of host " + host + " already executed");
+		}
+		if (subsystem == null) {
+			LOGGER.warn("Cant set value in cgroup, the subsystem is null for container : " + container.getName());
+			return this;
+		}
+		if (file == null) {
+			LOGGER.warn("Cant set value in cgroup, the file is null for container : " + container.getName());
+			return this;
+		}
+		if (value == null) {
+			LOGGER.warn("Cant set value in cgroup, this value is null for container : " + container.getName());
+			return this;
+		}
+		if (container.getContainerid() == null) {
+			LOGGER.warn("Cant set value in cgroup, the container id is not set for container : " + container.getName());
+			return this;
+		}
+		String content = CgroupHelper.formatValue(container, file, value);
+		if (content == null) {
+			LOGGER.warn("Cgroup file " + file + " is not supported, value not set for container : "
+					+ container.getName());
+			return this;
+		}
+		String filePath = CgroupHelper.getFilePath(container, subsystem, file);
+		LOGGER.debug("CGroup FilePath : " + filePath);
+		writes.add(new Write(container.getName(), filePath, content, CgroupHelper.resetValue(file, content)));
+		return this;
+	}
+
+	public boolean isEmpty() {
+		return writes.isEmpty();
+	}
+
+	public int size() {
+		return writes.size();
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	/**
+	 *
+	 * @return the writes of this batch, with their outcome once executed.
+	 */
+	public List<Write> getWrites() {
+		return Collections.unmodifiableList(writes);
+	}
+
+	/**
+	 * Execute all the writes on the host with one ssh command.
+	 *
+	 * @return the writes with their outcome.
+	 * @throws DockerException
+	 *             if the host or the private key is not set, the script cannot
+	 *             be executed or a write has failed, the outcome of each write
+	 *             is then given by {@link #getWrites()}.
+	 */
+	public List<Write> execute() throws DockerException {
+		if (executed) {
+			throw new DockerException("Cgroup write batch of host " + host + " already executed");
+		}
+		if (writes.isEmpty()) {
+			executed = true;
+			return getWrites();
+		}
+		if (host == null) {
+			throw new DockerException("Known host is not set");
+		}
+		if (privateKey == null) {
+			throw new DockerException("private key is not set");
+		}
+		executed = true;
+		String script = buildScript();
+		LOGGER.info("Execute cgroup batch on " + host + " : " + writes.size() + " writes");
+		SshSessionPool.ExecResult result = SshSessionPool.getInstance().exec(host, privateKey,
+				"sudo sh -c " + quote(script));
+		parseOutput(result.getOutput());
+
+		boolean failed = !result.isSuccess();
+		boolean rollbackFailed = false;
+		StringBuilder message = new StringBuilder();
+		for (Write write : writes) {
+			if (write.status != Status.APPLIED) {
+				failed = true;
+			}
+			if (write.status == Status.ROLLBACK_FAILED) {
+				rollbackFailed = true;
+			}
+			if (write.status == Status.FAILED || write.status == Status.ROLLBACK_FAILED) {
+				LOGGER.error("Cgroup write on host " + host + " : " + write);
+				message.append(' ').append(write);
+			}
+		}
+		if (failed) {
+			if (message.length() == 0) {
+				message.append(" exit status ").append(result.getExitStatus()).append(' ')
+						.append(result.getError().trim());
+			}
+			throw new DockerException("Cgroup writes on host " + host + " have failed, "
+					+ (rollbackFailed ? "some previous values cannot be restored :" : "rolled back :") + message);
+		}
+		return getWrites();
+	}
+
+	/**
+	 * Build the script, it prints one line by outcome : "PREV i content",
+	 * "OK i", "FAIL i error", "ROLLBACK i OK" or "ROLLBACK i FAIL error".
+	 *
+	 * @return the shell script executed by {@link #execute()}.
+	 */
+	public String buildScript() {
+		String oneLine = " | tr '\\n' ' '";
+		StringBuilder script = new StringBuilder("failed=\n");
+		for (int i = 0; i < writes.size(); i++) {
+			Write write = writes.get(i);
+			String path = quote(write.path);
+			script.append("if [ -z \"$failed\" ]; then\n");
+			script.append("  if old_").append(i).append("=$(cat ").append(path).append(" 2>&1); then\n");
+			script.append("    echo \"PREV ").append(i).append(" $(printf '%s' \"$old_").append(i).append("\"")
+					.append(oneLine).append(")\"\n");
+			script.append("    if err=$(printf '%s\\n' ").append(quote(write.value)).append(" 2>&1 > ").append(path)
+					.append("); then echo \"OK ").append(i).append("\"; else echo \"FAIL ").append(i)
+					.append(" $(printf '%s' \"$err\"").append(oneLine).append(")\"; failed=").append(i)
+					.append("; fi\n");
+			script.append("  else\n");
+			script.append("    echo \"FAIL ").append(i).append(" $(printf '%s' \"$old_").append(i).append("\"")
+					.append(oneLine).append(")\"; failed=").append(i).append("\n");
+			script.append("  fi\n");
+			script.append("fi\n");
+		}
+		script.append("[ -z \"$failed\" ] && exit 0\n");
+		// Restore the written files, last written first.
+		for (int i = writes.size() - 1; i >= 0; i--) {
+			Write write = writes.get(i);
+			String path = quote(write.path);
+			String reset = write.resetValue != null ? "printf '%s\\n' " + quote(write.resetValue) + " > " + path : ":";
+			script.append("if [ \"$failed\" -gt ").append(i).append(" ]; then\n");
+			script.append("  if err=$( { if [ -n \"$old_").append(i).append("\" ]; then printf '%s\\n' \"$old_")
+					.append(i).append("\" | while IFS= read -r line; do printf '%s\\n' \"$line\" > ").append(path)
+					.append(" || exit 1; done; else ").append(reset).append("; fi; } 2>&1 ); then echo \"ROLLBACK ")
+					.append(i).append(" OK\"; else echo \"ROLLBACK ").append(i).append(" FAIL $(printf '%s' \"$err\"")
+					.append(oneLine).append(")\"; fi\n");
+			script.append("fi\n");
+		}
+		script.append("exit 1\n");
+		return script.toString();
+	}
+
+	/**
+	 * Read the outcome of each write from the output of the script, the unknown
+	 * lines are ignored.
+	 *
+	 * @param output
+	 *            the standard output of the script.
+	 */
+	public void parseOutput(final String output) {
+		if (output == null) {
+			return;
+		}
+		for (String line : output.split("\n")) {
+			String[] parts = line.trim().split(" ", 3);
+			try {
+				if (parts.length >= 2 && parts[0].equals("ROLLBACK")) {
+					String[] outcome = line.trim().split(" ", 4);
+					Write write = writes.get(Integer.parseInt(outcome[1]));
+					if (outcome.length >= 3 && outcome[2].equals("OK")) {
+						write.status = Status.ROLLED_BACK;
+					} else {
+						write.status = Status.ROLLBACK_FAILED;
+						write.error = outcome.length >= 4 ? outcome[3].trim() : null;
+					}
+				} else if (parts.length >= 2) {
+					Write write = writes.get(Integer.parseInt(parts[1]));
+					String text = parts.length >= 3 ? parts[2].trim() : "";
+					if (parts[0].equals("PREV")) {
+						write.previousValue = text;
+					} else if (parts[0].equals("OK")) {
+						write.status = Status.APPLIED;
+					} else if (parts[0].equals("FAIL")) {
+						write.status = Status.FAILED;
+						write.error = text;
+					}
+				}
+			} catch (NumberFormatException | IndexOutOfBoundsException ex) {
+				LOGGER.warn("Unexpected cgroup batch output on host " + host + " : " + line);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return the value quoted for a posix shell.
+	 */
+	private static String quote(final String value) {
+		return "'" + value.replace("'", "'\\''") + "'";
+	}
+
+}
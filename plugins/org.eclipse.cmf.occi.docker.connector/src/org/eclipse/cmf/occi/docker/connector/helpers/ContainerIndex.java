@@ -0,0 +1,524 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.eclipse.cmf.occi.infrastructure.Compute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+
+/**
+ * Index of the containers of a machine, by name and by id. The index is loaded
+ * by one list call and kept up to date by the events stream of the machine,
+ * so finding a container id by its name doesn't need to list all the
+ * containers. While the events stream is closed, the index is loaded again on
+ * next use. When the stream resumes, the index is used again, or loaded from
+ * the reconciliation list if events may have been missed.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class ContainerIndex implements MachineEventStream.Listener {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(ContainerIndex.class);
+
+	public static final String STATE_CREATED = "created";
+	public static final String STATE_RUNNING = "running";
+	public static final String STATE_PAUSED = "paused";
+	public static final String STATE_EXITED = "exited";
+
+	/**
+	 * Separator of the link names given by the connector (nameLinkToalias).
+	 */
+	private static final String LINK_NAME = "LinkTo";
+
+	/**
+	 * Indexes by machine key.
+	 */
+	private static final Map<String, ContainerIndex> indexes = new ConcurrentHashMap<>();
+
+	private final String machineKey;
+
+	/**
+	 * Container id by name.
+	 */
+	private final Map<String, String> ids = new ConcurrentHashMap<>();
+
+	/**
+	 * Container id by link alias, the alias is the part of a link name after
+	 * LinkTo.
+	 */
+	private final Map<String, String> aliases = new ConcurrentHashMap<>();
+
+	/**
+	 * Container summary by id.
+	 */
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * True when the index has been loaded and the events stream is open.
+	 */
+	private volatile boolean live = false;
+
+	/**
+	 * True when the index has been loaded once.
+	 */
+	private boolean loaded = false;
+
+	private MachineEventStream eventStream = null;
+
+	private ContainerIndex(final String machineKey) {
+		this.machineKey = machineKey;
+	}
+
+	/**
+	 *
+	 * @param compute
+	 *            the machine, null for the local docker daemon.
+	 * @return the index of this machine.
+	 * @throws DockerException
+	 */
+	public static ContainerIndex getInstance(final Compute compute) throws DockerException {
+		String key = DockerClientRegistry.getMachineKey(compute);
+		ContainerIndex index = indexes.get(key);
+		if (index == null) {
+			ContainerIndex newIndex = new ContainerIndex(key);
+			index = indexes.putIfAbsent(key, newIndex);
+			if (index == null) {
+				index = newIndex;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Forget the index of this machine, its events stream is closed.
+	 *
+	 * @param machineName
+	 */
+	public static void invalidate(final String machineName) {
+		ContainerIndex index = indexes.remove(machineName);
+		if (index != null) {
+			index.close();
+		}
+	}
+
+	public static void invalidateAll() {
+		for (String key : new ArrayList<>(indexes.keySet())) {
+			invalidate(key);
+		}
+	}
+
+	/**
+	 *
+	 * @param compute
+	 *            the machine of this index.
+	 * @param client
+	 *            the client used to list the containers if the index is not
+	 *            loaded.
+	 * @param name
+	 *            the container name or one of its link aliases, case sensitive
+	 *            as docker names.
+	 * @return the container id, null if no container has this name.
+	 * @throws DockerException
+	 */
+	public String getContainerId(final Compute compute, final DockerClient client, final String name)
+			throws DockerException {
+		if (name == null) {
+			return null;
+		}
+		ensureLoaded(compute, client);
+		String normalizedName = normalizeName(name);
+		String id = ids.get(normalizedName);
+		return id != null ? id : aliases.get(normalizedName);
+	}
+
+	/**
+	 *
+	 * @param compute
+	 * @param client
+	 * @param containerId
+	 * @return the container summary, null if unknown.
+	 * @throws DockerException
+	 */
+	public Entry getContainer(final Compute compute, final DockerClient client, final String containerId)
+			throws DockerException {
+		if (containerId == null) {
+			return null;
+		}
+		ensureLoaded(compute, client);
+		return entries.get(containerId);
+	}
+
+	/**
+	 *
+	 * @param compute
+	 * @param client
+	 * @return the summaries of all the containers of the machine.
+	 * @throws DockerException
+	 */
+	public List<Entry> getContainers(final Compute compute, final DockerClient client) throws DockerException {
+		ensureLoaded(compute, client);
+		return new ArrayList<>(entries.values());
+	}
+
+	/**
+	 * Load the index from a complete list of the containers of the machine.
+	 *
+	 * @param containers
+	 *            all the containers (list with showAll).
+	 */
+	public synchronized void load(final List<com.github.dockerjava.api.model.Container> containers) {
+		Map<String, String> newIds = new HashMap<>();
+		Map<String, String> newAliases = new HashMap<>();
+		Map<String, Entry> newEntries = new HashMap<>();
+		for (com.github.dockerjava.api.model.Container container : containers) {
+			Entry entry = new Entry(container.getId(), getName(container), container.getImage(),
+					stateFromStatus(container.getStatus()), container.getLabels());
+			newEntries.put(entry.getId(), entry);
+			if (entry.getName() != null) {
+				newIds.put(entry.getName(), entry.getId());
+			}
+			for (String alias : getLinkAliases(container)) {
+				newAliases.put(alias, entry.getId());
+			}
+		}
+		ids.clear();
+		ids.putAll(newIds);
+		aliases.clear();
+		aliases.putAll(newAliases);
+		entries.clear();
+		entries.putAll(newEntries);
+	}
+
+	/**
+	 * Register a container just created, without waiting for its event.
+	 *
+	 * @param containerId
+	 * @param name
+	 * @param image
+	 */
+	public void put(final String containerId, final String name, final String image) {
+		if (containerId == null || name == null) {
+			return;
+		}
+		Entry previous = entries.get(containerId);
+		Map<String, String> labels = previous == null ? null : previous.getLabels();
+		String state = previous == null ? STATE_CREATED : previous.getState();
+		put(new Entry(containerId, normalizeName(name), image, state, labels));
+	}
+
+	/**
+	 * Forget a container just removed.
+	 *
+	 * @param containerId
+	 */
+	public synchronized void remove(final String containerId) {
+		if (containerId == null) {
+			return;
+		}
+		Entry entry = entries.remove(containerId);
+		if (entry != null && entry.getName() != null) {
+			ids.remove(entry.getName(), containerId);
+		}
+		aliases.values().removeAll(Collections.singleton(containerId));
+	}
+
+	public boolean isLive() {
+		return live;
+	}
+
+	public String getMachineKey() {
+		return machineKey;
+	}
+
+	/**
+	 * Subscribe to the machine events then list the containers. The events
+	 * received during the list wait for the lock, so they are applied after it.
+	 *
+	 * @param compute
+	 * @param client
+	 * @throws DockerException
+	 */
+	private synchronized void ensureLoaded(final Compute compute, final DockerClient client) throws DockerException {
+		if (live) {
+			return;
+		}
+		try {
+			if (eventStream == null) {
+				eventStream = MachineEventStream.getInstance(compute);
+			}
+			eventStream.addListener(this);
+			List<com.github.dockerjava.api.model.Container> containers = ManagedLabels.listContainersCmd(client)
+					.exec();
+			load(containers == null ? Collections.<com.github.dockerjava.api.model.Container>emptyList()
+					: containers);
+			loaded = true;
+			live = true;
+			LOGGER.debug("Container index of machine " + machineKey + " loaded : " + entries.size() + " containers");
+		} catch (RuntimeException ex) {
+			throw new DockerException("Cannot load containers of machine " + machineKey + " : " + ex.getMessage(),
+					ex);
+		}
+	}
+
+	@Override
+	public synchronized void onEvent(final Event event) {
+		apply(event);
+	}
+
+	@Override
+	public synchronized void onStreamClosed() {
+		if (live) {
+			LOGGER.debug("Events stream of machine " + machineKey + " closed, container index will be reloaded");
+			live = false;
+		}
+	}
+
+	@Override
+	public synchronized void onStreamResumed() {
+		// The missed events are replayed.
+		live = loaded;
+	}
+
+	@Override
+	public synchronized void onReconcile(final List<com.github.dockerjava.api.model.Container> containers) {
+		if (loaded) {
+			load(containers);
+			live = true;
+		}
+	}
+
+	/**
+	 * Apply a container event to the index.
+	 *
+	 * @param event
+	 */
+	private void apply(final Event event) {
+		if (event.getType() != null && event.getType() != EventType.CONTAINER) {
+			return;
+		}
+		String action = event.getAction() != null ? event.getAction() : event.getStatus();
+		String id = event.getActor() != null && event.getActor().getId() != null ? event.getActor().getId()
+				: event.getId();
+		if (action == null || id == null) {
+			return;
+		}
+		Map<String, String> attributes = event.getActor() != null ? event.getActor().getAttributes() : null;
+		String name = attributes != null ? attributes.get("name") : null;
+		String image = attributes != null ? attributes.get("image") : event.getFrom();
+		Entry entry = entries.get(id);
+		switch (action) {
+		case "create":
+			put(new Entry(id, normalizeName(name), image, STATE_CREATED, entry == null ? null : entry.getLabels()));
+			break;
+		case "start":
+		case "restart":
+		case "unpause":
+			updateState(id, entry, name, image, STATE_RUNNING);
+			break;
+		case "pause":
+			updateState(id, entry, name, image, STATE_PAUSED);
+			break;
+		case "die":
+		case "stop":
+			updateState(id, entry, name, image, STATE_EXITED);
+			break;
+		case "rename":
+			if (entry != null && entry.getName() != null) {
+				ids.remove(entry.getName(), id);
+			}
+			updateState(id, entry, name, image, entry == null ? STATE_CREATED : entry.getState());
+			break;
+		case "destroy":
+			remove(id);
+			break;
+		default:
+			// kill, exec, attach, health... don't change the index.
+			break;
+		}
+	}
+
+	private void updateState(final String id, final Entry entry, final String name, final String image,
+			final String state) {
+		if (entry == null) {
+			put(new Entry(id, normalizeName(name), image, state, null));
+		} else {
+			put(new Entry(id, name == null ? entry.getName() : normalizeName(name), entry.getImage(), state,
+					entry.getLabels()));
+		}
+	}
+
+	private synchronized void put(final Entry entry) {
+		Entry previous = entries.put(entry.getId(), entry);
+		if (previous != null && previous.getName() != null && !previous.getName().equals(entry.getName())) {
+			ids.remove(previous.getName(), entry.getId());
+		}
+		if (entry.getName() != null) {
+			ids.put(entry.getName(), entry.getId());
+		}
+	}
+
+	private synchronized void close() {
+		live = false;
+		loaded = false;
+		if (eventStream != null) {
+			eventStream.removeListener(this);
+			eventStream = null;
+		}
+	}
+
+	/**
+	 * The name of a container is the one without link alias (/name, not
+	 * /other/alias).
+	 *
+	 * @param container
+	 * @return
+	 */
+	private static String getName(final com.github.dockerjava.api.model.Container container) {
+		String[] names = container.getNames();
+		if (names == null || names.length == 0) {
+			return null;
+		}
+		for (String name : names) {
+			if (name != null && name.lastIndexOf('/') <= 0) {
+				return normalizeName(name);
+			}
+		}
+		return normalizeName(names[0]);
+	}
+
+	/**
+	 * The link names of a container (/other/otherLinkToalias), the container is
+	 * found by its alias as by its name.
+	 *
+	 * @param container
+	 * @return the aliases of the container, without the part before LinkTo.
+	 */
+	private static List<String> getLinkAliases(final com.github.dockerjava.api.model.Container container) {
+		List<String> linkAliases = new ArrayList<>();
+		String[] names = container.getNames();
+		if (names == null) {
+			return linkAliases;
+		}
+		for (String name : names) {
+			int index = name == null ? -1 : name.indexOf(LINK_NAME);
+			if (index >= 0 && index + LINK_NAME.length() < name.length()) {
+				linkAliases.add(name.substring(index + LINK_NAME.length()));
+			}
+		}
+		return linkAliases;
+	}
+
+	/**
+	 * Docker names are case sensitive, only the slashes are removed.
+	 *
+	 * @param name
+	 * @return
+	 */
+	private static String normalizeName(final String name) {
+		if (name == null) {
+			return null;
+		}
+		return name.replaceAll("/", "");
+	}
+
+	/**
+	 *
+	 * @param status
+	 *            the list status (Up 2 minutes, Exited (0) 3 days ago...).
+	 * @return the container state.
+	 */
+	private static String stateFromStatus(final String status) {
+		if (status == null) {
+			return STATE_EXITED;
+		}
+		if (status.startsWith("Up")) {
+			return status.contains("(Paused)") ? STATE_PAUSED : STATE_RUNNING;
+		}
+		if (status.startsWith("Created")) {
+			return STATE_CREATED;
+		}
+		return STATE_EXITED;
+	}
+
+	/**
+	 * Container summary.
+	 */
+	public static class Entry {
+		private final String id;
+		private final String name;
+		private final String image;
+		private final String state;
+		private final Map<String, String> labels;
+
+		Entry(final String id, final String name, final String image, final String state,
+				final Map<String, String> labels) {
+			this.id = id;
+			this.name = name;
+			this.image = image;
+			this.state = state;
+			this.labels = labels == null ? Collections.<String, String>emptyMap()
+					: Collections.unmodifiableMap(new HashMap<>(labels));
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 *
+		 * @return the name without slash.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public String getImage() {
+			return image;
+		}
+
+		/**
+		 *
+		 * @return created, running, paused or exited.
+		 */
+		public String getState() {
+			return state;
+		}
+
+		public Map<String, String> getLabels() {
+			return labels;
+		}
+
+		public boolean isRunning() {
+			return STATE_RUNNING.equals(state) || STATE_PAUSED.equals(state);
+		}
+
+		@Override
+		public String toString() {
+			return "Entry [id=" + id + ", name=" + name + ", state=" + state + "]";
+		}
+	}
+
+}
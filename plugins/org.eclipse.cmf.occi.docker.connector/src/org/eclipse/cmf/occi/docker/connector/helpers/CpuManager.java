@@ -21,18 +21,24 @@ public class CpuManager {
 	private static Logger LOGGER = LoggerFactory.getLogger(CpuManager.class);
 
 	public void setCPUValue(String host, String privateKey, Container container, String value) throws DockerException {
+		CgroupWriteBatch batch = new CgroupWriteBatch(host, privateKey);
+		addCPUValue(batch, container, value);
+		batch.execute();
+	}
 
-		if (host == null) {
-			throw new DockerException("Known host is not set");
-		}
-		if (privateKey == null) {
-			throw new DockerException("private key is not set");
-		}
+	/**
+	 * Add the cpu writes to a batch.
+	 * 
+	 * @param batch
+	 * @param container
+	 * @param value
+	 * @throws DockerException
+	 */
+	public void addCPUValue(CgroupWriteBatch batch, Container container, String value) throws DockerException {
 		if (value == null) {
 			throw new DockerException("cpu value is not set");
 		}
-		CgroupHelper.SetValue(host, privateKey, container, CgroupHelper.cpuset_subsystem, CgroupHelper.cpuset_cpus,
-				value);
+		batch.add(container, CgroupHelper.cpuset_subsystem, CgroupHelper.cpuset_cpus, value);
 	}
 
 	/**
@@ -44,20 +50,25 @@ public class CpuManager {
 	 * @throws DockerException
 	 */
 	public void setFreqValue(String host, String privateKey, Container container, String value) throws DockerException {
+		CgroupWriteBatch batch = new CgroupWriteBatch(host, privateKey);
+		addFreqValue(batch, container, value);
+		batch.execute();
+	}
 
-		if (host == null) {
-			throw new DockerException("Known host is not set");
-		}
-		if (privateKey == null) {
-			throw new DockerException("private key is not set");
-		}
+	/**
+	 * Add the freq writes to a batch.
+	 * 
+	 * @param batch
+	 * @param container
+	 * @param value
+	 * @throws DockerException
+	 */
+	public void addFreqValue(CgroupWriteBatch batch, Container container, String value) throws DockerException {
 		if (value == null) {
 			throw new DockerException("freq value is not set");
 		}
 		int time = Integer.valueOf(value) * 10000;
-		CgroupHelper.SetValue(host, privateKey, container, CgroupHelper.cpu_subsystem, CgroupHelper.cpu_cfs_period,
-				"1000000");
-		CgroupHelper.SetValue(host, privateKey, container, CgroupHelper.cpu_subsystem, CgroupHelper.cpu_cfs_quota,
-				String.valueOf(time));
+		batch.add(container, CgroupHelper.cpu_subsystem, CgroupHelper.cpu_cfs_period, "1000000");
+		batch.add(container, CgroupHelper.cpu_subsystem, CgroupHelper.cpu_cfs_quota, String.valueOf(time));
 	}
 }
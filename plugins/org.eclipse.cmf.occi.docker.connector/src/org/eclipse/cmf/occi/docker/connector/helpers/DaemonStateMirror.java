@@ -0,0 +1,736 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.eclipse.cmf.occi.infrastructure.Compute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.command.InspectVolumeResponse;
+import com.github.dockerjava.api.command.ListVolumesResponse;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import com.github.dockerjava.api.model.Image;
+import com.github.dockerjava.api.model.Network;
+
+/**
+ * Mirror of the state of a docker daemon : containers, networks, volumes and
+ * images. The mirror is seeded by one list call by kind, then kept up to date
+ * by the events stream of the machine : an event only marks its object as
+ * dirty, the object is inspected again on its next read. The detailed
+ * inspection of a container is loaded on first read and kept until an event
+ * of this container.
+ *
+ * While the events stream is closed, the mirror is seeded again on next use.
+ * When the stream resumes, the mirror is used again, or its containers are
+ * loaded from the reconciliation list if events may have been missed.
+ * With managed.only=true, the events stream only has the events of the
+ * managed containers : the networks, volumes and images are listed again on
+ * each read.
+ * The mirror can be disabled with state.mirror=false, the reads then go to
+ * the daemon.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class DaemonStateMirror implements MachineEventStream.Listener {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(DaemonStateMirror.class);
+
+	/**
+	 * Above this number of dirty containers (and a quarter of the containers),
+	 * one list call is cheaper than an inspection by container.
+	 */
+	public static final int FULL_REFRESH_THRESHOLD = 32;
+
+	/**
+	 * Container actions that don't change the container.
+	 */
+	private static final Set<String> IGNORED_CONTAINER_ACTIONS = Collections
+			.unmodifiableSet(new HashSet<>(Arrays.asList("attach", "resize", "top", "export", "archive-path")));
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * Mirrors by machine key.
+	 */
+	private static final Map<String, DaemonStateMirror> mirrors = new ConcurrentHashMap<>();
+
+	private static volatile Boolean enabled = null;
+
+	private final String machineKey;
+
+	private final Map<String, com.github.dockerjava.api.model.Container> containers = new ConcurrentHashMap<>();
+
+	/**
+	 * Inspection of the containers, loaded on first read.
+	 */
+	private final Map<String, InspectContainerResponse> inspections = new ConcurrentHashMap<>();
+
+	private final Map<String, Network> networks = new ConcurrentHashMap<>();
+
+	/**
+	 * Volumes by name.
+	 */
+	private final Map<String, InspectVolumeResponse> volumes = new ConcurrentHashMap<>();
+
+	private volatile List<Image> images = Collections.emptyList();
+
+	private final Set<String> dirtyContainers = ConcurrentHashMap.newKeySet();
+
+	private final Set<String> dirtyNetworks = ConcurrentHashMap.newKeySet();
+
+	private final Set<String> dirtyVolumes = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean dirtyImages = false;
+
+	/**
+	 * Sequence of the last event by object, a refresh is ignored if an event of
+	 * its object is received meanwhile.
+	 */
+	private final Map<String, Long> stamps = new ConcurrentHashMap<>();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * True when the mirror has been seeded and the events stream is open.
+	 */
+	private volatile boolean live = false;
+
+	/**
+	 * True when the mirror has been seeded once.
+	 */
+	private boolean seeded = false;
+
+	/**
+	 * True when the networks or the volumes must be listed again.
+	 */
+	private volatile boolean reloadNetworks = false;
+
+	private volatile boolean reloadVolumes = false;
+
+	private MachineEventStream eventStream = null;
+
+	private DaemonStateMirror(final String machineKey) {
+		this.machineKey = machineKey;
+	}
+
+	/**
+	 *
+	 * @param compute
+	 *            the machine, null for the local docker daemon.
+	 * @return the mirror of this machine.
+	 * @throws DockerException
+	 */
+	public static DaemonStateMirror getInstance(final Compute compute) throws DockerException {
+		String key = DockerClientRegistry.getMachineKey(compute);
+		DaemonStateMirror mirror = mirrors.get(key);
+		if (mirror == null) {
+			DaemonStateMirror newMirror = new DaemonStateMirror(key);
+			mirror = mirrors.putIfAbsent(key, newMirror);
+			if (mirror == null) {
+				mirror = newMirror;
+			}
+		}
+		return mirror;
+	}
+
+	/**
+	 * Forget the mirror of this machine.
+	 *
+	 * @param machineName
+	 */
+	public static void invalidate(final String machineName) {
+		DaemonStateMirror mirror = mirrors.remove(machineName);
+		if (mirror != null) {
+			mirror.close();
+		}
+	}
+
+	public static void invalidateAll() {
+		for (String key : new ArrayList<>(mirrors.keySet())) {
+			invalidate(key);
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the reads use the mirrors (state.mirror is not false).
+	 */
+	public static boolean isEnabled() {
+		if (enabled == null) {
+			try {
+				enabled = !"false".equalsIgnoreCase(
+						DockerConnectorConfig.getCurrent().getProperty(DockerConfigurationHelper.KEY_STATE_MIRROR));
+			} catch (IOException ex) {
+				LOGGER.warn("Cannot read state mirror configuration, it is enabled : " + ex.getMessage());
+				enabled = Boolean.TRUE;
+			}
+		}
+		return enabled;
+	}
+
+	public static void setEnabled(boolean value) {
+		enabled = value;
+	}
+
+	/**
+	 *
+	 * @param compute
+	 * @param client
+	 *            the client used to read the daemon.
+	 * @return all the containers of the machine (list with showAll).
+	 * @throws DockerException
+	 */
+	public List<com.github.dockerjava.api.model.Container> getContainers(final Compute compute,
+			final DockerClient client) throws DockerException {
+		ensureSeeded(compute, client);
+		if (dirtyContainers.size() > Math.max(FULL_REFRESH_THRESHOLD, containers.size() / 4)) {
+			reloadContainers(client);
+		} else {
+			for (String containerId : new ArrayList<>(dirtyContainers)) {
+				refreshContainer(client, containerId);
+			}
+		}
+		return new ArrayList<>(containers.values());
+	}
+
+	/**
+	 *
+	 * @param compute
+	 * @param client
+	 * @param containerId
+	 * @return the inspection of the container.
+	 * @throws DockerException
+	 * @throws NotFoundException
+	 *             if the container doesn't exist.
+	 */
+	public InspectContainerResponse inspectContainer(final Compute compute, final DockerClient client,
+			final String containerId) throws DockerException {
+		ensureSeeded(compute, client);
+		InspectContainerResponse inspection = inspections.get(containerId);
+		if (inspection != null && !dirtyContainers.contains(containerId)) {
+			return inspection;
+		}
+		inspection = refreshContainer(client, containerId);
+		if (inspection == null) {
+			throw new NotFoundException("No such container: " + containerId);
+		}
+		return inspection;
+	}
+
+	/**
+	 *
+	 * @param compute
+	 * @param client
+	 * @return the networks of the machine.
+	 * @throws DockerException
+	 */
+	public List<Network> getNetworks(final Compute compute, final DockerClient client) throws DockerException {
+		ensureSeeded(compute, client);
+		if (reloadNetworks || ManagedLabels.isManagedOnly()) {
+			reloadNetworks = false;
+			long seq = sequence.get();
+			List<Network> list = client.listNetworksCmd().exec();
+			synchronized (this) {
+				networks.clear();
+				if (list != null) {
+					for (Network network : list) {
+						networks.put(network.getId(), network);
+					}
+				}
+				markChangedSince(seq, "network:", dirtyNetworks);
+			}
+		}
+		for (String networkId : new ArrayList<>(dirtyNetworks)) {
+			String key = "network:" + networkId;
+			Long stamp = stamps.get(key);
+			dirtyNetworks.remove(networkId);
+			Network network;
+			try {
+				network = client.inspectNetworkCmd().withNetworkId(networkId).exec();
+			} catch (NotFoundException ex) {
+				network = null;
+			}
+			synchronized (this) {
+				if (!Objects.equals(stamp, stamps.get(key))) {
+					dirtyNetworks.add(networkId);
+				} else if (network == null) {
+					networks.remove(networkId);
+				} else {
+					networks.put(networkId, network);
+				}
+			}
+		}
+		return new ArrayList<>(networks.values());
+	}
+
+	/**
+	 *
+	 * @param compute
+	 * @param client
+	 * @param networkIdOrName
+	 * @return the network, null if the machine has no network with this id or
+	 *         name.
+	 * @throws DockerException
+	 */
+	public Network getNetwork(final Compute compute, final DockerClient client, final String networkIdOrName)
+			throws DockerException {
+		for (Network network : getNetworks(compute, client)) {
+			if (network.getId().equals(networkIdOrName) || network.getName().equals(networkIdOrName)) {
+				return network;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @param compute
+	 * @param client
+	 * @return the volumes of the machine.
+	 * @throws DockerException
+	 */
+	public List<InspectVolumeResponse> getVolumes(final Compute compute, final DockerClient client)
+			throws DockerException {
+		ensureSeeded(compute, client);
+		if (reloadVolumes || ManagedLabels.isManagedOnly()) {
+			reloadVolumes = false;
+			long seq = sequence.get();
+			ListVolumesResponse list = client.listVolumesCmd().exec();
+			synchronized (this) {
+				volumes.clear();
+				if (list != null && list.getVolumes() != null) {
+					for (InspectVolumeResponse volume : list.getVolumes()) {
+						volumes.put(volume.getName(), volume);
+					}
+				}
+				markChangedSince(seq, "volume:", dirtyVolumes);
+			}
+		}
+		for (String name : new ArrayList<>(dirtyVolumes)) {
+			String key = "volume:" + name;
+			Long stamp = stamps.get(key);
+			dirtyVolumes.remove(name);
+			InspectVolumeResponse volume;
+			try {
+				volume = client.inspectVolumeCmd(name).exec();
+			} catch (NotFoundException ex) {
+				volume = null;
+			}
+			synchronized (this) {
+				if (!Objects.equals(stamp, stamps.get(key))) {
+					dirtyVolumes.add(name);
+				} else if (volume == null) {
+					volumes.remove(name);
+				} else {
+					volumes.put(name, volume);
+				}
+			}
+		}
+		return new ArrayList<>(volumes.values());
+	}
+
+	/**
+	 *
+	 * @param compute
+	 * @param client
+	 * @return the images of the machine.
+	 * @throws DockerException
+	 */
+	public List<Image> getImages(final Compute compute, final DockerClient client) throws DockerException {
+		ensureSeeded(compute, client);
+		if (dirtyImages || ManagedLabels.isManagedOnly()) {
+			// The image events name the images by reference or by id, the list is
+			// loaded again.
+			dirtyImages = false;
+			List<Image> list = client.listImagesCmd().exec();
+			images = list == null ? Collections.<Image>emptyList() : list;
+		}
+		return new ArrayList<>(images);
+	}
+
+	/**
+	 * Mark a container as changed by the connector, it is inspected again on
+	 * next read without waiting for its event.
+	 *
+	 * @param containerId
+	 */
+	public void markContainer(final String containerId) {
+		if (containerId != null) {
+			touch("container:" + containerId);
+			dirtyContainers.add(containerId);
+		}
+	}
+
+	/**
+	 * Mark a network as changed by the connector.
+	 *
+	 * @param networkId
+	 */
+	public void markNetwork(final String networkId) {
+		if (networkId != null) {
+			touch("network:" + networkId);
+			dirtyNetworks.add(networkId);
+		}
+	}
+
+	public boolean isLive() {
+		return live;
+	}
+
+	public String getMachineKey() {
+		return machineKey;
+	}
+
+	/**
+	 * Subscribe to the machine events then list the containers, networks,
+	 * volumes and images. The objects changed by an event during the lists are
+	 * marked dirty.
+	 *
+	 * @param compute
+	 * @param client
+	 * @throws DockerException
+	 */
+	private synchronized void ensureSeeded(final Compute compute, final DockerClient client) throws DockerException {
+		if (live) {
+			return;
+		}
+		try {
+			if (eventStream == null) {
+				eventStream = MachineEventStream.getInstance(compute);
+			}
+			eventStream.addListener(this);
+			long seq = sequence.get();
+			List<com.github.dockerjava.api.model.Container> containerList = ManagedLabels.listContainersCmd(client)
+					.exec();
+			List<Network> networkList = client.listNetworksCmd().exec();
+			ListVolumesResponse volumeList = client.listVolumesCmd().exec();
+			List<Image> imageList = client.listImagesCmd().exec();
+
+			inspections.clear();
+			loadContainers(containerList, seq);
+			networks.clear();
+			if (networkList != null) {
+				for (Network network : networkList) {
+					networks.put(network.getId(), network);
+				}
+			}
+			volumes.clear();
+			if (volumeList != null && volumeList.getVolumes() != null) {
+				for (InspectVolumeResponse volume : volumeList.getVolumes()) {
+					volumes.put(volume.getName(), volume);
+				}
+			}
+			images = imageList == null ? Collections.<Image>emptyList() : imageList;
+			// Changed during the lists.
+			markChangedSince(seq, "network:", dirtyNetworks);
+			markChangedSince(seq, "volume:", dirtyVolumes);
+			Long imageStamp = stamps.get("image:");
+			dirtyImages = imageStamp != null && imageStamp > seq;
+			reloadNetworks = false;
+			reloadVolumes = false;
+			seeded = true;
+			live = true;
+			LOGGER.debug("State mirror of machine " + machineKey + " seeded : " + containers.size() + " containers, "
+					+ networks.size() + " networks, " + volumes.size() + " volumes, " + images.size() + " images");
+		} catch (RuntimeException ex) {
+			throw new DockerException("Cannot read state of machine " + machineKey + " : " + ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Replace the containers by a complete list, the containers with an event
+	 * after the sequence stay dirty.
+	 *
+	 * @param containerList
+	 * @param seq
+	 */
+	private synchronized void loadContainers(final List<com.github.dockerjava.api.model.Container> containerList,
+			final long seq) {
+		Map<String, com.github.dockerjava.api.model.Container> loaded = new HashMap<>();
+		if (containerList != null) {
+			for (com.github.dockerjava.api.model.Container container : containerList) {
+				loaded.put(container.getId(), container);
+			}
+		}
+		containers.clear();
+		containers.putAll(loaded);
+		dirtyContainers.clear();
+		Iterator<Map.Entry<String, Long>> it = stamps.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Long> stamp = it.next();
+			if (stamp.getValue() > seq) {
+				if (stamp.getKey().startsWith("container:")) {
+					dirtyContainers.add(stamp.getKey().substring("container:".length()));
+				}
+			} else if (stamp.getKey().startsWith("container:")) {
+				// The list is newer.
+				it.remove();
+			}
+		}
+	}
+
+	private void reloadContainers(final DockerClient client) throws DockerException {
+		long seq = sequence.get();
+		try {
+			loadContainers(ManagedLabels.listContainersCmd(client).exec(), seq);
+			for (String containerId : new ArrayList<>(inspections.keySet())) {
+				if (!containers.containsKey(containerId) || dirtyContainers.contains(containerId)) {
+					inspections.remove(containerId);
+				}
+			}
+		} catch (RuntimeException ex) {
+			throw new DockerException("Cannot list containers of machine " + machineKey + " : " + ex.getMessage(),
+					ex);
+		}
+	}
+
+	/**
+	 * Inspect a container again.
+	 *
+	 * @param client
+	 * @param containerId
+	 * @return the inspection, null if the container doesn't exist.
+	 */
+	private InspectContainerResponse refreshContainer(final DockerClient client, final String containerId) {
+		String key = "container:" + containerId;
+		Long stamp = stamps.get(key);
+		dirtyContainers.remove(containerId);
+		InspectContainerResponse inspection;
+		try {
+			inspection = client.inspectContainerCmd(containerId).exec();
+		} catch (NotFoundException ex) {
+			inspection = null;
+		}
+		synchronized (this) {
+			if (!live || !Objects.equals(stamp, stamps.get(key))) {
+				// Changed meanwhile, the result is returned but not kept.
+				if (live) {
+					dirtyContainers.add(containerId);
+				}
+			} else if (inspection == null) {
+				containers.remove(containerId);
+				inspections.remove(containerId);
+			} else {
+				containers.put(containerId, toContainer(inspection));
+				inspections.put(containerId, inspection);
+			}
+		}
+		return inspection;
+	}
+
+	/**
+	 * Mark dirty the objects of a kind with an event after the sequence.
+	 *
+	 * @param seq
+	 * @param prefix
+	 *            the kind of the objects (network:, volume:).
+	 * @param dirty
+	 */
+	private void markChangedSince(final long seq, final String prefix, final Set<String> dirty) {
+		dirty.clear();
+		for (Map.Entry<String, Long> stamp : stamps.entrySet()) {
+			if (stamp.getValue() > seq && stamp.getKey().startsWith(prefix)) {
+				dirty.add(stamp.getKey().substring(prefix.length()));
+			}
+		}
+	}
+
+	private void touch(final String key) {
+		stamps.put(key, sequence.incrementAndGet());
+	}
+
+	@Override
+	public void onEvent(final Event event) {
+		EventType type = event.getType() == null ? EventType.CONTAINER : event.getType();
+		String action = event.getAction() != null ? event.getAction() : event.getStatus();
+		String id = event.getActor() != null && event.getActor().getId() != null ? event.getActor().getId()
+				: event.getId();
+		if (action == null || id == null) {
+			return;
+		}
+		Map<String, String> attributes = event.getActor() != null ? event.getActor().getAttributes() : null;
+		synchronized (this) {
+			switch (type) {
+			case CONTAINER:
+				if (action.startsWith("exec_") || IGNORED_CONTAINER_ACTIONS.contains(action)) {
+					return;
+				}
+				touch("container:" + id);
+				if ("destroy".equals(action)) {
+					containers.remove(id);
+					inspections.remove(id);
+					dirtyContainers.remove(id);
+				} else {
+					dirtyContainers.add(id);
+				}
+				break;
+			case NETWORK:
+				touch("network:" + id);
+				if ("destroy".equals(action)) {
+					networks.remove(id);
+					dirtyNetworks.remove(id);
+				} else {
+					dirtyNetworks.add(id);
+				}
+				String containerId = attributes != null ? attributes.get("container") : null;
+				if (containerId != null) {
+					// Its network settings change.
+					touch("container:" + containerId);
+					dirtyContainers.add(containerId);
+				}
+				break;
+			case VOLUME:
+				if ("mount".equals(action) || "unmount".equals(action)) {
+					return;
+				}
+				touch("volume:" + id);
+				if ("destroy".equals(action)) {
+					volumes.remove(id);
+					dirtyVolumes.remove(id);
+				} else {
+					dirtyVolumes.add(id);
+				}
+				break;
+			case IMAGE:
+				touch("image:");
+				dirtyImages = true;
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	@Override
+	public synchronized void onStreamClosed() {
+		if (live) {
+			LOGGER.debug("Events stream of machine " + machineKey + " closed, state mirror will be seeded again");
+			live = false;
+		}
+	}
+
+	@Override
+	public synchronized void onStreamResumed() {
+		// The missed events are replayed.
+		live = seeded;
+	}
+
+	@Override
+	public synchronized void onReconcile(final List<com.github.dockerjava.api.model.Container> containerList) {
+		if (!seeded) {
+			return;
+		}
+		loadContainers(containerList, sequence.get());
+		inspections.clear();
+		// Listed again on their next read.
+		reloadNetworks = true;
+		reloadVolumes = true;
+		dirtyImages = true;
+		live = true;
+	}
+
+	private synchronized void close() {
+		live = false;
+		seeded = false;
+		if (eventStream != null) {
+			eventStream.removeListener(this);
+			eventStream = null;
+		}
+	}
+
+	/**
+	 * Build the list summary of a container from its inspection.
+	 *
+	 * @param inspection
+	 * @return the container as returned by a list call.
+	 */
+	static com.github.dockerjava.api.model.Container toContainer(final InspectContainerResponse inspection) {
+		ObjectNode node = MAPPER.createObjectNode();
+		node.put("Id", inspection.getId());
+		ArrayNode names = node.putArray("Names");
+		if (inspection.getName() != null) {
+			names.add(inspection.getName().startsWith("/") ? inspection.getName() : "/" + inspection.getName());
+		}
+		if (inspection.getConfig() != null) {
+			node.put("Image", inspection.getConfig().getImage());
+			if (inspection.getConfig().getLabels() != null) {
+				ObjectNode labels = node.putObject("Labels");
+				for (Map.Entry<String, String> label : inspection.getConfig().getLabels().entrySet()) {
+					labels.put(label.getKey(), label.getValue());
+				}
+			}
+		}
+		node.put("ImageID", inspection.getImageId());
+		StringBuilder command = new StringBuilder(inspection.getPath() == null ? "" : inspection.getPath());
+		if (inspection.getArgs() != null) {
+			for (String arg : inspection.getArgs()) {
+				command.append(' ').append(arg);
+			}
+		}
+		node.put("Command", command.toString());
+		if (inspection.getCreated() != null) {
+			try {
+				node.put("Created", Instant.parse(inspection.getCreated()).getEpochSecond());
+			} catch (DateTimeParseException ex) {
+				// Unknown date format.
+			}
+		}
+		node.put("Status", getStatus(inspection.getState()));
+		return MAPPER.convertValue(node, com.github.dockerjava.api.model.Container.class);
+	}
+
+	/**
+	 *
+	 * @param state
+	 * @return the status of the container as given by a list call (Up, Up
+	 *         (Paused), Created, Exited (0)).
+	 */
+	private static String getStatus(final InspectContainerResponse.ContainerState state) {
+		if (state == null) {
+			return "Exited";
+		}
+		if (Boolean.TRUE.equals(state.getRunning())) {
+			return Boolean.TRUE.equals(state.getPaused()) ? "Up (Paused)" : "Up";
+		}
+		if ("created".equals(state.getStatus())) {
+			return "Created";
+		}
+		return "Exited (" + (state.getExitCode() == null ? 0 : state.getExitCode()) + ")";
+	}
+
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cmf.occi.docker.Machine;
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.eclipse.cmf.occi.infrastructure.Compute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.jaxrs.JerseyDockerCmdExecFactory;
+
+/**
+ * Registry of docker clients, one pair of clients per machine. A request client
+ * is used for short commands (create, start, inspect...), a streaming client is
+ * used for long lived commands (stats, events). Clients are reference counted
+ * and closed when they are idle since more than the idle timeout.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class DockerClientRegistry {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(DockerClientRegistry.class);
+
+	/**
+	 * Key used for the local docker daemon (compute is null).
+	 */
+	public static final String LOCAL_MACHINE_KEY = "local";
+
+	public static final long DEFAULT_IDLE_TIMEOUT = 300000; // 5 minutes.
+	public static final long EVICTION_PERIOD = 60000;
+
+	public static final int REQUEST_CONNECT_TIMEOUT = 10000;
+	public static final int REQUEST_MAX_TOTAL_CONNECTIONS = 20;
+	public static final int REQUEST_MAX_PER_ROUTE_CONNECTIONS = 10;
+	/**
+	 * Each stats or events stream hold a connection for all its life.
+	 */
+	public static final int STREAMING_MAX_TOTAL_CONNECTIONS = 512;
+	public static final int STREAMING_MAX_PER_ROUTE_CONNECTIONS = 512;
+
+	/**
+	 * Kind of docker client.
+	 */
+	public enum ClientKind {
+		REQUEST, STREAMING
+	}
+
+	private static final DockerClientRegistry INSTANCE = new DockerClientRegistry();
+
+	/**
+	 * Active entries by kind and machine name.
+	 */
+	private final Map<String, ClientEntry> entries = new HashMap<>();
+
+	/**
+	 * Invalidated entries still used, closed when released by all their users.
+	 */
+	private final List<ClientEntry> staleEntries = new ArrayList<>();
+
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+	private final ScheduledExecutorService evictor;
+
+	private DockerClientRegistry() {
+		evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "docker-client-evictor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		evictor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				evictIdleClients();
+			}
+		}, EVICTION_PERIOD, EVICTION_PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	public static DockerClientRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Get a docker client for this compute, the client is built on first call and
+	 * shared afterwards. Each call must be followed by a call to
+	 * {@link #release(DockerClient)} when the client is no more used.
+	 *
+	 * @param compute
+	 *            a machine or null for local docker daemon.
+	 * @param kind
+	 *            request or streaming client.
+	 * @return a shared docker client.
+	 * @throws DockerException
+	 */
+	public DockerClient acquire(final Compute compute, final ClientKind kind) throws DockerException {
+		String key = buildKey(getMachineKey(compute), kind);
+		ClientEntry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+			if (entry != null) {
+				entry.refCount++;
+				entry.lastUsed = System.currentTimeMillis();
+				return entry.client;
+			}
+		}
+		// Build outside the lock, docker-machine commands may be slow.
+		DockerClient client = DockerConfigurationHelper.buildDockerClient(compute, buildExecFactory(kind));
+		synchronized (this) {
+			entry = entries.get(key);
+			if (entry != null) {
+				// Built concurrently by another thread.
+				closeQuietly(client);
+			} else {
+				LOGGER.info("New " + kind + " docker client for machine : " + getMachineKey(compute));
+				entry = new ClientEntry(key, client);
+				entries.put(key, entry);
+			}
+			entry.refCount++;
+			entry.lastUsed = System.currentTimeMillis();
+			return entry.client;
+		}
+	}
+
+	/**
+	 * Release a client given by {@link #acquire(Compute, ClientKind)}.
+	 *
+	 * @param client
+	 */
+	public synchronized void release(final DockerClient client) {
+		if (client == null) {
+			return;
+		}
+		for (ClientEntry entry : entries.values()) {
+			if (entry.client == client) {
+				entry.refCount = Math.max(0, entry.refCount - 1);
+				entry.lastUsed = System.currentTimeMillis();
+				return;
+			}
+		}
+		Iterator<ClientEntry> it = staleEntries.iterator();
+		while (it.hasNext()) {
+			ClientEntry entry = it.next();
+			if (entry.client == client) {
+				entry.refCount--;
+				if (entry.refCount <= 0) {
+					it.remove();
+					closeQuietly(entry.client);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Invalidate all clients of a machine (after a restart, a removal or a
+	 * certificate regeneration). Clients in use are closed when they are released.
+	 *
+	 * @param machineName
+	 */
+	public synchronized void invalidate(final String machineName) {
+		for (ClientKind kind : ClientKind.values()) {
+			ClientEntry entry = entries.remove(buildKey(machineName, kind));
+			if (entry == null) {
+				continue;
+			}
+			if (entry.refCount <= 0) {
+				closeQuietly(entry.client);
+			} else {
+				staleEntries.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Invalidate the clients of all machines (after a configuration change).
+	 */
+	public synchronized void invalidateAll() {
+		for (ClientEntry entry : entries.values()) {
+			if (entry.refCount <= 0) {
+				closeQuietly(entry.client);
+			} else {
+				staleEntries.add(entry);
+			}
+		}
+		entries.clear();
+	}
+
+	/**
+	 * Close the clients not used since more than idle timeout.
+	 */
+	public synchronized void evictIdleClients() {
+		long now = System.currentTimeMillis();
+		Iterator<ClientEntry> it = entries.values().iterator();
+		while (it.hasNext()) {
+			ClientEntry entry = it.next();
+			if (entry.refCount <= 0 && now - entry.lastUsed > idleTimeout) {
+				LOGGER.info("Evict idle docker client : " + entry.key);
+				it.remove();
+				closeQuietly(entry.client);
+			}
+		}
+	}
+
+	public synchronized void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public synchronized long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 *
+	 * @param compute
+	 * @return the registry key for this compute.
+	 * @throws DockerException
+	 */
+	public static String getMachineKey(final Compute compute) throws DockerException {
+		if (compute == null) {
+			return LOCAL_MACHINE_KEY;
+		}
+		if (compute instanceof Machine) {
+			return ((Machine) compute).getName();
+		}
+		throw new DockerException("Other infrastructure extensions are not supported at this time.");
+	}
+
+	private static String buildKey(final String machineName, final ClientKind kind) {
+		return kind + ":" + machineName;
+	}
+
+	private static JerseyDockerCmdExecFactory buildExecFactory(final ClientKind kind) {
+		JerseyDockerCmdExecFactory factory = new JerseyDockerCmdExecFactory();
+		if (kind == ClientKind.STREAMING) {
+			// No read timeout, the streams are waiting for the daemon.
+			factory.withConnectTimeout(REQUEST_CONNECT_TIMEOUT)
+					.withMaxTotalConnections(STREAMING_MAX_TOTAL_CONNECTIONS)
+					.withMaxPerRouteConnections(STREAMING_MAX_PER_ROUTE_CONNECTIONS);
+		} else {
+			factory.withConnectTimeout(REQUEST_CONNECT_TIMEOUT).withMaxTotalConnections(REQUEST_MAX_TOTAL_CONNECTIONS)
+					.withMaxPerRouteConnections(REQUEST_MAX_PER_ROUTE_CONNECTIONS);
+		}
+		return factory;
+	}
+
+	private static void closeQuietly(final DockerClient client) {
+		try {
+			client.close();
+		} catch (IOException ex) {
+			LOGGER.warn("Cannot close docker client : " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * A shared client and its users count.
+	 */
+	private static class ClientEntry {
+		private final String key;
+		private final DockerClient client;
+		private int refCount = 0;
+		private long lastUsed;
+
+		private ClientEntry(final String key, final DockerClient client) {
+			this.key = key;
+			this.client = client;
+			this.lastUsed = System.currentTimeMillis();
+		}
+	}
+
+}
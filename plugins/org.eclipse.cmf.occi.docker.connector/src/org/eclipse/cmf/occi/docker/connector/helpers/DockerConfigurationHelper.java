@@ -13,10 +13,7 @@
 package org.eclipse.cmf.occi.docker.connector.helpers;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 import java.util.Properties;
 
@@ -27,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.DockerCmdExecFactory;
 import com.github.dockerjava.core.DefaultDockerClientConfig;
 import com.github.dockerjava.core.DockerClientBuilder;
 
@@ -50,6 +48,27 @@ public class DockerConfigurationHelper {
 	public static final String KEY_DOCKER_API_VERSION = "api.version";
 	public static final String KEY_DOCKER_API_URL = "registry.url";
 	public static final String KEY_DOCKER_EMAIL = "registry.email";
+	public static final String KEY_CONTAINER_DEPLOY_PARALLELISM = "deploy.container.parallelism";
+	public static final String KEY_MACHINE_PROVISION_PARALLELISM = "provision.machine.parallelism";
+	public static final String KEY_DRIVER_PROVISION_PARALLELISM_PREFIX = "provision.driver.";
+	public static final String KEY_DRIVER_PROVISION_PARALLELISM_SUFFIX = ".parallelism";
+	public static final String KEY_STATS_ROUND_INTERVAL = "stats.round.interval";
+	public static final String KEY_STATS_MACHINE_PARALLELISM = "stats.machine.parallelism";
+	public static final String KEY_STATS_ADAPTIVE = "stats.adaptive";
+	public static final String KEY_STATS_ADAPTIVE_MAX_INTERVAL = "stats.adaptive.max.interval";
+	public static final String KEY_METRICS_HTTP_PORT = "metrics.http.port";
+	public static final String KEY_METRICS_HTTP_ADDRESS = "metrics.http.address";
+	public static final String KEY_METRICS_HISTORY = "metrics.history";
+	public static final String KEY_METRICS_HISTORY_DIR = "metrics.history.dir";
+	public static final String KEY_MODEL_UPDATE_INTERVAL = "model.update.interval";
+	public static final String KEY_MODEL_UPDATE_MAX_PENDING = "model.update.max.pending";
+	public static final String KEY_STATE_MIRROR = "state.mirror";
+	public static final String KEY_EVENTS_RECONNECT_MAX_DELAY = "events.reconnect.max.delay";
+	public static final String KEY_EVENTS_RECONCILE_GAP = "events.reconcile.gap";
+	public static final String KEY_MANAGED_ONLY = "managed.only";
+	public static final String KEY_SSH_KNOWN_HOSTS = "ssh.known.hosts";
+	public static final String KEY_SSH_SESSION_IDLE_TIMEOUT = "ssh.session.idle.timeout";
+	public static final String KEY_SSH_EXEC_TIMEOUT = "ssh.exec.timeout";
 	public static final String DEFAULT_DOCKER_API_TLS_PORT = "2376"; // without TLS : 2375.
 	public static final String DEFAULT_DOCKER_API_PORT = "2375";
 	public static final String DEFAULT_LOCALHOST_MACHINE_ADDRESS = "tcp://127.0.0.1";
@@ -61,64 +80,13 @@ public class DockerConfigurationHelper {
 	private static Logger LOGGER = LoggerFactory.getLogger(DockerConfigurationHelper.class);
 
 	/**
-	 * Property file is defaulted to user home directory.
+	 * Property file is defaulted to user home directory. The returned properties
+	 * are a copy of the current configuration snapshot.
 	 * 
 	 * @throws IOException
 	 */
 	public static Properties loadDockerConfig() throws IOException {
-		String homePath = System.getProperty("user.home") + File.separator;
-		InputStream in;
-		Properties prop = new Properties();
-
-		try {
-			in = new FileInputStream(homePath + DOCKER_PROPERTIES_FILENAME);
-			prop.load(in);
-			if (in != null) {
-				try {
-					in.close();
-				} catch (IOException ex) {
-					// no op.
-				}
-			}
-		} catch (FileNotFoundException ex) {
-			LOGGER.warn("cannot read docker configuration file on path :  " + homePath + DOCKER_PROPERTIES_FILENAME);
-			LOGGER.warn("Reading environnement variables...");
-			prop = System.getProperties();
-
-			if (prop == null) {
-				throw ex;
-			}
-			// TODO : Read env variable for docker account (username, password, email, api
-			// version and api url.
-			// TODO : Read attributes from a special account resource model : DockerAccount
-			// (to create).
-			// LOGGER.warn("Reading ENV file");
-			// prop = loadDockerEnvVariable();
-		}
-
-		if (!prop.containsKey(KEY_DOCKER_USERNAME)) {
-			throw new IOException("docker account username not found on docker configuration file : "
-					+ KEY_DOCKER_USERNAME + "=" + "myusername");
-		}
-		if (!prop.containsKey(KEY_DOCKER_PASSWORD)) {
-			throw new IOException("docker account password not found on docker configuration file."
-					+ KEY_DOCKER_PASSWORD + "=" + "mypassword");
-		}
-		if (!prop.containsKey(KEY_DOCKER_API_VERSION)) {
-			LOGGER.warn(
-					"Docker api version not found on configuration file, set to 1.24 by default, field may be set as this : "
-							+ KEY_DOCKER_API_VERSION + "=" + DEFAULT_API_VERSION);
-			prop.setProperty(KEY_DOCKER_API_VERSION, DEFAULT_API_VERSION);
-		}
-		if (!prop.containsKey(KEY_DOCKER_API_URL)) {
-			LOGGER.warn(
-					"Docker api url not found on configuration file, set to \"https://index.docker.io/v1/\" by default, this property may be set as this : "
-							+ KEY_DOCKER_API_URL + "=" + "https://index.docker.io/v1/");
-			prop.setProperty(KEY_DOCKER_API_URL, "https://index.docker.io/v1/");
-		}
-
-		return prop;
-
+		return DockerConnectorConfig.getCurrent().toProperties();
 	}
 
 	/**
@@ -131,12 +99,28 @@ public class DockerConfigurationHelper {
 	 * @return a new DockerClient object.
 	 */
 	public static DockerClient buildDockerClient(Compute compute) throws DockerException {
+		return buildDockerClient(compute, null);
+	}
+
+	/**
+	 * Create a new docker client with configuration loaded and a specific command
+	 * executor factory (connection pool, timeouts).
+	 * 
+	 * @param compute
+	 *            a compute machine, if null the containers will be managed
+	 *            locally.
+	 * @param execFactory
+	 *            the command executor factory, if null the default one is used.
+	 * @return a new DockerClient object.
+	 */
+	public static DockerClient buildDockerClient(Compute compute, DockerCmdExecFactory execFactory)
+			throws DockerException {
 		DockerClient dockerClient = null;
 		boolean localMachine = compute == null;
-		Properties prop = null;
+		DockerConnectorConfig prop = null;
 
 		try {
-			prop = loadDockerConfig();
+			prop = DockerConnectorConfig.getCurrent();
 		} catch (IOException ex) {
 			LOGGER.error("Error while loading configuration file : " + ex.getMessage());
 			throw new DockerException(ex);
@@ -200,7 +184,11 @@ public class DockerConfigurationHelper {
 			// Throw dockerException, it will be supported in the future.
 			throw new DockerException("Other infrastructure extensions are not supported at this time.");
 		}
-		dockerClient = DockerClientBuilder.getInstance(config).build();
+		DockerClientBuilder builder = DockerClientBuilder.getInstance(config);
+		if (execFactory != null) {
+			builder = builder.withDockerCmdExecFactory(execFactory);
+		}
+		dockerClient = builder.build();
 
 		return dockerClient;
 	}
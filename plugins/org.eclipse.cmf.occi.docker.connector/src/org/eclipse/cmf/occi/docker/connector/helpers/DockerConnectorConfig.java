@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable snapshot of the docker connector configuration
+ * (docker-credential.properties in user home directory, or system properties
+ * if this file doesn't exist). The snapshot is loaded once and reloaded when
+ * the file is created, modified or deleted.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class DockerConnectorConfig {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(DockerConnectorConfig.class);
+
+	private static final AtomicReference<DockerConnectorConfig> current = new AtomicReference<>();
+
+	private static Thread watcher = null;
+
+	private final Map<String, String> values;
+
+	private final boolean fromFile;
+
+	private DockerConnectorConfig(final Properties prop, final boolean fromFile) {
+		Map<String, String> map = new HashMap<>();
+		for (String key : prop.stringPropertyNames()) {
+			map.put(key, prop.getProperty(key));
+		}
+		this.values = Collections.unmodifiableMap(map);
+		this.fromFile = fromFile;
+	}
+
+	/**
+	 * Get the current configuration, it is loaded on first call.
+	 *
+	 * @return the configuration snapshot.
+	 * @throws IOException
+	 *             if the configuration cannot be loaded or is incomplete.
+	 */
+	public static DockerConnectorConfig getCurrent() throws IOException {
+		DockerConnectorConfig config = current.get();
+		if (config != null) {
+			return config;
+		}
+		synchronized (DockerConnectorConfig.class) {
+			config = current.get();
+			if (config == null) {
+				config = load();
+				current.set(config);
+				startWatcher();
+			}
+		}
+		return config;
+	}
+
+	/**
+	 * Load a new snapshot from the configuration file, or from a copy of system
+	 * properties when the file doesn't exist.
+	 *
+	 * @return a new configuration snapshot.
+	 * @throws IOException
+	 */
+	public static DockerConnectorConfig load() throws IOException {
+		File file = getConfigFile();
+		Properties prop = new Properties();
+		boolean fromFile = true;
+		try (InputStream in = new FileInputStream(file)) {
+			prop.load(in);
+		} catch (FileNotFoundException ex) {
+			LOGGER.warn("cannot read docker configuration file on path :  " + file.getPath());
+			LOGGER.warn("Reading environnement variables...");
+			// Copy, the system properties are never modified.
+			Properties system = System.getProperties();
+			for (String key : system.stringPropertyNames()) {
+				prop.setProperty(key, system.getProperty(key));
+			}
+			fromFile = false;
+		}
+
+		if (!prop.containsKey(DockerConfigurationHelper.KEY_DOCKER_USERNAME)) {
+			throw new IOException("docker account username not found on docker configuration file : "
+					+ DockerConfigurationHelper.KEY_DOCKER_USERNAME + "=" + "myusername");
+		}
+		if (!prop.containsKey(DockerConfigurationHelper.KEY_DOCKER_PASSWORD)) {
+			throw new IOException("docker account password not found on docker configuration file."
+					+ DockerConfigurationHelper.KEY_DOCKER_PASSWORD + "=" + "mypassword");
+		}
+		if (!prop.containsKey(DockerConfigurationHelper.KEY_DOCKER_API_VERSION)) {
+			LOGGER.warn(
+					"Docker api version not found on configuration file, set to 1.23 by default, field may be set as this : "
+							+ DockerConfigurationHelper.KEY_DOCKER_API_VERSION + "="
+							+ DockerConfigurationHelper.DEFAULT_API_VERSION);
+			prop.setProperty(DockerConfigurationHelper.KEY_DOCKER_API_VERSION,
+					DockerConfigurationHelper.DEFAULT_API_VERSION);
+		}
+		if (!prop.containsKey(DockerConfigurationHelper.KEY_DOCKER_API_URL)) {
+			LOGGER.warn(
+					"Docker api url not found on configuration file, set to \"https://index.docker.io/v1/\" by default, this property may be set as this : "
+							+ DockerConfigurationHelper.KEY_DOCKER_API_URL + "=" + "https://index.docker.io/v1/");
+			prop.setProperty(DockerConfigurationHelper.KEY_DOCKER_API_URL, "https://index.docker.io/v1/");
+		}
+		return new DockerConnectorConfig(prop, fromFile);
+	}
+
+	/**
+	 * Reload the snapshot, the previous one is kept if the new configuration
+	 * cannot be loaded or has the same values. An editor may write the file
+	 * several times for one save.
+	 */
+	public static void reload() {
+		try {
+			DockerConnectorConfig config = load();
+			if (config.equals(current.get())) {
+				LOGGER.debug("Docker configuration file modified, same values");
+				return;
+			}
+			current.set(config);
+			ManagedLabels.configurationReloaded();
+			LOGGER.info("Docker configuration reloaded");
+			// Next clients are built with the new configuration.
+			DockerClientRegistry.getInstance().invalidateAll();
+		} catch (IOException ex) {
+			LOGGER.error("Cannot reload docker configuration, keep the previous one : " + ex.getMessage());
+		}
+	}
+
+	public static File getConfigFile() {
+		return new File(System.getProperty("user.home") + File.separator
+				+ DockerConfigurationHelper.DOCKER_PROPERTIES_FILENAME);
+	}
+
+	/**
+	 * Watch the user home directory for configuration file changes.
+	 */
+	private static void startWatcher() {
+		if (watcher != null) {
+			return;
+		}
+		final Path dir = Paths.get(System.getProperty("user.home"));
+		final WatchService watchService;
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_DELETE);
+		} catch (IOException ex) {
+			LOGGER.warn("Cannot watch docker configuration file, changes will be ignored : " + ex.getMessage());
+			return;
+		}
+		watcher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					WatchKey key;
+					try {
+						key = watchService.take();
+					} catch (InterruptedException | ClosedWatchServiceException ex) {
+						return;
+					}
+					boolean changed = false;
+					for (WatchEvent<?> event : key.pollEvents()) {
+						Object context = event.context();
+						if (context instanceof Path && DockerConfigurationHelper.DOCKER_PROPERTIES_FILENAME
+								.equals(((Path) context).getFileName().toString())) {
+							changed = true;
+						}
+					}
+					if (changed) {
+						reload();
+					}
+					if (!key.reset()) {
+						LOGGER.warn("Docker configuration directory is no more watched : " + dir);
+						return;
+					}
+				}
+			}
+		}, "docker-config-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return the value or null if not set.
+	 */
+	public String getProperty(final String key) {
+		return values.get(key);
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @param defaultValue
+	 * @return the value as an integer, the default value if not set or invalid.
+	 */
+	public int getIntProperty(final String key, final int defaultValue) {
+		String value = values.get(key);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException ex) {
+			LOGGER.warn("Invalid value for " + key + " : " + value + ", use " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	public boolean containsKey(final String key) {
+		return values.containsKey(key);
+	}
+
+	/**
+	 *
+	 * @return true if loaded from docker-credential.properties, false if loaded
+	 *         from system properties.
+	 */
+	public boolean isFromFile() {
+		return fromFile;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof DockerConnectorConfig)) {
+			return false;
+		}
+		DockerConnectorConfig other = (DockerConnectorConfig) obj;
+		return fromFile == other.fromFile && values.equals(other.values);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * values.hashCode() + (fromFile ? 1 : 0);
+	}
+
+	/**
+	 *
+	 * @return a mutable copy of this configuration.
+	 */
+	public Properties toProperties() {
+		Properties prop = new Properties();
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			prop.setProperty(entry.getKey(), entry.getValue());
+		}
+		return prop;
+	}
+
+}
@@ -52,7 +52,9 @@ public class DockerMachineCommandFactory {
 	}
 
 	public static String createEnvCmd(String machineName) {
-		String command = String.format("eval \"$(%s env %s)\" ", dockerMachineCmd, machineName);
+		// Commands are executed without shell, eval cannot change the environment
+		// of this process anyway.
+		String command = String.format("%s env %s", dockerMachineCmd, machineName);
 		return command;
 	}
 
@@ -65,6 +65,10 @@ public class DockerMachineHelper {
 
 		if (compute instanceof Machine) {
 			Machine machine = (Machine) compute;
+			uriEndpoint = MachineResolutionCache.getEndpoint(machine.getName());
+			if (uriEndpoint != null) {
+				return uriEndpoint;
+			}
 			// Get url from docker-machine command output.
 			endpoint = executeUrlCommand(Runtime.getRuntime(), machine.getName());
 			LOGGER.warn("Endpoint : " + endpoint);
@@ -82,6 +86,7 @@ public class DockerMachineHelper {
 			} catch (URISyntaxException ex) {
 				throw new DockerException(ex.getMessage(), ex);
 			}
+			MachineResolutionCache.putEndpoint(machine.getName(), uriEndpoint);
 
 		} else {
 			// TODO : include other extension providers like vmware instance, aws instance
@@ -102,6 +107,11 @@ public class DockerMachineHelper {
 	 * @return
 	 */
 	public static String executeUrlCommand(Runtime runtime, String machineName) throws DockerException {
+		// Read the machine store before forking docker-machine.
+		MachineStore.MachineInfo info = MachineStore.getDefault().getMachine(machineName);
+		if (info != null && info.getUrl() != null) {
+			return info.getUrl();
+		}
 		String command = DockerMachineCommandFactory.createUrlCommand(machineName);
 		String result = ProcessManager.getOutputCommand(command, runtime);
 		if (result.contains("\n")) {
@@ -161,8 +171,12 @@ public class DockerMachineHelper {
 	 */
 	public static boolean regenerateCert(Runtime runtime, String machineName) throws DockerException {
 		String command = DockerMachineCommandFactory.createCertCommand(machineName);
-		boolean result = ProcessManager.runCommand(command, runtime, true);
-		return result;
+		try {
+			return ProcessManager.runCommand(command, runtime, true);
+		} finally {
+			// Even a failed command may have changed the certificates.
+			MachineResolutionCache.invalidate(machineName);
+		}
 	}
 
 	/**
@@ -173,6 +187,11 @@ public class DockerMachineHelper {
 	 * @throws DockerException
 	 */
 	public static String inspectHostCmd(Runtime runtime, String machine) throws DockerException {
+		// docker-machine inspect gives the content of the machine config.json.
+		String config = MachineStore.getDefault().readRawConfig(machine);
+		if (config != null) {
+			return config;
+		}
 		String command = DockerMachineCommandFactory.createInfoCommand(machine);
 		return ProcessManager.getOutputCommand(command, runtime);
 	}
@@ -194,25 +213,67 @@ public class DockerMachineHelper {
 
 	public static boolean startCmd(Runtime runtime, String machineName) throws DockerException {
 		String command = DockerMachineCommandFactory.createStartCommand(machineName);
-		return ProcessManager.runCommand(command, runtime, true);
+		try {
+			boolean result = ProcessManager.runCommand(command, runtime, true);
+			refreshIpAddress(runtime, machineName);
+			return result;
+		} finally {
+			// The address and the certificates of the machine may have changed,
+			// even when the command failed.
+			MachineResolutionCache.invalidate(machineName);
+			HostStateService.getInstance().invalidate();
+		}
 	}
 
 	public static boolean stopCmd(Runtime runtime, String machineName) throws DockerException {
 		String command = DockerMachineCommandFactory.createStopCommand(machineName);
-		return ProcessManager.runCommand(command, runtime, true);
+		try {
+			return ProcessManager.runCommand(command, runtime, true);
+		} finally {
+			// The address and the certificates of the machine may have changed,
+			// even when the command failed.
+			MachineStore.getDefault().setIpAddress(machineName, null);
+			MachineResolutionCache.invalidate(machineName);
+			HostStateService.getInstance().invalidate();
+		}
 	}
 
 	public static boolean restartCmd(Runtime runtime, String machineName) throws DockerException {
 		String command = DockerMachineCommandFactory.createReStartCommand(machineName);
-		return ProcessManager.runCommand(command, runtime, true);
+		try {
+			boolean result = ProcessManager.runCommand(command, runtime, true);
+			refreshIpAddress(runtime, machineName);
+			return result;
+		} finally {
+			// The address and the certificates of the machine may have changed,
+			// even when the command failed.
+			MachineResolutionCache.invalidate(machineName);
+			HostStateService.getInstance().invalidate();
+		}
 	}
 
 	public static boolean removeCmd(Runtime runtime, String machineName) throws DockerException {
 		String command = DockerMachineCommandFactory.createRemoveCommand(machineName);
-		return ProcessManager.runCommand(command, runtime, true);
+		try {
+			return ProcessManager.runCommand(command, runtime, true);
+		} finally {
+			// The machine may be partially removed, even when the command failed.
+			MachineStore.getDefault().setIpAddress(machineName, null);
+			SshSessionPool.getInstance().forget(machineName);
+			MachineResolutionCache.invalidate(machineName);
+			HostStateService.getInstance().invalidate();
+		}
 	}
 
 	public static String ipCmd(Runtime runtime, String machineName) throws DockerException {
+		MachineStore.MachineInfo info = MachineStore.getDefault().getMachine(machineName);
+		if (info != null && info.getIpAddress() != null && !info.getIpAddress().isEmpty()) {
+			return info.getIpAddress();
+		}
+		return ipFromCommand(runtime, machineName);
+	}
+
+	private static String ipFromCommand(Runtime runtime, String machineName) throws DockerException {
 		String command = DockerMachineCommandFactory.createUrlCommand(machineName);
 		String temp = ProcessManager.getOutputCommand(command, runtime).replace("tcp://", "");
 		int index = temp.indexOf(":");
@@ -220,6 +281,23 @@ public class DockerMachineHelper {
 		return result;
 	}
 
+	/**
+	 * Ask docker-machine the address of a machine just started, the one of the
+	 * machine store is the address of the previous start.
+	 * 
+	 * @param runtime
+	 * @param machineName
+	 */
+	private static void refreshIpAddress(Runtime runtime, String machineName) {
+		try {
+			String ipAddress = ipFromCommand(runtime, machineName).trim();
+			MachineStore.getDefault().setIpAddress(machineName, ipAddress);
+		} catch (DockerException | RuntimeException ex) {
+			LOGGER.warn("Cannot get the ip address of machine " + machineName + " : " + ex.getMessage());
+			MachineStore.getDefault().setIpAddress(machineName, null);
+		}
+	}
+
 	/**
 	 * 
 	 * @param machineName
@@ -235,6 +313,15 @@ public class DockerMachineHelper {
 		} else {
 			machineName = compute.getTitle();
 		}
+		String certPath = MachineResolutionCache.getCertificatePath(machineName);
+		if (certPath != null) {
+			return certPath;
+		}
+		MachineStore.MachineInfo info = MachineStore.getDefault().getMachine(machineName);
+		if (info != null && info.getCertPath() != null && new File(info.getCertPath()).canRead()) {
+			MachineResolutionCache.putCertificatePath(machineName, info.getCertPath());
+			return info.getCertPath();
+		}
 		String data = getEnvCmd(Runtime.getRuntime(), machineName);
 		List<String[]> hosts = new ArrayList<>();
 		String[] result = null;
@@ -247,7 +334,9 @@ public class DockerMachineHelper {
 					hosts.add(lsCmd);
 					String currentLine = lsCmd[1];
 					result = currentLine.split("=");
-					return result[1].replaceAll("\"", "");
+					certPath = result[1].replaceAll("\"", "");
+					MachineResolutionCache.putCertificatePath(machineName, certPath);
+					return certPath;
 				}
 			}
 		}
@@ -255,6 +344,7 @@ public class DockerMachineHelper {
 				+ "machine" + File.separator + "machines" + machineName;
 
 		if (new File(defaultMachineCertPath).canRead()) {
+			MachineResolutionCache.putCertificatePath(machineName, defaultMachineCertPath);
 			return defaultMachineCertPath; // else DockerException because null certPath
 		} else {
 			// Must never be here.
@@ -12,6 +12,8 @@
  */
 package org.eclipse.cmf.occi.docker.connector.helpers;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.cmf.occi.core.Configuration;
@@ -75,6 +77,14 @@ public class DockerModelHelper {
 		System.out.println("Importing model...");
 		System.out.println(hosts.toString());
 		for (Map.Entry<String, String> entry : hosts.entrySet()) {
+			if (HostStateService.HOST_ERROR.equals(entry.getValue())) {
+				LOGGER.warn("Machine " + entry.getKey() + " not imported, its configuration cannot be read");
+				continue;
+			}
+			if (HostStateService.HOST_TIMEOUT.equals(entry.getValue())) {
+				LOGGER.warn("Machine " + entry.getKey() + " not imported, its state is unknown");
+				continue;
+			}
 			boolean machineExistInModeler = containMachine(entry.getKey());
 			if (!machineExistInModeler) {
 				Machine machine = modelHandler.getModel(entry.getKey(), entry.getValue(), machineExistInModeler);
@@ -92,6 +102,37 @@ public class DockerModelHelper {
 		}
 	}
 
+	/**
+	 * Start all the machines of the configuration concurrently, each machine
+	 * deploys its containers as soon as it is up.
+	 * 
+	 * @throws DockerException
+	 *             if at least one machine has not been started.
+	 */
+	public void startAllMachines() throws DockerException {
+		startAllMachines(new MachineProvisioner());
+	}
+
+	/**
+	 * 
+	 * @param provisioner
+	 *            the provisioner with its limits and listeners.
+	 * @throws DockerException
+	 */
+	public void startAllMachines(MachineProvisioner provisioner) throws DockerException {
+		if (this.configuration == null) {
+			throw new DockerException("No configuration object defined.");
+		}
+		List<Machine> machines = new ArrayList<>();
+		for (Resource r : this.configuration.getResources()) {
+			if (r instanceof Machine) {
+				machines.add((Machine) r);
+			}
+		}
+		LOGGER.info("Starting " + machines.size() + " machines...");
+		provisioner.startAll(machines);
+	}
+
 	/**
 	 * 
 	 * @param machineName
@@ -0,0 +1,336 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.eclipse.cmf.occi.docker.connector.utils.DockerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dockerjava.core.LocalDirectorySSLConfig;
+
+/**
+ * Shared view of the docker-machine hosts states. The machines are read from
+ * the machine store and their docker daemon is pinged in parallel, with a
+ * timeout. The states are shared by all callers during the refresh interval,
+ * concurrent callers wait for the same probe.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class HostStateService {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(HostStateService.class);
+
+	public static final String HOST_STOPPED = "Stopped";
+
+	/**
+	 * State of a machine with an unreadable configuration, as docker-machine ls.
+	 */
+	public static final String HOST_ERROR = "Error";
+
+	/**
+	 * State of a machine whose daemon has not answered in time, its state is
+	 * unknown, as docker-machine ls.
+	 */
+	public static final String HOST_TIMEOUT = "Timeout";
+
+	public static final long DEFAULT_REFRESH_INTERVAL = 10000;
+	public static final int DEFAULT_PROBE_TIMEOUT = 5000;
+	public static final int PROBE_THREADS = 8;
+
+	private static final HostStateService INSTANCE = new HostStateService();
+
+	private final ExecutorService probeExecutor;
+
+	/**
+	 * SSL socket factories by certificate directory.
+	 */
+	private final Map<String, SSLSocketFactory> socketFactories = new ConcurrentHashMap<>();
+
+	private volatile Snapshot snapshot = null;
+
+	private CompletableFuture<Snapshot> inFlight = null;
+
+	private long generation = 0;
+
+	private volatile long refreshInterval = DEFAULT_REFRESH_INTERVAL;
+
+	private volatile int probeTimeout = DEFAULT_PROBE_TIMEOUT;
+
+	private HostStateService() {
+		final AtomicInteger count = new AtomicInteger();
+		probeExecutor = Executors.newFixedThreadPool(PROBE_THREADS, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "docker-host-probe-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public static HostStateService getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Same result as docker-machine ls.
+	 *
+	 * @return the machines states by machine name (Running, Stopped, Error or
+	 *         Timeout).
+	 * @throws DockerException
+	 */
+	public Map<String, String> getHosts() throws DockerException {
+		Snapshot current = snapshot;
+		if (current != null && System.currentTimeMillis() - current.time < refreshInterval) {
+			return new HashMap<>(current.states);
+		}
+		return new HashMap<>(refresh().states);
+	}
+
+	/**
+	 *
+	 * @param machineName
+	 * @return the state of the machine, null if the machine doesn't exist.
+	 * @throws DockerException
+	 */
+	public String getState(final String machineName) throws DockerException {
+		return getHosts().get(machineName);
+	}
+
+	/**
+	 * Forget the current states, the next call will probe the hosts again. Must
+	 * be called when a machine is created, started, stopped or removed.
+	 */
+	public synchronized void invalidate() {
+		generation++;
+		snapshot = null;
+	}
+
+	/**
+	 * Probe the hosts, if a probe is already running wait for its result.
+	 *
+	 * @return the new states.
+	 * @throws DockerException
+	 */
+	private Snapshot refresh() throws DockerException {
+		CompletableFuture<Snapshot> future;
+		boolean owner = false;
+		long probeGeneration;
+		synchronized (this) {
+			if (inFlight == null) {
+				inFlight = new CompletableFuture<>();
+				owner = true;
+			}
+			future = inFlight;
+			probeGeneration = generation;
+		}
+		if (owner) {
+			try {
+				Snapshot result = probe();
+				synchronized (this) {
+					if (probeGeneration == generation) {
+						snapshot = result;
+					}
+				}
+				future.complete(result);
+			} catch (DockerException | RuntimeException ex) {
+				future.completeExceptionally(ex);
+			} finally {
+				synchronized (this) {
+					inFlight = null;
+				}
+			}
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new DockerException("Interrupted while probing docker hosts", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof DockerException) {
+				throw (DockerException) ex.getCause();
+			}
+			throw new DockerException(ex.getCause());
+		}
+	}
+
+	/**
+	 * Ping all the machines in parallel. A probe has its own timeout, counted from
+	 * its start : the probes waiting for a thread are not timed out.
+	 *
+	 * @return
+	 * @throws DockerException
+	 */
+	private Snapshot probe() throws DockerException {
+		MachineStore store = MachineStore.getDefault();
+		List<String> names = store.listMachineNames();
+		if (names.isEmpty()) {
+			// No readable machine store, ask docker-machine.
+			return new Snapshot(DockerUtil.getHostsFromCommand());
+		}
+		Map<String, Probe> probes = new LinkedHashMap<>();
+		Map<String, String> states = new HashMap<>();
+		for (final String name : names) {
+			final MachineStore.MachineInfo info;
+			try {
+				info = store.getMachine(name);
+			} catch (DockerException ex) {
+				// The other machines are still probed.
+				LOGGER.warn("Cannot read machine " + name + " : " + ex.getMessage());
+				states.put(name, HOST_ERROR);
+				continue;
+			}
+			final Probe probe = new Probe();
+			probe.future = probeExecutor.submit(() -> {
+				probe.started = System.currentTimeMillis();
+				return ping(info);
+			});
+			probes.put(name, probe);
+		}
+		// The connection and the read timeouts of a ping.
+		long probeDuration = 2L * probeTimeout;
+		for (Map.Entry<String, Probe> entry : probes.entrySet()) {
+			Probe probe = entry.getValue();
+			String state = null;
+			while (state == null) {
+				long started = probe.started;
+				long wait = started == 0 ? probeDuration : started + probeDuration - System.currentTimeMillis();
+				try {
+					state = probe.future.get(Math.max(0, wait), TimeUnit.MILLISECONDS);
+				} catch (TimeoutException ex) {
+					if (started != 0) {
+						probe.future.cancel(true);
+						LOGGER.warn("Timeout while probing machine : " + entry.getKey());
+						state = HOST_TIMEOUT;
+					}
+					// Else still queued, wait for its start.
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new DockerException("Interrupted while probing docker hosts", ex);
+				} catch (ExecutionException ex) {
+					state = HOST_STOPPED;
+				}
+			}
+			states.put(entry.getKey(), state);
+		}
+		return new Snapshot(states);
+	}
+
+	/**
+	 * Call the _ping endpoint of the docker daemon of this machine.
+	 *
+	 * @param info
+	 * @return Running or Stopped.
+	 */
+	private String ping(final MachineStore.MachineInfo info) {
+		if (info == null || info.getUrl() == null) {
+			// Never started.
+			return HOST_STOPPED;
+		}
+		String certPath = info.getCertPath();
+		boolean tls = certPath != null && new File(certPath, "cert.pem").canRead();
+		HttpURLConnection connection = null;
+		try {
+			URL url = new URL((tls ? "https://" : "http://") + info.getIpAddress() + ":" + info.getEnginePort()
+					+ "/_ping");
+			connection = (HttpURLConnection) url.openConnection();
+			if (tls) {
+				((HttpsURLConnection) connection).setSSLSocketFactory(getSocketFactory(certPath));
+			}
+			connection.setConnectTimeout(probeTimeout);
+			connection.setReadTimeout(probeTimeout);
+			if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
+				return DockerUtil.HOST_RUNNING;
+			}
+		} catch (IOException | RuntimeException ex) {
+			LOGGER.debug("Machine " + info.getName() + " doesn't answer : " + ex.getMessage());
+		} finally {
+			if (connection != null) {
+				connection.disconnect();
+			}
+		}
+		return HOST_STOPPED;
+	}
+
+	private SSLSocketFactory getSocketFactory(final String certPath) {
+		SSLSocketFactory factory = socketFactories.get(certPath);
+		if (factory == null) {
+			factory = new LocalDirectorySSLConfig(certPath).getSSLContext().getSocketFactory();
+			socketFactories.put(certPath, factory);
+		}
+		return factory;
+	}
+
+	public long getRefreshInterval() {
+		return refreshInterval;
+	}
+
+	public void setRefreshInterval(long refreshInterval) {
+		this.refreshInterval = refreshInterval;
+	}
+
+	public int getProbeTimeout() {
+		return probeTimeout;
+	}
+
+	public void setProbeTimeout(int probeTimeout) {
+		this.probeTimeout = probeTimeout;
+	}
+
+	/**
+	 * Ping of a machine and its start time, 0 while it waits for a thread.
+	 */
+	private static class Probe {
+		private volatile long started = 0;
+		private Future<String> future;
+	}
+
+	/**
+	 * Host states at a given time.
+	 */
+	private static class Snapshot {
+		private final Map<String, String> states;
+		private final long time;
+
+		private Snapshot(final Map<String, String> states) {
+			this.states = Collections.unmodifiableMap(new HashMap<>(states));
+			this.time = System.currentTimeMillis();
+		}
+	}
+
+}
@@ -0,0 +1,722 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cmf.occi.docker.connector.ContainerConnector;
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerClientRegistry.ClientKind;
+import org.eclipse.cmf.occi.infrastructure.Compute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.EventsCmd;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import com.github.dockerjava.core.command.EventsResultCallback;
+
+/**
+ * The docker events stream of a machine, one subscription by machine. The
+ * container events are dispatched to the container connectors by container
+ * id, the listeners (container index...) receive all the events.
+ *
+ * When the stream is closed, it is opened again with an exponential backoff
+ * while it has containers or listeners. The new stream resumes after the last
+ * received event (since), the daemon replays the missed events. The daemon
+ * only keeps its last events : if the stream was closed for too long, or if
+ * the replay reaches the size of the daemon buffer, some events may be lost
+ * and the state is reconciled from one list of the containers.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class MachineEventStream {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(MachineEventStream.class);
+
+	public static final long RECONNECT_INITIAL_DELAY = 1000;
+
+	public static final long DEFAULT_RECONNECT_MAX_DELAY = 60000;
+
+	/**
+	 * Above this disconnection time, the missed events are not replayed, the
+	 * state is reconciled.
+	 */
+	public static final long DEFAULT_RECONCILE_GAP = 30000;
+
+	/**
+	 * Number of events kept by the docker daemon for the replay.
+	 */
+	public static final int DAEMON_EVENTS_BUFFER = 256;
+
+	/**
+	 * Streams by machine key.
+	 */
+	private static final Map<String, MachineEventStream> streams = new ConcurrentHashMap<>();
+
+	private static ScheduledExecutorService reconnectExecutor = null;
+
+	private final String machineKey;
+
+	/**
+	 * The machine, used to open the stream again.
+	 */
+	private volatile Compute compute;
+
+	/**
+	 * Container connectors by container id.
+	 */
+	private final Map<String, ContainerConnector> containers = new ConcurrentHashMap<>();
+
+	/**
+	 * Container connectors without id yet (not created) or whose container has
+	 * been destroyed, they are indexed on the first event of their id.
+	 */
+	private final Set<ContainerConnector> pending = ConcurrentHashMap.newKeySet();
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private DockerClient streamingClient = null;
+
+	private StreamCallback callback = null;
+
+	private ScheduledFuture<?> reconnect = null;
+
+	/**
+	 * Number of failed reconnections since the stream was closed.
+	 */
+	private int attempts = 0;
+
+	/**
+	 * Time of the last received event in nanoseconds, 0 if none.
+	 */
+	private volatile long lastEventTime = 0;
+
+	/**
+	 * Time when the stream was closed in milliseconds, 0 if it is open or never
+	 * opened.
+	 */
+	private long closedAt = 0;
+
+	private long reconnectMaxDelay = DEFAULT_RECONNECT_MAX_DELAY;
+
+	private long reconcileGap = DEFAULT_RECONCILE_GAP;
+
+	private MachineEventStream(final String machineKey, final Compute compute) {
+		this.machineKey = machineKey;
+		this.compute = compute;
+		try {
+			DockerConnectorConfig config = DockerConnectorConfig.getCurrent();
+			reconnectMaxDelay = config.getIntProperty(DockerConfigurationHelper.KEY_EVENTS_RECONNECT_MAX_DELAY,
+					(int) DEFAULT_RECONNECT_MAX_DELAY);
+			reconcileGap = config.getIntProperty(DockerConfigurationHelper.KEY_EVENTS_RECONCILE_GAP,
+					(int) DEFAULT_RECONCILE_GAP);
+		} catch (IOException ex) {
+			LOGGER.warn("Cannot read events stream configuration, use defaults : " + ex.getMessage());
+		}
+	}
+
+	/**
+	 *
+	 * @param compute
+	 *            the machine, null for the local docker daemon.
+	 * @return the events stream of this machine, not opened until it has a
+	 *         container or a listener.
+	 * @throws DockerException
+	 */
+	public static MachineEventStream getInstance(final Compute compute) throws DockerException {
+		String key = DockerClientRegistry.getMachineKey(compute);
+		MachineEventStream stream = streams.get(key);
+		if (stream == null) {
+			MachineEventStream newStream = new MachineEventStream(key, compute);
+			stream = streams.putIfAbsent(key, newStream);
+			if (stream == null) {
+				stream = newStream;
+			}
+		}
+		if (compute != null) {
+			stream.compute = compute;
+		}
+		return stream;
+	}
+
+	/**
+	 * Close the stream of this machine, its docker client is no more valid. The
+	 * containers and the listeners stay registered, the stream is opened again
+	 * with a new client by the reconnect policy.
+	 *
+	 * @param machineName
+	 */
+	public static void invalidate(final String machineName) {
+		MachineEventStream stream = streams.get(machineName);
+		if (stream != null) {
+			stream.reset();
+		}
+	}
+
+	public static void invalidateAll() {
+		for (String key : new ArrayList<>(streams.keySet())) {
+			invalidate(key);
+		}
+	}
+
+	/**
+	 * Dispatch the events of a container to its connector. The container may
+	 * have no id yet.
+	 *
+	 * @param container
+	 * @throws DockerException
+	 *             if the stream cannot be opened.
+	 */
+	public void register(final ContainerConnector container) throws DockerException {
+		if (container == null) {
+			return;
+		}
+		String containerId = container.getContainerid();
+		if (containerId == null) {
+			pending.add(container);
+		} else {
+			containers.put(containerId, container);
+		}
+		open();
+	}
+
+	/**
+	 * Stop to dispatch the events of a container. The stream is closed with its
+	 * last container or listener.
+	 *
+	 * @param container
+	 */
+	public void unregister(final ContainerConnector container) {
+		if (container == null) {
+			return;
+		}
+		pending.remove(container);
+		containers.values().remove(container);
+		closeIfUnused();
+	}
+
+	/**
+	 * Receive all the events of the machine.
+	 *
+	 * @param listener
+	 * @throws DockerException
+	 *             if the stream cannot be opened.
+	 */
+	public void addListener(final Listener listener) throws DockerException {
+		if (!listeners.contains(listener)) {
+			listeners.add(listener);
+		}
+		open();
+	}
+
+	public void removeListener(final Listener listener) {
+		listeners.remove(listener);
+		closeIfUnused();
+	}
+
+	/**
+	 *
+	 * @return true if the events are received.
+	 */
+	public synchronized boolean isOpen() {
+		return callback != null;
+	}
+
+	/**
+	 *
+	 * @return the number of registered containers.
+	 */
+	public int size() {
+		return containers.size() + pending.size();
+	}
+
+	public String getMachineKey() {
+		return machineKey;
+	}
+
+	/**
+	 *
+	 * @return time of the last received event in nanoseconds, 0 if none.
+	 */
+	public long getLastEventTime() {
+		return lastEventTime;
+	}
+
+	/**
+	 * Subscribe to the events of the machine, if not already done. After a
+	 * disconnection, the stream resumes after the last received event, or the
+	 * state is reconciled if the disconnection is too long.
+	 *
+	 * @throws DockerException
+	 */
+	private synchronized void open() throws DockerException {
+		if (callback != null) {
+			return;
+		}
+		cancelReconnect();
+		boolean gap = closedAt > 0;
+		boolean resume = gap && lastEventTime > 0 && System.currentTimeMillis() - closedAt <= reconcileGap;
+		try {
+			if (streamingClient == null) {
+				streamingClient = DockerClientRegistry.getInstance().acquire(compute, ClientKind.STREAMING);
+			}
+			callback = new StreamCallback(resume ? lastEventTime : 0, gap && !resume);
+			EventsCmd cmd = streamingClient.eventsCmd();
+			if (resume) {
+				cmd.withSince(formatTime(lastEventTime));
+			}
+			if (ManagedLabels.isManagedOnly()) {
+				// Only the events of the containers created by the connector.
+				cmd.withLabelFilter(ManagedLabels.managedFilter());
+			}
+			cmd.exec(callback);
+			LOGGER.debug("Events stream of machine " + machineKey + " opened" + (resume ? ", resumed" : ""));
+		} catch (RuntimeException ex) {
+			callback = null;
+			releaseClient();
+			// The events received meanwhile are lost, the state is reconciled on
+			// the next opening.
+			if (closedAt == 0) {
+				closedAt = System.currentTimeMillis();
+			}
+			if (isUsed()) {
+				scheduleReconnect();
+			}
+			throw new DockerException("Cannot open events stream of machine " + machineKey + " : " + ex.getMessage(),
+					ex);
+		}
+	}
+
+	private boolean isUsed() {
+		return !containers.isEmpty() || !pending.isEmpty() || !listeners.isEmpty();
+	}
+
+	private synchronized void closeIfUnused() {
+		if (!isUsed()) {
+			cancelReconnect();
+			closeCallback();
+			releaseClient();
+			// The next listeners load their state, nothing to resume.
+			lastEventTime = 0;
+			closedAt = 0;
+			attempts = 0;
+		}
+	}
+
+	/**
+	 * Close the subscription and its client, then open it again later.
+	 */
+	private void reset() {
+		synchronized (this) {
+			cancelReconnect();
+			if (closedAt == 0) {
+				closedAt = System.currentTimeMillis();
+			}
+			closeCallback();
+			releaseClient();
+		}
+		// The listeners are notified without lock, they may use the stream.
+		notifyStreamClosed();
+		synchronized (this) {
+			if (isUsed()) {
+				scheduleReconnect();
+			}
+		}
+	}
+
+	private void dispatch(final StreamCallback source, final Event event) {
+		synchronized (this) {
+			if (source != callback) {
+				// Old stream.
+				return;
+			}
+		}
+		long time = getTime(event);
+		if (source.since > 0) {
+			if (time > 0 && time < source.since) {
+				// Already received before the disconnection.
+				return;
+			}
+			if (time > 0 && time < source.openedAt && ++source.replayed == DAEMON_EVENTS_BUFFER) {
+				// The daemon buffer is full, older events may be lost.
+				LOGGER.info("Events replay of machine " + machineKey + " may be incomplete, reconcile");
+				reconcile();
+			}
+		}
+		if (time > lastEventTime) {
+			lastEventTime = time;
+		}
+		for (Listener listener : listeners) {
+			try {
+				listener.onEvent(event);
+			} catch (RuntimeException ex) {
+				LOGGER.error("Exception thrown by events listener of machine " + machineKey + " : " + ex.getMessage());
+			}
+		}
+		if (event.getType() != null && event.getType() != EventType.CONTAINER) {
+			return;
+		}
+		String containerId = event.getActor() != null && event.getActor().getId() != null ? event.getActor().getId()
+				: event.getId();
+		ContainerConnector container = findContainer(containerId);
+		if (container == null) {
+			// Not a container of the model.
+			return;
+		}
+		String action = event.getAction() != null ? event.getAction() : event.getStatus();
+		if ("destroy".equals(action)) {
+			// The connector may create a new container, with a new id.
+			if (containers.remove(containerId, container)) {
+				pending.add(container);
+			}
+		}
+		try {
+			container.getEventCallBack().onEvent(event);
+		} catch (RuntimeException ex) {
+			LOGGER.error("Exception thrown while applying event " + action + " to container " + container.getName()
+					+ " : " + ex.getMessage());
+		}
+	}
+
+	/**
+	 *
+	 * @param containerId
+	 * @return the connector of this container, null if the container is not in
+	 *         the model.
+	 */
+	private ContainerConnector findContainer(final String containerId) {
+		if (containerId == null) {
+			return null;
+		}
+		ContainerConnector container = containers.get(containerId);
+		if (container != null || pending.isEmpty()) {
+			return container;
+		}
+		// Only the connectors waiting for an id are checked.
+		Iterator<ContainerConnector> it = pending.iterator();
+		while (it.hasNext()) {
+			ContainerConnector candidate = it.next();
+			if (containerId.equals(candidate.getContainerid())) {
+				it.remove();
+				containers.put(containerId, candidate);
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The stream is connected : the missed events follow, or the state is
+	 * reconciled.
+	 *
+	 * @param source
+	 */
+	private void onStreamStarted(final StreamCallback source) {
+		synchronized (this) {
+			if (source != callback) {
+				return;
+			}
+			attempts = 0;
+			closedAt = 0;
+		}
+		if (source.reconcile) {
+			LOGGER.info("Events stream of machine " + machineKey + " reconnected after a long gap, reconcile");
+			reconcile();
+		} else if (source.since > 0) {
+			LOGGER.info("Events stream of machine " + machineKey + " resumed");
+			for (Listener listener : listeners) {
+				listener.onStreamResumed();
+			}
+		}
+	}
+
+	/**
+	 * Give the current containers of the machine to the listeners and the
+	 * container connectors, one list call.
+	 */
+	private void reconcile() {
+		DockerClientRegistry registry = DockerClientRegistry.getInstance();
+		DockerClient client = null;
+		try {
+			client = registry.acquire(compute, ClientKind.REQUEST);
+			List<com.github.dockerjava.api.model.Container> list = ManagedLabels.listContainersCmd(client).exec();
+			if (list == null) {
+				list = new ArrayList<>();
+			}
+			for (Listener listener : listeners) {
+				listener.onReconcile(list);
+			}
+			Map<String, com.github.dockerjava.api.model.Container> byId = new HashMap<>();
+			for (com.github.dockerjava.api.model.Container container : list) {
+				byId.put(container.getId(), container);
+			}
+			for (ContainerConnector container : new ArrayList<>(containers.values())) {
+				com.github.dockerjava.api.model.Container summary = byId.get(container.getContainerid());
+				if (summary == null && containers.remove(container.getContainerid(), container)) {
+					// Destroyed during the gap.
+					pending.add(container);
+				}
+				container.getEventCallBack().onReconcile(summary);
+			}
+		} catch (DockerException | RuntimeException ex) {
+			LOGGER.warn("Cannot reconcile the state of machine " + machineKey + " : " + ex.getMessage());
+			// The listeners load their state on next use.
+			notifyStreamClosed();
+		} finally {
+			registry.release(client);
+		}
+	}
+
+	private void onStreamClosed(final StreamCallback source) {
+		synchronized (this) {
+			if (source != callback) {
+				return;
+			}
+			LOGGER.info("Events stream of machine " + machineKey + " closed");
+			callback = null;
+			if (closedAt == 0) {
+				// Not reset by a failed reconnection.
+				closedAt = System.currentTimeMillis();
+			}
+			releaseClient();
+		}
+		// The listeners are notified without lock, they may use the stream.
+		notifyStreamClosed();
+		synchronized (this) {
+			if (isUsed()) {
+				scheduleReconnect();
+			}
+		}
+	}
+
+	private void notifyStreamClosed() {
+		for (Listener listener : listeners) {
+			listener.onStreamClosed();
+		}
+	}
+
+	/**
+	 * The reconnect policy of the machine : the delay is doubled after each
+	 * failed attempt, up to the maximum delay, with a random part to avoid
+	 * the reconnection of all the machines at once.
+	 */
+	private synchronized void scheduleReconnect() {
+		if (reconnect != null && !reconnect.isDone()) {
+			return;
+		}
+		long delay = getReconnectDelay(attempts, reconnectMaxDelay);
+		attempts++;
+		LOGGER.debug("Reconnect events stream of machine " + machineKey + " in " + delay + " ms");
+		reconnect = getReconnectExecutor().schedule(new Runnable() {
+			@Override
+			public void run() {
+				reconnect();
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 *
+	 * @param attempts
+	 *            number of failed attempts.
+	 * @param maxDelay
+	 * @return delay before the next attempt in milliseconds, between the half
+	 *         and the whole of the backoff delay.
+	 */
+	public static long getReconnectDelay(final int attempts, final long maxDelay) {
+		long delay = RECONNECT_INITIAL_DELAY << Math.min(attempts, 20);
+		delay = Math.max(RECONNECT_INITIAL_DELAY, Math.min(delay, maxDelay));
+		return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+	}
+
+	/**
+	 *
+	 * @param event
+	 * @return time of the event in nanoseconds, 0 if unknown.
+	 */
+	private static long getTime(final Event event) {
+		if (event.getTimeNano() != null) {
+			return event.getTimeNano();
+		}
+		if (event.getTime() != null) {
+			return TimeUnit.SECONDS.toNanos(event.getTime());
+		}
+		return 0;
+	}
+
+	/**
+	 *
+	 * @param nanos
+	 * @return the time as expected by the since parameter (seconds.nanoseconds).
+	 */
+	static String formatTime(final long nanos) {
+		return (nanos / 1000000000L) + "." + String.format("%09d", nanos % 1000000000L);
+	}
+
+	private synchronized void reconnect() {
+		reconnect = null;
+		if (callback != null || !isUsed()) {
+			return;
+		}
+		try {
+			open();
+			LOGGER.info("Events stream of machine " + machineKey + " reconnected");
+		} catch (DockerException ex) {
+			// The next attempt is scheduled by open().
+			LOGGER.debug("Cannot reconnect events stream of machine " + machineKey + " : " + ex.getMessage());
+		}
+	}
+
+	private void cancelReconnect() {
+		if (reconnect != null) {
+			reconnect.cancel(false);
+			reconnect = null;
+		}
+	}
+
+	private void closeCallback() {
+		if (callback != null) {
+			StreamCallback old = callback;
+			callback = null;
+			try {
+				old.close();
+			} catch (IOException ex) {
+				LOGGER.debug("Cannot close events stream : " + ex.getMessage());
+			}
+		}
+	}
+
+	private void releaseClient() {
+		if (streamingClient != null) {
+			DockerClientRegistry.getInstance().release(streamingClient);
+			streamingClient = null;
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getReconnectExecutor() {
+		if (reconnectExecutor == null) {
+			reconnectExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "docker-events-reconnect");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return reconnectExecutor;
+	}
+
+	/**
+	 * Receive all the events of a machine.
+	 */
+	public interface Listener {
+
+		/**
+		 *
+		 * @param event
+		 *            any event of the machine.
+		 */
+		void onEvent(Event event);
+
+		/**
+		 * The stream is closed, the events may be missed until it is opened
+		 * again.
+		 */
+		void onStreamClosed();
+
+		/**
+		 * The stream is opened again and the missed events are replayed.
+		 */
+		void onStreamResumed();
+
+		/**
+		 * Some events may have been missed, the state is reconciled from the
+		 * current containers.
+		 *
+		 * @param containers
+		 *            all the containers of the machine (list with showAll).
+		 */
+		void onReconcile(List<com.github.dockerjava.api.model.Container> containers);
+	}
+
+	/**
+	 * Subscription to the events of the machine.
+	 */
+	private class StreamCallback extends EventsResultCallback {
+
+		/**
+		 * Time of the resumed event in nanoseconds, 0 if not resumed.
+		 */
+		private final long since;
+
+		/**
+		 * True if the state must be reconciled when connected.
+		 */
+		private final boolean reconcile;
+
+		private final long openedAt = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+
+		/**
+		 * Number of replayed events.
+		 */
+		private int replayed = 0;
+
+		private StreamCallback(final long since, final boolean reconcile) {
+			this.since = since;
+			this.reconcile = reconcile;
+		}
+
+		@Override
+		public void onStart(Closeable stream) {
+			super.onStart(stream);
+			onStreamStarted(this);
+		}
+
+		@Override
+		public void onNext(Event item) {
+			dispatch(this, item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			onStreamClosed(this);
+			super.onError(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			onStreamClosed(this);
+			super.onComplete();
+		}
+	}
+
+}
@@ -0,0 +1,320 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.cmf.occi.docker.Machine;
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.eclipse.cmf.occi.infrastructure.ComputeStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Start several machines concurrently, each machine continues with the
+ * deployment of its containers as soon as it is up. The number of machines
+ * started at the same time is limited globally and by driver, as the cloud
+ * providers don't accept the same rate of API calls. The slots of a machine
+ * are released when it is up, before the deployment of its containers.
+ * 
+ * The limits are read from docker-credential.properties :
+ * provision.machine.parallelism for the global limit and
+ * provision.driver.&lt;driver&gt;.parallelism for a driver (amazonec2,
+ * openstack, grid5000...).
+ * 
+ * @author Christophe Gourdin
+ *
+ */
+public class MachineProvisioner {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(MachineProvisioner.class);
+
+	public static final int DEFAULT_MACHINE_PARALLELISM = 8;
+
+	/**
+	 * Local hypervisors cannot create many virtual machines at the same time.
+	 */
+	public static final int DEFAULT_LOCAL_DRIVER_PARALLELISM = 2;
+
+	private static final String MACHINE_CLASS_PREFIX = "Machine";
+
+	/**
+	 * Release of the slots held by the provisioning thread of the current machine.
+	 */
+	private static final ThreadLocal<Runnable> SLOTS_RELEASE = new ThreadLocal<>();
+
+	private int globalLimit;
+
+	private final Map<String, Integer> driverLimits = new ConcurrentHashMap<>();
+
+	private final List<ProvisioningListener> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Create a provisioner with the limits of the docker configuration.
+	 */
+	public MachineProvisioner() {
+		this.globalLimit = DEFAULT_MACHINE_PARALLELISM;
+		driverLimits.put("virtualbox", DEFAULT_LOCAL_DRIVER_PARALLELISM);
+		driverLimits.put("vmwarefusion", DEFAULT_LOCAL_DRIVER_PARALLELISM);
+		driverLimits.put("microsofthyperv", DEFAULT_LOCAL_DRIVER_PARALLELISM);
+		try {
+			DockerConnectorConfig config = DockerConnectorConfig.getCurrent();
+			this.globalLimit = config.getIntProperty(DockerConfigurationHelper.KEY_MACHINE_PROVISION_PARALLELISM,
+					DEFAULT_MACHINE_PARALLELISM);
+			for (String key : config.toProperties().stringPropertyNames()) {
+				if (key.startsWith(DockerConfigurationHelper.KEY_DRIVER_PROVISION_PARALLELISM_PREFIX)
+						&& key.endsWith(DockerConfigurationHelper.KEY_DRIVER_PROVISION_PARALLELISM_SUFFIX)) {
+					String driver = key.substring(
+							DockerConfigurationHelper.KEY_DRIVER_PROVISION_PARALLELISM_PREFIX.length(),
+							key.length() - DockerConfigurationHelper.KEY_DRIVER_PROVISION_PARALLELISM_SUFFIX.length());
+					int limit = config.getIntProperty(key, 0);
+					if (limit > 0) {
+						driverLimits.put(driver, limit);
+					}
+				}
+			}
+		} catch (IOException ex) {
+			LOGGER.warn("Cannot read provisioning limits, use default values : " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * 
+	 * @param globalLimit
+	 *            maximum number of machines started at the same time.
+	 */
+	public MachineProvisioner(final int globalLimit) {
+		this();
+		setGlobalLimit(globalLimit);
+	}
+
+	public int getGlobalLimit() {
+		return globalLimit;
+	}
+
+	public void setGlobalLimit(final int globalLimit) {
+		this.globalLimit = Math.max(1, globalLimit);
+	}
+
+	/**
+	 * 
+	 * @param driver
+	 *            the driver name (amazonec2, openstack...).
+	 * @return maximum number of machines of this driver started at the same time.
+	 */
+	public int getDriverLimit(final String driver) {
+		Integer limit = driverLimits.get(driver);
+		if (limit == null) {
+			return globalLimit;
+		}
+		return Math.min(limit, globalLimit);
+	}
+
+	public void setDriverLimit(final String driver, final int limit) {
+		driverLimits.put(driver, Math.max(1, limit));
+	}
+
+	public void addListener(final ProvisioningListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(final ProvisioningListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 
+	 * @param machine
+	 * @return the driver name of this machine, from its kind (Machineamazonec2
+	 *         gives amazonec2).
+	 */
+	public static String getDriverName(final Machine machine) {
+		String className = machine.eClass().getName();
+		if (className.startsWith(MACHINE_CLASS_PREFIX) && className.length() > MACHINE_CLASS_PREFIX.length()) {
+			return className.substring(MACHINE_CLASS_PREFIX.length()).toLowerCase();
+		}
+		return className.toLowerCase();
+	}
+
+	/**
+	 * Start all the machines and their containers, and wait for them.
+	 * 
+	 * @param machines
+	 * @throws DockerException
+	 *             if at least one machine has not been started, the other
+	 *             machines are started anyway.
+	 */
+	public void startAll(final Collection<? extends Machine> machines) throws DockerException {
+		if (machines.isEmpty()) {
+			return;
+		}
+		final Semaphore globalPermits = new Semaphore(globalLimit, true);
+		final Map<String, Semaphore> driverPermits = new HashMap<>();
+		for (Machine machine : machines) {
+			String driver = getDriverName(machine);
+			if (!driverPermits.containsKey(driver)) {
+				driverPermits.put(driver, new Semaphore(getDriverLimit(driver), true));
+			}
+		}
+
+		// One thread by machine, a thread waiting for its driver slot never holds
+		// a global slot.
+		final AtomicInteger count = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(machines.size(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "docker-provision-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		Map<Machine, Future<Boolean>> futures = new LinkedHashMap<>();
+		try {
+			for (final Machine machine : machines) {
+				final Semaphore driverSlot = driverPermits.get(getDriverName(machine));
+				fireQueued(machine);
+				futures.put(machine, executor.submit(() -> provision(machine, driverSlot, globalPermits)));
+			}
+			List<String> failed = new ArrayList<>();
+			for (Map.Entry<Machine, Future<Boolean>> entry : futures.entrySet()) {
+				try {
+					if (!entry.getValue().get()) {
+						failed.add(entry.getKey().getName());
+					}
+				} catch (ExecutionException ex) {
+					failed.add(entry.getKey().getName());
+				}
+			}
+			if (!failed.isEmpty()) {
+				throw new DockerException("Cannot start machines : " + failed);
+			}
+		} catch (InterruptedException ex) {
+			for (Future<Boolean> future : futures.values()) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new DockerException("Interrupted while starting machines", ex);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Called by the machine manager when the machine is created or started, before
+	 * the deployment of its containers : the slots of the machine are released so
+	 * the other machines may start. Does nothing outside a provisioning thread.
+	 */
+	public static void machineUp() {
+		Runnable release = SLOTS_RELEASE.get();
+		if (release != null) {
+			SLOTS_RELEASE.remove();
+			release.run();
+		}
+	}
+
+	/**
+	 * Start a machine when a slot is free for its driver and globally, the slots
+	 * are held until the machine is up.
+	 * 
+	 * @param machine
+	 * @param driverSlot
+	 * @param globalPermits
+	 * @return true if the machine is active.
+	 * @throws InterruptedException
+	 */
+	private boolean provision(final Machine machine, final Semaphore driverSlot, final Semaphore globalPermits)
+			throws InterruptedException {
+		driverSlot.acquire();
+		try {
+			globalPermits.acquire();
+		} catch (InterruptedException ex) {
+			driverSlot.release();
+			throw ex;
+		}
+		final AtomicBoolean released = new AtomicBoolean();
+		Runnable release = () -> {
+			if (released.compareAndSet(false, true)) {
+				globalPermits.release();
+				driverSlot.release();
+			}
+		};
+		SLOTS_RELEASE.set(release);
+		try {
+			fireStarting(machine);
+			long start = System.currentTimeMillis();
+			try {
+				// Create or start the machine, then deploy its containers.
+				machine.startAll();
+			} catch (RuntimeException ex) {
+				LOGGER.error("Cannot start machine " + machine.getName() + " : " + ex.getMessage());
+				fireFailed(machine, ex);
+				return false;
+			}
+			if (!ComputeStatus.ACTIVE.equals(machine.getOcciComputeState())) {
+				fireFailed(machine, null);
+				return false;
+			}
+			fireStarted(machine, System.currentTimeMillis() - start);
+			return true;
+		} finally {
+			// Not released yet if the machine has failed before being up.
+			SLOTS_RELEASE.remove();
+			release.run();
+		}
+	}
+
+	private void fireQueued(final Machine machine) {
+		LOGGER.info("Machine " + machine.getName() + " queued");
+		for (ProvisioningListener listener : listeners) {
+			listener.machineQueued(machine);
+		}
+	}
+
+	private void fireStarting(final Machine machine) {
+		LOGGER.info("Starting machine " + machine.getName() + " (" + getDriverName(machine) + ")");
+		for (ProvisioningListener listener : listeners) {
+			listener.machineStarting(machine);
+		}
+	}
+
+	private void fireStarted(final Machine machine, final long duration) {
+		LOGGER.info("Machine " + machine.getName() + " started in " + duration + "ms");
+		for (ProvisioningListener listener : listeners) {
+			listener.machineStarted(machine, duration);
+		}
+	}
+
+	private void fireFailed(final Machine machine, final Throwable error) {
+		LOGGER.error("Machine " + machine.getName() + " failed to start");
+		for (ProvisioningListener listener : listeners) {
+			listener.machineFailed(machine, error);
+		}
+	}
+
+}
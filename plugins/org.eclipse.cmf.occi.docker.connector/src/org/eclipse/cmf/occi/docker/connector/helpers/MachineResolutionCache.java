@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.cmf.occi.docker.connector.observer.StatsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of docker-machine endpoints and certificate paths by machine name, to
+ * avoid to fork docker-machine url / env commands for each docker client.
+ * Entries expire after the time to live and are invalidated when the machine
+ * is started, stopped, removed or when its certificates are regenerated.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class MachineResolutionCache {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(MachineResolutionCache.class);
+
+	public static final long DEFAULT_TTL = 600000; // 10 minutes.
+
+	private static volatile long ttl = DEFAULT_TTL;
+
+	private static final Map<String, Resolution> endpoints = new ConcurrentHashMap<>();
+
+	private static final Map<String, Resolution> certPaths = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param machineName
+	 * @return the cached endpoint or null if unknown or expired.
+	 */
+	public static URI getEndpoint(final String machineName) {
+		Resolution resolution = getValid(endpoints, machineName);
+		return resolution == null ? null : (URI) resolution.value;
+	}
+
+	public static void putEndpoint(final String machineName, final URI endpoint) {
+		if (machineName != null && endpoint != null) {
+			endpoints.put(machineName, new Resolution(endpoint));
+		}
+	}
+
+	/**
+	 *
+	 * @param machineName
+	 * @return the cached certificate path or null if unknown or expired.
+	 */
+	public static String getCertificatePath(final String machineName) {
+		Resolution resolution = getValid(certPaths, machineName);
+		return resolution == null ? null : (String) resolution.value;
+	}
+
+	public static void putCertificatePath(final String machineName, final String certPath) {
+		if (machineName != null && certPath != null) {
+			certPaths.put(machineName, new Resolution(certPath));
+		}
+	}
+
+	/**
+	 * Forget all resolutions of this machine, the docker clients built with them,
+	 * the container index, the state mirror and the events stream of the machine
+	 * are invalidated too.
+	 *
+	 * @param machineName
+	 */
+	public static void invalidate(final String machineName) {
+		if (machineName == null) {
+			return;
+		}
+		LOGGER.info("Invalidate endpoint resolution of machine : " + machineName);
+		endpoints.remove(machineName);
+		certPaths.remove(machineName);
+		DockerClientRegistry.getInstance().invalidate(machineName);
+		ContainerIndex.invalidate(machineName);
+		DaemonStateMirror.invalidate(machineName);
+		MachineEventStream.invalidate(machineName);
+		StatsCollector.invalidate(machineName);
+	}
+
+	public static void invalidateAll() {
+		endpoints.clear();
+		certPaths.clear();
+	}
+
+	public static long getTtl() {
+		return ttl;
+	}
+
+	public static void setTtl(long ttl) {
+		MachineResolutionCache.ttl = ttl;
+	}
+
+	private static Resolution getValid(final Map<String, Resolution> cache, final String machineName) {
+		if (machineName == null) {
+			return null;
+		}
+		Resolution resolution = cache.get(machineName);
+		if (resolution == null) {
+			return null;
+		}
+		if (System.currentTimeMillis() - resolution.resolvedAt > ttl) {
+			cache.remove(machineName, resolution);
+			return null;
+		}
+		return resolution;
+	}
+
+	/**
+	 * A resolved value and its resolution time.
+	 */
+	private static class Resolution {
+		private final Object value;
+		private final long resolvedAt;
+
+		private Resolution(final Object value) {
+			this.value = value;
+			this.resolvedAt = System.currentTimeMillis();
+		}
+	}
+
+}
@@ -0,0 +1,451 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Read the docker-machine store directly on disk
+ * (~/.docker/machine/machines/&lt;name&gt;/config.json), without forking the
+ * docker-machine binary. The docker-machine command is still used for the
+ * operations that change the machines (create, start, stop, rm...).
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class MachineStore {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(MachineStore.class);
+
+	/**
+	 * Environment variable used by docker-machine to override the store path.
+	 */
+	public static final String ENV_MACHINE_STORAGE_PATH = "MACHINE_STORAGE_PATH";
+
+	public static final String MACHINES_DIRECTORY = "machines";
+
+	public static final String CONFIG_FILENAME = "config.json";
+
+	public static final int DEFAULT_ENGINE_PORT = Integer
+			.parseInt(DockerConfigurationHelper.DEFAULT_DOCKER_API_TLS_PORT);
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private static volatile MachineStore defaultStore = null;
+
+	private final File storePath;
+
+	/**
+	 * Parsed machines by name, reused while config.json is not modified.
+	 */
+	private final Map<String, MachineInfo> machines = new ConcurrentHashMap<>();
+
+	/**
+	 * Ip addresses given by docker-machine after a start, by machine name.
+	 * Driver.IPAddress of config.json is the address of a previous start for the
+	 * drivers using dhcp. An address is used while config.json is not modified.
+	 */
+	private final Map<String, CurrentIpAddress> ipAddresses = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param storePath
+	 *            the docker-machine store directory (the one containing
+	 *            machines/).
+	 */
+	public MachineStore(final File storePath) {
+		this.storePath = storePath;
+	}
+
+	/**
+	 *
+	 * @return the store of the current user.
+	 */
+	public static MachineStore getDefault() {
+		if (defaultStore == null) {
+			synchronized (MachineStore.class) {
+				if (defaultStore == null) {
+					String path = System.getenv(ENV_MACHINE_STORAGE_PATH);
+					if (path == null || path.trim().isEmpty()) {
+						path = DockerConfigurationHelper.DEFAULT_DOCKER_HOME + File.separator + "machine";
+					}
+					defaultStore = new MachineStore(new File(path));
+				}
+			}
+		}
+		return defaultStore;
+	}
+
+	public File getStorePath() {
+		return storePath;
+	}
+
+	/**
+	 *
+	 * @return the names of all machines in the store.
+	 */
+	public List<String> listMachineNames() {
+		List<String> names = new ArrayList<>();
+		File[] dirs = new File(storePath, MACHINES_DIRECTORY).listFiles();
+		if (dirs == null) {
+			return names;
+		}
+		for (File dir : dirs) {
+			if (dir.isDirectory() && new File(dir, CONFIG_FILENAME).isFile()) {
+				names.add(dir.getName());
+			}
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	/**
+	 *
+	 * @param machineName
+	 * @return true if this machine is in the store.
+	 */
+	public boolean exists(final String machineName) {
+		return machineName != null && getConfigFile(machineName).isFile();
+	}
+
+	/**
+	 * Read the machine configuration.
+	 *
+	 * @param machineName
+	 * @return the machine information, null if this machine is not in the store.
+	 * @throws DockerException
+	 *             if the configuration file cannot be read.
+	 */
+	public MachineInfo getMachine(final String machineName) throws DockerException {
+		if (machineName == null) {
+			return null;
+		}
+		File file = getConfigFile(machineName);
+		if (!file.isFile()) {
+			machines.remove(machineName);
+			ipAddresses.remove(machineName);
+			return null;
+		}
+		long lastModified = file.lastModified();
+		long length = file.length();
+		MachineInfo info = machines.get(machineName);
+		if (info != null && info.lastModified == lastModified && info.length == length) {
+			return info;
+		}
+		LOGGER.debug("Read machine configuration : " + file.getPath());
+		try (InputStream in = new FileInputStream(file)) {
+			info = parse(machineName, in);
+		} catch (IOException ex) {
+			throw new DockerException("Cannot read machine configuration : " + file.getPath(), ex);
+		}
+		info.lastModified = lastModified;
+		info.length = length;
+		CurrentIpAddress ipAddress = ipAddresses.get(machineName);
+		if (ipAddress != null && ipAddress.lastModified == lastModified) {
+			info.ipAddress = ipAddress.address;
+		} else if (ipAddress != null) {
+			// Written again by docker-machine.
+			ipAddresses.remove(machineName);
+		}
+		machines.put(machineName, info);
+		return info;
+	}
+
+	/**
+	 * Replace the ip address of config.json by the current one, until the
+	 * machine is stopped, removed or config.json is modified.
+	 *
+	 * @param machineName
+	 * @param ipAddress
+	 *            the address given by docker-machine url, null to use again the
+	 *            address of config.json.
+	 */
+	public void setIpAddress(final String machineName, final String ipAddress) {
+		if (machineName == null) {
+			return;
+		}
+		if (ipAddress == null || ipAddress.trim().isEmpty()) {
+			ipAddresses.remove(machineName);
+		} else {
+			ipAddresses.put(machineName,
+					new CurrentIpAddress(ipAddress.trim(), getConfigFile(machineName).lastModified()));
+		}
+		// Read again with the new address.
+		machines.remove(machineName);
+	}
+
+	/**
+	 * Same content as docker-machine inspect command.
+	 *
+	 * @param machineName
+	 * @return the raw json configuration, null if this machine is not in the
+	 *         store.
+	 * @throws DockerException
+	 */
+	public String readRawConfig(final String machineName) throws DockerException {
+		File file = getConfigFile(machineName);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		} catch (IOException ex) {
+			throw new DockerException("Cannot read machine configuration : " + file.getPath(), ex);
+		}
+	}
+
+	public File getConfigFile(final String machineName) {
+		return new File(new File(new File(storePath, MACHINES_DIRECTORY), machineName), CONFIG_FILENAME);
+	}
+
+	/**
+	 * Parse config.json, the objects and arrays not needed are skipped.
+	 *
+	 * @param machineName
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	static MachineInfo parse(final String machineName, final InputStream in) throws IOException {
+		MachineInfo info = new MachineInfo(machineName);
+		try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Machine configuration is not a json object : " + machineName);
+			}
+			parseObject(parser, "", info);
+		}
+		return info;
+	}
+
+	private static void parseObject(final JsonParser parser, final String path, final MachineInfo info)
+			throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldPath = path.isEmpty() ? parser.getCurrentName() : path + "." + parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_OBJECT) {
+				if (fieldPath.equals("Driver") || fieldPath.equals("HostOptions")
+						|| fieldPath.equals("HostOptions.AuthOptions")) {
+					parseObject(parser, fieldPath, info);
+				} else {
+					parser.skipChildren();
+				}
+			} else if (token == JsonToken.START_ARRAY) {
+				parser.skipChildren();
+			} else if (token != JsonToken.VALUE_NULL) {
+				setValue(fieldPath, parser, info);
+			}
+		}
+	}
+
+	private static void setValue(final String fieldPath, final JsonParser parser, final MachineInfo info)
+			throws IOException {
+		switch (fieldPath) {
+		case "Name":
+			info.name = parser.getValueAsString(info.name);
+			break;
+		case "DriverName":
+			info.driverName = parser.getValueAsString();
+			break;
+		case "Driver.IPAddress":
+			info.ipAddress = parser.getValueAsString();
+			break;
+		case "Driver.SSHUser":
+			info.sshUser = parser.getValueAsString();
+			break;
+		case "Driver.SSHPort":
+			info.sshPort = parser.getValueAsInt();
+			break;
+		case "Driver.SSHKeyPath":
+			info.sshKeyPath = parser.getValueAsString();
+			break;
+		case "Driver.EnginePort":
+			info.enginePort = parser.getValueAsInt();
+			break;
+		case "Driver.CPU":
+			info.cpu = parser.getValueAsInt();
+			break;
+		case "Driver.Memory":
+			info.memory = parser.getValueAsInt();
+			break;
+		case "Driver.DiskSize":
+			info.diskSize = parser.getValueAsInt();
+			break;
+		case "HostOptions.AuthOptions.CertDir":
+			info.certDir = parser.getValueAsString();
+			break;
+		case "HostOptions.AuthOptions.CaCertPath":
+			info.caCertPath = parser.getValueAsString();
+			break;
+		case "HostOptions.AuthOptions.ClientCertPath":
+			info.clientCertPath = parser.getValueAsString();
+			break;
+		case "HostOptions.AuthOptions.ClientKeyPath":
+			info.clientKeyPath = parser.getValueAsString();
+			break;
+		case "HostOptions.AuthOptions.StorePath":
+			info.machineStorePath = parser.getValueAsString();
+			break;
+		default:
+			// Not used.
+			break;
+		}
+	}
+
+	private static class CurrentIpAddress {
+		private final String address;
+		private final long lastModified;
+
+		CurrentIpAddress(final String address, final long lastModified) {
+			this.address = address;
+			this.lastModified = lastModified;
+		}
+	}
+
+	/**
+	 * Machine information read from the store.
+	 */
+	public static class MachineInfo {
+		private String name;
+		private String driverName;
+		private String ipAddress;
+		private String sshUser;
+		private int sshPort;
+		private String sshKeyPath;
+		private int enginePort;
+		private int cpu;
+		private int memory;
+		private int diskSize;
+		private String certDir;
+		private String caCertPath;
+		private String clientCertPath;
+		private String clientKeyPath;
+		private String machineStorePath;
+
+		private long lastModified;
+		private long length;
+
+		MachineInfo(final String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDriverName() {
+			return driverName;
+		}
+
+		/**
+		 *
+		 * @return the ip address, null or empty if the machine has never been
+		 *         started.
+		 */
+		public String getIpAddress() {
+			return ipAddress;
+		}
+
+		public String getSshUser() {
+			return sshUser;
+		}
+
+		public int getSshPort() {
+			return sshPort;
+		}
+
+		public String getSshKeyPath() {
+			return sshKeyPath;
+		}
+
+		public int getEnginePort() {
+			return enginePort > 0 ? enginePort : DEFAULT_ENGINE_PORT;
+		}
+
+		public int getCpu() {
+			return cpu;
+		}
+
+		/**
+		 *
+		 * @return memory in MB.
+		 */
+		public int getMemory() {
+			return memory;
+		}
+
+		public int getDiskSize() {
+			return diskSize;
+		}
+
+		public String getCertDir() {
+			return certDir;
+		}
+
+		public String getCaCertPath() {
+			return caCertPath;
+		}
+
+		public String getClientCertPath() {
+			return clientCertPath;
+		}
+
+		public String getClientKeyPath() {
+			return clientKeyPath;
+		}
+
+		/**
+		 * Same value as DOCKER_CERT_PATH given by docker-machine env.
+		 *
+		 * @return the machine directory containing its certificates.
+		 */
+		public String getCertPath() {
+			return machineStorePath;
+		}
+
+		/**
+		 * Same value as docker-machine url command.
+		 *
+		 * @return tcp://ip:port or null if the ip address is unknown.
+		 */
+		public String getUrl() {
+			if (ipAddress == null || ipAddress.trim().isEmpty()) {
+				return null;
+			}
+			return "tcp://" + ipAddress + ":" + getEnginePort();
+		}
+
+		@Override
+		public String toString() {
+			return "MachineInfo [name=" + name + ", driverName=" + driverName + ", ipAddress=" + ipAddress + "]";
+		}
+	}
+
+}
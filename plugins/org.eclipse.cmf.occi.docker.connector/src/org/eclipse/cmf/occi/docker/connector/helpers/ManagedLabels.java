@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.cmf.occi.core.Configuration;
+import org.eclipse.cmf.occi.core.Entity;
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.eclipse.cmf.occi.infrastructure.Compute;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.ListContainersCmd;
+
+/**
+ * Labels set on the containers and networks created by the connector. With
+ * managed.only=true, the containers lists, the reconciliations and the events
+ * stream of a machine are filtered on the managed-by label, so the connector
+ * ignores the workloads it has not created on a shared host.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class ManagedLabels {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(ManagedLabels.class);
+
+	public static final String LABEL_PREFIX = "org.occiware.docker.";
+
+	public static final String LABEL_MANAGED_BY = LABEL_PREFIX + "managed-by";
+
+	public static final String LABEL_CONFIGURATION = LABEL_PREFIX + "configuration";
+
+	public static final String LABEL_MACHINE = LABEL_PREFIX + "machine";
+
+	public static final String LABEL_MODEL_ID = LABEL_PREFIX + "model-id";
+
+	public static final String MANAGED_BY_VALUE = "occiware-docker-connector";
+
+	private static volatile Boolean managedOnly = null;
+
+	private ManagedLabels() {
+	}
+
+	/**
+	 * Build the labels of an entity created on a machine.
+	 *
+	 * @param compute
+	 *            the machine, null for the local docker daemon.
+	 * @param entity
+	 *            the model entity of the docker object, may be null.
+	 * @return the labels, the configuration and the model id are set only when
+	 *         they are known.
+	 * @throws DockerException
+	 */
+	public static Map<String, String> labelsFor(final Compute compute, final Entity entity) throws DockerException {
+		Map<String, String> labels = new LinkedHashMap<>();
+		labels.put(LABEL_MANAGED_BY, MANAGED_BY_VALUE);
+		labels.put(LABEL_MACHINE, DockerClientRegistry.getMachineKey(compute));
+		String configuration = getConfigurationId(compute != null ? compute : entity);
+		if (configuration != null) {
+			labels.put(LABEL_CONFIGURATION, configuration);
+		}
+		if (entity != null && entity.getId() != null && !entity.getId().trim().isEmpty()) {
+			labels.put(LABEL_MODEL_ID, entity.getId());
+		}
+		return labels;
+	}
+
+	/**
+	 *
+	 * @return the label filter of the docker objects created by the connector.
+	 */
+	public static Map<String, String> managedFilter() {
+		Map<String, String> filter = new LinkedHashMap<>();
+		filter.put(LABEL_MANAGED_BY, MANAGED_BY_VALUE);
+		return filter;
+	}
+
+	/**
+	 * 
+	 * @param client
+	 * @return a command listing all the containers of the machine, or only the
+	 *         managed ones with managed.only=true.
+	 */
+	public static ListContainersCmd listContainersCmd(final DockerClient client) {
+		ListContainersCmd cmd = client.listContainersCmd().withShowAll(true);
+		if (isManagedOnly()) {
+			cmd.withLabelFilter(managedFilter());
+		}
+		return cmd;
+	}
+
+	/**
+	 *
+	 * @param labels
+	 *            the labels of a docker object, may be null.
+	 * @return true if the object has been created by the connector.
+	 */
+	public static boolean isManaged(final Map<String, String> labels) {
+		return labels != null && MANAGED_BY_VALUE.equals(labels.get(LABEL_MANAGED_BY));
+	}
+
+	/**
+	 * The filter is disabled by default, the containers created before the labels
+	 * would else be ignored. The value is read again when the configuration file
+	 * is reloaded.
+	 *
+	 * @return true if the connector works only with the objects it has created,
+	 *         managed.only=true.
+	 */
+	public static boolean isManagedOnly() {
+		Boolean value = managedOnly;
+		if (value == null) {
+			value = Boolean.FALSE;
+			try {
+				value = "true".equalsIgnoreCase(
+						DockerConnectorConfig.getCurrent().getProperty(DockerConfigurationHelper.KEY_MANAGED_ONLY));
+			} catch (IOException ex) {
+				LOGGER.warn("Cannot read managed only configuration, it is disabled : " + ex.getMessage());
+			}
+			managedOnly = value;
+		}
+		return value;
+	}
+
+	/**
+	 * 
+	 * @param value
+	 *            used until the configuration file is reloaded.
+	 */
+	public static void setManagedOnly(boolean value) {
+		managedOnly = value;
+	}
+
+	/**
+	 * Read the managed only setting again, called when the configuration file is
+	 * reloaded. When it changes, the containers indexes and the state mirrors are
+	 * loaded again and the events streams are reopened with the new filter.
+	 */
+	static void configurationReloaded() {
+		Boolean previous = managedOnly;
+		managedOnly = null;
+		if (previous != null && previous.booleanValue() != isManagedOnly()) {
+			LOGGER.info("managed.only is now " + !previous + ", reload the containers indexes and events streams");
+			ContainerIndex.invalidateAll();
+			DaemonStateMirror.invalidateAll();
+			MachineEventStream.invalidateAll();
+		}
+	}
+
+	/**
+	 * The id of the configuration, not its resource uri : the uri is a path of
+	 * the workspace, it changes with the workspace and the host.
+	 *
+	 * @param entity
+	 * @return the id of the configuration containing the entity, or the file
+	 *         name of its resource when the configuration has no id, null if the
+	 *         entity is not in a saved configuration.
+	 */
+	private static String getConfigurationId(final Entity entity) {
+		if (entity == null || !(entity.eContainer() instanceof Configuration)) {
+			return null;
+		}
+		Configuration configuration = (Configuration) entity.eContainer();
+		String id = EcoreUtil.getID(configuration);
+		if (id != null && !id.trim().isEmpty()) {
+			return id;
+		}
+		if (configuration.eResource() == null || configuration.eResource().getURI() == null) {
+			return null;
+		}
+		return configuration.eResource().getURI().lastSegment();
+	}
+
+}
@@ -29,19 +29,24 @@ public class MemoryManager {
 	 * @throws DockerException
 	 */
 	public void setMemValue(String host, String privateKey, Container container, String value) throws DockerException {
+		CgroupWriteBatch batch = new CgroupWriteBatch(host, privateKey);
+		addMemValue(batch, container, value);
+		batch.execute();
+	}
 
-		if (host == null) {
-			throw new DockerException("Known host is not set");
-		}
-		if (privateKey == null) {
-			throw new DockerException("private key is not set");
-		}
+	/**
+	 * Add the mem writes to a batch.
+	 * 
+	 * @param batch
+	 * @param container
+	 * @param value
+	 * @throws DockerException
+	 */
+	public void addMemValue(CgroupWriteBatch batch, Container container, String value) throws DockerException {
 		if (value == null) {
 			throw new DockerException("mem value is not set");
 		}
-		CgroupHelper.SetValue(host, privateKey, container, CgroupHelper.memory_subsystem, CgroupHelper.memory_max_mem,
-				value);
-
+		batch.add(container, CgroupHelper.memory_subsystem, CgroupHelper.memory_max_mem, value);
 	}
 
 	/**
@@ -53,18 +58,23 @@ public class MemoryManager {
 	 * @throws DockerException
 	 */
 	public void setSwapValue(String host, String privateKey, Container container, String value) throws DockerException {
+		CgroupWriteBatch batch = new CgroupWriteBatch(host, privateKey);
+		addSwapValue(batch, container, value);
+		batch.execute();
+	}
 
-		if (host == null) {
-			throw new DockerException("Known host is not set");
-		}
-		if (privateKey == null) {
-			throw new DockerException("private key is not set");
-		}
+	/**
+	 * Add the swap writes to a batch.
+	 * 
+	 * @param batch
+	 * @param container
+	 * @param value
+	 * @throws DockerException
+	 */
+	public void addSwapValue(CgroupWriteBatch batch, Container container, String value) throws DockerException {
 		if (value == null) {
 			throw new DockerException("swap value is not set");
 		}
-
-		CgroupHelper.SetValue(host, privateKey, container, CgroupHelper.memory_subsystem, CgroupHelper.memory_swap,
-				value);
+		batch.add(container, CgroupHelper.memory_subsystem, CgroupHelper.memory_swap, value);
 	}
 }
@@ -30,18 +30,23 @@ public class NetworkManager {
 	 */
 	public void setNetworkValue(String host, String privateKey, Container container, String value)
 			throws DockerException {
+		CgroupWriteBatch batch = new CgroupWriteBatch(host, privateKey);
+		addNetworkValue(batch, container, value);
+		batch.execute();
+	}
 
-		if (host == null) {
-			throw new DockerException("Known host is not set");
-		}
-		if (privateKey == null) {
-			throw new DockerException("private key is not set");
-		}
+	/**
+	 * Add the network writes to a batch.
+	 * 
+	 * @param batch
+	 * @param container
+	 * @param value
+	 * @throws DockerException
+	 */
+	public void addNetworkValue(CgroupWriteBatch batch, Container container, String value) throws DockerException {
 		if (value == null) {
 			throw new DockerException("network value is not set");
 		}
-
-		CgroupHelper.SetValue(host, privateKey, container, CgroupHelper.netcls_subsystem, CgroupHelper.net_cls_classid,
-				value);
+		batch.add(container, CgroupHelper.netcls_subsystem, CgroupHelper.net_cls_classid, value);
 	}
 }
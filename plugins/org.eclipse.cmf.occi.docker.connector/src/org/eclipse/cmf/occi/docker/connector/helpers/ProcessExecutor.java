@@ -0,0 +1,416 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Execute local processes (docker-machine commands) asynchronously. The
+ * commands are executed as argument vectors (no shell), the number of running
+ * processes is limited and the extra ones are queued, the outputs are pumped on
+ * a bounded shared pool into the logger. A process exceeding its deadline, or
+ * whose future is cancelled, is killed with its children.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class ProcessExecutor {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(ProcessExecutor.class);
+
+	public static final int DEFAULT_MAX_PROCESSES = 16;
+
+	/**
+	 * Captured output is truncated after this number of characters.
+	 */
+	public static final int MAX_CAPTURED_CHARS = 1024 * 1024;
+
+	/**
+	 * Time given to the outputs to reach their end after the exit of the
+	 * process, in milliseconds.
+	 */
+	public static final long DRAIN_TIMEOUT = 2000;
+
+	private static final ProcessExecutor INSTANCE = new ProcessExecutor(DEFAULT_MAX_PROCESSES);
+
+	private final Semaphore permits;
+
+	private final Queue<PendingProcess> pending = new ConcurrentLinkedQueue<>();
+
+	private final ThreadPoolExecutor pumpExecutor;
+
+	private final ScheduledExecutorService deadlineExecutor;
+
+	public ProcessExecutor(final int maxProcesses) {
+		this.permits = new Semaphore(maxProcesses);
+		// Two pumps (output and error) and a waiter by running process.
+		this.pumpExecutor = new ThreadPoolExecutor(3 * maxProcesses, 3 * maxProcesses, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), daemonThreadFactory("docker-process-pump"));
+		this.pumpExecutor.allowCoreThreadTimeOut(true);
+		this.deadlineExecutor = Executors
+				.newSingleThreadScheduledExecutor(daemonThreadFactory("docker-process-deadline"));
+	}
+
+	public static ProcessExecutor getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Execute a command line, the arguments are split on whitespaces, quoted parts
+	 * ("..." or '...') are kept as one argument.
+	 *
+	 * @param command
+	 * @param timeout
+	 *            deadline in milliseconds, 0 for no deadline.
+	 * @param logOutput
+	 *            true to log the outputs at info level, false for debug level.
+	 * @return the future result, cancel it to kill the process.
+	 */
+	public CompletableFuture<ProcessResult> execute(final String command, final long timeout,
+			final boolean logOutput) {
+		return execute(tokenize(command), timeout, logOutput);
+	}
+
+	/**
+	 * Execute a command.
+	 *
+	 * @param argv
+	 *            the program and its arguments.
+	 * @param timeout
+	 *            deadline in milliseconds, 0 for no deadline.
+	 * @param logOutput
+	 *            true to log the outputs at info level, false for debug level.
+	 * @return the future result, cancel it to kill the process.
+	 */
+	public CompletableFuture<ProcessResult> execute(final List<String> argv, final long timeout,
+			final boolean logOutput) {
+		final PendingProcess pendingProcess = new PendingProcess(argv, timeout, logOutput);
+		if (argv == null || argv.isEmpty()) {
+			pendingProcess.future.completeExceptionally(new IOException("Empty command"));
+			return pendingProcess.future;
+		}
+		pending.add(pendingProcess);
+		launchPending();
+		return pendingProcess.future;
+	}
+
+	/**
+	 * Launch the queued processes while permits are available.
+	 */
+	private void launchPending() {
+		while (!pending.isEmpty() && permits.tryAcquire()) {
+			PendingProcess next = pending.poll();
+			if (next == null) {
+				permits.release();
+				return;
+			}
+			if (next.future.isDone()) {
+				// Cancelled before launch.
+				permits.release();
+				continue;
+			}
+			try {
+				start(next);
+			} catch (IOException | RuntimeException ex) {
+				permits.release();
+				next.future.completeExceptionally(ex);
+			}
+		}
+	}
+
+	private void start(final PendingProcess pendingProcess) throws IOException {
+		final List<String> argv = pendingProcess.argv;
+		LOGGER.info("Command to exec: " + argv);
+		final long startTime = System.currentTimeMillis();
+		final Process process = new ProcessBuilder(argv).start();
+		process.getOutputStream().close();
+
+		final AtomicBoolean timedOut = new AtomicBoolean(false);
+		final AtomicBoolean finished = new AtomicBoolean(false);
+		final ScheduledFuture<?> deadline;
+		if (pendingProcess.timeout > 0) {
+			deadline = deadlineExecutor.schedule(new Runnable() {
+				@Override
+				public void run() {
+					if (!finished.get()) {
+						LOGGER.warn("Deadline exceeded (" + pendingProcess.timeout + "ms), kill : " + argv);
+						timedOut.set(true);
+						killTree(process);
+					}
+				}
+			}, pendingProcess.timeout, TimeUnit.MILLISECONDS);
+		} else {
+			deadline = null;
+		}
+		// Cancellation of the future kills the process.
+		pendingProcess.future.whenComplete((result, error) -> {
+			if (pendingProcess.future.isCancelled() && !finished.get()) {
+				LOGGER.warn("Command cancelled, kill : " + argv);
+				killTree(process);
+			}
+		});
+
+		final StringBuffer output = new StringBuffer();
+		final StringBuffer error = new StringBuffer();
+		final CountDownLatch drained = new CountDownLatch(2);
+		final String name = argv.get(0);
+
+		pumpExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				pump(process.getErrorStream(), error, name, pendingProcess.logOutput, true);
+				drained.countDown();
+			}
+		});
+		pumpExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				pump(process.getInputStream(), output, name, pendingProcess.logOutput, false);
+				drained.countDown();
+			}
+		});
+		// The result is given on the exit of the process, the daemons started by
+		// the command (VBoxHeadless, ssh) may keep its outputs open.
+		pumpExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					int exitCode = process.waitFor();
+					finished.set(true);
+					if (deadline != null) {
+						deadline.cancel(false);
+					}
+					if (!drained.await(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+						LOGGER.warn("Outputs of " + name + " still open " + DRAIN_TIMEOUT
+								+ "ms after its exit, held by a child process, closed");
+						closeQuietly(process.getInputStream());
+						closeQuietly(process.getErrorStream());
+					}
+					ProcessResult result = new ProcessResult(argv, exitCode, output.toString(), error.toString(),
+							timedOut.get(), System.currentTimeMillis() - startTime);
+					LOGGER.debug(result.toString());
+					pendingProcess.future.complete(result);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					killTree(process);
+					pendingProcess.future.completeExceptionally(ex);
+				} finally {
+					finished.set(true);
+					permits.release();
+					launchPending();
+				}
+			}
+		});
+	}
+
+	private static void closeQuietly(final InputStream stream) {
+		try {
+			stream.close();
+		} catch (IOException ex) {
+			LOGGER.debug("Cannot close process stream : " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Read a process stream until its end.
+	 */
+	private static void pump(final InputStream stream, final StringBuffer capture, final String name,
+			final boolean logOutput, final boolean errorStream) {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, Charset.defaultCharset()))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (capture.length() < MAX_CAPTURED_CHARS) {
+					capture.append(line).append('\n');
+				}
+				if (logOutput) {
+					if (errorStream) {
+						LOGGER.warn("[" + name + "] " + line);
+					} else {
+						LOGGER.info("[" + name + "] " + line);
+					}
+				} else {
+					LOGGER.debug("[" + name + "] " + line);
+				}
+			}
+		} catch (IOException ex) {
+			// Stream closed when the process is killed.
+			LOGGER.debug("Stream of " + name + " closed : " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Kill the process and its children.
+	 *
+	 * @param process
+	 */
+	public static void killTree(final Process process) {
+		try {
+			// Java 9 and later.
+			final Method destroy = Class.forName("java.lang.ProcessHandle").getMethod("destroyForcibly");
+			Stream<?> descendants = (Stream<?>) Process.class.getMethod("descendants").invoke(process);
+			descendants.forEach(handle -> {
+				try {
+					destroy.invoke(handle);
+				} catch (ReflectiveOperationException ex) {
+					// Already terminated.
+				}
+			});
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			// Java 8, use the system commands.
+			long pid = getPid(process);
+			if (pid > 0) {
+				List<String> killCommand;
+				if (DockerMachineCommandFactory.isWindows()) {
+					killCommand = Arrays.asList("taskkill", "/T", "/F", "/PID", String.valueOf(pid));
+				} else {
+					killCommand = Arrays.asList("pkill", "-KILL", "-P", String.valueOf(pid));
+				}
+				try {
+					new ProcessBuilder(killCommand).start().waitFor(5, TimeUnit.SECONDS);
+				} catch (IOException e) {
+					LOGGER.warn("Cannot kill children of process " + pid + " : " + e.getMessage());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		process.destroyForcibly();
+	}
+
+	/**
+	 *
+	 * @param process
+	 * @return the process id, -1 if unknown.
+	 */
+	private static long getPid(final Process process) {
+		try {
+			Method pid = Process.class.getMethod("pid");
+			return ((Number) pid.invoke(process)).longValue();
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			// Java 8 : UNIXProcess.pid field.
+		}
+		try {
+			Field field = process.getClass().getDeclaredField("pid");
+			field.setAccessible(true);
+			return field.getLong(process);
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Split a command line into arguments, double and single quotes group the
+	 * characters and are removed, a backslash escapes the next character.
+	 *
+	 * @param command
+	 * @return the argument vector.
+	 */
+	public static List<String> tokenize(final String command) {
+		List<String> argv = new ArrayList<>();
+		if (command == null) {
+			return argv;
+		}
+		StringBuilder current = new StringBuilder();
+		boolean inToken = false;
+		char quote = 0;
+		for (int i = 0; i < command.length(); i++) {
+			char c = command.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				} else if (c == '\\' && quote == '"' && i + 1 < command.length()
+						&& (command.charAt(i + 1) == '"' || command.charAt(i + 1) == '\\')) {
+					current.append(command.charAt(++i));
+				} else {
+					current.append(c);
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+				inToken = true;
+			} else if (c == '\\' && i + 1 < command.length() && !DockerMachineCommandFactory.isWindows()) {
+				current.append(command.charAt(++i));
+				inToken = true;
+			} else if (Character.isWhitespace(c)) {
+				if (inToken) {
+					argv.add(current.toString());
+					current.setLength(0);
+					inToken = false;
+				}
+			} else {
+				current.append(c);
+				inToken = true;
+			}
+		}
+		if (inToken) {
+			argv.add(current.toString());
+		}
+		return Collections.unmodifiableList(argv);
+	}
+
+	private static ThreadFactory daemonThreadFactory(final String prefix) {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, prefix + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * A command waiting for a permit.
+	 */
+	private static class PendingProcess {
+		private final List<String> argv;
+		private final long timeout;
+		private final boolean logOutput;
+		private final CompletableFuture<ProcessResult> future = new CompletableFuture<>();
+
+		private PendingProcess(final List<String> argv, final long timeout, final boolean logOutput) {
+			this.argv = argv;
+			this.timeout = timeout;
+			this.logOutput = logOutput;
+		}
+	}
+
+}
@@ -12,14 +12,14 @@
  */
 package org.eclipse.cmf.occi.docker.connector.helpers;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Manage commands executed on local shell.
@@ -28,146 +28,104 @@ import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
  *
  */
 public class ProcessManager {
-	private static String OS = DockerMachineCommandFactory.getOS();
+
+	private static Logger LOGGER = LoggerFactory.getLogger(ProcessManager.class);
+
+	/**
+	 * Deadline of commands reading an output (url, inspect, ls, env...).
+	 */
+	public static final long OUTPUT_COMMAND_TIMEOUT = 120000; // 2 minutes.
+
+	/**
+	 * Deadline of commands changing the machines, creation on a cloud driver
+	 * may be long.
+	 */
+	public static final long RUN_COMMAND_TIMEOUT = 1800000; // 30 minutes.
 
 	/**
-	 * Execute a shell command on system.
+	 * Execute a command on system and return its output.
 	 * 
 	 * @param command
 	 * @param r
-	 *            Runtime object
+	 *            Runtime object (not used, kept for compatibility)
 	 * @return runtime execution result string.
 	 * @throws DockerException
 	 */
 	public static String getOutputCommand(final String command, Runtime r) throws DockerException {
-		StringBuffer result = new StringBuffer();
-		String[] env;
-
-		if (OS.equalsIgnoreCase("osx") || OS.equalsIgnoreCase("uni")) {
-			env = new String[] { "/bin/bash", "-c", command };
-
-		} else if (OS.equalsIgnoreCase("win")) {
-			env = new String[] { "cmd", "/c", command };
-
-		} else if (OS.equalsIgnoreCase("sol")) {
-			// For solaris
-			env = new String[] { "/usr/bin/bash", "-c", command };
-		} else {
-			throw new DockerException("Cannot initialize the output docker-machine, the OS is undefined : " + OS);
-		}
-		// For debug...
-		System.out.println("Command to exec: ");
-		for (String envTmp : env) {
-			System.out.println(envTmp);
-		}
+		ProcessResult result;
 		try {
-			Process process = r.exec(env);
-			InputStreamReader input = new InputStreamReader(process.getInputStream());
-			BufferedReader reader = new BufferedReader(input);
-			String line;
-			while ((line = reader.readLine()) != null) {
-				result.append(line + "\n");
+			result = waitFor(runCommandAsync(command, OUTPUT_COMMAND_TIMEOUT, false));
+		} catch (DockerException ex) {
+			if (ex.getCause() instanceof IOException) {
+				// Program not found, same as an empty output.
+				LOGGER.error("Cannot execute command " + command + " : " + ex.getMessage());
+				return "";
 			}
-			reader.close();
-		} catch (IOException e) {
-			// TODO : Check this one... Why this may throw an exception ? Is process running
-			// or stopped ?
-			e.printStackTrace();
+			throw ex;
+		}
+		if (!result.isSuccess()) {
+			LOGGER.warn("Command " + result.getCommand() + " failed : " + result.getError());
 		}
-		return result.toString();
+		return result.getOutput();
 	}
 
 	/**
-	 * Execute a command and output on systout if output property is true. Wait
-	 * until command has been successfully executed.
+	 * Execute a command and output on logger if output property is true. Wait
+	 * until command has been executed.
 	 * 
 	 * @param command
 	 *            the command to execute.
 	 * @param r
-	 *            runtime object
+	 *            runtime object (not used, kept for compatibility)
 	 * @param output
-	 *            (true : default to system.out, false: no system.out)
+	 *            (true : output logged at info level, false: debug level)
 	 * @return true if command ok, false if command output has an error.
 	 */
 	public static boolean runCommand(final String command, Runtime r, final boolean output) throws DockerException {
-		try {
-			Process process = r.exec(command);
-			if (output) {
-				new StreamHandler(process.getInputStream(), System.out);
-
-			} else {
-				new StreamHandler(process.getInputStream(), null);
-				new StreamHandler(process.getErrorStream(), null);
-			}
-			new StreamHandler(process.getErrorStream(), System.err); // TODO : Remove this and log to output error
-																		// logger instead.
-
-			// TODO : Check this, waitFor wait thread until the end of the process (using
-			// future ???).
-			int result = process.waitFor();
-
-			Output.flushErr();
-			Output.flushOut();
-
-			return result == 0;
-		} catch (Exception e) {
-			e.printStackTrace();
-			throw new DockerException(e.getMessage(), e);
-
+		ProcessResult result = waitFor(runCommandAsync(command, RUN_COMMAND_TIMEOUT, output));
+		if (result.isTimedOut()) {
+			LOGGER.error("Command killed after " + RUN_COMMAND_TIMEOUT + "ms : " + result.getCommand());
 		}
-
+		return result.isSuccess();
 	}
 
-	private static class StreamHandler {
-		BufferedReader reader;
-		PrintWriter writer;
-
-		public StreamHandler(InputStream inputStream, OutputStream outputStream) {
-			reader = new BufferedReader(new InputStreamReader(inputStream));
-
-			if (outputStream != null) {
-				writer = new PrintWriter(outputStream);
-			}
-
-			handle();
-		}
-
-		/**
-		 * Handle streams reader and flush after read.
-		 */
-		public void handle() {
-			Runnable runnable = new Runnable() {
-
-				@Override
-				public void run() {
-					String message = null;
-
-					while (true) {
-
-						try {
-							message = reader.readLine();
-						} catch (IOException ex) {
-							ex.printStackTrace();
-						}
-
-						if (message == null) {
-							return;
-						}
-						if (writer != null) {
-							writer.println(message);
-							writer.flush();
-						}
+	/**
+	 * Execute a command without waiting. The command is split in arguments and
+	 * executed without shell.
+	 * 
+	 * @param command
+	 *            the command to execute.
+	 * @param timeout
+	 *            deadline in milliseconds, the process is killed after it. 0 for
+	 *            no deadline.
+	 * @param output
+	 *            (true : output logged at info level, false: debug level)
+	 * @return the future result, cancel it to kill the process.
+	 */
+	public static CompletableFuture<ProcessResult> runCommandAsync(final String command, final long timeout,
+			final boolean output) {
+		return ProcessExecutor.getInstance().execute(command, timeout, output);
+	}
 
-					}
-				}
-			};
-			try {
-				Thread thread = new Thread(runnable);
-				thread.start();
-			} catch (Exception e) {
-				writer = null;
-				reader = null;
-			}
+	/**
+	 * Wait for a command result, the process is killed if the current thread is
+	 * interrupted.
+	 * 
+	 * @param future
+	 * @return the command result.
+	 * @throws DockerException
+	 */
+	public static ProcessResult waitFor(final CompletableFuture<ProcessResult> future) throws DockerException {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new DockerException("Interrupted while waiting for command", ex);
+		} catch (ExecutionException ex) {
+			throw new DockerException(ex.getCause().getMessage(), ex.getCause());
+		} catch (CancellationException ex) {
+			throw new DockerException("Command cancelled", ex);
 		}
 	}
 
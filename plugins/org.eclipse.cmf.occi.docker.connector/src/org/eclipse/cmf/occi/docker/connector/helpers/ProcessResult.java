@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.util.List;
+
+/**
+ * Result of a local process executed by {@link ProcessExecutor}.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class ProcessResult {
+
+	private final List<String> command;
+	private final int exitCode;
+	private final String output;
+	private final String error;
+	private final boolean timedOut;
+	private final long duration;
+
+	public ProcessResult(final List<String> command, final int exitCode, final String output, final String error,
+			final boolean timedOut, final long duration) {
+		this.command = command;
+		this.exitCode = exitCode;
+		this.output = output;
+		this.error = error;
+		this.timedOut = timedOut;
+		this.duration = duration;
+	}
+
+	public List<String> getCommand() {
+		return command;
+	}
+
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 *
+	 * @return standard output, empty if not captured.
+	 */
+	public String getOutput() {
+		return output;
+	}
+
+	/**
+	 *
+	 * @return error output, empty if not captured.
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 *
+	 * @return true if the process has been killed after its deadline.
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 *
+	 * @return execution duration in milliseconds.
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	public boolean isSuccess() {
+		return exitCode == 0 && !timedOut;
+	}
+
+	@Override
+	public String toString() {
+		return "ProcessResult [command=" + command + ", exitCode=" + exitCode + ", timedOut=" + timedOut
+				+ ", duration=" + duration + "ms]";
+	}
+
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import org.eclipse.cmf.occi.docker.Machine;
+
+/**
+ * Progress of the machines started by {@link MachineProvisioner}. The methods
+ * are called from the provisioning threads.
+ * 
+ * @author Christophe Gourdin
+ *
+ */
+public interface ProvisioningListener {
+
+	/**
+	 * The machine waits for a free provisioning slot.
+	 * 
+	 * @param machine
+	 */
+	void machineQueued(Machine machine);
+
+	/**
+	 * The machine is being created or started.
+	 * 
+	 * @param machine
+	 */
+	void machineStarting(Machine machine);
+
+	/**
+	 * The machine and its containers are started.
+	 * 
+	 * @param machine
+	 * @param duration
+	 *            in milliseconds.
+	 */
+	void machineStarted(Machine machine, long duration);
+
+	/**
+	 * The machine or one of its containers cannot be started.
+	 * 
+	 * @param machine
+	 * @param error
+	 *            the cause, may be null if the machine is not active after its
+	 *            start.
+	 */
+	void machineFailed(Machine machine, Throwable error);
+
+}
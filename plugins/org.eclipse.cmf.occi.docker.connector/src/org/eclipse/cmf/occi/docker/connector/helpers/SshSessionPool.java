@@ -0,0 +1,544 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.helpers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.HostKey;
+import com.jcraft.jsch.HostKeyRepository;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.UserInfo;
+
+/**
+ * Persistent ssh sessions to the machines, one session by host, user and
+ * private key. The commands are executed on exec channels of the session, up
+ * to {@link #MAX_CHANNELS} at the same time, and their exit status is
+ * awaited. The host keys are trusted on first use and saved in
+ * ssh.known.hosts (default ~/.docker/occi-known-hosts), a changed host key is
+ * refused. The key of a docker machine is saved under the machine name, not
+ * its address, and is forgotten when the machine is created or removed. The
+ * sessions idle for ssh.session.idle.timeout milliseconds are closed.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class SshSessionPool {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(SshSessionPool.class);
+
+	public static final String DEFAULT_USER = "docker";
+
+	public static final int DEFAULT_PORT = 22;
+
+	public static final String DEFAULT_KNOWN_HOSTS = DockerConfigurationHelper.DEFAULT_DOCKER_HOME + File.separator
+			+ "occi-known-hosts";
+
+	public static final int DEFAULT_IDLE_TIMEOUT = 300000;
+
+	public static final int DEFAULT_EXEC_TIMEOUT = 60000;
+
+	public static final int CONNECT_TIMEOUT = 15000;
+
+	public static final int KEEP_ALIVE_INTERVAL = 30000;
+
+	public static final int KEEP_ALIVE_COUNT_MAX = 3;
+
+	/**
+	 * Channels opened at the same time on a session, sshd accepts 10 by default
+	 * (MaxSessions).
+	 */
+	public static final int MAX_CHANNELS = 8;
+
+	private static final long EVICTION_INTERVAL = 30000;
+
+	private static final long POLL_INTERVAL = 10;
+
+	private static final SshSessionPool INSTANCE = new SshSessionPool();
+
+	private final Map<String, PooledSession> sessions = new ConcurrentHashMap<>();
+
+	/**
+	 * One JSch by private key, the identities of a JSch are all tried on
+	 * authentication.
+	 */
+	private final Map<String, JSch> jschs = new ConcurrentHashMap<>();
+
+	private HostKeyRepository hostKeys = null;
+
+	private ScheduledExecutorService executor = null;
+
+	private SshSessionPool() {
+	}
+
+	public static SshSessionPool getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Result of a command.
+	 */
+	public static class ExecResult {
+
+		private final int exitStatus;
+
+		private final String output;
+
+		private final String error;
+
+		public ExecResult(final int exitStatus, final String output, final String error) {
+			this.exitStatus = exitStatus;
+			this.output = output;
+			this.error = error;
+		}
+
+		public int getExitStatus() {
+			return exitStatus;
+		}
+
+		public String getOutput() {
+			return output;
+		}
+
+		public String getError() {
+			return error;
+		}
+
+		public boolean isSuccess() {
+			return exitStatus == 0;
+		}
+	}
+
+	/**
+	 * Execute a command on a host. When the host is the address of a docker
+	 * machine, its ssh user and port are read from the machine store, else the
+	 * docker user on port 22 is used.
+	 *
+	 * @param host
+	 * @param privateKey
+	 *            path of the private key file.
+	 * @param command
+	 * @return the result of the command.
+	 * @throws DockerException
+	 *             if the command cannot be executed or is too long.
+	 */
+	public ExecResult exec(final String host, final String privateKey, final String command)
+			throws DockerException {
+		MachineStore.MachineInfo machine = findMachine(host);
+		if (machine == null) {
+			return exec(DEFAULT_USER, host, DEFAULT_PORT, privateKey, command, null);
+		}
+		String user = machine.getSshUser() != null && !machine.getSshUser().isEmpty() ? machine.getSshUser()
+				: DEFAULT_USER;
+		int port = machine.getSshPort() > 0 ? machine.getSshPort() : DEFAULT_PORT;
+		return exec(user, host, port, privateKey, command, machine.getName());
+	}
+
+	/**
+	 * Execute a command on a host and wait for its exit status. A session
+	 * closed by the host is opened again once.
+	 *
+	 * @param user
+	 * @param host
+	 * @param port
+	 * @param privateKey
+	 *            path of the private key file.
+	 * @param command
+	 * @return the result of the command.
+	 * @throws DockerException
+	 *             if the command cannot be executed or is too long.
+	 */
+	public ExecResult exec(final String user, final String host, final int port, final String privateKey,
+			final String command) throws DockerException {
+		return exec(user, host, port, privateKey, command, null);
+	}
+
+	/**
+	 * 
+	 * @param user
+	 * @param host
+	 * @param port
+	 * @param privateKey
+	 * @param command
+	 * @param machineName
+	 *            the name of the docker machine, its host key is saved under
+	 *            this name, null to save it under the host.
+	 * @return the result of the command.
+	 * @throws DockerException
+	 */
+	private ExecResult exec(final String user, final String host, final int port, final String privateKey,
+			final String command, final String machineName) throws DockerException {
+		String key = user + "@" + host + ":" + port + "#" + privateKey + (machineName != null ? "/" + machineName : "");
+		PooledSession pooled = sessions.get(key);
+		if (pooled == null) {
+			pooled = new PooledSession(user, host, port, privateKey, machineName);
+			PooledSession previous = sessions.putIfAbsent(key, pooled);
+			if (previous != null) {
+				pooled = previous;
+			} else {
+				startEviction();
+			}
+		}
+		int execTimeout = getConfigInt(DockerConfigurationHelper.KEY_SSH_EXEC_TIMEOUT, DEFAULT_EXEC_TIMEOUT);
+		boolean reused = pooled.isConnected();
+		try {
+			return pooled.exec(command, execTimeout);
+		} catch (JSchException ex) {
+			pooled.close();
+			if (!reused) {
+				throw new DockerException("Cannot execute command on host " + host + " : " + ex.getMessage(), ex);
+			}
+		}
+		// The session has been closed by the host or the network.
+		LOGGER.info("SSH session to " + host + " is down, connecting again");
+		try {
+			return pooled.exec(command, execTimeout);
+		} catch (JSchException ex) {
+			pooled.close();
+			throw new DockerException("Cannot execute command on host " + host + " : " + ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Close the sessions to a host.
+	 *
+	 * @param host
+	 */
+	public void close(final String host) {
+		for (PooledSession pooled : sessions.values()) {
+			if (pooled.host.equals(host)) {
+				pooled.close();
+			}
+		}
+	}
+
+	/**
+	 * Close the sessions to a docker machine and forget its host key, called
+	 * when the machine is created or removed : a new machine may have the same
+	 * name and address with another key.
+	 *
+	 * @param machineName
+	 */
+	public void forget(final String machineName) {
+		if (machineName == null) {
+			return;
+		}
+		for (PooledSession pooled : sessions.values()) {
+			if (machineName.equals(pooled.machineName)) {
+				pooled.close();
+			}
+		}
+		try {
+			getHostKeys().remove(machineName, null);
+			LOGGER.info("Host key of machine " + machineName + " forgotten");
+		} catch (DockerException ex) {
+			LOGGER.warn("Cannot forget host key of machine " + machineName + " : " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * 
+	 * @param host
+	 * @return the docker machine with this address, null if none.
+	 */
+	private static MachineStore.MachineInfo findMachine(final String host) {
+		MachineStore store = MachineStore.getDefault();
+		for (String name : store.listMachineNames()) {
+			try {
+				MachineStore.MachineInfo info = store.getMachine(name);
+				if (info != null && host.equals(info.getIpAddress())) {
+					return info;
+				}
+			} catch (DockerException ex) {
+				LOGGER.debug("Cannot read machine " + name + " : " + ex.getMessage());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Close all the sessions.
+	 */
+	public void closeAll() {
+		for (PooledSession pooled : sessions.values()) {
+			pooled.close();
+		}
+	}
+
+	private JSch getJSch(final String privateKey) throws DockerException {
+		JSch jsch = jschs.get(privateKey);
+		if (jsch != null) {
+			return jsch;
+		}
+		synchronized (this) {
+			jsch = jschs.get(privateKey);
+			if (jsch == null) {
+				jsch = new JSch();
+				try {
+					jsch.addIdentity(privateKey);
+				} catch (JSchException ex) {
+					throw new DockerException("Cannot load private key " + privateKey + " : " + ex.getMessage(), ex);
+				}
+				jsch.setHostKeyRepository(getHostKeys());
+				jschs.put(privateKey, jsch);
+			}
+			return jsch;
+		}
+	}
+
+	private synchronized HostKeyRepository getHostKeys() throws DockerException {
+		if (hostKeys != null) {
+			return hostKeys;
+		}
+		String path = DEFAULT_KNOWN_HOSTS;
+		try {
+			String value = DockerConnectorConfig.getCurrent().getProperty(DockerConfigurationHelper.KEY_SSH_KNOWN_HOSTS);
+			if (value != null && !value.trim().isEmpty()) {
+				path = value.trim();
+			}
+		} catch (IOException ex) {
+			LOGGER.warn("Cannot read ssh configuration, use default known hosts : " + ex.getMessage());
+		}
+		File file = new File(path);
+		try {
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			// The known hosts are saved only if the file exists.
+			file.createNewFile();
+			JSch jsch = new JSch();
+			jsch.setKnownHosts(file.getAbsolutePath());
+			hostKeys = new TrustOnFirstUse(jsch.getHostKeyRepository());
+		} catch (IOException | JSchException ex) {
+			throw new DockerException("Cannot load known hosts " + path + " : " + ex.getMessage(), ex);
+		}
+		return hostKeys;
+	}
+
+	private static int getConfigInt(final String key, final int defaultValue) {
+		try {
+			return DockerConnectorConfig.getCurrent().getIntProperty(key, defaultValue);
+		} catch (IOException ex) {
+			return defaultValue;
+		}
+	}
+
+	private synchronized void startEviction() {
+		if (executor != null) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "docker-ssh-sessions");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				long idleTimeout = getConfigInt(DockerConfigurationHelper.KEY_SSH_SESSION_IDLE_TIMEOUT,
+						DEFAULT_IDLE_TIMEOUT);
+				long now = System.currentTimeMillis();
+				for (PooledSession pooled : sessions.values()) {
+					pooled.closeIfIdle(now, idleTimeout);
+				}
+			}
+		}, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Session to a host, opened on first command and after its close.
+	 */
+	private class PooledSession {
+
+		private final String user;
+
+		private final String host;
+
+		private final int port;
+
+		private final String privateKey;
+
+		private final String machineName;
+
+		private final Semaphore channels = new Semaphore(MAX_CHANNELS);
+
+		private Session session = null;
+
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		PooledSession(final String user, final String host, final int port, final String privateKey,
+				final String machineName) {
+			this.user = user;
+			this.host = host;
+			this.port = port;
+			this.privateKey = privateKey;
+			this.machineName = machineName;
+		}
+
+		synchronized boolean isConnected() {
+			return session != null && session.isConnected();
+		}
+
+		private synchronized Session connect() throws JSchException, DockerException {
+			if (session != null && session.isConnected()) {
+				return session;
+			}
+			Session newSession = getJSch(privateKey).getSession(user, host, port);
+			// The unknown hosts are accepted by the known hosts repository.
+			newSession.setConfig("StrictHostKeyChecking", "yes");
+			if (machineName != null) {
+				// The address of a machine may be reused by another machine.
+				newSession.setHostKeyAlias(machineName);
+			}
+			newSession.setServerAliveInterval(KEEP_ALIVE_INTERVAL);
+			newSession.setServerAliveCountMax(KEEP_ALIVE_COUNT_MAX);
+			newSession.connect(CONNECT_TIMEOUT);
+			LOGGER.debug("SSH session to " + user + "@" + host + ":" + port + " opened");
+			session = newSession;
+			return session;
+		}
+
+		ExecResult exec(final String command, final long timeout) throws JSchException, DockerException {
+			try {
+				channels.acquire();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new DockerException("Interrupted while waiting for ssh channel to " + host, ex);
+			}
+			try {
+				lastUsed = System.currentTimeMillis();
+				ChannelExec channel = (ChannelExec) connect().openChannel("exec");
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				ByteArrayOutputStream error = new ByteArrayOutputStream();
+				channel.setCommand(command);
+				channel.setOutputStream(output);
+				channel.setErrStream(error);
+				try {
+					channel.connect(CONNECT_TIMEOUT);
+					long deadline = System.currentTimeMillis() + timeout;
+					while (!channel.isClosed()) {
+						if (System.currentTimeMillis() > deadline) {
+							throw new DockerException(
+									"Command on host " + host + " not finished after " + timeout + " ms : " + command);
+						}
+						Thread.sleep(POLL_INTERVAL);
+					}
+					return new ExecResult(channel.getExitStatus(), output.toString("UTF-8"), error.toString("UTF-8"));
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new DockerException("Interrupted while executing command on host " + host, ex);
+				} catch (UnsupportedEncodingException ex) {
+					throw new DockerException(ex);
+				} finally {
+					channel.disconnect();
+					lastUsed = System.currentTimeMillis();
+				}
+			} finally {
+				channels.release();
+			}
+		}
+
+		synchronized void closeIfIdle(final long now, final long idleTimeout) {
+			if (session != null && channels.availablePermits() == MAX_CHANNELS && now - lastUsed >= idleTimeout) {
+				LOGGER.debug("SSH session to " + host + " idle, closed");
+				close();
+			}
+		}
+
+		synchronized void close() {
+			if (session != null) {
+				session.disconnect();
+				session = null;
+			}
+		}
+	}
+
+	/**
+	 * Accept and save the key of an unknown host, refuse a changed key.
+	 */
+	private static class TrustOnFirstUse implements HostKeyRepository {
+
+		private final HostKeyRepository knownHosts;
+
+		TrustOnFirstUse(final HostKeyRepository knownHosts) {
+			this.knownHosts = knownHosts;
+		}
+
+		@Override
+		public synchronized int check(final String host, final byte[] key) {
+			int result = knownHosts.check(host, key);
+			if (result == NOT_INCLUDED) {
+				try {
+					knownHosts.add(new HostKey(host, key), null);
+					LOGGER.info("New host key saved for " + host);
+					return OK;
+				} catch (JSchException ex) {
+					LOGGER.warn("Cannot save host key of " + host + " : " + ex.getMessage());
+				}
+			} else if (result == CHANGED) {
+				LOGGER.error("Host key of " + host + " has changed, the connection is refused");
+			}
+			return result;
+		}
+
+		@Override
+		public synchronized void add(final HostKey hostkey, final UserInfo ui) {
+			knownHosts.add(hostkey, ui);
+		}
+
+		@Override
+		public synchronized void remove(final String host, final String type) {
+			knownHosts.remove(host, type);
+		}
+
+		@Override
+		public synchronized void remove(final String host, final String type, final byte[] key) {
+			knownHosts.remove(host, type, key);
+		}
+
+		@Override
+		public String getKnownHostsRepositoryID() {
+			return knownHosts.getKnownHostsRepositoryID();
+		}
+
+		@Override
+		public synchronized HostKey[] getHostKey() {
+			return knownHosts.getHostKey();
+		}
+
+		@Override
+		public synchronized HostKey[] getHostKey(final String host, final String type) {
+			return knownHosts.getHostKey(host, type);
+		}
+	}
+
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.observer;
+
+import java.io.IOException;
+
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConfigurationHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConnectorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adaptive sampling interval of a container. The container is sampled at its
+ * monitoring interval while its metrics change or are near the elasticity
+ * thresholds. When it is stable, the interval is doubled after each sample,
+ * up to a ceiling.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class AdaptiveInterval {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(AdaptiveInterval.class);
+
+	public static final long DEFAULT_MAX_INTERVAL = 30000;
+
+	/**
+	 * The container is sampled quickly above this part of a threshold (cpu
+	 * elasticity threshold, memory limit).
+	 */
+	public static final double THRESHOLD_MARGIN = 0.8;
+
+	/**
+	 * Cpu usage change, in percent points, considered as a fast change.
+	 */
+	public static final double CPU_CHANGE = 10.0;
+
+	/**
+	 * Relative memory usage change considered as a fast change.
+	 */
+	public static final double MEMORY_CHANGE = 0.1;
+
+	/**
+	 * Relative I/O rate change considered as a fast change.
+	 */
+	public static final double IO_RATE_CHANGE = 0.5;
+
+	/**
+	 * I/O rates below this value in bytes by second are considered as idle.
+	 */
+	public static final long IO_RATE_FLOOR = 64 * 1024;
+
+	private final long maxInterval;
+
+	/**
+	 * Current interval in milliseconds, 0 for the monitoring interval.
+	 */
+	private long interval = 0;
+
+	private boolean first = true;
+
+	private double lastCpuPercent = 0;
+
+	private long lastMemory = 0;
+
+	private long lastIoRate = 0;
+
+	/**
+	 *
+	 * @param maxInterval
+	 *            the ceiling of the interval in milliseconds.
+	 */
+	public AdaptiveInterval(long maxInterval) {
+		this.maxInterval = maxInterval;
+	}
+
+	/**
+	 *
+	 * @return a new adaptive interval if the adaptive sampling is enabled
+	 *         (stats.adaptive=true), else null.
+	 */
+	public static AdaptiveInterval fromConfig() {
+		try {
+			DockerConnectorConfig config = DockerConnectorConfig.getCurrent();
+			if (!"true".equalsIgnoreCase(config.getProperty(DockerConfigurationHelper.KEY_STATS_ADAPTIVE))) {
+				return null;
+			}
+			return new AdaptiveInterval(config.getIntProperty(
+					DockerConfigurationHelper.KEY_STATS_ADAPTIVE_MAX_INTERVAL, (int) DEFAULT_MAX_INTERVAL));
+		} catch (IOException ex) {
+			LOGGER.warn("Cannot read adaptive sampling configuration, it is disabled : " + ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * @param minInterval
+	 *            monitoring interval of the container in milliseconds.
+	 * @return the current sampling interval in milliseconds.
+	 */
+	public synchronized long getInterval(long minInterval) {
+		return Math.max(minInterval, Math.min(interval, maxInterval));
+	}
+
+	/**
+	 * Adapt the interval to a new sample.
+	 *
+	 * @param minInterval
+	 *            monitoring interval of the container in milliseconds.
+	 * @param cpuPercent
+	 *            cpu usage in percent of one core.
+	 * @param memory
+	 *            memory used in bytes.
+	 * @param memoryLimit
+	 *            memory limit in bytes, 0 if unknown.
+	 * @param ioRate
+	 *            network and block I/O rate in bytes by second.
+	 * @return the new interval in milliseconds.
+	 */
+	public synchronized long update(long minInterval, double cpuPercent, long memory, long memoryLimit,
+			long ioRate) {
+		boolean active = first || cpuPercent >= Elasticity.CPU_THRESHOLD * THRESHOLD_MARGIN
+				|| (memoryLimit > 0 && memory >= memoryLimit * THRESHOLD_MARGIN)
+				|| Math.abs(cpuPercent - lastCpuPercent) >= CPU_CHANGE
+				|| changed(memory, lastMemory, MEMORY_CHANGE, 0)
+				|| changed(ioRate, lastIoRate, IO_RATE_CHANGE, IO_RATE_FLOOR);
+		if (active) {
+			interval = minInterval;
+		} else {
+			// Stable, back off.
+			interval = Math.min(Math.max(interval, minInterval) * 2, Math.max(maxInterval, minInterval));
+		}
+		first = false;
+		lastCpuPercent = cpuPercent;
+		lastMemory = memory;
+		lastIoRate = ioRate;
+		return interval;
+	}
+
+	private static boolean changed(long value, long previous, double ratio, long floor) {
+		if (Math.max(value, previous) < floor) {
+			return false;
+		}
+		return Math.abs(value - previous) > ratio * Math.max(previous, 1);
+	}
+
+	public long getMaxInterval() {
+		return maxInterval;
+	}
+
+}
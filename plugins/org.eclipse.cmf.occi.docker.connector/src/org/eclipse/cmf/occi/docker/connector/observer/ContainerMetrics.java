@@ -0,0 +1,463 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.observer;
+
+import java.util.Arrays;
+
+/**
+ * Metrics history of a container, kept in ring buffers of primitive values.
+ * The buffers start small and double until they reach the capacity, then the
+ * oldest samples are overwritten. Once the buffers are full, recording a
+ * sample allocates nothing.
+ * 
+ * @author Christophe Gourdin
+ *
+ */
+public class ContainerMetrics {
+
+	/**
+	 * The recorded metrics. The counters (cpu, network, blkio) are cumulative
+	 * since the container start, use {@link Window#getRate()} for their rate.
+	 */
+	public enum Metric {
+		/**
+		 * Container cpu time in nanoseconds (counter).
+		 */
+		CPU_TOTAL,
+		/**
+		 * Host cpu time in nanoseconds (counter).
+		 */
+		CPU_SYSTEM,
+		/**
+		 * Container cpu usage in percent of one core.
+		 */
+		CPU_PERCENT,
+		/**
+		 * Memory used in bytes.
+		 */
+		MEMORY,
+		/**
+		 * Memory limit in bytes.
+		 */
+		MEMORY_LIMIT,
+		/**
+		 * Bytes received (counter).
+		 */
+		NETWORK_RX,
+		/**
+		 * Bytes sent (counter).
+		 */
+		NETWORK_TX,
+		/**
+		 * Bytes read on block devices (counter).
+		 */
+		BLKIO_READ,
+		/**
+		 * Bytes written on block devices (counter).
+		 */
+		BLKIO_WRITE,
+		/**
+		 * Read operations on block devices (counter).
+		 */
+		BLKIO_READ_OPS,
+		/**
+		 * Write operations on block devices (counter).
+		 */
+		BLKIO_WRITE_OPS
+	}
+
+	private static final int METRIC_COUNT = Metric.values().length;
+
+	public static final int DEFAULT_CAPACITY = 3600;
+
+	/**
+	 * Size of the buffers allocated by the first sample.
+	 */
+	private static final int INITIAL_LENGTH = 64;
+
+	private final int capacity;
+
+	/**
+	 * Sample times in milliseconds.
+	 */
+	private long[] times = null;
+
+	/**
+	 * Integer metrics by metric ordinal, CPU_PERCENT is in percents.
+	 */
+	private final long[][] values = new long[METRIC_COUNT][];
+
+	private double[] cpuPercents = null;
+
+	/**
+	 * Next write position.
+	 */
+	private int head = 0;
+
+	private int size = 0;
+
+	/**
+	 * Scratch buffer for percentiles.
+	 */
+	private double[] scratch = null;
+
+	/**
+	 * Labels of the exported metrics.
+	 */
+	private volatile String machine = null;
+
+	private volatile String name = null;
+
+	public ContainerMetrics() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * 
+	 * @param capacity
+	 *            maximum number of samples kept.
+	 */
+	public ContainerMetrics(int capacity) {
+		if (capacity < 2) {
+			throw new IllegalArgumentException("Capacity must be at least 2 : " + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * 
+	 * @param machine
+	 *            name of the machine of the container.
+	 * @param name
+	 *            name of the container.
+	 */
+	public void setLabels(String machine, String name) {
+		this.machine = machine;
+		this.name = name;
+	}
+
+	/**
+	 * 
+	 * @return name of the machine of the container, null if unknown.
+	 */
+	public String getMachine() {
+		return machine;
+	}
+
+	/**
+	 * 
+	 * @return name of the container, null if unknown.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Record a sample.
+	 * 
+	 * @param time
+	 *            sample time in milliseconds.
+	 * @param cpuTotal
+	 * @param cpuSystem
+	 * @param cpuPercent
+	 * @param memory
+	 * @param memoryLimit
+	 * @param networkRx
+	 * @param networkTx
+	 * @param blkioRead
+	 * @param blkioWrite
+	 * @param blkioReadOps
+	 * @param blkioWriteOps
+	 */
+	public synchronized void record(long time, long cpuTotal, long cpuSystem, double cpuPercent, long memory,
+			long memoryLimit, long networkRx, long networkTx, long blkioRead, long blkioWrite, long blkioReadOps,
+			long blkioWriteOps) {
+		if (times == null || size == times.length && size < capacity) {
+			grow();
+		}
+		int i = head;
+		times[i] = time;
+		values[Metric.CPU_TOTAL.ordinal()][i] = cpuTotal;
+		values[Metric.CPU_SYSTEM.ordinal()][i] = cpuSystem;
+		cpuPercents[i] = cpuPercent;
+		values[Metric.MEMORY.ordinal()][i] = memory;
+		values[Metric.MEMORY_LIMIT.ordinal()][i] = memoryLimit;
+		values[Metric.NETWORK_RX.ordinal()][i] = networkRx;
+		values[Metric.NETWORK_TX.ordinal()][i] = networkTx;
+		values[Metric.BLKIO_READ.ordinal()][i] = blkioRead;
+		values[Metric.BLKIO_WRITE.ordinal()][i] = blkioWrite;
+		values[Metric.BLKIO_READ_OPS.ordinal()][i] = blkioReadOps;
+		values[Metric.BLKIO_WRITE_OPS.ordinal()][i] = blkioWriteOps;
+		head = (head + 1) % times.length;
+		if (size < capacity) {
+			size++;
+		}
+	}
+
+	/**
+	 * Allocate the buffers, or double their length up to the capacity. The
+	 * buffers are not wrapped before they reach the capacity, the samples are
+	 * in time order from the first position.
+	 */
+	private void grow() {
+		int length = times == null ? Math.min(INITIAL_LENGTH, capacity) : (int) Math.min(2L * times.length, capacity);
+		if (times == null) {
+			times = new long[length];
+			cpuPercents = new double[length];
+			for (int m = 0; m < METRIC_COUNT; m++) {
+				values[m] = new long[length];
+			}
+		} else {
+			times = Arrays.copyOf(times, length);
+			cpuPercents = Arrays.copyOf(cpuPercents, length);
+			for (int m = 0; m < METRIC_COUNT; m++) {
+				values[m] = Arrays.copyOf(values[m], length);
+			}
+			// The full buffers wrapped the write position.
+			head = size;
+		}
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * 
+	 * @return number of samples the buffers currently hold, grows up to the
+	 *         capacity.
+	 */
+	public synchronized int getAllocated() {
+		return times == null ? 0 : times.length;
+	}
+
+	public synchronized void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * 
+	 * @return time of the last sample in milliseconds, 0 if no sample.
+	 */
+	public synchronized long getLastTime() {
+		return size == 0 ? 0 : times[index(size - 1)];
+	}
+
+	/**
+	 * 
+	 * @param metric
+	 * @return the last value, 0 if no sample.
+	 */
+	public synchronized double getLast(Metric metric) {
+		return size == 0 ? 0 : valueAt(metric, index(size - 1));
+	}
+
+	/**
+	 * 
+	 * @param metric
+	 * @return the value before the last one, 0 if there is less than two
+	 *         samples.
+	 */
+	public synchronized double getPrevious(Metric metric) {
+		return size < 2 ? 0 : valueAt(metric, index(size - 2));
+	}
+
+	/**
+	 * Statistics of the samples of the last milliseconds, from the last sample
+	 * time.
+	 * 
+	 * @param metric
+	 * @param duration
+	 *            window in milliseconds.
+	 * @return the window statistics, with a count of 0 if no sample.
+	 */
+	public synchronized Window query(Metric metric, long duration) {
+		if (size == 0) {
+			return new Window(metric, 0, 0, 0, 0, 0, 0, 0, 0);
+		}
+		long to = times[index(size - 1)];
+		return query(metric, to - duration, to);
+	}
+
+	/**
+	 * Statistics of the samples between two times.
+	 * 
+	 * @param metric
+	 * @param from
+	 *            in milliseconds, included.
+	 * @param to
+	 *            in milliseconds, included.
+	 * @return the window statistics, with a count of 0 if no sample.
+	 */
+	public synchronized Window query(Metric metric, long from, long to) {
+		// Samples are sorted by time, find the first one in the window.
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (times[index(middle)] < from) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		int first = low;
+		int last = first;
+		while (last < size && times[index(last)] <= to) {
+			last++;
+		}
+		int count = last - first;
+		if (count == 0) {
+			return new Window(metric, 0, from, to, 0, 0, 0, 0, 0);
+		}
+		if (scratch == null || scratch.length < count) {
+			scratch = new double[times.length];
+		}
+		double min = Double.MAX_VALUE;
+		double max = -Double.MAX_VALUE;
+		double sum = 0;
+		double increase = 0;
+		double previous = 0;
+		for (int n = 0; n < count; n++) {
+			double value = valueAt(metric, index(first + n));
+			scratch[n] = value;
+			sum += value;
+			if (value < min) {
+				min = value;
+			}
+			if (value > max) {
+				max = value;
+			}
+			// A counter decreases when the container restarts, count from zero.
+			if (n > 0) {
+				increase += value >= previous ? value - previous : value;
+			}
+			previous = value;
+		}
+		Arrays.sort(scratch, 0, count);
+		double p95 = scratch[Math.min(count - 1, (int) Math.ceil(0.95 * count) - 1)];
+		long firstTime = times[index(first)];
+		long lastTime = times[index(last - 1)];
+		double rate = lastTime > firstTime ? increase * 1000D / (lastTime - firstTime) : 0;
+		return new Window(metric, count, firstTime, lastTime, min, max, sum / count, p95, rate);
+	}
+
+	private double valueAt(Metric metric, int i) {
+		if (metric == Metric.CPU_PERCENT) {
+			return cpuPercents[i];
+		}
+		return values[metric.ordinal()][i];
+	}
+
+	/**
+	 * 
+	 * @param n
+	 *            position from the oldest sample.
+	 * @return position in the buffers.
+	 */
+	private int index(int n) {
+		return (head - size + n + times.length) % times.length;
+	}
+
+	/**
+	 * Statistics of a metric on a time window.
+	 */
+	public static class Window {
+		private final Metric metric;
+		private final int count;
+		private final long from;
+		private final long to;
+		private final double min;
+		private final double max;
+		private final double avg;
+		private final double p95;
+		private final double rate;
+
+		Window(Metric metric, int count, long from, long to, double min, double max, double avg, double p95,
+				double rate) {
+			this.metric = metric;
+			this.count = count;
+			this.from = from;
+			this.to = to;
+			this.min = min;
+			this.max = max;
+			this.avg = avg;
+			this.p95 = p95;
+			this.rate = rate;
+		}
+
+		public Metric getMetric() {
+			return metric;
+		}
+
+		/**
+		 * 
+		 * @return number of samples in the window.
+		 */
+		public int getCount() {
+			return count;
+		}
+
+		public boolean isEmpty() {
+			return count == 0;
+		}
+
+		public long getFrom() {
+			return from;
+		}
+
+		public long getTo() {
+			return to;
+		}
+
+		public double getMin() {
+			return min;
+		}
+
+		public double getMax() {
+			return max;
+		}
+
+		public double getAvg() {
+			return avg;
+		}
+
+		/**
+		 * 
+		 * @return the 95th percentile (nearest rank).
+		 */
+		public double getP95() {
+			return p95;
+		}
+
+		/**
+		 * 
+		 * @return increase by second for the counters.
+		 */
+		public double getRate() {
+			return rate;
+		}
+
+		@Override
+		public String toString() {
+			return "Window [metric=" + metric + ", count=" + count + ", min=" + min + ", max=" + max + ", avg="
+					+ avg + ", p95=" + p95 + ", rate=" + rate + "]";
+		}
+	}
+
+}
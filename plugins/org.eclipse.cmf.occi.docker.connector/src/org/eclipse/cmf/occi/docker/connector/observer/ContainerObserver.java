@@ -12,20 +12,32 @@
  */
 package org.eclipse.cmf.occi.docker.connector.observer;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.eclipse.cmf.occi.docker.Container;
+import org.eclipse.cmf.occi.docker.DockerPackage;
 import org.eclipse.cmf.occi.docker.Machine;
 import org.eclipse.cmf.occi.docker.connector.ContainerConnector;
 import org.eclipse.cmf.occi.docker.connector.DockerClientManager;
 import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.eclipse.cmf.occi.docker.connector.helpers.CgroupWriteBatch;
 import org.eclipse.cmf.occi.docker.connector.helpers.CpuManager;
 import org.eclipse.cmf.occi.docker.connector.helpers.DockerMachineHelper;
 import org.eclipse.cmf.occi.docker.connector.helpers.MemoryManager;
-import org.eclipse.cmf.occi.docker.connector.helpers.NetworkManager;
 import org.eclipse.cmf.occi.docker.connector.utils.DockerUtil;
 import org.eclipse.cmf.occi.infrastructure.Compute;
 import org.eclipse.cmf.occi.infrastructure.ComputeStatus;
+import org.eclipse.cmf.occi.infrastructure.InfrastructurePackage;
 import org.eclipse.emf.common.notify.Adapter;
 import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.util.EContentAdapter;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.slf4j.Logger;
@@ -43,6 +55,29 @@ public class ContainerObserver {
 	private static Logger LOGGER = LoggerFactory.getLogger(ContainerObserver.class);
 	protected static Container cpContainer = null;
 
+	/**
+	 * The features changed by the user or by the elasticity, the monitored
+	 * attributes written on each stats tick are not observed.
+	 */
+	private static final Set<EStructuralFeature> OBSERVED_FEATURES = new HashSet<EStructuralFeature>(Arrays.asList(
+			DockerPackage.Literals.CONTAINER__NAME, InfrastructurePackage.Literals.COMPUTE__OCCI_COMPUTE_CORES,
+			InfrastructurePackage.Literals.COMPUTE__OCCI_COMPUTE_SPEED,
+			InfrastructurePackage.Literals.COMPUTE__OCCI_COMPUTE_MEMORY,
+			InfrastructurePackage.Literals.COMPUTE__OCCI_COMPUTE_STATE));
+
+	/**
+	 * Applies the changes on the machines (ssh, docker), so the model writer
+	 * and the editor never wait for them.
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "docker-container-observer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
 	public Container listener(Container container, Compute compute) throws DockerException {
 
 		System.out.println("Enable listener on " + container.getContainerid() + " --< " + container.getName());
@@ -68,93 +103,138 @@ public class ContainerObserver {
 		machineObserver.listener(compute);
 
 		// Add listener to the container
+		final Container observed = container;
+		final AtomicBoolean queued = new AtomicBoolean(false);
+		final AtomicLong lastElasticity = new AtomicLong(0);
 		container.eAdapters().add(new EContentAdapter() {
 			@Override
 			public void notifyChanged(Notification notification) {
-				// ID of the element deleted
-				Container deletedElement = null;
-				Container newContainer = null;
-				try {
-					if (notification.getEventType() == Notification.REMOVE
-							&& notification.getNotifier() instanceof Container) {
-
-						deletedElement = (Container) notification.getNotifier();
-						// Notify the deleted element in the model
-						System.out.println("Delete model element with ID: " + deletedElement.getContainerid());
-						// Remove the container from the machine
-						// DockerClientManager dockerManager = new DockerClientManager(compute);
-						// dockerManager.removeContainer(compute, deletedElement.getContainerid());
-					}
-
-					if (notification.getNotifier() instanceof Container) {
-						newContainer = (Container) notification.getNotifier();
-
-						// Elasticity method
-						elasticity.action(cpuManager, host, privateKey, (ContainerConnector) newContainer);
-
-						// When the container name's Changes
-						if (cpContainer.getContainerid().equals(newContainer.getContainerid())
-								&& cpContainer.getOcciComputeState().equals(ComputeStatus.ACTIVE)) {
+				if (notification.getEventType() == Notification.REMOVE
+						&& notification.getNotifier() instanceof Container) {
 
-							// The container name changed
-							if (!cpContainer.getName().equals(newContainer.getName())) {
-								DockerClientManager dockerManager = new DockerClientManager(compute);
-
-								if (!dockerManager.containerNameExists(newContainer.getName(), compute)) {
-									dockerManager.renameContainer(compute, newContainer, newContainer.getName());
+					Container deletedElement = (Container) notification.getNotifier();
+					// Notify the deleted element in the model
+					System.out.println("Delete model element with ID: " + deletedElement.getContainerid());
+					// Remove the container from the machine
+					// DockerClientManager dockerManager = new DockerClientManager(compute);
+					// dockerManager.removeContainer(compute, deletedElement.getContainerid());
+				}
+				if (notification.isTouch() || !(notification.getNotifier() instanceof Container)) {
+					return;
+				}
+				if (DockerPackage.Literals.CONTAINER__CPU_PERCENT.equals(notification.getFeature())) {
+					// Written on each stats tick, the elasticity is evaluated at most once
+					// by cpu window.
+					long now = System.currentTimeMillis();
+					long last = lastElasticity.get();
+					if (now - last >= Elasticity.CPU_WINDOW && lastElasticity.compareAndSet(last, now)) {
+						final ContainerConnector newContainer = (ContainerConnector) notification.getNotifier();
+						EXECUTOR.execute(new Runnable() {
+							@Override
+							public void run() {
+								try {
+									elasticity.action(cpuManager, host, privateKey, newContainer);
+								} catch (DockerException | RuntimeException ex) {
+									LOGGER.error(ex.getMessage());
 								}
 							}
-
-							// CPU Changes
-							if (cpContainer.getOcciComputeCores() != newContainer.getOcciComputeCores()) {
-								// Update CPU value
-								cpContainer.setOcciComputeCores(container.getOcciComputeCores());
-								cpuManager.setCPUValue(host, privateKey, newContainer,
-										String.valueOf(newContainer.getOcciComputeCores()));
-							}
-
-							// CPU Frequency Changes
-							if (cpContainer.getOcciComputeSpeed() != newContainer.getOcciComputeSpeed()) {
-								// Update CPU value
-								cpContainer.setOcciComputeCores(container.getOcciComputeCores());
-								cpuManager.setFreqValue(host, privateKey, newContainer,
-										String.valueOf(Math.round(newContainer.getOcciComputeSpeed())));
-							}
-
-							// Memory changes
-							if (cpContainer.getOcciComputeMemory() != newContainer.getOcciComputeMemory()) {
-								MemoryManager memoryManager = new MemoryManager();
-								// Update Memory value
-								cpContainer.setOcciComputeMemory(container.getOcciComputeMemory());
-								memoryManager.setMemValue(host, privateKey, newContainer,
-										String.valueOf(newContainer.getOcciComputeMemory()));
-								// memoryManager.setSwapValue(host, privateKey, newContainer,
-								// String.valueOf(newContainer.memory))
-							}
-							
-							// Bandwidth changes
-							if (cpContainer.getBandwidthUsed() != newContainer.getBandwidthUsed()) {
-								NetworkManager networkManager = new NetworkManager();
-								// Update Memory value
-								cpContainer.setBandwidthUsed(container.getBandwidthUsed());
-								networkManager.setNetworkValue(host, privateKey, newContainer,
-										String.valueOf(newContainer.getBandwidthUsed()));
+						});
+					}
+					return;
+				}
+				if (!OBSERVED_FEATURES.contains(notification.getFeature())) {
+					// The other monitored attributes change on each stats tick.
+					return;
+				}
+				// The changes are applied out of the notifying thread (model writer
+				// or editor), one task waits at most for each container and reads
+				// the last values.
+				if (queued.compareAndSet(false, true)) {
+					final Container newContainer = (Container) notification.getNotifier();
+					EXECUTOR.execute(new Runnable() {
+						@Override
+						public void run() {
+							queued.set(false);
+							try {
+								applyChanges(observed, newContainer, compute, host, privateKey, cpuManager);
+							} catch (DockerException | RuntimeException ex) {
+								LOGGER.error(ex.getMessage());
 							}
-
 						}
+					});
+				}
+			}
+		});
+
+		return container;
+	}
 
-						// System.out.println("Old value : " + notification.oldValue);
-						// System.out.println("New value : " + notification.newValue);
+	/**
+	 * Apply the changes of a container on its machine : name and cgroup values.
+	 * 
+	 * @param container
+	 *            the observed container.
+	 * @param newContainer
+	 *            the notifier of the change.
+	 * @param compute
+	 * @param host
+	 * @param privateKey
+	 * @param cpuManager
+	 * @throws DockerException
+	 */
+	private static void applyChanges(Container container, Container newContainer, Compute compute, String host,
+			String privateKey, CpuManager cpuManager) throws DockerException {
+		// When the container name's Changes
+		if (cpContainer.getContainerid().equals(newContainer.getContainerid())
+				&& cpContainer.getOcciComputeState().equals(ComputeStatus.ACTIVE)) {
 
+			// The container name changed
+			if (!cpContainer.getName().equals(newContainer.getName())) {
+				DockerClientManager dockerManager = new DockerClientManager(compute);
+				try {
+					if (!dockerManager.containerNameExists(newContainer.getName(), compute)) {
+						dockerManager.renameContainer(compute, newContainer, newContainer.getName());
 					}
-				} catch (DockerException ex) {
-					LOGGER.error(ex.getMessage());
+				} finally {
+					dockerManager.releaseDockerClients();
 				}
+			}
+
+			// The cgroup writes of this change are done in one remote script.
+			CgroupWriteBatch batch = new CgroupWriteBatch(host, privateKey);
 
+			// CPU Changes
+			if (cpContainer.getOcciComputeCores() != newContainer.getOcciComputeCores()) {
+				// Update CPU value
+				cpContainer.setOcciComputeCores(container.getOcciComputeCores());
+				cpuManager.addCPUValue(batch, newContainer,
+						String.valueOf(newContainer.getOcciComputeCores()));
 			}
-		});
 
-		return container;
+			// CPU Frequency Changes
+			if (cpContainer.getOcciComputeSpeed() != newContainer.getOcciComputeSpeed()) {
+				// Update CPU value
+				cpContainer.setOcciComputeSpeed(newContainer.getOcciComputeSpeed());
+				cpuManager.addFreqValue(batch, newContainer,
+						String.valueOf(Math.round(newContainer.getOcciComputeSpeed())));
+			}
+
+			// Memory changes
+			if (cpContainer.getOcciComputeMemory() != newContainer.getOcciComputeMemory()) {
+				MemoryManager memoryManager = new MemoryManager();
+				// Update Memory value
+				cpContainer.setOcciComputeMemory(container.getOcciComputeMemory());
+				memoryManager.addMemValue(batch, newContainer,
+						String.valueOf(newContainer.getOcciComputeMemory()));
+				// memoryManager.setSwapValue(host, privateKey, newContainer,
+				// String.valueOf(newContainer.memory))
+			}
+
+			if (!batch.isEmpty()) {
+				batch.execute();
+			}
+
+		}
 	}
 
 	/**
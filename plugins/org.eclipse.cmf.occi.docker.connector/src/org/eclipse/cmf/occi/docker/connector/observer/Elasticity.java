@@ -20,12 +20,7 @@ import org.eclipse.cmf.occi.core.Resource;
 import org.eclipse.cmf.occi.docker.connector.ContainerConnector;
 import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
 import org.eclipse.cmf.occi.docker.connector.helpers.CpuManager;
-import org.eclipse.emf.common.command.Command;
-import org.eclipse.emf.transaction.RecordingCommand;
-import org.eclipse.emf.transaction.RollbackException;
-import org.eclipse.emf.transaction.TransactionalCommandStack;
-import org.eclipse.emf.transaction.TransactionalEditingDomain;
-import org.eclipse.emf.transaction.util.TransactionUtil;
+import org.eclipse.cmf.occi.infrastructure.InfrastructurePackage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +29,16 @@ public class Elasticity {
 	private static Logger LOGGER = LoggerFactory.getLogger(Elasticity.class);
 	private Boolean update = false;
 
+	/**
+	 * The cpu usage is averaged on this window in milliseconds.
+	 */
+	public static final long CPU_WINDOW = 10000;
+
+	/**
+	 * Cores are added above this cpu usage in percent, and removed below.
+	 */
+	public static final float CPU_THRESHOLD = 90.0F;
+
 	public Elasticity() {
 	}
 
@@ -48,16 +53,25 @@ public class Elasticity {
 			throws DockerException {
 		NumberFormat nf = NumberFormat.getInstance(Locale.FRENCH); // TODO DYNAMIC number format
 		try {
-			float cpu_used = nf.parse(container.getCpuPercent()).floatValue();
+			float cpu_used;
+			// Use the cpu history of the container when it is monitored.
+			ContainerMetrics metrics = MetricsStore.getInstance().get(container.getContainerid());
+			ContainerMetrics.Window window = metrics == null ? null
+					: metrics.query(ContainerMetrics.Metric.CPU_PERCENT, CPU_WINDOW);
+			if (window != null && !window.isEmpty()) {
+				cpu_used = (float) window.getAvg();
+			} else {
+				cpu_used = nf.parse(container.getCpuPercent()).floatValue();
+			}
 
-			if (cpu_used > 90.0F && !update) {
+			if (cpu_used > CPU_THRESHOLD && !update) {
 				// Action
 				cpuManager.setCPUValue(host, privateKey, container, "6");
 				update = true;
 				modifyResourceSet(container, 6); // Update the attribute
 				System.out.println("Elasticity action: 2 Cores was added!");
 			}
-			if (cpu_used < 90.0F && update) {
+			if (cpu_used < CPU_THRESHOLD && update) {
 				// Action
 				cpuManager.setCPUValue(host, privateKey, container, "1");
 				update = false;
@@ -75,25 +89,9 @@ public class Elasticity {
 	 * @param resource
 	 * @param cores
 	 */
-	public synchronized void modifyResourceSet(Resource resource, Integer cores) {
-		// Creating an editing domain
-		TransactionalEditingDomain domain = TransactionUtil.getEditingDomain(resource.eResource().getResourceSet());
-		Command cmd = new RecordingCommand(domain) {
-			@Override
-			protected void doExecute() {
-				// these modifications require a write transaction in this editing domain
-				((ContainerConnector) resource).setOcciComputeCores(cores);
-			}
-		};
-
-		try {
-			((TransactionalCommandStack) domain.getCommandStack()).execute(cmd, null); // default options
-		} catch (RollbackException rbe) {
-			LOGGER.error(rbe.getStatus().toString());
-			rbe.printStackTrace();
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
+	public void modifyResourceSet(Resource resource, Integer cores) {
+		// Applied by the model writer.
+		ModelUpdateScheduler.getInstance().set(resource, InfrastructurePackage.Literals.COMPUTE__OCCI_COMPUTE_CORES,
+				cores);
 	}
 }
@@ -0,0 +1,328 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.observer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.bootstrap.HttpServer;
+import org.apache.http.impl.bootstrap.ServerBootstrap;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestHandler;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConfigurationHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConnectorConfig;
+import org.eclipse.cmf.occi.docker.connector.observer.ContainerMetrics.Metric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Embedded http endpoint serving the last metrics of the monitored containers
+ * and of their machines, in OpenMetrics text format (or Prometheus text format
+ * 0.0.4 for the scrapers not asking for OpenMetrics). The values are read from
+ * the {@link MetricsStore}, not from the model.
+ * 
+ * The endpoint is disabled by default, it is started with the stats collection
+ * when metrics.http.port is set in the docker configuration.
+ * 
+ * @author Christophe Gourdin
+ *
+ */
+public class MetricsExporter {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(MetricsExporter.class);
+
+	public static final String METRICS_PATH = "/metrics";
+
+	public static final String DEFAULT_ADDRESS = "127.0.0.1";
+
+	public static final String OPENMETRICS_CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+	public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final MetricsExporter INSTANCE = new MetricsExporter();
+
+	private HttpServer server = null;
+
+	private int port = 0;
+
+	private MetricsExporter() {
+	}
+
+	public static MetricsExporter getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Start the endpoint if it is enabled in the docker configuration and not
+	 * already started.
+	 */
+	public synchronized void startIfEnabled() {
+		if (server != null) {
+			return;
+		}
+		DockerConnectorConfig config;
+		try {
+			config = DockerConnectorConfig.getCurrent();
+		} catch (IOException ex) {
+			return;
+		}
+		int configPort = config.getIntProperty(DockerConfigurationHelper.KEY_METRICS_HTTP_PORT, 0);
+		if (configPort <= 0) {
+			return;
+		}
+		String address = config.getProperty(DockerConfigurationHelper.KEY_METRICS_HTTP_ADDRESS);
+		try {
+			start(address == null ? DEFAULT_ADDRESS : address.trim(), configPort);
+		} catch (IOException ex) {
+			LOGGER.error("Cannot start metrics endpoint on port " + configPort + " : " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * 
+	 * @param address
+	 *            the listening address.
+	 * @param listenPort
+	 *            the listening port, 0 for any free port.
+	 * @throws IOException
+	 */
+	public synchronized void start(final String address, final int listenPort) throws IOException {
+		if (server != null) {
+			return;
+		}
+		HttpServer newServer = ServerBootstrap.bootstrap().setLocalAddress(InetAddress.getByName(address))
+				.setListenerPort(listenPort)
+				.setSocketConfig(SocketConfig.custom().setSoTimeout(15000).setTcpNoDelay(true).build())
+				.setServerInfo("Docker-Studio").registerHandler(METRICS_PATH, new MetricsHandler()).create();
+		newServer.start();
+		server = newServer;
+		port = newServer.getLocalPort();
+		LOGGER.info("Metrics endpoint started on http://" + address + ":" + port + METRICS_PATH);
+	}
+
+	public synchronized void stop() {
+		if (server == null) {
+			return;
+		}
+		server.shutdown(1, TimeUnit.SECONDS);
+		server = null;
+		port = 0;
+		LOGGER.info("Metrics endpoint stopped");
+	}
+
+	public synchronized boolean isRunning() {
+		return server != null;
+	}
+
+	/**
+	 * 
+	 * @return the listening port, 0 if not started.
+	 */
+	public synchronized int getPort() {
+		return port;
+	}
+
+	/**
+	 * Write the last values of the containers metrics.
+	 * 
+	 * @param allMetrics
+	 *            the metrics by container id.
+	 * @param openMetrics
+	 *            true for OpenMetrics format, false for Prometheus text format.
+	 * @return the exposition text.
+	 */
+	public static String format(final Map<String, ContainerMetrics> allMetrics, final boolean openMetrics) {
+		// Sort the containers to get a stable output, skip the ones without sample.
+		List<Series> series = new ArrayList<>();
+		Map<String, double[]> machines = new TreeMap<>();
+		for (Map.Entry<String, ContainerMetrics> entry : new TreeMap<>(allMetrics).entrySet()) {
+			ContainerMetrics metrics = entry.getValue();
+			double[] values = new double[Metric.values().length];
+			synchronized (metrics) {
+				if (metrics.size() == 0) {
+					continue;
+				}
+				for (Metric metric : Metric.values()) {
+					values[metric.ordinal()] = metrics.getLast(metric);
+				}
+			}
+			String machine = metrics.getMachine() == null ? "" : metrics.getMachine();
+			String name = metrics.getName() == null ? "" : metrics.getName();
+			series.add(new Series(entry.getKey(), machine, name, values));
+			double[] machineValues = machines.get(machine);
+			if (machineValues == null) {
+				machineValues = new double[3];
+				machines.put(machine, machineValues);
+			}
+			machineValues[0]++;
+			machineValues[1] += values[Metric.CPU_PERCENT.ordinal()];
+			machineValues[2] += values[Metric.MEMORY.ordinal()];
+		}
+
+		StringBuilder out = new StringBuilder(256 + series.size() * 1024);
+		writeFamily(out, openMetrics, "docker_container_cpu_seconds", "counter", "Container cpu time.", series,
+				Metric.CPU_TOTAL, 1e-9);
+		writeFamily(out, openMetrics, "docker_container_cpu_usage_percent", "gauge",
+				"Container cpu usage in percent of one core.", series, Metric.CPU_PERCENT, 1);
+		writeFamily(out, openMetrics, "docker_container_memory_usage_bytes", "gauge", "Container memory usage.",
+				series, Metric.MEMORY, 1);
+		writeFamily(out, openMetrics, "docker_container_memory_limit_bytes", "gauge", "Container memory limit.",
+				series, Metric.MEMORY_LIMIT, 1);
+		writeFamily(out, openMetrics, "docker_container_network_receive_bytes", "counter",
+				"Bytes received on all the container interfaces.", series, Metric.NETWORK_RX, 1);
+		writeFamily(out, openMetrics, "docker_container_network_transmit_bytes", "counter",
+				"Bytes sent on all the container interfaces.", series, Metric.NETWORK_TX, 1);
+		writeFamily(out, openMetrics, "docker_container_blkio_read_bytes", "counter",
+				"Bytes read on all the container block devices.", series, Metric.BLKIO_READ, 1);
+		writeFamily(out, openMetrics, "docker_container_blkio_write_bytes", "counter",
+				"Bytes written on all the container block devices.", series, Metric.BLKIO_WRITE, 1);
+		writeFamily(out, openMetrics, "docker_container_blkio_read_operations", "counter",
+				"Read operations on all the container block devices.", series, Metric.BLKIO_READ_OPS, 1);
+		writeFamily(out, openMetrics, "docker_container_blkio_write_operations", "counter",
+				"Write operations on all the container block devices.", series, Metric.BLKIO_WRITE_OPS, 1);
+
+		writeMachineFamily(out, "docker_machine_containers", "Monitored containers of the machine.", machines, 0);
+		writeMachineFamily(out, "docker_machine_cpu_usage_percent",
+				"Cpu usage of the monitored containers in percent of one core.", machines, 1);
+		writeMachineFamily(out, "docker_machine_memory_usage_bytes", "Memory usage of the monitored containers.",
+				machines, 2);
+		if (openMetrics) {
+			out.append("# EOF\n");
+		}
+		return out.toString();
+	}
+
+	private static void writeFamily(final StringBuilder out, final boolean openMetrics, final String family,
+			final String type, final String help, final Collection<Series> series, final Metric metric,
+			final double scale) {
+		if (series.isEmpty()) {
+			return;
+		}
+		boolean counter = "counter".equals(type);
+		// Prometheus text format names the counter family with its _total suffix.
+		String name = counter ? family + "_total" : family;
+		String familyName = openMetrics ? family : name;
+		out.append("# TYPE ").append(familyName).append(' ').append(type).append('\n');
+		out.append("# HELP ").append(familyName).append(' ').append(help).append('\n');
+		for (Series serie : series) {
+			double value = serie.values[metric.ordinal()];
+			if (metric == Metric.MEMORY_LIMIT && (value <= 0 || value >= Long.MAX_VALUE)) {
+				// No limit.
+				continue;
+			}
+			out.append(name).append("{machine=\"");
+			appendEscaped(out, serie.machine);
+			out.append("\",container=\"");
+			appendEscaped(out, serie.name);
+			out.append("\",id=\"").append(serie.id).append("\"} ");
+			appendValue(out, value * scale);
+			out.append('\n');
+		}
+	}
+
+	private static void writeMachineFamily(final StringBuilder out, final String name, final String help,
+			final Map<String, double[]> machines, final int index) {
+		if (machines.isEmpty()) {
+			return;
+		}
+		out.append("# TYPE ").append(name).append(" gauge\n");
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		for (Map.Entry<String, double[]> entry : machines.entrySet()) {
+			out.append(name).append("{machine=\"");
+			appendEscaped(out, entry.getKey());
+			out.append("\"} ");
+			appendValue(out, entry.getValue()[index]);
+			out.append('\n');
+		}
+	}
+
+	private static void appendValue(final StringBuilder out, final double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			out.append((long) value);
+		} else {
+			out.append(Double.toString(value));
+		}
+	}
+
+	private static void appendEscaped(final StringBuilder out, final String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\') {
+				out.append("\\\\");
+			} else if (c == '"') {
+				out.append("\\\"");
+			} else if (c == '\n') {
+				out.append("\\n");
+			} else {
+				out.append(c);
+			}
+		}
+	}
+
+	/**
+	 * Last values of a container.
+	 */
+	private static class Series {
+		private final String id;
+		private final String machine;
+		private final String name;
+		private final double[] values;
+
+		private Series(final String id, final String machine, final String name, final double[] values) {
+			this.id = id;
+			this.machine = machine;
+			this.name = name;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * Serve GET /metrics.
+	 */
+	private static class MetricsHandler implements HttpRequestHandler {
+		@Override
+		public void handle(HttpRequest request, HttpResponse response, HttpContext context)
+				throws HttpException, IOException {
+			String method = request.getRequestLine().getMethod();
+			if (!"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method)) {
+				response.setStatusCode(HttpStatus.SC_METHOD_NOT_ALLOWED);
+				return;
+			}
+			boolean openMetrics = false;
+			for (Header header : request.getHeaders("Accept")) {
+				if (header.getValue().contains("application/openmetrics-text")) {
+					openMetrics = true;
+				}
+			}
+			String text = format(MetricsStore.getInstance().getAll(), openMetrics);
+			response.setStatusCode(HttpStatus.SC_OK);
+			response.setEntity(new StringEntity(text, ContentType
+					.parse(openMetrics ? OPENMETRICS_CONTENT_TYPE : PROMETHEUS_CONTENT_TYPE)));
+		}
+	}
+
+}
@@ -0,0 +1,391 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.observer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConfigurationHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConnectorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent metrics history of the monitored containers, one
+ * {@link MetricsLog} by container id. The history is enabled with
+ * metrics.history=true and stored in metrics.history.dir (default
+ * ~/.docker/occi-metrics). A background thread downsamples the logs, applies
+ * the retention to all the containers directories and closes the logs of the
+ * containers no more monitored. The directory of a container is removed when
+ * all its records are expired.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class MetricsHistory {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(MetricsHistory.class);
+
+	public static final String DEFAULT_HISTORY_DIR = DockerConfigurationHelper.DEFAULT_DOCKER_HOME + File.separator
+			+ "occi-metrics";
+
+	public static final long DOWNSAMPLE_INTERVAL = 10000;
+
+	public static final long RETENTION_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+	/**
+	 * A log without new sample during this time is closed.
+	 */
+	public static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+
+	private static final MetricsHistory INSTANCE = new MetricsHistory();
+
+	private final Map<String, MetricsLog> logs = new ConcurrentHashMap<>();
+
+	/**
+	 * Containers whose log cannot be written, the error is logged once.
+	 */
+	private final Map<String, Boolean> failed = new ConcurrentHashMap<>();
+
+	private volatile boolean enabled = false;
+
+	private volatile File directory = new File(DEFAULT_HISTORY_DIR);
+
+	private ScheduledExecutorService executor = null;
+
+	private long lastRetention = 0;
+
+	private MetricsHistory() {
+		try {
+			DockerConnectorConfig config = DockerConnectorConfig.getCurrent();
+			enabled = "true".equalsIgnoreCase(config.getProperty(DockerConfigurationHelper.KEY_METRICS_HISTORY));
+			String dir = config.getProperty(DockerConfigurationHelper.KEY_METRICS_HISTORY_DIR);
+			if (dir != null && !dir.trim().isEmpty()) {
+				directory = new File(dir.trim());
+			}
+		} catch (IOException ex) {
+			LOGGER.warn("Cannot read metrics history configuration, it is disabled : " + ex.getMessage());
+		}
+	}
+
+	public static MetricsHistory getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Append a sample to the history of a container, if the history is enabled.
+	 *
+	 * @param containerId
+	 * @param sample
+	 * @param cpuPercent
+	 *            cpu usage in percent of one core.
+	 */
+	public void record(final String containerId, final StatsSample sample, final double cpuPercent) {
+		if (!enabled || containerId == null || failed.containsKey(containerId)) {
+			return;
+		}
+		try {
+			withLog(containerId, new LogAction<Void>() {
+				@Override
+				public Void apply(MetricsLog log) throws IOException {
+					log.append(sample, cpuPercent);
+					return null;
+				}
+			});
+		} catch (IOException ex) {
+			failed.put(containerId, Boolean.TRUE);
+			LOGGER.error("Cannot write metrics history of container " + containerId + ", it is disabled : "
+					+ ex.getMessage());
+		}
+	}
+
+	/**
+	 * Read the history of a container.
+	 *
+	 * @param containerId
+	 * @param tier
+	 * @param from
+	 *            first time in milliseconds, included.
+	 * @param to
+	 *            last time in milliseconds, excluded.
+	 * @return the records, empty if the container has no history.
+	 * @throws IOException
+	 */
+	public MetricsLog.Range query(final String containerId, final MetricsLog.Tier tier, final long from,
+			final long to) throws IOException {
+		if (!hasHistory(containerId)) {
+			return new MetricsLog.Range(tier);
+		}
+		return withLog(containerId, new LogAction<MetricsLog.Range>() {
+			@Override
+			public MetricsLog.Range apply(MetricsLog log) throws IOException {
+				return log.query(tier, from, to);
+			}
+		});
+	}
+
+	/**
+	 * Read the history of a container in the finest tier that has at most
+	 * maxPoints records in the range.
+	 *
+	 * @param containerId
+	 * @param from
+	 *            first time in milliseconds, included.
+	 * @param to
+	 *            last time in milliseconds, excluded.
+	 * @param maxPoints
+	 * @return the records, empty if the container has no history.
+	 * @throws IOException
+	 */
+	public MetricsLog.Range query(final String containerId, final long from, final long to, final int maxPoints)
+			throws IOException {
+		if (!hasHistory(containerId)) {
+			return new MetricsLog.Range(MetricsLog.Tier.RAW);
+		}
+		return withLog(containerId, new LogAction<MetricsLog.Range>() {
+			@Override
+			public MetricsLog.Range apply(MetricsLog log) throws IOException {
+				return log.query(from, to, maxPoints);
+			}
+		});
+	}
+
+	/**
+	 *
+	 * @return the ids of the containers with a history, monitored or not.
+	 */
+	public List<String> getContainerIds() {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return Collections.emptyList();
+		}
+		List<String> ids = new ArrayList<>();
+		for (File file : files) {
+			if (file.isDirectory()) {
+				ids.add(file.getName());
+			}
+		}
+		Collections.sort(ids);
+		return ids;
+	}
+
+	private boolean hasHistory(final String containerId) {
+		return containerId != null && (logs.containsKey(containerId) || new File(directory, containerId).isDirectory());
+	}
+
+	/**
+	 * Call an action on the log of a container. The log may be closed by the
+	 * maintenance between its lookup and the action, it is then reopened.
+	 *
+	 * @param containerId
+	 * @param action
+	 * @return the result of the action.
+	 * @throws IOException
+	 */
+	private <T> T withLog(final String containerId, final LogAction<T> action) throws IOException {
+		MetricsLog log = getLog(containerId);
+		try {
+			return action.apply(log);
+		} catch (IOException ex) {
+			if (!log.isClosed()) {
+				throw ex;
+			}
+			return action.apply(getLog(containerId));
+		}
+	}
+
+	private MetricsLog getLog(final String containerId) throws IOException {
+		MetricsLog log = logs.get(containerId);
+		if (log != null && !log.isClosed()) {
+			return log;
+		}
+		synchronized (this) {
+			log = logs.get(containerId);
+			if (log == null || log.isClosed()) {
+				log = new MetricsLog(new File(directory, containerId));
+				logs.put(containerId, log);
+				startMaintenance();
+			}
+			return log;
+		}
+	}
+
+	private void startMaintenance() {
+		if (executor != null) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "docker-metrics-history");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				maintain();
+			}
+		}, DOWNSAMPLE_INTERVAL, DOWNSAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Downsample the open logs, apply the retention and close the idle logs.
+	 */
+	private void maintain() {
+		long now = System.currentTimeMillis();
+		boolean retention = now - lastRetention >= RETENTION_INTERVAL;
+		for (Map.Entry<String, MetricsLog> entry : logs.entrySet()) {
+			MetricsLog log = entry.getValue();
+			try {
+				log.downsample(now);
+				if (retention) {
+					log.applyRetention(now);
+				}
+			} catch (IOException | RuntimeException ex) {
+				LOGGER.warn("Cannot downsample metrics history of container " + entry.getKey() + " : "
+						+ ex.getMessage());
+			}
+			if (now - log.getLastAppend() >= IDLE_TIMEOUT) {
+				synchronized (this) {
+					logs.remove(entry.getKey(), log);
+					log.close();
+				}
+			}
+		}
+		if (retention) {
+			applyRetention(now);
+			lastRetention = now;
+		}
+	}
+
+	/**
+	 * Apply the retention to the containers without open log, remove their
+	 * directory if it has no segment or if all its segments are expired.
+	 *
+	 * @param now
+	 *            current time in milliseconds.
+	 */
+	private void applyRetention(final long now) {
+		long maxRetention = 0;
+		for (MetricsLog.Tier tier : MetricsLog.Tier.values()) {
+			maxRetention = Math.max(maxRetention, tier.getRetention());
+		}
+		for (String containerId : getContainerIds()) {
+			File dir = new File(directory, containerId);
+			// getLog doesn't open the log during the retention.
+			synchronized (this) {
+				if (logs.containsKey(containerId)) {
+					continue;
+				}
+				long lastModified = lastSegmentModified(dir);
+				if (lastModified < now - maxRetention) {
+					LOGGER.info("Remove expired metrics history of container " + containerId);
+					delete(dir);
+					failed.remove(containerId);
+					continue;
+				}
+				MetricsLog log = null;
+				try {
+					log = new MetricsLog(dir);
+					log.applyRetention(now);
+				} catch (IOException | RuntimeException ex) {
+					LOGGER.warn("Cannot apply the retention to metrics history of container " + containerId + " : "
+							+ ex.getMessage());
+				} finally {
+					if (log != null) {
+						log.close();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param dir
+	 *            log directory of a container.
+	 * @return the last modification time of its segments, 0 without segment.
+	 */
+	private static long lastSegmentModified(final File dir) {
+		long lastModified = 0;
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return lastModified;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				lastModified = Math.max(lastModified, lastSegmentModified(file));
+			} else if (file.getName().endsWith(MetricsLog.SEGMENT_SUFFIX)) {
+				lastModified = Math.max(lastModified, file.lastModified());
+			}
+		}
+		return lastModified;
+	}
+
+	private static void delete(final File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		if (!file.delete()) {
+			LOGGER.warn("Cannot remove " + file);
+		}
+	}
+
+	/**
+	 * Write all the open logs to the disk and close them.
+	 */
+	public synchronized void close() {
+		for (MetricsLog log : logs.values()) {
+			log.close();
+		}
+		logs.clear();
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * An action on the log of a container.
+	 */
+	private interface LogAction<T> {
+		T apply(MetricsLog log) throws IOException;
+	}
+
+}
@@ -0,0 +1,676 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.observer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent metrics history of a container : an append only log of fixed
+ * width records in memory mapped segment files. The samples are written in
+ * the raw tier, and downsampled in the 10 s, 1 min and 10 min tiers. Each
+ * tier rolls its segments when they are full and removes the segments older
+ * than its retention.
+ *
+ * Layout : {dir}/{tier}/{start time}.seg
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class MetricsLog {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(MetricsLog.class);
+
+	/**
+	 * The fields of a record. In the downsampled tiers, the counters are the
+	 * last values of the bucket, CPU_PERCENT and MEMORY are averages.
+	 */
+	public enum Field {
+		/**
+		 * Sample time, or bucket start time, in milliseconds.
+		 */
+		TIME,
+		/**
+		 * Number of raw samples.
+		 */
+		COUNT,
+		CPU_TOTAL,
+		CPU_SYSTEM,
+		/**
+		 * Cpu usage in percent of one core (double).
+		 */
+		CPU_PERCENT,
+		/**
+		 * Maximum cpu usage in percent of one core (double).
+		 */
+		CPU_PERCENT_MAX,
+		MEMORY,
+		MEMORY_MAX,
+		MEMORY_LIMIT,
+		NETWORK_RX,
+		NETWORK_TX,
+		BLKIO_READ,
+		BLKIO_WRITE,
+		BLKIO_READ_OPS,
+		BLKIO_WRITE_OPS
+	}
+
+	/**
+	 * Number of values of a record, with a reserved one.
+	 */
+	static final int RECORD_LONGS = 16;
+
+	static final int RECORD_SIZE = RECORD_LONGS * 8;
+
+	private static final int TIME = Field.TIME.ordinal();
+	private static final int COUNT = Field.COUNT.ordinal();
+	private static final int CPU_PERCENT = Field.CPU_PERCENT.ordinal();
+	private static final int CPU_PERCENT_MAX = Field.CPU_PERCENT_MAX.ordinal();
+	private static final int MEMORY = Field.MEMORY.ordinal();
+	private static final int MEMORY_MAX = Field.MEMORY_MAX.ordinal();
+
+	public static final String SEGMENT_SUFFIX = ".seg";
+
+	/**
+	 * Maximum number of closed segments kept mapped by tier.
+	 */
+	static final int MAX_MAPPED_SEGMENTS = 8;
+
+	/**
+	 * History tiers, from the finest to the coarsest.
+	 */
+	public enum Tier {
+		RAW("raw", 0, 32768, TimeUnit.DAYS.toMillis(2)),
+		SECONDS_10("10s", TimeUnit.SECONDS.toMillis(10), 8192, TimeUnit.DAYS.toMillis(7)),
+		MINUTE_1("1m", TimeUnit.MINUTES.toMillis(1), 8192, TimeUnit.DAYS.toMillis(30)),
+		MINUTES_10("10m", TimeUnit.MINUTES.toMillis(10), 8192, TimeUnit.DAYS.toMillis(400));
+
+		private final String directory;
+		private final long width;
+		private final int capacity;
+		private final long retention;
+
+		private Tier(final String directory, final long width, final int capacity, final long retention) {
+			this.directory = directory;
+			this.width = width;
+			this.capacity = capacity;
+			this.retention = retention;
+		}
+
+		public String getDirectory() {
+			return directory;
+		}
+
+		/**
+		 *
+		 * @return bucket width in milliseconds, 0 for the raw samples.
+		 */
+		public long getWidth() {
+			return width;
+		}
+
+		/**
+		 *
+		 * @return number of records by segment.
+		 */
+		public int getCapacity() {
+			return capacity;
+		}
+
+		/**
+		 *
+		 * @return retention in milliseconds.
+		 */
+		public long getRetention() {
+			return retention;
+		}
+	}
+
+	private final File dir;
+
+	private final TierLog[] tiers;
+
+	/**
+	 * Time of the last append in milliseconds.
+	 */
+	private long lastAppend = System.currentTimeMillis();
+
+	private boolean closed = false;
+
+	/**
+	 * Open or create the log of a container.
+	 *
+	 * @param dir
+	 *            log directory of the container.
+	 * @throws IOException
+	 */
+	public MetricsLog(final File dir) throws IOException {
+		this.dir = dir;
+		this.tiers = new TierLog[Tier.values().length];
+		for (Tier tier : Tier.values()) {
+			tiers[tier.ordinal()] = new TierLog(tier, new File(dir, tier.getDirectory()));
+		}
+		// Restart the downsampling after the last bucket written.
+		for (int i = 1; i < tiers.length; i++) {
+			TierLog tierLog = tiers[i];
+			if (tierLog.lastTime >= 0) {
+				tierLog.nextBucket = tierLog.lastTime + tierLog.tier.getWidth();
+			}
+		}
+	}
+
+	/**
+	 * Append a sample to the raw tier. A sample older than the last one is
+	 * ignored.
+	 *
+	 * @param sample
+	 * @param cpuPercent
+	 *            cpu usage in percent of one core.
+	 * @throws IOException
+	 */
+	public synchronized void append(final StatsSample sample, final double cpuPercent) throws IOException {
+		checkOpen();
+		long[] record = new long[RECORD_LONGS];
+		record[TIME] = sample.getTime();
+		record[COUNT] = 1;
+		record[Field.CPU_TOTAL.ordinal()] = sample.getCpuTotal();
+		record[Field.CPU_SYSTEM.ordinal()] = sample.getCpuSystem();
+		record[CPU_PERCENT] = Double.doubleToLongBits(cpuPercent);
+		record[CPU_PERCENT_MAX] = record[CPU_PERCENT];
+		record[MEMORY] = sample.getMemoryUsage();
+		record[MEMORY_MAX] = sample.getMemoryUsage();
+		record[Field.MEMORY_LIMIT.ordinal()] = sample.getMemoryLimit();
+		record[Field.NETWORK_RX.ordinal()] = sample.getNetworkRx();
+		record[Field.NETWORK_TX.ordinal()] = sample.getNetworkTx();
+		record[Field.BLKIO_READ.ordinal()] = sample.getBlkioRead();
+		record[Field.BLKIO_WRITE.ordinal()] = sample.getBlkioWrite();
+		record[Field.BLKIO_READ_OPS.ordinal()] = sample.getBlkioReadOps();
+		record[Field.BLKIO_WRITE_OPS.ordinal()] = sample.getBlkioWriteOps();
+		tiers[Tier.RAW.ordinal()].append(record);
+		lastAppend = System.currentTimeMillis();
+	}
+
+	/**
+	 * Aggregate the complete buckets of each tier from the previous tier.
+	 *
+	 * @param now
+	 *            current time in milliseconds, a bucket is complete when a
+	 *            later record exists or when it is older than two buckets.
+	 * @throws IOException
+	 */
+	public synchronized void downsample(final long now) throws IOException {
+		checkOpen();
+		for (int i = 1; i < tiers.length; i++) {
+			downsample(tiers[i - 1], tiers[i], now);
+		}
+	}
+
+	private void downsample(final TierLog source, final TierLog target, final long now) throws IOException {
+		final long width = target.tier.getWidth();
+		final Bucket bucket = new Bucket();
+		source.forEach(target.nextBucket, Long.MAX_VALUE, new RecordVisitor() {
+			@Override
+			public void visit(long[] record) throws IOException {
+				long start = record[TIME] - Math.floorMod(record[TIME], width);
+				if (bucket.count > 0 && start != bucket.start) {
+					target.append(bucket.toRecord());
+					target.nextBucket = bucket.start + width;
+					bucket.reset();
+				}
+				bucket.add(start, record);
+			}
+		});
+		if (bucket.count > 0 && now >= bucket.start + 2 * width) {
+			// No more sample for this bucket.
+			target.append(bucket.toRecord());
+			target.nextBucket = bucket.start + width;
+		}
+	}
+
+	/**
+	 * Remove the segments older than the retention of their tier.
+	 *
+	 * @param now
+	 *            current time in milliseconds.
+	 */
+	public synchronized void applyRetention(final long now) {
+		if (closed) {
+			return;
+		}
+		for (TierLog tierLog : tiers) {
+			tierLog.applyRetention(now - tierLog.tier.getRetention());
+		}
+	}
+
+	/**
+	 * Read the records of a tier in a time range.
+	 *
+	 * @param tier
+	 * @param from
+	 *            first time in milliseconds, included.
+	 * @param to
+	 *            last time in milliseconds, excluded.
+	 * @return the records.
+	 * @throws IOException
+	 */
+	public synchronized Range query(final Tier tier, final long from, final long to) throws IOException {
+		checkOpen();
+		final Range range = new Range(tier);
+		tiers[tier.ordinal()].forEach(from, to, new RecordVisitor() {
+			@Override
+			public void visit(long[] record) {
+				range.add(record);
+			}
+		});
+		return range;
+	}
+
+	/**
+	 * Read the records of a time range in the finest tier that has at most
+	 * maxPoints records in this range (or the coarsest tier).
+	 *
+	 * @param from
+	 *            first time in milliseconds, included.
+	 * @param to
+	 *            last time in milliseconds, excluded.
+	 * @param maxPoints
+	 * @return the records.
+	 * @throws IOException
+	 */
+	public synchronized Range query(final long from, final long to, final int maxPoints) throws IOException {
+		checkOpen();
+		for (Tier tier : Tier.values()) {
+			if (tiers[tier.ordinal()].count(from, to) <= maxPoints) {
+				return query(tier, from, to);
+			}
+		}
+		return query(Tier.MINUTES_10, from, to);
+	}
+
+	/**
+	 * Write the mapped records to the disk and release the segments, they are
+	 * unmapped when they are garbage collected.
+	 */
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		for (TierLog tierLog : tiers) {
+			tierLog.close();
+		}
+		closed = true;
+	}
+
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 *
+	 * @return time of the last append in milliseconds.
+	 */
+	public synchronized long getLastAppend() {
+		return lastAppend;
+	}
+
+	public File getDirectory() {
+		return dir;
+	}
+
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Metrics log " + dir + " is closed");
+		}
+	}
+
+	/**
+	 * Receive the records of a range.
+	 */
+	private interface RecordVisitor {
+		void visit(long[] record) throws IOException;
+	}
+
+	/**
+	 * Segments of a tier, the last one is opened for append.
+	 */
+	private static class TierLog {
+		private final Tier tier;
+		private final File dir;
+		/**
+		 * Segment files by start time.
+		 */
+		private final TreeMap<Long, File> segments = new TreeMap<>();
+		/**
+		 * Mappings of the closed segments, the least recently read first. A
+		 * closed segment is never modified.
+		 */
+		private final Map<File, MetricsSegment> mapped = new LinkedHashMap<File, MetricsSegment>(16, 0.75f,
+				true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<File, MetricsSegment> eldest) {
+				return size() > MAX_MAPPED_SEGMENTS;
+			}
+		};
+		private MetricsSegment active = null;
+		/**
+		 * Time of the last record, -1 if none.
+		 */
+		private long lastTime = -1;
+		/**
+		 * Start of the next bucket to aggregate in this tier.
+		 */
+		private long nextBucket = 0;
+
+		private TierLog(final Tier tier, final File dir) throws IOException {
+			this.tier = tier;
+			this.dir = dir;
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				throw new IOException("Cannot create metrics directory " + dir);
+			}
+			File[] files = dir.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					String name = file.getName();
+					if (!name.endsWith(SEGMENT_SUFFIX)) {
+						continue;
+					}
+					try {
+						segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())),
+								file);
+					} catch (NumberFormatException ex) {
+						LOGGER.warn("Ignore unknown metrics file " + file);
+					}
+				}
+			}
+			if (!segments.isEmpty()) {
+				File last = segments.lastEntry().getValue();
+				try {
+					active = MetricsSegment.open(last, true);
+					if (active.getCount() > 0) {
+						lastTime = active.getLastTime();
+					}
+				} catch (IOException ex) {
+					LOGGER.warn(ex.getMessage() + ", it is set aside");
+					segments.remove(segments.lastKey());
+					if (!last.renameTo(new File(dir, last.getName() + ".corrupt"))) {
+						LOGGER.warn("Cannot rename metrics segment " + last);
+					}
+					active = null;
+				}
+				if (lastTime < 0) {
+					lastTime = findLastTime();
+				}
+			}
+		}
+
+		/**
+		 *
+		 * @return time of the last record of the closed segments.
+		 * @throws IOException
+		 */
+		private long findLastTime() throws IOException {
+			for (Map.Entry<Long, File> entry : segments.descendingMap().entrySet()) {
+				if (active != null && entry.getValue().equals(active.getFile())) {
+					continue;
+				}
+				MetricsSegment segment = segment(entry.getValue());
+				if (segment != null && segment.getCount() > 0) {
+					return segment.getLastTime();
+				}
+			}
+			return -1;
+		}
+
+		private void append(final long[] record) throws IOException {
+			long time = record[TIME];
+			if (time <= lastTime) {
+				return;
+			}
+			if (active == null || active.isFull()) {
+				if (active != null) {
+					active.force();
+					// Full, read from now on.
+					mapped.put(active.getFile(), active);
+				}
+				File file = new File(dir, String.format("%019d", time) + SEGMENT_SUFFIX);
+				active = MetricsSegment.create(file, time, tier.getCapacity());
+				segments.put(time, file);
+			}
+			active.append(record);
+			lastTime = time;
+		}
+
+		/**
+		 * Visit the records in a time range, in time order.
+		 */
+		private void forEach(final long from, final long to, final RecordVisitor visitor) throws IOException {
+			if (from >= to || segments.isEmpty()) {
+				return;
+			}
+			// The segment that may contain the first record, and the following ones.
+			Long first = segments.floorKey(from);
+			Map<Long, File> candidates = first == null ? segments.headMap(to, false)
+					: segments.subMap(first, true, to, false);
+			long[] record = new long[RECORD_LONGS];
+			for (File file : new ArrayList<>(candidates.values())) {
+				MetricsSegment segment = segment(file);
+				if (segment == null) {
+					continue;
+				}
+				for (int i = segment.search(from); i < segment.getCount(); i++) {
+					segment.read(i, record);
+					if (record[TIME] >= to) {
+						return;
+					}
+					visitor.visit(record);
+				}
+			}
+		}
+
+		/**
+		 * Count the records in a time range.
+		 */
+		private long count(final long from, final long to) {
+			if (from >= to || segments.isEmpty()) {
+				return 0;
+			}
+			Long first = segments.floorKey(from);
+			Map<Long, File> candidates = first == null ? segments.headMap(to, false)
+					: segments.subMap(first, true, to, false);
+			long count = 0;
+			for (File file : candidates.values()) {
+				MetricsSegment segment = segment(file);
+				if (segment != null) {
+					count += segment.search(to) - segment.search(from);
+				}
+			}
+			return count;
+		}
+
+		/**
+		 *
+		 * @return the segment of this file, the active one or a read only
+		 *         mapping, null if it cannot be read.
+		 */
+		private MetricsSegment segment(final File file) {
+			if (active != null && active.getFile().equals(file)) {
+				return active;
+			}
+			MetricsSegment segment = mapped.get(file);
+			if (segment != null) {
+				return segment;
+			}
+			try {
+				segment = MetricsSegment.open(file, false);
+			} catch (IOException ex) {
+				LOGGER.warn(ex.getMessage());
+				return null;
+			}
+			mapped.put(file, segment);
+			return segment;
+		}
+
+		private void applyRetention(final long cutoff) {
+			List<Long> starts = new ArrayList<>(segments.keySet());
+			for (int i = 0; i < starts.size() - 1; i++) {
+				// All the records of a segment are older than the next segment start.
+				if (starts.get(i + 1) > cutoff) {
+					break;
+				}
+				File file = segments.get(starts.get(i));
+				if (active != null && active.getFile().equals(file)) {
+					break;
+				}
+				mapped.remove(file);
+				if (file.delete()) {
+					segments.remove(starts.get(i));
+				} else {
+					LOGGER.warn("Cannot remove expired metrics segment " + file);
+				}
+			}
+		}
+
+		private void close() {
+			if (active != null) {
+				active.force();
+				active = null;
+			}
+			mapped.clear();
+		}
+	}
+
+	/**
+	 * Aggregation of the records of a bucket.
+	 */
+	private static class Bucket {
+		private long start;
+		private long count = 0;
+		private double cpuSum;
+		private double cpuMax;
+		private double memorySum;
+		private long memoryMax;
+		private final long[] last = new long[RECORD_LONGS];
+
+		private void add(final long start, final long[] record) {
+			long samples = Math.max(1, record[COUNT]);
+			this.start = start;
+			count += samples;
+			cpuSum += Double.longBitsToDouble(record[CPU_PERCENT]) * samples;
+			cpuMax = Math.max(cpuMax, Double.longBitsToDouble(record[CPU_PERCENT_MAX]));
+			memorySum += (double) record[MEMORY] * samples;
+			memoryMax = Math.max(memoryMax, record[MEMORY_MAX]);
+			System.arraycopy(record, 0, last, 0, RECORD_LONGS);
+		}
+
+		private long[] toRecord() {
+			long[] record = Arrays.copyOf(last, RECORD_LONGS);
+			record[TIME] = start;
+			record[COUNT] = count;
+			record[CPU_PERCENT] = Double.doubleToLongBits(cpuSum / count);
+			record[CPU_PERCENT_MAX] = Double.doubleToLongBits(cpuMax);
+			record[MEMORY] = (long) (memorySum / count);
+			record[MEMORY_MAX] = memoryMax;
+			return record;
+		}
+
+		private void reset() {
+			count = 0;
+			cpuSum = 0;
+			cpuMax = 0;
+			memorySum = 0;
+			memoryMax = 0;
+		}
+	}
+
+	/**
+	 * Records of a time range, in primitive arrays.
+	 */
+	public static class Range {
+		private final Tier tier;
+		private long[] values = new long[64 * RECORD_LONGS];
+		private int size = 0;
+
+		Range(final Tier tier) {
+			this.tier = tier;
+		}
+
+		private void add(final long[] record) {
+			if ((size + 1) * RECORD_LONGS > values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			System.arraycopy(record, 0, values, size * RECORD_LONGS, RECORD_LONGS);
+			size++;
+		}
+
+		public Tier getTier() {
+			return tier;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		public long getTime(final int index) {
+			return getLong(Field.TIME, index);
+		}
+
+		public long getLong(final Field field, final int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+			}
+			return values[index * RECORD_LONGS + field.ordinal()];
+		}
+
+		/**
+		 *
+		 * @param field
+		 *            CPU_PERCENT or CPU_PERCENT_MAX.
+		 * @param index
+		 * @return the value.
+		 */
+		public double getDouble(final Field field, final int index) {
+			return Double.longBitsToDouble(getLong(field, index));
+		}
+
+		/**
+		 *
+		 * @param counter
+		 *            a counter field (network, blkio).
+		 * @param index
+		 *            a record after the first one.
+		 * @return the counter rate by second since the previous record, 0 if the
+		 *         counter has been reset.
+		 */
+		public long getRate(final Field counter, final int index) {
+			return StatsCallBack.calculateRate(getLong(counter, index), getLong(counter, index - 1),
+					getTime(index) - getTime(index - 1));
+		}
+	}
+
+}
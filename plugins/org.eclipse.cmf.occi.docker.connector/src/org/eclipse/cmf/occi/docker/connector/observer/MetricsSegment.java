@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.observer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * One segment file of a metrics log, memory mapped. The segment has a fixed
+ * capacity of fixed width records, sorted by time. The header keeps the number
+ * of records, it is updated after the record is written : a record
+ * interrupted by a crash is ignored.
+ *
+ * Header : magic, version, record size, capacity (int), count (long), start
+ * time (long).
+ *
+ * @author Christophe Gourdin
+ *
+ */
+class MetricsSegment {
+
+	static final int MAGIC = 0x4F434D48; // OCMH
+
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 64;
+
+	private static final int COUNT_OFFSET = 16;
+
+	private static final int START_OFFSET = 24;
+
+	private final File file;
+
+	private final MappedByteBuffer buffer;
+
+	private final int capacity;
+
+	private final long start;
+
+	private final boolean writable;
+
+	private int count;
+
+	private MetricsSegment(final File file, final MappedByteBuffer buffer, final int capacity, final long start,
+			final int count, final boolean writable) {
+		this.file = file;
+		this.buffer = buffer;
+		this.capacity = capacity;
+		this.start = start;
+		this.count = count;
+		this.writable = writable;
+	}
+
+	/**
+	 * Create a new empty segment.
+	 *
+	 * @param file
+	 * @param start
+	 *            time of the first record in milliseconds.
+	 * @param capacity
+	 *            maximum number of records.
+	 * @return the segment, opened for append.
+	 * @throws IOException
+	 */
+	static MetricsSegment create(final File file, final long start, final int capacity) throws IOException {
+		long size = HEADER_SIZE + (long) capacity * MetricsLog.RECORD_SIZE;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			buffer.putInt(8, MetricsLog.RECORD_SIZE);
+			buffer.putInt(12, capacity);
+			buffer.putLong(COUNT_OFFSET, 0);
+			buffer.putLong(START_OFFSET, start);
+			return new MetricsSegment(file, buffer, capacity, start, 0, true);
+		}
+	}
+
+	/**
+	 * Open an existing segment.
+	 *
+	 * @param file
+	 * @param writable
+	 *            true to append records.
+	 * @return the segment.
+	 * @throws IOException
+	 *             if the file is not a valid segment.
+	 */
+	static MetricsSegment open(final File file, final boolean writable) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r");
+				FileChannel channel = raf.getChannel()) {
+			long length = channel.size();
+			if (length < HEADER_SIZE) {
+				throw new IOException("Invalid metrics segment " + file + " : truncated header");
+			}
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+					|| header.getInt(8) != MetricsLog.RECORD_SIZE) {
+				throw new IOException("Invalid metrics segment " + file + " : unknown format");
+			}
+			int capacity = header.getInt(12);
+			long count = header.getLong(COUNT_OFFSET);
+			long start = header.getLong(START_OFFSET);
+			if (capacity <= 0 || count < 0 || count > capacity
+					|| length < HEADER_SIZE + (long) capacity * MetricsLog.RECORD_SIZE) {
+				throw new IOException("Invalid metrics segment " + file + " : bad count or size");
+			}
+			// A read only segment is only mapped up to its last record.
+			long size = HEADER_SIZE + (writable ? capacity : count) * MetricsLog.RECORD_SIZE;
+			MappedByteBuffer buffer = channel.map(
+					writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, size);
+			return new MetricsSegment(file, buffer, capacity, start, (int) count, writable);
+		}
+	}
+
+	/**
+	 * Append a record, the caller checks that the segment is not full and that
+	 * the record is not older than the last one.
+	 *
+	 * @param record
+	 */
+	void append(final long[] record) {
+		if (!writable) {
+			throw new IllegalStateException("Metrics segment " + file + " is read only");
+		}
+		int offset = HEADER_SIZE + count * MetricsLog.RECORD_SIZE;
+		for (int i = 0; i < MetricsLog.RECORD_LONGS; i++) {
+			buffer.putLong(offset + i * 8, record[i]);
+		}
+		count++;
+		// Commit.
+		buffer.putLong(COUNT_OFFSET, count);
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @param record
+	 *            receives the record values.
+	 */
+	void read(final int index, final long[] record) {
+		int offset = HEADER_SIZE + index * MetricsLog.RECORD_SIZE;
+		for (int i = 0; i < MetricsLog.RECORD_LONGS; i++) {
+			record[i] = buffer.getLong(offset + i * 8);
+		}
+	}
+
+	long getTime(final int index) {
+		return buffer.getLong(HEADER_SIZE + index * MetricsLog.RECORD_SIZE);
+	}
+
+	/**
+	 *
+	 * @param time
+	 * @return index of the first record at or after this time, the count if
+	 *         none.
+	 */
+	int search(final long time) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (getTime(middle) < time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 *
+	 * @return time of the last record, the start time if the segment is empty.
+	 */
+	long getLastTime() {
+		return count == 0 ? start : getTime(count - 1);
+	}
+
+	/**
+	 * Write the mapped records to the disk.
+	 */
+	void force() {
+		if (writable) {
+			buffer.force();
+		}
+	}
+
+	boolean isFull() {
+		return count >= capacity;
+	}
+
+	int getCount() {
+		return count;
+	}
+
+	long getStart() {
+		return start;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.observer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics history of all monitored containers, by container id.
+ * 
+ * @author Christophe Gourdin
+ *
+ */
+public class MetricsStore {
+
+	private static final MetricsStore INSTANCE = new MetricsStore();
+
+	private final Map<String, ContainerMetrics> metrics = new ConcurrentHashMap<>();
+
+	private volatile int capacity = ContainerMetrics.DEFAULT_CAPACITY;
+
+	private MetricsStore() {
+	}
+
+	public static MetricsStore getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * 
+	 * @param containerId
+	 * @return the metrics of this container, created if needed.
+	 */
+	public ContainerMetrics getOrCreate(final String containerId) {
+		ContainerMetrics containerMetrics = metrics.get(containerId);
+		if (containerMetrics == null) {
+			ContainerMetrics newMetrics = new ContainerMetrics(capacity);
+			containerMetrics = metrics.putIfAbsent(containerId, newMetrics);
+			if (containerMetrics == null) {
+				containerMetrics = newMetrics;
+			}
+		}
+		return containerMetrics;
+	}
+
+	/**
+	 * 
+	 * @param containerId
+	 * @return the metrics of this container, null if it has never been
+	 *         monitored.
+	 */
+	public ContainerMetrics get(final String containerId) {
+		if (containerId == null) {
+			return null;
+		}
+		return metrics.get(containerId);
+	}
+
+	/**
+	 * 
+	 * @return the metrics of all the monitored containers by container id, this
+	 *         is a read only view.
+	 */
+	public Map<String, ContainerMetrics> getAll() {
+		return Collections.unmodifiableMap(metrics);
+	}
+
+	/**
+	 * Forget the metrics of a removed container.
+	 * 
+	 * @param containerId
+	 */
+	public void remove(final String containerId) {
+		if (containerId != null) {
+			metrics.remove(containerId);
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * 
+	 * @param capacity
+	 *            number of samples kept for the containers monitored from now.
+	 */
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+}
@@ -0,0 +1,366 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.observer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConfigurationHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConnectorConfig;
+import org.eclipse.emf.common.command.Command;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.transaction.RecordingCommand;
+import org.eclipse.emf.transaction.RollbackException;
+import org.eclipse.emf.transaction.TransactionalCommandStack;
+import org.eclipse.emf.transaction.TransactionalEditingDomain;
+import org.eclipse.emf.transaction.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single writer of the monitored attributes in the model. The callbacks
+ * (stats, events, elasticity) submit attribute values from any thread, the
+ * values are merged by object and feature (the last value wins) and applied
+ * by one writer thread, in one write transaction by editing domain and by
+ * tick.
+ *
+ * The next tick is delayed at least by the duration of the last transaction:
+ * when the editor is slow, the transactions are less frequent and merge more
+ * values. When too many values are pending, the submitting threads wait for
+ * the writer.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class ModelUpdateScheduler {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(ModelUpdateScheduler.class);
+
+	public static final long DEFAULT_TICK_INTERVAL = 250;
+
+	public static final int DEFAULT_MAX_PENDING = 10000;
+
+	private static final ModelUpdateScheduler INSTANCE = new ModelUpdateScheduler();
+
+	private final Object lock = new Object();
+
+	/**
+	 * Pending values by object and feature, in submission order.
+	 */
+	private Map<UpdateKey, Object> pending = new LinkedHashMap<>();
+
+	private Thread writer = null;
+
+	/**
+	 * Earliest time of the next transaction in milliseconds.
+	 */
+	private long nextTick = 0;
+
+	private volatile long tickInterval = DEFAULT_TICK_INTERVAL;
+
+	private volatile int maxPending = DEFAULT_MAX_PENDING;
+
+	private final AtomicLong submitted = new AtomicLong();
+
+	private final AtomicLong applied = new AtomicLong();
+
+	private final AtomicLong transactions = new AtomicLong();
+
+	private ModelUpdateScheduler() {
+		try {
+			DockerConnectorConfig config = DockerConnectorConfig.getCurrent();
+			tickInterval = config.getIntProperty(DockerConfigurationHelper.KEY_MODEL_UPDATE_INTERVAL,
+					(int) DEFAULT_TICK_INTERVAL);
+			maxPending = config.getIntProperty(DockerConfigurationHelper.KEY_MODEL_UPDATE_MAX_PENDING,
+					DEFAULT_MAX_PENDING);
+		} catch (IOException ex) {
+			LOGGER.warn("Cannot read model update configuration, use defaults : " + ex.getMessage());
+		}
+	}
+
+	public static ModelUpdateScheduler getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Submit a new value for an attribute, it will be applied on the next tick.
+	 * A previous value not applied yet for the same object and feature is
+	 * replaced.
+	 *
+	 * @param object
+	 *            the model object.
+	 * @param feature
+	 *            the feature to set.
+	 * @param value
+	 *            the new value.
+	 */
+	public void set(final EObject object, final EStructuralFeature feature, final Object value) {
+		if (object == null || feature == null) {
+			return;
+		}
+		UpdateKey key = new UpdateKey(object, feature);
+		synchronized (lock) {
+			startWriter();
+			// Backpressure, except for the writer itself (model listeners).
+			while (pending.size() >= maxPending && !pending.containsKey(key) && Thread.currentThread() != writer) {
+				try {
+					lock.wait(tickInterval);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			pending.put(key, value);
+			submitted.incrementAndGet();
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Apply the pending values without waiting for the next tick, for the
+	 * values that the user must see immediately (container state).
+	 */
+	public void flush() {
+		synchronized (lock) {
+			nextTick = 0;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Apply a change now in the calling thread, in a write transaction when the
+	 * object is in a transactional editing domain. For the changes that the
+	 * next operations read (container id), the other values are submitted with
+	 * {@link #set(EObject, EStructuralFeature, Object)}.
+	 *
+	 * @param object
+	 *            the model object, gives the editing domain.
+	 * @param change
+	 *            the change of the model.
+	 */
+	public void execute(final EObject object, final Runnable change) {
+		TransactionalEditingDomain domain = TransactionUtil.getEditingDomain(object);
+		if (domain == null) {
+			change.run();
+			return;
+		}
+		Command cmd = new RecordingCommand(domain) {
+			@Override
+			protected void doExecute() {
+				change.run();
+			}
+		};
+		try {
+			((TransactionalCommandStack) domain.getCommandStack()).execute(cmd, null); // default options
+			transactions.incrementAndGet();
+		} catch (RollbackException rbe) {
+			LOGGER.error(rbe.getStatus().toString());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			LOGGER.warn("Interrupted while updating the model : " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Start the writer thread on first submission.
+	 */
+	private void startWriter() {
+		if (writer != null) {
+			return;
+		}
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		}, "docker-model-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	private void writeLoop() {
+		while (true) {
+			Map<UpdateKey, Object> batch;
+			synchronized (lock) {
+				try {
+					while (pending.isEmpty()) {
+						lock.wait();
+					}
+					long delay;
+					while ((delay = nextTick - System.currentTimeMillis()) > 0) {
+						lock.wait(delay);
+					}
+				} catch (InterruptedException ex) {
+					LOGGER.warn("Model writer interrupted, " + pending.size() + " pending values are dropped");
+					return;
+				}
+				batch = pending;
+				pending = new LinkedHashMap<>();
+				// Release the waiting submitters.
+				lock.notifyAll();
+			}
+			long start = System.currentTimeMillis();
+			try {
+				apply(batch);
+			} catch (RuntimeException ex) {
+				LOGGER.error("Exception thrown while updating the model : " + ex.getClass().getName() + " --> "
+						+ ex.getMessage());
+			}
+			long duration = System.currentTimeMillis() - start;
+			synchronized (lock) {
+				nextTick = System.currentTimeMillis() + Math.max(tickInterval, duration);
+			}
+		}
+	}
+
+	/**
+	 * Apply a batch of values, one transaction by editing domain.
+	 *
+	 * @param batch
+	 */
+	private void apply(final Map<UpdateKey, Object> batch) {
+		Map<TransactionalEditingDomain, List<Map.Entry<UpdateKey, Object>>> byDomain = new IdentityHashMap<>();
+		for (Map.Entry<UpdateKey, Object> entry : batch.entrySet()) {
+			TransactionalEditingDomain domain = TransactionUtil.getEditingDomain(entry.getKey().object);
+			if (domain == null) {
+				// Not in a transactional resource set.
+				applyValue(entry.getKey(), entry.getValue());
+				continue;
+			}
+			List<Map.Entry<UpdateKey, Object>> entries = byDomain.get(domain);
+			if (entries == null) {
+				entries = new ArrayList<>();
+				byDomain.put(domain, entries);
+			}
+			entries.add(entry);
+		}
+		for (Map.Entry<TransactionalEditingDomain, List<Map.Entry<UpdateKey, Object>>> domainEntry : byDomain
+				.entrySet()) {
+			final List<Map.Entry<UpdateKey, Object>> entries = domainEntry.getValue();
+			TransactionalEditingDomain domain = domainEntry.getKey();
+			Command cmd = new RecordingCommand(domain) {
+				@Override
+				protected void doExecute() {
+					for (Map.Entry<UpdateKey, Object> entry : entries) {
+						applyValue(entry.getKey(), entry.getValue());
+					}
+				}
+			};
+			try {
+				((TransactionalCommandStack) domain.getCommandStack()).execute(cmd, null); // default options
+				transactions.incrementAndGet();
+			} catch (RollbackException rbe) {
+				LOGGER.error(rbe.getStatus().toString());
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				LOGGER.warn("Interrupted while updating the model : " + ex.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Set the value only if it changes, to avoid useless notifications.
+	 */
+	private void applyValue(final UpdateKey key, final Object value) {
+		if (!Objects.equals(key.object.eGet(key.feature), value)) {
+			key.object.eSet(key.feature, value);
+		}
+		applied.incrementAndGet();
+	}
+
+	/**
+	 *
+	 * @return number of values waiting for the next tick.
+	 */
+	public int getPendingCount() {
+		synchronized (lock) {
+			return pending.size();
+		}
+	}
+
+	/**
+	 *
+	 * @return number of submitted values since the start.
+	 */
+	public long getSubmittedCount() {
+		return submitted.get();
+	}
+
+	/**
+	 *
+	 * @return number of applied values since the start, the difference with
+	 *         submitted values is the number of merged values.
+	 */
+	public long getAppliedCount() {
+		return applied.get();
+	}
+
+	/**
+	 *
+	 * @return number of write transactions since the start.
+	 */
+	public long getTransactionCount() {
+		return transactions.get();
+	}
+
+	public long getTickInterval() {
+		return tickInterval;
+	}
+
+	public void setTickInterval(long tickInterval) {
+		this.tickInterval = tickInterval;
+	}
+
+	public int getMaxPending() {
+		return maxPending;
+	}
+
+	public void setMaxPending(int maxPending) {
+		this.maxPending = maxPending;
+	}
+
+	/**
+	 * Identity of the model object and feature.
+	 */
+	private static class UpdateKey {
+		private final EObject object;
+		private final EStructuralFeature feature;
+
+		private UpdateKey(final EObject object, final EStructuralFeature feature) {
+			this.object = object;
+			this.feature = feature;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(object) + System.identityHashCode(feature);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof UpdateKey)) {
+				return false;
+			}
+			UpdateKey other = (UpdateKey) obj;
+			return object == other.object && feature == other.feature;
+		}
+	}
+
+}
@@ -14,22 +14,16 @@ package org.eclipse.cmf.occi.docker.connector.observer;
 
 import java.io.IOException;
 import java.text.DecimalFormat;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
 
+import org.eclipse.cmf.occi.core.Link;
 import org.eclipse.cmf.occi.core.Resource;
 import org.eclipse.cmf.occi.docker.Container;
+import org.eclipse.cmf.occi.docker.Contains;
+import org.eclipse.cmf.occi.docker.DockerPackage;
+import org.eclipse.cmf.occi.docker.Machine;
 import org.eclipse.cmf.occi.docker.connector.ContainerConnector;
-import org.eclipse.cmf.occi.infrastructure.Compute;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerClientRegistry;
 import org.eclipse.cmf.occi.infrastructure.ComputeStatus;
-import org.eclipse.emf.common.command.Command;
-import org.eclipse.emf.transaction.RecordingCommand;
-import org.eclipse.emf.transaction.RollbackException;
-import org.eclipse.emf.transaction.TransactionalCommandStack;
-import org.eclipse.emf.transaction.TransactionalEditingDomain;
-import org.eclipse.emf.transaction.util.TransactionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,9 +41,29 @@ public class StatsCallBack extends ResultCallbackTemplate<StatsCallBack, Statist
 
 	private Container container;
 
-	private LimitedQueue<Float> cpuTotalUsageQueue = new LimitedQueue<Float>(2);
+	/**
+	 * Cpu counters of the previous kept sample, -1 before the first one.
+	 */
+	private long previousCpuTotal = -1;
+
+	private long previousCpuSystem = 0;
+
+	/**
+	 * Network and block I/O counters of the previous kept sample.
+	 */
+	private long previousTime = 0;
+
+	private long previousNetworkRx = 0;
 
-	private LimitedQueue<Float> cpuSystemUsageQueue = new LimitedQueue<Float>(2);
+	private long previousNetworkTx = 0;
+
+	private long previousBlkioRead = 0;
+
+	private long previousBlkioWrite = 0;
+
+	private long previousBlkioReadOps = 0;
+
+	private long previousBlkioWriteOps = 0;
 
 	private boolean updateMaxCpu = false;
 	
@@ -58,27 +72,65 @@ public class StatsCallBack extends ResultCallbackTemplate<StatsCallBack, Statist
 	 */
 	private Integer monitoringInterval = 2000;
 
+	/**
+	 * A sample is kept when it is received at least this part of the monitoring
+	 * interval after the previous kept sample, the daemon sends one sample by
+	 * second with some jitter.
+	 */
+	private static final double INTERVAL_TOLERANCE = 0.9;
+
+	/**
+	 * Reception time of the last kept sample in nanoseconds, the docker-java
+	 * Statistics model has no read timestamp.
+	 */
+	private long lastSampleTime = 0;
+
+	private boolean firstSample = true;
+
+	/**
+	 * Reused for each sample.
+	 */
+	private final StatsSample sample = new StatsSample();
+
+	private final DecimalFormat df = new DecimalFormat("#0.##");
+
+	private String machineName = null;
+
+	/**
+	 * Adaptive sampling interval, null if the adaptive sampling is disabled.
+	 */
+	private final AdaptiveInterval adaptiveInterval;
 
 	public StatsCallBack(Container container) {
 		this.container = container;
+		this.adaptiveInterval = AdaptiveInterval.fromConfig();
 	}
 
 	@Override
 	public void onNext(Statistics stats) {
-		
-		// Interval in which the metrics are retrieved
-		try {
-			if (this.container == null) {
-				System.err.println("The container is not set correctly on stats call back !!!");
-				return;
-			}
-			if (this.container.getMonitoringInterval() != null) {
-				monitoringInterval = this.container.getMonitoringInterval(); // Else default is 2000 ms.
-			}
-			Thread.sleep(monitoringInterval); // Pause for x ms
-		} catch (InterruptedException ex) {
-			// No op.
+
+		if (this.container == null) {
+			System.err.println("The container is not set correctly on stats call back !!!");
+			return;
+		}
+		// The stream is consumed at the daemon rate, the samples are decimated to
+		// the monitoring interval. Never block this thread, it reads the stream.
+		if (!acceptSample(System.nanoTime())) {
+			return;
 		}
+		StatsDecoder.decode(stats, sample);
+		sample.setTime(System.currentTimeMillis());
+		process(sample);
+	}
+
+	/**
+	 * Process a decoded sample : keep its history and update the container
+	 * monitoring attributes.
+	 * 
+	 * @param sample
+	 *            the sample, may be reused by the caller after this call.
+	 */
+	public void process(StatsSample sample) {
 		if (this.container.getOcciComputeState().equals(ComputeStatus.INACTIVE)) {
 			System.out.println("Container : " + container.getName() + " is inactive");
 			try {
@@ -91,229 +143,262 @@ public class StatsCallBack extends ResultCallbackTemplate<StatsCallBack, Statist
 			}
 			return;
 		}
-		// Calculate the percentage of CPU used
-		Map<String, Object> cpu = stats.getCpuStats();
-
-		LinkedHashMap<String, Object> tmpcpu = (LinkedHashMap<String, Object>) cpu.get("cpu_usage");
-		Object cpuUsed = tmpcpu.get("total_usage");
-		Object percpuUsage = tmpcpu.get("percpu_usage");
-		Object systemCpuUsage = cpu.get("system_cpu_usage");
-		Object percpuUsageSize = (List<Object>) percpuUsage;
-		// Memory.
-		Integer memUsed = (Integer) stats.getMemoryStats().get("usage");
-		System.out.println("mem used : " + memUsed);
-		
-		Object memLimitObj = stats.getMemoryStats().get("limit");
-		// Parse to long the memLimitObj
-		Long memLimit = Long.valueOf(memLimitObj.toString());
-		System.out.println("mem limit: " + memLimit);
-		
-		Map<String, Object> networks = stats.getNetworks();
-		// Map<String, Object> network = stats.getNetwork();
-		Integer networkR = null;
-		Integer networkT = null;
-		Integer bandwitdh = null;
-		try {
-			if (networks != null) {
-				LinkedHashMap<String, Object> tmpnetworks = (LinkedHashMap<String, Object>) networks.get("eth0");
-				// System.out.println("Networks : {}", tmpnetworks)
-				networkR = (Integer) tmpnetworks.get("rx_bytes");
-				networkT = (Integer) tmpnetworks.get("tx_bytes");
-				bandwitdh = networkR + networkT;
-			}
-
-		} catch (Exception e) {
-			e.printStackTrace();
-			networkR = 0;
-			networkT = 0;
-			bandwitdh = 0;
-			LOGGER.error("Networks bandwidth -> Exception thrown : " + e.getClass().getName() + " --> " + e.getMessage());
+		long cpuTotal = sample.getCpuTotal();
+		long cpuSystem = sample.getCpuSystem();
+		int cores = sample.getCores();
+		double percent = 0;
+		if (previousCpuTotal >= 0) {
+			percent = calculateCPUPercent(cpuTotal - previousCpuTotal, cpuSystem - previousCpuSystem, cores);
 		}
 
-		// Update the Queue
-		cpuTotalUsageQueue.add(Float.valueOf(cpuUsed.toString()));
-		cpuSystemUsageQueue.add(Float.valueOf(systemCpuUsage.toString()));
+		// Keep the history of the container.
+		if (this.container.getContainerid() != null) {
+			ContainerMetrics metrics = MetricsStore.getInstance().getOrCreate(this.container.getContainerid());
+			metrics.setLabels(getMachineName(), this.container.getName());
+			metrics.record(sample.getTime(),
+					cpuTotal, cpuSystem, percent, sample.getMemoryUsage(), sample.getMemoryLimit(),
+					sample.getNetworkRx(), sample.getNetworkTx(), sample.getBlkioRead(), sample.getBlkioWrite(),
+					sample.getBlkioReadOps(), sample.getBlkioWriteOps());
+			// Persistent history, if enabled.
+			MetricsHistory.getInstance().record(this.container.getContainerid(), sample, percent);
+		}
 
-		if (cpuTotalUsageQueue.size() == 2 && cpuSystemUsageQueue.size() == 2) {
-			// Calculate the percentage
-			Float percent = calculateCPUPercent(cpuTotalUsageQueue, cpuSystemUsageQueue,
-					((List<Statistics>) percpuUsageSize).size());
+		if (previousCpuTotal >= 0) {
+			// Rates between the previous kept sample and this one.
+			long elapsed = sample.getTime() - previousTime;
+			IoRates rates = new IoRates(calculateRate(sample.getNetworkRx(), previousNetworkRx, elapsed),
+					calculateRate(sample.getNetworkTx(), previousNetworkTx, elapsed),
+					calculateRate(sample.getBlkioRead(), previousBlkioRead, elapsed),
+					calculateRate(sample.getBlkioWrite(), previousBlkioWrite, elapsed),
+					calculateRate(sample.getBlkioReadOps(), previousBlkioReadOps, elapsed),
+					calculateRate(sample.getBlkioWriteOps(), previousBlkioWriteOps, elapsed));
+			if (adaptiveInterval != null) {
+				long interval = adaptiveInterval.update(getMonitoringInterval(), percent, sample.getMemoryUsage(),
+						sample.getMemoryLimit(), rates.getNetworkRx() + rates.getNetworkTx()
+								+ rates.getBlkioRead() + rates.getBlkioWrite());
+				LOGGER.debug("Container " + this.container.getName() + " sampling interval : " + interval + " ms");
+			}
 			// Update the monitoring metrics
 			try {
-				System.out.println("Container : " + this.container.getContainerid());
-				modifyResourceSet(this.container, cpuUsed.toString(), percent, memUsed, memLimit, bandwitdh,
-						((List<Statistics>) percpuUsageSize).size(), updateMaxCpu);
+				modifyResourceSet(this.container, cpuTotal, (float) percent, sample.getMemoryUsage(),
+						sample.getMemoryLimit(), rates, cores, updateMaxCpu);
 				updateMaxCpu = true;
 			} catch (Exception e) {
 				LOGGER.error("Exception thrown : " + e.getClass().getName() + " --> " + e.getMessage());
 			}
 		}
+		previousCpuTotal = cpuTotal;
+		previousCpuSystem = cpuSystem;
+		previousTime = sample.getTime();
+		previousNetworkRx = sample.getNetworkRx();
+		previousNetworkTx = sample.getNetworkTx();
+		previousBlkioRead = sample.getBlkioRead();
+		previousBlkioWrite = sample.getBlkioWrite();
+		previousBlkioReadOps = sample.getBlkioReadOps();
+		previousBlkioWriteOps = sample.getBlkioWriteOps();
 
 	}
 
+	/**
+	 * 
+	 * @return name of the machine containing the container, resolved once.
+	 */
+	private String getMachineName() {
+		if (machineName == null) {
+			machineName = DockerClientRegistry.LOCAL_MACHINE_KEY;
+			for (Link link : this.container.getRlinks()) {
+				if (link instanceof Contains && link.getSource() instanceof Machine) {
+					machineName = ((Machine) link.getSource()).getName();
+					break;
+				}
+			}
+		}
+		return machineName;
+	}
+
 	/**
 	 * Update resource model.
 	 * 
 	 * @param resource
 	 * @param cpuUsed
+	 *            cpu time used by the container in nanoseconds.
 	 * @param percent
 	 * @param memUsed
+	 *            memory used in bytes.
 	 * @param memLimit
-	 * @param bandwitdh
+	 *            memory limit in bytes.
+	 * @param rates
+	 *            network and block I/O rates since the previous sample, not
+	 *            null.
 	 * @param cpuMax
 	 * @param updateMaxCpu
 	 */
-	public synchronized void modifyResourceSet(Resource resource, final String cpuUsed, final Float percent, final Integer memUsed,
-			final Long memLimit, final Integer bandwitdh, final Integer cpuMax, final Boolean updateMaxCpu) {
-		// For debug...
-		System.out.println("In modify resource set !");
-		if (cpuUsed == null) {
-			System.out.println("Cpu used is null");
+	public void modifyResourceSet(Resource resource, final long cpuUsed, final float percent, final long memUsed,
+			final long memLimit, final IoRates rates, final int cpuMax, final boolean updateMaxCpu) {
+		if (!(resource instanceof Container)) {
+			return;
 		}
-		if (percent == null) {
-			System.out.println("CPU percent is null");
+		Container container = (Container) resource;
+		// Modify the resource only if it is in active state
+		if (container.getOcciComputeState() != ComputeStatus.ACTIVE) {
+			return;
 		}
-		if (memUsed == null) {
-			System.out.println("Mem used is null");
+		try {
+			int memLimitInt = toKilobytes(memLimit);
+			int memUsedInt = toKilobytes(memUsed);
+
+			// No limit reported (0) gives 0 %, not NaN or Infinity.
+			float memPercent = memLimitInt > 0 ? (float) memUsedInt / memLimitInt : 0F;
+			// Bandwidth and disk used are rates in KB/s.
+			int bandwitdh = toKilobytes(rates.networkRx + rates.networkTx);
+			int diskUsed = toKilobytes(rates.blkioRead + rates.blkioWrite);
+
+			// Milliseconds, the int attribute overflows after 24 days of cpu time.
+			float cpuUs = cpuUsed / 1000000F;
+			if (cpuUs > Integer.MAX_VALUE) {
+				cpuUs = cpuUs / 100000000F;
+			}
+
+			int maxValue = getMaxValue((long) cpuUs, percent);
+
+			// The values are applied by the model writer, only if they change.
+			ModelUpdateScheduler scheduler = ModelUpdateScheduler.getInstance();
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__MEMORY_USED, memUsedInt);
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__MEMORY_MAX_VALUE, memLimitInt);
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__MEMORY_PERCENT, df.format(memPercent));
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__BANDWIDTH_USED, bandwitdh);
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__DISK_USED, diskUsed);
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__NETWORK_RX_RATE, toKilobytes(rates.networkRx));
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__NETWORK_TX_RATE, toKilobytes(rates.networkTx));
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__DISK_READ_RATE, toKilobytes(rates.blkioRead));
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__DISK_WRITE_RATE, toKilobytes(rates.blkioWrite));
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__DISK_READ_OPS, toInteger(rates.blkioReadOps));
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__DISK_WRITE_OPS, toInteger(rates.blkioWriteOps));
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__CPU_USED, (int) cpuUs);
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__CPU_MAX_VALUE, maxValue);
+			scheduler.set(container, DockerPackage.Literals.CONTAINER__CPU_PERCENT, df.format(percent));
+
+			// Update the number of cores once
+			if (!updateMaxCpu) {
+				scheduler.set(container, DockerPackage.Literals.CONTAINER__CORE_MAX, maxValue);
+			}
+		} catch (NumberFormatException e) {
+			e.printStackTrace();
+			System.err.println("NumberFormatException : " + e.getMessage());
+			LOGGER.error(e.getMessage());
 		}
-		if (memLimit == null) {
-			System.out.println("Mem limit is null");
+	}
+
+	/**
+	 * Decimate the stats stream to the monitoring interval of the container, or
+	 * to its adaptive interval.
+	 * 
+	 * @param time
+	 *            reception time of the sample in nanoseconds.
+	 * @return true if this sample must be processed.
+	 */
+	public boolean acceptSample(long time) {
+		long interval = getMonitoringInterval();
+		if (adaptiveInterval != null) {
+			interval = adaptiveInterval.getInterval(interval);
 		}
-		if (bandwitdh == null) {
-			System.out.println("Bandwidth is null");
+		long minElapsed = (long) (interval * INTERVAL_TOLERANCE) * 1000000L;
+		if (!firstSample && time - lastSampleTime < minElapsed) {
+			return false;
 		}
-		if (cpuMax == null) {
-			System.out.println("CPU Max is null");
+		firstSample = false;
+		lastSampleTime = time;
+		return true;
+	}
+
+	/**
+	 * 
+	 * @param current
+	 *            counter value of this sample.
+	 * @param previous
+	 *            counter value of the previous sample.
+	 * @param elapsed
+	 *            time between the two samples in milliseconds.
+	 * @return the rate by second, 0 if the counter has been reset (container
+	 *         restarted, interface removed).
+	 */
+	public static long calculateRate(long current, long previous, long elapsed) {
+		if (elapsed <= 0 || current < previous) {
+			return 0;
 		}
-		if (updateMaxCpu == null) {
-			System.out.println("update max CPU is null, it must be a boolean");
+		return (long) ((current - previous) * 1000.0D / elapsed);
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 * @return the value in KB, clamped to the model Integer range.
+	 */
+	private static Integer toKilobytes(long bytes) {
+		return toInteger(bytes / 1024);
+	}
+
+	private static Integer toInteger(long value) {
+		return (int) Math.min(Math.max(value, 0), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Network and block I/O rates between two samples, in bytes or operations
+	 * by second.
+	 */
+	public static class IoRates {
+		private final long networkRx;
+		private final long networkTx;
+		private final long blkioRead;
+		private final long blkioWrite;
+		private final long blkioReadOps;
+		private final long blkioWriteOps;
+
+		public IoRates(long networkRx, long networkTx, long blkioRead, long blkioWrite, long blkioReadOps,
+				long blkioWriteOps) {
+			this.networkRx = networkRx;
+			this.networkTx = networkTx;
+			this.blkioRead = blkioRead;
+			this.blkioWrite = blkioWrite;
+			this.blkioReadOps = blkioReadOps;
+			this.blkioWriteOps = blkioWriteOps;
 		}
-		
-		// Get an editing domain
-		TransactionalEditingDomain domain = TransactionUtil.getEditingDomain(resource.eResource().getResourceSet());
-
-		Command cmd = new RecordingCommand(domain) {
-
-			@Override
-			protected void doExecute() {
-			
-				try {
-					// these modifications require a write transaction in this editing domain
-					DecimalFormat df = new DecimalFormat("#0.##");
-					int cpuMax = 0;
-					Float cpuUs = 0.0F;
-					Integer memLimitInt = Integer.parseInt("" + (memLimit / 1024));
-					Integer memUsedInt = (memUsed / 1024);
-
-					Float memPercent = Float.parseFloat("" + memUsedInt) / Float.parseFloat("" + memLimitInt);
-					Thread.sleep(100);
-					
-					// Modify the resource only if it is in active state
-					if (resource instanceof Container) {
-						Container container = (Container) resource;
-
-						if (((Compute) resource).getOcciComputeState() == ComputeStatus.ACTIVE) {
-							Integer memContainerUsed = container.getMemoryUsed();
-							Integer memContainerMaxValue = container.getMemoryMaxValue();
-							String memContainerMemoryPercent = container.getMemoryPercent();
-							String bandwidthContainerPercent = container.getBandwidthPercent();
-							Integer bandwdthContainerUsed = container.getBandwidthUsed();
-							Integer cpuContainerMaxValue = container.getCpuMaxValue();
-							Integer cpuContainerUsed = container.getCpuUsed();
-							String cpuContainerPercent = container.getCpuPercent();
-							
-							if (memContainerUsed == null) {
-								memContainerUsed = 0;
-							}
-							if (memContainerMemoryPercent == null) {
-								memContainerMemoryPercent = df.format(0.0F);
-							}
-							if (memContainerMaxValue == null) {
-								memContainerMaxValue = 0;
-							}
-							if (bandwdthContainerUsed == null) {
-								bandwdthContainerUsed = 0;
-							}
-							if (bandwidthContainerPercent == null) {
-								bandwidthContainerPercent = df.format(0.0F);
-							}
-							if (cpuContainerUsed == null) {
-								cpuContainerUsed = 0;
-							}
-							if (cpuContainerMaxValue == null) {
-								cpuContainerMaxValue = 0;
-							}
-							if (cpuContainerPercent == null) {
-								cpuContainerPercent = df.format(0.0F);
-							}
-							
-							// Update Attributes only if change occurs
-							if (memContainerUsed != memUsedInt) {
-								container.setMemoryUsed(memUsedInt);
-							}
-							if (memContainerMaxValue != memLimitInt) {
-								container.setMemoryMaxValue(memLimitInt);
-							}
-							if (memContainerMemoryPercent != df.format(memPercent)) {
-								container.setMemoryPercent(df.format(memPercent));
-							}
-							if (bandwdthContainerUsed != bandwitdh) {
-								container.setBandwidthUsed(bandwitdh);
-							}
-							
-							cpuUs = (Float.valueOf("" + cpuUsed)) / 1000000F;
-
-							// To avoid NumberFormatException, the maximum value of Integer is 2^31-1 =
-							// 2147483647
-							if (cpuUs.intValue() > Integer.MAX_VALUE) {
-								cpuUs = cpuUs / 100000000F;
-							}
-
-							cpuMax = getMaxValue(Long.parseLong("" + cpuUs.intValue()), percent);
-
-							if (cpuMax > Integer.MAX_VALUE) {
-								cpuMax = cpuMax / 100000000;
-								cpuUs = cpuUs / 100000000F;
-							}
-
-							if (cpuContainerUsed != cpuUs.intValue()) {
-								container.setCpuUsed(cpuUs.intValue());
-								// System.out.println("CPU USED <=====> {}", cpu_us.intValue)
-							}
-							if (cpuContainerMaxValue != Integer.valueOf(cpuMax)) {
-								container.setCpuMaxValue(cpuMax);
-								// System.out.println("CPU MAX VALUE <=====> {}", Integer.valueOf(cpu_max))
-							}
-							if (!cpuContainerPercent.equals(df.format(percent))) {
-								container.setCpuPercent(df.format(percent));
-								// System.out.println("CPU PERCENTAGE <=====> {}", percent)
-							}
-
-							// Update the number of cores once
-							if (!updateMaxCpu) {
-								container.setCoreMax(cpuMax);
-								// updateMaxCpu = true;
-							}
-						}
-					}
-				} catch (NumberFormatException e) {
-					e.printStackTrace();
-					System.err.println("NumberFormatException : " + e.getMessage());
-					LOGGER.error(e.getMessage());
-				} catch (InterruptedException e) {
-					// No op.
-				}
-			}
-		};
 
-		try {
-			((TransactionalCommandStack) domain.getCommandStack()).execute(cmd, null); // default options
-		} catch (RollbackException rbe) {
-			LOGGER.error(rbe.getStatus().toString());
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		public long getNetworkRx() {
+			return networkRx;
+		}
+
+		public long getNetworkTx() {
+			return networkTx;
+		}
+
+		public long getBlkioRead() {
+			return blkioRead;
+		}
+
+		public long getBlkioWrite() {
+			return blkioWrite;
+		}
+
+		public long getBlkioReadOps() {
+			return blkioReadOps;
+		}
+
+		public long getBlkioWriteOps() {
+			return blkioWriteOps;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the monitoring interval of the container in milliseconds, the
+	 *         fastest sampling interval in adaptive mode.
+	 */
+	private long getMonitoringInterval() {
+		if (this.container.getMonitoringInterval() != null) {
+			monitoringInterval = this.container.getMonitoringInterval(); // Else default is 2000 ms.
 		}
+		return monitoringInterval;
 	}
 
 	public Boolean compateTo(Statistics stats1, Statistics stats2) {
@@ -322,25 +407,20 @@ public class StatsCallBack extends ResultCallbackTemplate<StatsCallBack, Statist
 
 	/**
 	 * 
-	 * @param cpuTotalUsageQueue
-	 * @param cpuSystemUsageQueue
-	 * @param percpu_usage_size
-	 * @return
+	 * @param cpuDelta
+	 *            container cpu time between two samples in nanoseconds.
+	 * @param systemDelta
+	 *            host cpu time between two samples in nanoseconds.
+	 * @param cores
+	 *            number of cores.
+	 * @return cpu usage in percent of one core.
 	 */
-	public Float calculateCPUPercent(LimitedQueue<Float> cpuTotalUsageQueue, LimitedQueue<Float> cpuSystemUsageQueue,
-			int percpu_usage_size) {
-		// Inspired from
-		// https://github.com/docker/docker/blob/0d445685b8d628a938790e50517f3fb949b300e0/api/client/stats.go#L199
-		Float cpuPercent = 0.0F;
-		// calculate the change for the cpu usage of the container in between readings
-		Float cpuDelta = cpuTotalUsageQueue.get(1) - cpuTotalUsageQueue.get(0);
-		// calculate the change for the entire system between readings
-		Float systemDelta = cpuSystemUsageQueue.get(1) - cpuSystemUsageQueue.get(0);
-
-		if (systemDelta > 0.0 && cpuDelta > 0.0) {
-			cpuPercent = (cpuDelta / systemDelta) * percpu_usage_size * 100.0F;
+	public static double calculateCPUPercent(long cpuDelta, long systemDelta, int cores) {
+		// Same as docker stats command.
+		if (systemDelta > 0 && cpuDelta > 0) {
+			return ((double) cpuDelta / systemDelta) * cores * 100.0D;
 		}
-		return cpuPercent;
+		return 0;
 	}
 
 	/**
@@ -349,10 +429,9 @@ public class StatsCallBack extends ResultCallbackTemplate<StatsCallBack, Statist
 	 * @param percent
 	 * @return 
 	 */
-	public int getMaxValue(Long cpuUsed, Float percent) {
-		Float value = (100F * cpuUsed.floatValue()) / percent;
-		int maxValue = value.intValue();
-		return maxValue;
+	public int getMaxValue(long cpuUsed, float percent) {
+		float value = (100F * cpuUsed) / percent;
+		return (int) value;
 	}
 
 }
@@ -0,0 +1,627 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.observer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import org.eclipse.cmf.occi.docker.Container;
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerClientRegistry;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConfigurationHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerConnectorConfig;
+import org.eclipse.cmf.occi.docker.connector.helpers.DockerMachineHelper;
+import org.eclipse.cmf.occi.infrastructure.Compute;
+import org.eclipse.cmf.occi.infrastructure.ComputeStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dockerjava.core.LocalDirectorySSLConfig;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.ScheduledFuture;
+
+/**
+ * Collect the stats of all the monitored containers of a machine. Instead of
+ * one streamed stats connection by container, the collector requests one
+ * sample by container (stats?stream=false) in rounds, over a small pool of
+ * connections shared by all the containers of the machine.
+ * 
+ * The requests are not blocking : the daemon answers a stats request after a
+ * second sample (1 to 2 seconds), a pending request holds a connection but no
+ * thread. The rounds, the requests and the responses are handled by one event
+ * loop thread by machine, the number of sockets is bounded by the parallelism
+ * of the machine.
+ * 
+ * The requests of a round are spread with a random delay to avoid a burst on
+ * the daemon. A container whose previous request is not completed is skipped
+ * for this round.
+ * 
+ * @author Christophe Gourdin
+ *
+ */
+public class StatsCollector {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(StatsCollector.class);
+
+	public static final long DEFAULT_ROUND_INTERVAL = 2000;
+
+	/**
+	 * A pending request only holds a connection, the daemon answers after 1 to 2
+	 * seconds : the requests of a round must be pending at the same time to
+	 * complete within the round.
+	 */
+	public static final int DEFAULT_PARALLELISM = 32;
+
+	/**
+	 * Part of the round interval used to spread the requests.
+	 */
+	public static final double JITTER_RATIO = 0.5;
+
+	public static final int CONNECT_TIMEOUT = 10000;
+
+	/**
+	 * The daemon waits for a second sample before answering a not streamed stats
+	 * request.
+	 */
+	public static final int READ_TIMEOUT = 30000;
+
+	/**
+	 * Maximum size of a stats response, the per cpu usages grow with the cores
+	 * of the machine.
+	 */
+	public static final int MAX_RESPONSE_SIZE = 1024 * 1024;
+
+	/**
+	 * Time given to the pending requests to complete when the collector is
+	 * stopped.
+	 */
+	public static final long STOP_TIMEOUT = 5000;
+
+	private static final String RESPONSE_HANDLER = "stats-response";
+
+	private static final Map<String, StatsCollector> collectors = new ConcurrentHashMap<>();
+
+	private final String machineKey;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final AtomicInteger activeRequests = new AtomicInteger();
+
+	private long roundInterval = DEFAULT_ROUND_INTERVAL;
+
+	private int parallelism = DEFAULT_PARALLELISM;
+
+	/**
+	 * Base uri of the docker api of the machine (http(s)://host:port/vX.YY).
+	 */
+	private String apiUri = null;
+
+	/**
+	 * True if the api uri and the limits are given, not read from the machine.
+	 */
+	private boolean fixedApi = false;
+
+	/**
+	 * Path of the docker api (/vX.YY) and host header of the requests.
+	 */
+	private String apiPath = null;
+
+	private String hostHeader = null;
+
+	private EventLoopGroup group = null;
+
+	private volatile FixedChannelPool pool = null;
+
+	private ScheduledFuture<?> rounds = null;
+
+	private StatsCollector(final String machineKey) {
+		this.machineKey = machineKey;
+	}
+
+	/**
+	 * 
+	 * @param compute
+	 *            the machine, null for the local docker daemon.
+	 * @return the collector of this machine.
+	 * @throws DockerException
+	 */
+	public static StatsCollector getInstance(final Compute compute) throws DockerException {
+		String key = DockerClientRegistry.getMachineKey(compute);
+		StatsCollector collector = collectors.get(key);
+		if (collector == null) {
+			StatsCollector newCollector = new StatsCollector(key);
+			collector = collectors.putIfAbsent(key, newCollector);
+			if (collector == null) {
+				collector = newCollector;
+			}
+		}
+		return collector;
+	}
+
+	/**
+	 * Collector of a docker api at a known address, without tls. It is not
+	 * shared, the caller stops it by unregistering its containers.
+	 * 
+	 * @param apiUri
+	 *            base uri of the docker api (http://host:port/vX.YY).
+	 * @param roundInterval
+	 *            in milliseconds.
+	 * @param parallelism
+	 *            maximum number of requests and connections at the same time.
+	 * @return a new collector.
+	 */
+	public static StatsCollector forApi(final String apiUri, final long roundInterval, final int parallelism) {
+		StatsCollector collector = new StatsCollector(apiUri);
+		collector.apiUri = apiUri;
+		collector.roundInterval = Math.max(1, roundInterval);
+		collector.parallelism = Math.max(1, parallelism);
+		collector.fixedApi = true;
+		return collector;
+	}
+
+	/**
+	 * Stop the collector of this machine, its containers are no more monitored.
+	 * 
+	 * @param machineName
+	 */
+	public static void invalidate(final String machineName) {
+		StatsCollector collector = collectors.remove(machineName);
+		if (collector != null) {
+			collector.stop();
+		}
+	}
+
+	public static void invalidateAll() {
+		for (String key : new ArrayList<>(collectors.keySet())) {
+			invalidate(key);
+		}
+	}
+
+	/**
+	 * Collect the stats of a container, the collector is started with its first
+	 * container.
+	 * 
+	 * @param compute
+	 *            the machine of the container.
+	 * @param container
+	 *            a started container.
+	 * @param callback
+	 *            receive the samples of the container.
+	 * @throws DockerException
+	 */
+	public synchronized void register(final Compute compute, final Container container, final StatsCallBack callback)
+			throws DockerException {
+		if (container.getContainerid() == null) {
+			throw new DockerException("Container " + container.getName() + " has no id, it cannot be monitored");
+		}
+		entries.put(container.getContainerid(), new Entry(container, callback));
+		if (group == null) {
+			start(compute);
+		}
+	}
+
+	/**
+	 * Stop to collect the stats of a container, the collector is stopped with its
+	 * last container.
+	 * 
+	 * @param containerId
+	 */
+	public void unregister(final String containerId) {
+		EventLoopGroup stopped;
+		synchronized (this) {
+			if (containerId == null || entries.remove(containerId) == null || !entries.isEmpty()) {
+				return;
+			}
+			stopped = shutdown();
+		}
+		awaitTermination(stopped);
+	}
+
+	/**
+	 * 
+	 * @return the number of monitored containers.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * 
+	 * @return the number of stats requests in progress.
+	 */
+	public int getActiveRequests() {
+		return activeRequests.get();
+	}
+
+	public String getMachineKey() {
+		return machineKey;
+	}
+
+	private void start(final Compute compute) throws DockerException {
+		if (fixedApi) {
+			start((SSLContext) null);
+			return;
+		}
+		DockerConnectorConfig config;
+		try {
+			config = DockerConnectorConfig.getCurrent();
+		} catch (IOException ex) {
+			throw new DockerException(ex);
+		}
+		roundInterval = Math.max(100, config.getIntProperty(DockerConfigurationHelper.KEY_STATS_ROUND_INTERVAL,
+				(int) DEFAULT_ROUND_INTERVAL));
+		parallelism = Math.max(1,
+				config.getIntProperty(DockerConfigurationHelper.KEY_STATS_MACHINE_PARALLELISM, DEFAULT_PARALLELISM));
+
+		// Same endpoint and tls settings as the docker clients.
+		URI endpoint;
+		String certPath = null;
+		boolean tls = false;
+		if (compute == null) {
+			endpoint = URI.create(DockerConfigurationHelper.DEFAULT_LOCALHOST_MACHINE_ADDRESS + ":"
+					+ DockerConfigurationHelper.DEFAULT_DOCKER_API_PORT);
+		} else {
+			endpoint = DockerMachineHelper.getEndpoint(compute);
+			certPath = config.getProperty(DockerConfigurationHelper.KEY_DOCKER_CERT_PATH);
+			if (certPath == null) {
+				certPath = DockerMachineHelper.getCertificatePath(compute);
+			}
+			tls = "1".equals(config.getProperty(DockerConfigurationHelper.KEY_DOCKER_TLS_VERIFY)) && certPath != null
+					&& new File(certPath, "cert.pem").canRead();
+		}
+		apiUri = (tls ? "https://" : "http://") + endpoint.getHost() + ":" + endpoint.getPort() + "/v"
+				+ config.getProperty(DockerConfigurationHelper.KEY_DOCKER_API_VERSION);
+		start(tls ? new LocalDirectorySSLConfig(certPath).getSSLContext() : null);
+	}
+
+	/**
+	 * Open the connection pool and schedule the rounds.
+	 * 
+	 * @param sslContext
+	 *            the tls context of the machine, null without tls.
+	 */
+	private void start(final SSLContext sslContext) {
+		final URI uri = URI.create(apiUri);
+		final String host = uri.getHost();
+		final int port = uri.getPort();
+		apiPath = uri.getRawPath();
+		hostHeader = host + ":" + port;
+
+		final AtomicInteger count = new AtomicInteger();
+		group = new NioEventLoopGroup(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "docker-stats-" + machineKey + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		Bootstrap bootstrap = new Bootstrap().group(group).channel(NioSocketChannel.class)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT).option(ChannelOption.TCP_NODELAY, true)
+				.remoteAddress(host, port);
+		pool = new FixedChannelPool(bootstrap, new AbstractChannelPoolHandler() {
+			@Override
+			public void channelCreated(Channel channel) {
+				if (sslContext != null) {
+					SSLEngine engine = sslContext.createSSLEngine(host, port);
+					engine.setUseClientMode(true);
+					channel.pipeline().addLast(new SslHandler(engine));
+				}
+				channel.pipeline().addLast(new HttpClientCodec(), new HttpObjectAggregator(MAX_RESPONSE_SIZE));
+			}
+		}, parallelism);
+
+		rounds = group.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				round();
+			}
+		}, 0, roundInterval, TimeUnit.MILLISECONDS);
+		// Opt-in endpoint for the scrapers.
+		MetricsExporter.getInstance().startIfEnabled();
+		LOGGER.info("Stats collector started for machine " + machineKey + " : " + apiUri + ", round interval "
+				+ roundInterval + " ms, parallelism " + parallelism);
+	}
+
+	private void stop() {
+		EventLoopGroup stopped;
+		synchronized (this) {
+			stopped = shutdown();
+		}
+		awaitTermination(stopped);
+	}
+
+	/**
+	 * Close the connections, the pending requests are failed.
+	 * 
+	 * @return the event loop of the collector, null if it is already stopped.
+	 */
+	private synchronized EventLoopGroup shutdown() {
+		if (group == null) {
+			return null;
+		}
+		EventLoopGroup stopped = group;
+		rounds.cancel(false);
+		pool.close();
+		stopped.shutdownGracefully(0, STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+		group = null;
+		pool = null;
+		rounds = null;
+		LOGGER.info("Stats collector stopped for machine " + machineKey);
+		return stopped;
+	}
+
+	/**
+	 * Wait for the pending requests to be failed, out of the lock of the
+	 * collector as they unregister their containers. Does not wait when called by
+	 * the event loop itself.
+	 * 
+	 * @param stopped
+	 */
+	private static void awaitTermination(final EventLoopGroup stopped) {
+		if (stopped != null && !stopped.next().inEventLoop()) {
+			stopped.terminationFuture().awaitUninterruptibly(STOP_TIMEOUT);
+		}
+	}
+
+	/**
+	 * Schedule one request by container, spread over a part of the round.
+	 */
+	private void round() {
+		EventLoopGroup currentGroup;
+		synchronized (this) {
+			currentGroup = group;
+		}
+		if (currentGroup == null) {
+			return;
+		}
+		long jitter = Math.max(1, (long) (roundInterval * JITTER_RATIO));
+		for (final Entry entry : entries.values()) {
+			if (!entry.inFlight.compareAndSet(false, true)) {
+				// Previous request still running.
+				continue;
+			}
+			try {
+				currentGroup.schedule(new Runnable() {
+					@Override
+					public void run() {
+						collect(entry);
+					}
+				}, ThreadLocalRandom.current().nextLong(jitter), TimeUnit.MILLISECONDS);
+			} catch (RuntimeException ex) {
+				// Stopped.
+				entry.inFlight.set(false);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Send the stats request of a container on a pooled connection, the response
+	 * is handled by {@link Request}.
+	 * 
+	 * @param entry
+	 */
+	private void collect(final Entry entry) {
+		final FixedChannelPool currentPool = pool;
+		if (currentPool == null) {
+			entry.inFlight.set(false);
+			return;
+		}
+		if (entry.container.getOcciComputeState() != ComputeStatus.ACTIVE) {
+			entry.inFlight.set(false);
+			unregister(entry.containerId);
+			return;
+		}
+		if (!entry.callback.acceptSample(System.nanoTime())) {
+			entry.inFlight.set(false);
+			return;
+		}
+		activeRequests.incrementAndGet();
+		currentPool.acquire().addListener(new GenericFutureListener<Future<Channel>>() {
+			@Override
+			public void operationComplete(Future<Channel> future) {
+				if (!future.isSuccess()) {
+					complete(entry, currentPool, null, future.cause());
+					return;
+				}
+				new Request(entry, currentPool, future.getNow()).send();
+			}
+		});
+	}
+
+	/**
+	 * End of the request of a container, successful or not.
+	 * 
+	 * @param entry
+	 * @param currentPool
+	 *            the pool of the request.
+	 * @param response
+	 *            the response, null on error.
+	 * @param error
+	 *            the error, null if a response is received.
+	 */
+	private void complete(final Entry entry, final FixedChannelPool currentPool, final FullHttpResponse response,
+			final Throwable error) {
+		activeRequests.decrementAndGet();
+		try {
+			if (error != null) {
+				if (pool == currentPool) {
+					LOGGER.warn("Cannot get stats of container " + entry.containerId + " : " + error.getMessage());
+				} // else the collector has been stopped.
+				return;
+			}
+			int status = response.status().code();
+			if (status != 200) {
+				if (status == 404) {
+					LOGGER.info("Container " + entry.containerId + " not found, stop its monitoring");
+					unregister(entry.containerId);
+				} else {
+					LOGGER.warn("Cannot get stats of container " + entry.containerId + " : HTTP " + status);
+				}
+				return;
+			}
+			try (InputStream in = new ByteBufInputStream(response.content())) {
+				StatsDecoder.decode(in, entry.sample);
+			}
+			entry.sample.setTime(System.currentTimeMillis());
+			entry.callback.process(entry.sample);
+		} catch (IOException | RuntimeException ex) {
+			LOGGER.warn("Cannot get stats of container " + entry.containerId + " : " + ex.getMessage());
+		} finally {
+			entry.inFlight.set(false);
+		}
+	}
+
+	/**
+	 * A stats request on a pooled connection : the connection is given back to
+	 * the pool with the response, or closed on error and timeout.
+	 */
+	private class Request extends SimpleChannelInboundHandler<FullHttpResponse> {
+		private final Entry entry;
+		private final FixedChannelPool currentPool;
+		private final Channel channel;
+		private ScheduledFuture<?> timeout = null;
+		private boolean done = false;
+
+		private Request(final Entry entry, final FixedChannelPool currentPool, final Channel channel) {
+			this.entry = entry;
+			this.currentPool = currentPool;
+			this.channel = channel;
+		}
+
+		/**
+		 * Called in the event loop of the channel.
+		 */
+		private void send() {
+			if (!channel.isActive()) {
+				finish(null, new IOException("Connection closed"));
+				return;
+			}
+			channel.pipeline().addLast(RESPONSE_HANDLER, this);
+			timeout = channel.eventLoop().schedule(new Runnable() {
+				@Override
+				public void run() {
+					finish(null, new IOException("Read timed out"));
+				}
+			}, READ_TIMEOUT, TimeUnit.MILLISECONDS);
+			DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+					apiPath + "/containers/" + entry.containerId + "/stats?stream=false");
+			request.headers().set(HttpHeaderNames.HOST, hostHeader);
+			request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+			channel.writeAndFlush(request).addListener(new GenericFutureListener<Future<Void>>() {
+				@Override
+				public void operationComplete(Future<Void> future) {
+					if (!future.isSuccess()) {
+						finish(null, future.cause());
+					}
+				}
+			});
+		}
+
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+			finish(response, null);
+		}
+
+		@Override
+		public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+			finish(null, new IOException("Connection closed by the daemon"));
+			super.channelInactive(ctx);
+		}
+
+		@Override
+		public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+			finish(null, cause);
+		}
+
+		/**
+		 * Give back or close the connection, then process the response once.
+		 */
+		private void finish(final FullHttpResponse response, final Throwable error) {
+			if (done) {
+				return;
+			}
+			done = true;
+			if (timeout != null) {
+				timeout.cancel(false);
+			}
+			if (channel.pipeline().get(RESPONSE_HANDLER) == this) {
+				channel.pipeline().remove(this);
+			}
+			if (error != null || !HttpUtil.isKeepAlive(response)) {
+				channel.close();
+			}
+			try {
+				currentPool.release(channel);
+			} catch (RuntimeException ex) {
+				// Pool closed.
+			}
+			complete(entry, currentPool, response, error);
+		}
+	}
+
+	/**
+	 * A monitored container.
+	 */
+	private static class Entry {
+		private final String containerId;
+		private final Container container;
+		private final StatsCallBack callback;
+		private final StatsSample sample = new StatsSample();
+		private final AtomicBoolean inFlight = new AtomicBoolean(false);
+
+		private Entry(final Container container, final StatsCallBack callback) {
+			this.containerId = container.getContainerid();
+			this.container = container;
+			this.callback = callback;
+		}
+	}
+
+}
@@ -0,0 +1,522 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.observer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.dockerjava.api.model.Statistics;
+
+/**
+ * Decode the payload of the docker stats api (/containers/{id}/stats) into a
+ * reusable {@link StatsSample}. The json is read with the Jackson streaming
+ * api, only the needed fields are read and no intermediate object is built.
+ * 
+ * @author Christophe Gourdin
+ *
+ */
+public class StatsDecoder {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private StatsDecoder() {
+	}
+
+	/**
+	 * 
+	 * @param in
+	 *            one stats json object.
+	 * @param sample
+	 *            the sample to fill, reset first.
+	 * @throws IOException
+	 */
+	public static void decode(final InputStream in, final StatsSample sample) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+			decode(parser, sample);
+		}
+	}
+
+	/**
+	 * 
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @param sample
+	 *            the sample to fill, reset first.
+	 * @throws IOException
+	 */
+	public static void decode(final byte[] data, final int offset, final int length, final StatsSample sample)
+			throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(data, offset, length)) {
+			decode(parser, sample);
+		}
+	}
+
+	/**
+	 * Decode the next stats object of the parser, the parser may read a stream of
+	 * stats objects.
+	 * 
+	 * @param parser
+	 * @param sample
+	 *            the sample to fill, reset first.
+	 * @throws IOException
+	 */
+	public static void decode(final JsonParser parser, final StatsSample sample) throws IOException {
+		sample.reset();
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			throw new IOException("Stats payload is not a json object");
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			switch (name) {
+			case "read":
+				if (token == JsonToken.VALUE_STRING) {
+					sample.time = parseTime(parser.getTextCharacters(), parser.getTextOffset(),
+							parser.getTextLength());
+				}
+				break;
+			case "cpu_stats":
+				readCpu(parser, token, sample, false);
+				break;
+			case "precpu_stats":
+				readCpu(parser, token, sample, true);
+				break;
+			case "memory_stats":
+				readMemory(parser, token, sample);
+				break;
+			case "networks":
+				readNetworks(parser, token, sample);
+				break;
+			case "blkio_stats":
+				readBlkio(parser, token, sample);
+				break;
+			default:
+				parser.skipChildren();
+				break;
+			}
+		}
+	}
+
+	private static void readCpu(final JsonParser parser, final JsonToken token, final StatsSample sample,
+			final boolean previous) throws IOException {
+		if (token != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return;
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (name) {
+			case "cpu_usage":
+				readCpuUsage(parser, valueToken, sample, previous);
+				break;
+			case "system_cpu_usage":
+				if (previous) {
+					sample.preCpuSystem = readLong(parser, valueToken);
+				} else {
+					sample.cpuSystem = readLong(parser, valueToken);
+				}
+				break;
+			case "online_cpus":
+				if (!previous) {
+					sample.onlineCpus = (int) readLong(parser, valueToken);
+				}
+				break;
+			default:
+				parser.skipChildren();
+				break;
+			}
+		}
+	}
+
+	private static void readCpuUsage(final JsonParser parser, final JsonToken token, final StatsSample sample,
+			final boolean previous) throws IOException {
+		if (token != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return;
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			if ("total_usage".equals(name)) {
+				if (previous) {
+					sample.preCpuTotal = readLong(parser, valueToken);
+				} else {
+					sample.cpuTotal = readLong(parser, valueToken);
+				}
+			} else if ("percpu_usage".equals(name) && valueToken == JsonToken.START_ARRAY && !previous) {
+				int count = 0;
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					count++;
+					parser.skipChildren();
+				}
+				sample.perCpuCount = count;
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private static void readMemory(final JsonParser parser, final JsonToken token, final StatsSample sample)
+			throws IOException {
+		if (token != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return;
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (name) {
+			case "usage":
+				sample.memoryUsage = readLong(parser, valueToken);
+				break;
+			case "limit":
+				sample.memoryLimit = readLong(parser, valueToken);
+				break;
+			case "stats":
+				if (valueToken != JsonToken.START_OBJECT) {
+					parser.skipChildren();
+					break;
+				}
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String statName = parser.getCurrentName();
+					JsonToken statToken = parser.nextToken();
+					if ("cache".equals(statName)) {
+						sample.memoryCache = readLong(parser, statToken);
+					} else {
+						parser.skipChildren();
+					}
+				}
+				break;
+			default:
+				parser.skipChildren();
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Sum the counters of all the interfaces.
+	 */
+	private static void readNetworks(final JsonParser parser, final JsonToken token, final StatsSample sample)
+			throws IOException {
+		if (token != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return;
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken valueToken = parser.nextToken();
+				if ("rx_bytes".equals(name)) {
+					sample.networkRx += readLong(parser, valueToken);
+				} else if ("tx_bytes".equals(name)) {
+					sample.networkTx += readLong(parser, valueToken);
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sum the bytes and the operations read and written on all the block
+	 * devices.
+	 */
+	private static void readBlkio(final JsonParser parser, final JsonToken token, final StatsSample sample)
+			throws IOException {
+		if (token != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return;
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			boolean ops;
+			if ("io_service_bytes_recursive".equals(name)) {
+				ops = false;
+			} else if ("io_serviced_recursive".equals(name)) {
+				ops = true;
+			} else {
+				parser.skipChildren();
+				continue;
+			}
+			if (valueToken != JsonToken.START_ARRAY) {
+				parser.skipChildren();
+				continue;
+			}
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				int op = 0; // 1 read, 2 write.
+				long value = 0;
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String entryName = parser.getCurrentName();
+					JsonToken entryToken = parser.nextToken();
+					if ("op".equals(entryName) && entryToken == JsonToken.VALUE_STRING) {
+						op = readOperation(parser.getTextCharacters(), parser.getTextOffset(),
+								parser.getTextLength());
+					} else if ("value".equals(entryName)) {
+						value = readLong(parser, entryToken);
+					} else {
+						parser.skipChildren();
+					}
+				}
+				if (op == 1) {
+					if (ops) {
+						sample.blkioReadOps += value;
+					} else {
+						sample.blkioRead += value;
+					}
+				} else if (op == 2) {
+					if (ops) {
+						sample.blkioWriteOps += value;
+					} else {
+						sample.blkioWrite += value;
+					}
+				}
+			}
+		}
+	}
+
+	private static long readLong(final JsonParser parser, final JsonToken token) throws IOException {
+		if (token == JsonToken.VALUE_NUMBER_INT) {
+			if (parser.getTextLength() >= 19) {
+				// May be an unsigned 64 bits value (no limit), avoid the BigInteger.
+				return parseLong(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+			}
+			return parser.getLongValue();
+		}
+		if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+			return (long) parser.getDoubleValue();
+		}
+		parser.skipChildren();
+		return 0;
+	}
+
+	/**
+	 * 
+	 * @return the value, Long.MAX_VALUE if it overflows.
+	 */
+	private static long parseLong(final char[] text, final int offset, final int length) {
+		long value = 0;
+		int i = offset;
+		boolean negative = length > 0 && text[i] == '-';
+		if (negative) {
+			i++;
+		}
+		for (; i < offset + length; i++) {
+			int digit = text[i] - '0';
+			if (value > (Long.MAX_VALUE - digit) / 10) {
+				return negative ? Long.MIN_VALUE : Long.MAX_VALUE;
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * 
+	 * @return 1 for Read, 2 for Write, 0 for other operations.
+	 */
+	private static int readOperation(final char[] text, final int offset, final int length) {
+		if (matches(text, offset, length, "Read")) {
+			return 1;
+		}
+		if (matches(text, offset, length, "Write")) {
+			return 2;
+		}
+		return 0;
+	}
+
+	private static boolean matches(final char[] text, final int offset, final int length, final String value) {
+		if (length != value.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (Character.toLowerCase(text[offset + i]) != Character.toLowerCase(value.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parse a RFC 3339 time (2017-10-05T14:30:12.123456789Z) without building a
+	 * String.
+	 * 
+	 * @param text
+	 * @param offset
+	 * @param length
+	 * @return milliseconds since epoch, 0 if the time is invalid or before epoch.
+	 */
+	static long parseTime(final char[] text, final int offset, final int length) {
+		if (length < 20 || text[offset + 4] != '-' || text[offset + 10] != 'T') {
+			return 0;
+		}
+		int year = digits(text, offset, 4);
+		int month = digits(text, offset + 5, 2);
+		int day = digits(text, offset + 8, 2);
+		int hour = digits(text, offset + 11, 2);
+		int minute = digits(text, offset + 14, 2);
+		int second = digits(text, offset + 17, 2);
+		if (year < 1970 || month < 1 || day < 1 || hour < 0 || minute < 0 || second < 0) {
+			return 0;
+		}
+		int i = offset + 19;
+		int end = offset + length;
+		int millis = 0;
+		if (i < end && text[i] == '.') {
+			i++;
+			int scale = 100;
+			while (i < end && text[i] >= '0' && text[i] <= '9') {
+				millis += (text[i] - '0') * scale;
+				scale /= 10;
+				i++;
+			}
+		}
+		int zoneOffset = 0;
+		if (i < end && (text[i] == '+' || text[i] == '-') && end - i >= 6) {
+			int zoneHour = digits(text, i + 1, 2);
+			int zoneMinute = digits(text, i + 4, 2);
+			if (zoneHour >= 0 && zoneMinute >= 0) {
+				zoneOffset = (zoneHour * 60 + zoneMinute) * 60 * (text[i] == '+' ? 1 : -1);
+			}
+		}
+		long seconds = daysFromCivil(year, month, day) * 86400L + hour * 3600L + minute * 60L + second
+				- zoneOffset;
+		return seconds * 1000L + millis;
+	}
+
+	private static int digits(final char[] text, final int offset, final int count) {
+		int value = 0;
+		for (int i = 0; i < count; i++) {
+			char c = text[offset + i];
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * Days since 1970-01-01 of a date of the proleptic Gregorian calendar.
+	 */
+	private static long daysFromCivil(int year, final int month, final int day) {
+		year -= month <= 2 ? 1 : 0;
+		long era = (year >= 0 ? year : year - 399) / 400;
+		long yearOfEra = year - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Fill a sample from the stats already parsed by docker-java, for the
+	 * streamed stats.
+	 * 
+	 * @param stats
+	 * @param sample
+	 *            the sample to fill, reset first.
+	 */
+	@SuppressWarnings("unchecked")
+	public static void decode(final Statistics stats, final StatsSample sample) {
+		sample.reset();
+		Map<String, Object> cpu = stats.getCpuStats();
+		if (cpu != null) {
+			sample.cpuSystem = toLong(cpu.get("system_cpu_usage"));
+			sample.onlineCpus = (int) toLong(cpu.get("online_cpus"));
+			Object usage = cpu.get("cpu_usage");
+			if (usage instanceof Map) {
+				Map<String, Object> cpuUsage = (Map<String, Object>) usage;
+				sample.cpuTotal = toLong(cpuUsage.get("total_usage"));
+				Object perCpu = cpuUsage.get("percpu_usage");
+				sample.perCpuCount = perCpu instanceof List ? ((List<Object>) perCpu).size() : 0;
+			}
+		}
+		Map<String, Object> memory = stats.getMemoryStats();
+		if (memory != null) {
+			sample.memoryUsage = toLong(memory.get("usage"));
+			sample.memoryLimit = toLong(memory.get("limit"));
+			Object memoryStats = memory.get("stats");
+			if (memoryStats instanceof Map) {
+				sample.memoryCache = toLong(((Map<String, Object>) memoryStats).get("cache"));
+			}
+		}
+		Map<String, Object> networks = stats.getNetworks();
+		if (networks != null) {
+			for (Object network : networks.values()) {
+				if (network instanceof Map) {
+					sample.networkRx += toLong(((Map<String, Object>) network).get("rx_bytes"));
+					sample.networkTx += toLong(((Map<String, Object>) network).get("tx_bytes"));
+				}
+			}
+		}
+		Map<String, Object> blkio = stats.getBlkioStats();
+		if (blkio != null) {
+			long[] bytes = sumBlkio(blkio.get("io_service_bytes_recursive"));
+			sample.blkioRead = bytes[0];
+			sample.blkioWrite = bytes[1];
+			long[] ops = sumBlkio(blkio.get("io_serviced_recursive"));
+			sample.blkioReadOps = ops[0];
+			sample.blkioWriteOps = ops[1];
+		}
+	}
+
+	/**
+	 * 
+	 * @param entries
+	 *            a blkio_stats list of { major, minor, op, value }.
+	 * @return the read and write sums.
+	 */
+	@SuppressWarnings("unchecked")
+	private static long[] sumBlkio(final Object entries) {
+		long[] sums = new long[2];
+		if (entries instanceof List) {
+			for (Object entry : (List<Object>) entries) {
+				if (entry instanceof Map) {
+					Object op = ((Map<String, Object>) entry).get("op");
+					long value = toLong(((Map<String, Object>) entry).get("value"));
+					if ("Read".equalsIgnoreCase(String.valueOf(op))) {
+						sums[0] += value;
+					} else if ("Write".equalsIgnoreCase(String.valueOf(op))) {
+						sums[1] += value;
+					}
+				}
+			}
+		}
+		return sums;
+	}
+
+	private static long toLong(final Object value) {
+		if (value instanceof BigInteger) {
+			// Unsigned 64 bits value, no limit.
+			return ((BigInteger) value).bitLength() < 64 ? ((BigInteger) value).longValue() : Long.MAX_VALUE;
+		}
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		return 0;
+	}
+
+}
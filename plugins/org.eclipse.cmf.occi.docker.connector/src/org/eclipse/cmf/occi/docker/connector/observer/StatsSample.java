@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.connector.observer;
+
+/**
+ * One sample of the docker stats of a container, with primitive values only.
+ * A sample is reused for each new payload, see {@link StatsDecoder}.
+ * 
+ * @author Christophe Gourdin
+ *
+ */
+public class StatsSample {
+
+	long time;
+	long cpuTotal;
+	long cpuSystem;
+	int onlineCpus;
+	int perCpuCount;
+	long preCpuTotal;
+	long preCpuSystem;
+	long memoryUsage;
+	long memoryLimit;
+	long memoryCache;
+	long networkRx;
+	long networkTx;
+	long blkioRead;
+	long blkioWrite;
+	long blkioReadOps;
+	long blkioWriteOps;
+
+	/**
+	 * Reset all values to 0 before decoding a new payload.
+	 */
+	public void reset() {
+		time = 0;
+		cpuTotal = 0;
+		cpuSystem = 0;
+		onlineCpus = 0;
+		perCpuCount = 0;
+		preCpuTotal = 0;
+		preCpuSystem = 0;
+		memoryUsage = 0;
+		memoryLimit = 0;
+		memoryCache = 0;
+		networkRx = 0;
+		networkTx = 0;
+		blkioRead = 0;
+		blkioWrite = 0;
+		blkioReadOps = 0;
+		blkioWriteOps = 0;
+	}
+
+	/**
+	 * 
+	 * @return read time of the sample in milliseconds since epoch, 0 if unknown.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	public void setTime(long time) {
+		this.time = time;
+	}
+
+	/**
+	 * 
+	 * @return container cpu time in nanoseconds.
+	 */
+	public long getCpuTotal() {
+		return cpuTotal;
+	}
+
+	/**
+	 * 
+	 * @return host cpu time in nanoseconds.
+	 */
+	public long getCpuSystem() {
+		return cpuSystem;
+	}
+
+	/**
+	 * 
+	 * @return number of cores available to the container (online_cpus, or size
+	 *         of percpu_usage with older daemons).
+	 */
+	public int getCores() {
+		return onlineCpus > 0 ? onlineCpus : perCpuCount;
+	}
+
+	/**
+	 * 
+	 * @return container cpu time of the previous daemon sample (precpu_stats).
+	 */
+	public long getPreCpuTotal() {
+		return preCpuTotal;
+	}
+
+	public long getPreCpuSystem() {
+		return preCpuSystem;
+	}
+
+	/**
+	 * 
+	 * @return memory used in bytes.
+	 */
+	public long getMemoryUsage() {
+		return memoryUsage;
+	}
+
+	public long getMemoryLimit() {
+		return memoryLimit;
+	}
+
+	public long getMemoryCache() {
+		return memoryCache;
+	}
+
+	/**
+	 * 
+	 * @return bytes received on all interfaces.
+	 */
+	public long getNetworkRx() {
+		return networkRx;
+	}
+
+	/**
+	 * 
+	 * @return bytes sent on all interfaces.
+	 */
+	public long getNetworkTx() {
+		return networkTx;
+	}
+
+	/**
+	 * 
+	 * @return bytes read on all block devices.
+	 */
+	public long getBlkioRead() {
+		return blkioRead;
+	}
+
+	/**
+	 * 
+	 * @return bytes written on all block devices.
+	 */
+	public long getBlkioWrite() {
+		return blkioWrite;
+	}
+
+	/**
+	 * 
+	 * @return read operations on all block devices.
+	 */
+	public long getBlkioReadOps() {
+		return blkioReadOps;
+	}
+
+	/**
+	 * 
+	 * @return write operations on all block devices.
+	 */
+	public long getBlkioWriteOps() {
+		return blkioWriteOps;
+	}
+
+	/**
+	 * Cpu usage between the previous daemon sample and this one, as the docker
+	 * stats command.
+	 * 
+	 * @return cpu usage in percent of one core, 0 if there is no previous
+	 *         sample.
+	 */
+	public double getCpuPercent() {
+		if (preCpuSystem <= 0) {
+			return 0;
+		}
+		return StatsCallBack.calculateCPUPercent(cpuTotal - preCpuTotal, cpuSystem - preCpuSystem, getCores());
+	}
+
+	@Override
+	public String toString() {
+		return "StatsSample [time=" + time + ", cpuTotal=" + cpuTotal + ", cpuSystem=" + cpuSystem + ", cores="
+				+ getCores() + ", memoryUsage=" + memoryUsage + ", memoryLimit=" + memoryLimit + ", networkRx="
+				+ networkRx + ", networkTx=" + networkTx + ", blkioRead=" + blkioRead + ", blkioWrite=" + blkioWrite
+				+ ", blkioReadOps=" + blkioReadOps + ", blkioWriteOps=" + blkioWriteOps + "]";
+	}
+
+}
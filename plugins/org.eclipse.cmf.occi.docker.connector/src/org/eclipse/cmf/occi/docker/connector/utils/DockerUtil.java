@@ -28,6 +28,8 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
 import org.eclipse.cmf.occi.docker.connector.helpers.DockerMachineHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.HostStateService;
+import org.eclipse.cmf.occi.docker.connector.helpers.MachineStore;
 import org.eclipse.xtext.xbase.lib.CollectionLiterals;
 import org.eclipse.xtext.xbase.lib.Conversions;
 import org.eclipse.xtext.xbase.lib.Exceptions;
@@ -83,9 +85,16 @@ public class DockerUtil {
 	}
 
 	/**
-	 * Parse `docker-machine ls` host from the running environment.
+	 * Get the hosts states, shared by all callers during a refresh cycle.
 	 */
 	public static Map<String, String> getHosts() throws DockerException {
+		return HostStateService.getInstance().getHosts();
+	}
+
+	/**
+	 * Parse `docker-machine ls` host from the running environment.
+	 */
+	public static Map<String, String> getHostsFromCommand() throws DockerException {
 		Runtime runtime = Runtime.getRuntime();
 		final String data = DockerMachineHelper.listHostCmd(runtime);
 		Map<String, String> hosts = new HashMap<String, String>();
@@ -168,6 +177,11 @@ public class DockerUtil {
 	 * Parse `docker-machine ls` command as table.
 	 */
 	public static String getEnv(final String machineName) throws DockerException {
+		// Read the machine store before forking docker-machine.
+		final MachineStore.MachineInfo info = MachineStore.getDefault().getMachine(machineName);
+		if (info != null && info.getCertPath() != null && new File(info.getCertPath()).canRead()) {
+			return info.getCertPath();
+		}
 		Runtime _runtime = Runtime.getRuntime();
 		final String data = DockerMachineHelper.getEnvCmd(_runtime, machineName);
 		List<String[]> hosts = new ArrayList<String[]>();
@@ -12,47 +12,77 @@
  */
 package org.eclipse.cmf.occi.docker.connector.utils;
 
+import java.io.Closeable;
+
 import org.eclipse.cmf.occi.core.Configuration;
-import org.eclipse.cmf.occi.core.Link;
 import org.eclipse.cmf.occi.core.Resource;
-import org.eclipse.cmf.occi.docker.Container;
-import org.eclipse.cmf.occi.docker.Contains;
 import org.eclipse.cmf.occi.docker.connector.ContainerConnector;
-import org.eclipse.cmf.occi.docker.connector.DockerClientManager;
 import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.eclipse.cmf.occi.docker.connector.helpers.MachineEventStream;
 import org.eclipse.cmf.occi.docker.connector.observer.ContainerObserver;
+import org.eclipse.cmf.occi.docker.connector.observer.ModelUpdateScheduler;
 import org.eclipse.cmf.occi.infrastructure.Compute;
 import org.eclipse.cmf.occi.infrastructure.ComputeStatus;
-import org.eclipse.emf.common.command.Command;
-import org.eclipse.emf.common.util.EList;
-import org.eclipse.emf.transaction.RecordingCommand;
-import org.eclipse.emf.transaction.RollbackException;
-import org.eclipse.emf.transaction.TransactionalCommandStack;
-import org.eclipse.emf.transaction.TransactionalEditingDomain;
-import org.eclipse.emf.transaction.util.TransactionUtil;
+import org.eclipse.cmf.occi.infrastructure.InfrastructurePackage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.dockerjava.api.model.Event;
-import com.github.dockerjava.core.command.EventsResultCallback;
 
 /**
- * Notifies new events to the container model connector.
+ * Notifies new events to the container model connector. The events are
+ * received by the events stream of the machine, which gives to this callback
+ * only the events of its container.
  * 
  * @author Christophe Gourdin
  *
  */
-public class EventCallBack extends EventsResultCallback {
+public class EventCallBack implements Closeable {
 	private static Logger LOGGER = LoggerFactory.getLogger(EventCallBack.class);
 
-	protected DockerClientManager dockerClient = null;
-
 	private ContainerConnector container;
 
+	/**
+	 * The events stream where the container is registered, null if not
+	 * subscribed.
+	 */
+	private MachineEventStream eventStream = null;
+
 	public EventCallBack(ContainerConnector container) {
 		this.container = container;
 	}
 
+	/**
+	 * Register the container in the events stream of its machine.
+	 * 
+	 * @param compute
+	 *            the machine of the container.
+	 * @throws DockerException
+	 */
+	public synchronized void subscribe(final Compute compute) throws DockerException {
+		MachineEventStream stream = MachineEventStream.getInstance(compute);
+		if (eventStream != null && eventStream != stream) {
+			eventStream.unregister(container);
+		}
+		eventStream = stream;
+		eventStream.register(container);
+	}
+
+	/**
+	 * Unregister the container from the events stream of its machine.
+	 */
+	@Override
+	public synchronized void close() {
+		if (eventStream != null) {
+			eventStream.unregister(container);
+			eventStream = null;
+		}
+	}
+
+	public ContainerConnector getContainer() {
+		return container;
+	}
+
 	/**
 	 * 
 	 * @param resource
@@ -64,81 +94,87 @@ public class EventCallBack extends EventsResultCallback {
 			System.out.println("Cant update container status, no state defined !");
 			return;
 		}
-		TransactionalEditingDomain domain = TransactionUtil.getEditingDomain(resource.eResource().getResourceSet());
-		Command cmd = new RecordingCommand(domain) {
-
-			@Override
-			protected void doExecute() {
-				// try {
-					// Containers status possible : created, restarting, running, removing, paused,
-					// exited, or dead
-					// these modifications require a write transaction in this editing domain
-					if (state.equalsIgnoreCase("stop")) {
-						LOGGER.warn("container stopped");
-						((Compute) resource).setOcciComputeState(ComputeStatus.INACTIVE);
-					}
-					if (state.equalsIgnoreCase("start")) {
-						LOGGER.warn("container started");
-						((Compute) resource).setOcciComputeState(ComputeStatus.ACTIVE);
-					}
-					if (state.equalsIgnoreCase("create")) {
-						LOGGER.warn("container created");
-						
-						// final ModelHandler instanceMH = new ModelHandler();
-						// Compute compute = ((ContainerConnector) resource).getCompute();
-						// Container c = instanceMH.buildContainer(compute, containerId);
-
-						// Attach listener to the new container created
-						// ContainerObserver observer = new ContainerObserver();
-						// observer.listener(c, compute);
-						// ((ContainerConnector) c).setContainerObserver(observer);
-						// instanceMH.linkContainerToMachine(c, compute);
-						// if (compute.eContainer() instanceof Configuration) {
-						//	((Configuration) compute.eContainer()).getResources().add((ContainerConnector) c);
-						//	System.out.println("Load new container model");
-						// }
-					}
-					if (state.equalsIgnoreCase("destroy")) {
-						LOGGER.warn("Container destroyed");
-						((Compute) resource).setOcciComputeState(ComputeStatus.INACTIVE);
-						// final ModelHandler instanceMH = new ModelHandler();
-						// Container container = (Container) resource;
-						// Compute compute = ((ContainerConnector) resource).getCompute();
-						// ContainerObserver observer = ((ContainerConnector) container).getObserver();
-						
-						// if (observer != null) {
-						//	observer.removeListener(container);
-						//	((ContainerConnector) container).setContainerObserver(null);
-						// }
-						
-						// instanceMH.removeContainerFromMachine(container, compute);
-						// if (compute.eContainer() instanceof Configuration) {
-						//	((Configuration) compute.eContainer()).getResources()
-						//			.remove((ContainerConnector) container);
-						//	System.out.println("Destroy a container");
-						// }
-					}
-				// } catch (DockerException ex) {
-				//	LOGGER.error("Exception thrown : " + ex.getMessage());
-				//	ex.printStackTrace();
-				// }
-			}
-		};
-		try {
-			((TransactionalCommandStack) domain.getCommandStack()).execute(cmd, null); // default options.
-		} catch (RollbackException rbe) {
-			LOGGER.error(rbe.getStatus().toString());
-			rbe.printStackTrace();
-		} catch (InterruptedException ex) {
-			LOGGER.error(ex.getMessage());
-			ex.printStackTrace();
+		// Containers status possible : created, restarting, running, removing, paused,
+		// exited, or dead
+		// The state is applied by the model writer, without waiting for the next tick.
+		ModelUpdateScheduler scheduler = ModelUpdateScheduler.getInstance();
+		if (state.equalsIgnoreCase("stop")) {
+			LOGGER.warn("container stopped");
+			scheduler.set(resource, InfrastructurePackage.Literals.COMPUTE__OCCI_COMPUTE_STATE, ComputeStatus.INACTIVE);
+		}
+		if (state.equalsIgnoreCase("start")) {
+			LOGGER.warn("container started");
+			scheduler.set(resource, InfrastructurePackage.Literals.COMPUTE__OCCI_COMPUTE_STATE, ComputeStatus.ACTIVE);
+		}
+		if (state.equalsIgnoreCase("create")) {
+			LOGGER.warn("container created");
+			// final ModelHandler instanceMH = new ModelHandler();
+			// Compute compute = ((ContainerConnector) resource).getCompute();
+			// Container c = instanceMH.buildContainer(compute, containerId);
+
+			// Attach listener to the new container created
+			// ContainerObserver observer = new ContainerObserver();
+			// observer.listener(c, compute);
+			// ((ContainerConnector) c).setContainerObserver(observer);
+			// instanceMH.linkContainerToMachine(c, compute);
+			// if (compute.eContainer() instanceof Configuration) {
+			//	((Configuration) compute.eContainer()).getResources().add((ContainerConnector) c);
+			//	System.out.println("Load new container model");
+			// }
+		}
+		if (state.equalsIgnoreCase("destroy")) {
+			LOGGER.warn("Container destroyed");
+			scheduler.set(resource, InfrastructurePackage.Literals.COMPUTE__OCCI_COMPUTE_STATE, ComputeStatus.INACTIVE);
+			// final ModelHandler instanceMH = new ModelHandler();
+			// Container container = (Container) resource;
+			// Compute compute = ((ContainerConnector) resource).getCompute();
+			// ContainerObserver observer = ((ContainerConnector) container).getObserver();
+			
+			// if (observer != null) {
+			//	observer.removeListener(container);
+			//	((ContainerConnector) container).setContainerObserver(null);
+			// }
+			
+			// instanceMH.removeContainerFromMachine(container, compute);
+			// if (compute.eContainer() instanceof Configuration) {
+			//	((Configuration) compute.eContainer()).getResources()
+			//			.remove((ContainerConnector) container);
+			//	System.out.println("Destroy a container");
+			// }
 		}
+		scheduler.flush();
+	}
 
+	/**
+	 * Apply the current state of the container when some of its events may have
+	 * been missed.
+	 *
+	 * @param summary
+	 *            the container as listed by the daemon, null if it doesn't exist
+	 *            anymore.
+	 */
+	public void onReconcile(com.github.dockerjava.api.model.Container summary) {
+		Compute compute = this.container.getCompute();
+		if (compute == null || !compute.getOcciComputeState().equals(ComputeStatus.ACTIVE)) {
+			return;
+		}
+		if (summary == null) {
+			modifyResourceSet(this.container, "destroy", null);
+		} else if (summary.getStatus() != null && summary.getStatus().startsWith("Up")) {
+			modifyResourceSet(this.container, "start", summary.getId());
+		} else {
+			modifyResourceSet(this.container, "stop", summary.getId());
+		}
 	}
 
-	@Override
-	public void onNext(Event item) {
-		System.out.println(
+	/**
+	 * Apply an event of the container to the model.
+	 * 
+	 * @param item
+	 *            an event of the container of this callback.
+	 */
+	public void onEvent(Event item) {
+		LOGGER.debug(
 				"Received event #" + item.getAction() + " from : " + item.getFrom() + " status : " + item.getStatus());
 		if (item.getStatus() == null) {
 			return;
@@ -148,55 +184,17 @@ public class EventCallBack extends EventsResultCallback {
 
 		if (compute != null && compute.getOcciComputeState().equals(ComputeStatus.ACTIVE)) {
 			// Apply modification only when the machine is active
-			EList<Link> links = compute.getLinks();
-			LOGGER.warn("Links size : ", links.size());
-			for (Link link : links) {
-				if (link instanceof Contains) {
-					Contains contains = (Contains) link;
-					// TODO : To refactor... Check if this is necessary to update all containers in
-					// Machine.
-					if (link instanceof Contains && link.getTarget() instanceof Container) {
-						// contains = (Contains) link;
-						// Update all the container status on this compute.
-						Container containerComp = (Container) link.getTarget();
-						// Check between event id and container id of this current container.
-
-						if (containerComp != null && containerComp.getContainerid() != null
-								&& this.container.getContainerid() != null
-								&& containerComp.getContainerid().equals(this.container.getContainerid())) {
-							if (item.getStatus().equalsIgnoreCase("stop")) {
-								modifyResourceSet(containerComp, item.getStatus(), item.getId());
-								System.out.println("Apply stop notification to model.");
-							}
-							if (item.getStatus().equalsIgnoreCase("start")) {
-								modifyResourceSet(containerComp, item.getStatus(), this.container.getContainerid());
-								System.out.println("Apply start notification to model.");
-							}
-							if (item.getStatus().equalsIgnoreCase("destroy")) {
-								modifyResourceSet(containerComp, item.getStatus(), null);
-								System.out.println("Apply destroy notification to model.");
-							}
-
-						} else {
-							try {
-								if (this.dockerClient == null) {
-									this.dockerClient = new DockerClientManager(compute);
-								}
-
-								if (item.getStatus().equalsIgnoreCase("create") && !dockerClient
-										.containerIsInsideMachine(compute, this.container.getContainerid())) {
-									modifyResourceSet(contains.getTarget(), item.getStatus(),
-											this.container.getContainerid());
-									System.out.println("Apply create notification to model");
-								}
-							} catch (DockerException ex) {
-								LOGGER.error("Exception thrown : " + ex.getMessage());
-								ex.printStackTrace();
-							}
-						}
-
-					}
-				}
+			if (item.getStatus().equalsIgnoreCase("stop")) {
+				modifyResourceSet(this.container, item.getStatus(), item.getId());
+				LOGGER.debug("Apply stop notification to model.");
+			}
+			if (item.getStatus().equalsIgnoreCase("start")) {
+				modifyResourceSet(this.container, item.getStatus(), this.container.getContainerid());
+				LOGGER.debug("Apply start notification to model.");
+			}
+			if (item.getStatus().equalsIgnoreCase("destroy")) {
+				modifyResourceSet(this.container, item.getStatus(), null);
+				LOGGER.debug("Apply destroy notification to model.");
 			}
 		}
 
@@ -13,27 +13,32 @@
 package org.eclipse.cmf.occi.docker.connector.utils;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.cmf.occi.docker.connector.exceptions.DependencyCycleException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Dependency graph. An edge goes from a value to the value it depends on, so
+ * the leaf nodes are deployed first. The deployment order is computed with
+ * Kahn's algorithm in O(V+E).
+ */
 public class Graph<T> {
 
 	private static Logger LOGGER = LoggerFactory.getLogger(Graph.class);
 
 	/*
-	 * Organize the deployment order of the Nodes
+	 * These are basically the nodes of the graph, in insertion order
 	 */
-	private List<GraphNode<T>> deploymentOrder = new ArrayList<>();
-
-	/*
-	 * These are basically the nodes of the graph
-	 */
-	private Map<T, GraphNode<T>> nodes = new HashMap<>();
+	private Map<T, GraphNode<T>> nodes = new LinkedHashMap<>();
 
 	/*
 	 * The callback interface used to notify of the fact that a node just got the
@@ -42,9 +47,9 @@ public class Graph<T> {
 	private NodeValueListener<T> listener;
 
 	/*
-	 * It holds a list of the already evaluated nodes
+	 * It holds the already evaluated nodes
 	 */
-	private List<GraphNode<T>> evaluatedNodes = new ArrayList<GraphNode<T>>();
+	private Set<GraphNode<T>> evaluatedNodes = new HashSet<GraphNode<T>>();
 
 	/*
 	 * The main constructor that has one parameter representing the callback
@@ -57,32 +62,39 @@ public class Graph<T> {
 	}
 
 	/*
-	 * Allows adding of new dependicies to the graph. "evalFirstValue" needs to be
-	 * evaluated before "evalAfterValue"
+	 * Allows adding of new dependicies to the graph. "evalFirstValue" depends on
+	 * "evalAfterValue", so "evalAfterValue" is deployed first
 	 * 
-	 * @param evalFirstValue The parameter that needs to be evaluated first
+	 * @param evalFirstValue The value that depends on the other one
 	 * 
-	 * @param evalAfterValue The parameter that needs to be evaluated after
+	 * @param evalAfterValue The value that needs to be deployed first
 	 */
 	public void addDependency(T evalFirstValue, T evalAfterValue) {
-		GraphNode<T> firstNode = null;
-		GraphNode<T> afterNode = null;
-		if (nodes.containsKey(evalFirstValue)) {
-			firstNode = nodes.get(evalFirstValue);
-		} else {
-			firstNode = createNode(evalFirstValue);
-			nodes.put(evalFirstValue, firstNode);
-		}
-		if (nodes.containsKey(evalAfterValue)) {
-			afterNode = nodes.get(evalAfterValue);
-		} else {
-			afterNode = createNode(evalAfterValue);
-			nodes.put(evalAfterValue, afterNode);
-		}
+		GraphNode<T> firstNode = getOrCreateNode(evalFirstValue);
+		GraphNode<T> afterNode = getOrCreateNode(evalAfterValue);
 		firstNode.addGoingOutNode(afterNode);
 		afterNode.addComingInNode(firstNode);
 	}
 
+	/**
+	 * Add a value without dependency.
+	 * 
+	 * @param value
+	 * @return the node of this value.
+	 */
+	public GraphNode<T> addNode(T value) {
+		return getOrCreateNode(value);
+	}
+
+	private GraphNode<T> getOrCreateNode(T value) {
+		GraphNode<T> node = nodes.get(value);
+		if (node == null) {
+			node = createNode(value);
+			nodes.put(value, node);
+		}
+		return node;
+	}
+
 	/*
 	 * Creates a graph node of the <T> generic type
 	 * 
@@ -96,19 +108,32 @@ public class Graph<T> {
 		return node;
 	}
 
+	/**
+	 * 
+	 * @return the number of nodes.
+	 */
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * 
+	 * @param value
+	 * @return the node of this value, null if the value is not in the graph.
+	 */
+	public GraphNode<T> getNode(T value) {
+		return nodes.get(value);
+	}
+
 	/*
-	 * Get the node that has not a parent
+	 * Get the nodes that no other node depends on
 	 * 
+	 * @return the nodes, never null
 	 */
 	public List<GraphNode<T>> getOrphanNodes() {
-		List<GraphNode<T>> orphanNodes = null;
-		Set<T> keys = nodes.keySet();
-		for (T key : keys) {
-			GraphNode<T> node = nodes.get(key);
-			if (node.getComingInNodes() == null && node.getComingInNodes() == null) {
-				if (orphanNodes == null) {
-					orphanNodes = new ArrayList<>();
-				}
+		List<GraphNode<T>> orphanNodes = new ArrayList<>();
+		for (GraphNode<T> node : nodes.values()) {
+			if (isEmpty(node.getComingInNodes())) {
 				orphanNodes.add(node);
 			}
 		}
@@ -117,71 +142,138 @@ public class Graph<T> {
 
 	/**
 	 * 
-	 * @return
+	 * @return the nodes without dependency.
 	 */
 	public List<GraphNode<T>> getLeafNodes() {
 		List<GraphNode<T>> leafNodes = new ArrayList<>();
-		Set<T> keys = nodes.keySet();
-		for (T key : keys) {
-			GraphNode<T> node = nodes.get(key);
-			if (node.getGoingOutNodes() == null) {
+		for (GraphNode<T> node : nodes.values()) {
+			if (isEmpty(node.getGoingOutNodes())) {
 				leafNodes.add(node);
 			}
 		}
 		return leafNodes;
 	}
 
-	public List<GraphNode<T>> deploymentOrder() {
-		List<GraphNode<T>> currentNodes = getLeafNodes();
-		List<GraphNode<T>> orphnanNodes = getOrphanNodes();
-		for (GraphNode<T> m : orphnanNodes) {
-			System.out.println("Orphans: " + m.value);
+	/**
+	 * Flat deployment order, the dependencies of a node are always before it.
+	 * 
+	 * @return all the nodes, the leaf nodes first.
+	 * @throws DependencyCycleException
+	 *             if the graph has a cycle.
+	 */
+	public List<GraphNode<T>> deploymentOrder() throws DependencyCycleException {
+		List<GraphNode<T>> deploymentOrder = new ArrayList<>(nodes.size());
+		for (List<GraphNode<T>> level : deploymentLevels()) {
+			deploymentOrder.addAll(level);
 		}
-		List<GraphNode<T>> newleafNodes = new ArrayList<>();
-		while (!currentNodes.isEmpty()) {
-			for (GraphNode<T> g : currentNodes) {
-				if (g.getComingInNodes() != null) {
-					List<GraphNode<T>> realLeafs = g.getComingInNodes();
-					realLeafs.removeAll(orphnanNodes);
-					newleafNodes.addAll(new ArrayList<>(realLeafs));
-				}
+		return deploymentOrder;
+	}
+
+	/**
+	 * Group the nodes by deployment level. A node is in level n when all the nodes
+	 * it depends on (its going out nodes) are in the levels before n, so the nodes
+	 * of a same level can be deployed concurrently. The leaf nodes are in level 0.
+	 * 
+	 * @return the levels, in deployment order.
+	 * @throws DependencyCycleException
+	 *             if the graph has a cycle.
+	 */
+	public List<List<GraphNode<T>>> deploymentLevels() throws DependencyCycleException {
+		List<List<GraphNode<T>>> levels = new ArrayList<>();
+		// Number of dependencies not yet deployed by node.
+		Map<GraphNode<T>, Integer> remaining = new HashMap<>(nodes.size() * 2);
+		List<GraphNode<T>> currentLevel = new ArrayList<>();
+		for (GraphNode<T> node : nodes.values()) {
+			int size = sizeOf(node.getGoingOutNodes());
+			remaining.put(node, size);
+			if (size == 0) {
+				currentLevel.add(node);
 			}
-			// remove linked graphs first
-			List<GraphNode<T>> linkedGraphs = getLinkedGraphs(newleafNodes);
-			// Add linked graphs after
-			newleafNodes.addAll(new ArrayList<GraphNode<T>>(linkedGraphs));
-			for (GraphNode<T> n : currentNodes) {
-				if (!this.deploymentOrder.contains(n)) {
-					this.deploymentOrder.add(n);
+		}
+		int count = 0;
+		while (!currentLevel.isEmpty()) {
+			levels.add(currentLevel);
+			count += currentLevel.size();
+			List<GraphNode<T>> nextLevel = new ArrayList<>();
+			for (GraphNode<T> node : currentLevel) {
+				if (node.getComingInNodes() == null) {
+					continue;
+				}
+				for (GraphNode<T> dependent : node.getComingInNodes()) {
+					int left = remaining.get(dependent) - 1;
+					remaining.put(dependent, left);
+					if (left == 0) {
+						nextLevel.add(dependent);
+					}
 				}
 			}
-			currentNodes = new ArrayList<GraphNode<T>>(newleafNodes);
-			newleafNodes = new ArrayList<GraphNode<T>>();
+			currentLevel = nextLevel;
+		}
+		if (count < nodes.size()) {
+			List<T> cycle = findCycle(remaining);
+			LOGGER.error("Dependency cycle detected : " + cycle);
+			throw new DependencyCycleException(cycle);
 		}
-		for (GraphNode<T> n : orphnanNodes) {
-			if (!this.deploymentOrder.contains(n)) {
-				this.deploymentOrder.add(n);
+		return levels;
+	}
+
+	/**
+	 * Find a cycle among the nodes not deployed by Kahn's algorithm. Each of these
+	 * nodes has at least one dependency not deployed, following them always ends
+	 * in a cycle.
+	 * 
+	 * @param remaining
+	 * @return the values of the cycle.
+	 */
+	private List<T> findCycle(Map<GraphNode<T>, Integer> remaining) {
+		GraphNode<T> current = null;
+		for (Map.Entry<GraphNode<T>, Integer> entry : remaining.entrySet()) {
+			if (entry.getValue() > 0) {
+				current = entry.getKey();
+				break;
 			}
 		}
-		return this.deploymentOrder;
+		Map<GraphNode<T>, Integer> path = new LinkedHashMap<>();
+		List<T> values = new ArrayList<>();
+		while (current != null && !path.containsKey(current)) {
+			path.put(current, values.size());
+			values.add(current.value);
+			GraphNode<T> next = null;
+			for (GraphNode<T> dependency : current.getGoingOutNodes()) {
+				if (remaining.get(dependency) > 0) {
+					next = dependency;
+					break;
+				}
+			}
+			current = next;
+		}
+		if (current == null) {
+			return values;
+		}
+		return new ArrayList<>(values.subList(path.get(current), values.size()));
 	}
 
 	/**
+	 * Remove from the list the nodes that another node of the list depends on.
 	 * 
 	 * @param graphs
-	 * @return
+	 * @return the removed nodes.
 	 */
 	public synchronized List<GraphNode<T>> getLinkedGraphs(List<GraphNode<T>> graphs) {
-		List<GraphNode<T>> linkedGraphs = new ArrayList<>();
-		for (GraphNode<T> firstVal : graphs) {
-			for (GraphNode<T> g : graphs) {
-				if (g.getComingInNodes().contains(firstVal)) {
-					linkedGraphs.add(firstVal);
+		Set<GraphNode<T>> graphSet = new HashSet<>(graphs);
+		Set<GraphNode<T>> linkedGraphs = new LinkedHashSet<>();
+		for (GraphNode<T> g : graphs) {
+			if (g.getComingInNodes() == null) {
+				continue;
+			}
+			for (GraphNode<T> comingIn : g.getComingInNodes()) {
+				if (graphSet.contains(comingIn)) {
+					linkedGraphs.add(comingIn);
 				}
 			}
 		}
 		graphs.removeAll(linkedGraphs);
-		return linkedGraphs;
+		return new ArrayList<>(linkedGraphs);
 	}
 
 	public boolean isAlreadyEvaluated(GraphNode<T> node) {
@@ -192,4 +284,17 @@ public class Graph<T> {
 		return evaluatedNodes.containsAll(nodes);
 	}
 
+	private static boolean isEmpty(Collection<?> collection) {
+		return collection == null || collection.isEmpty();
+	}
+
+	private static int sizeOf(Collection<?> collection) {
+		return collection == null ? 0 : collection.size();
+	}
+
+	@Override
+	public String toString() {
+		return "Graph [nodes=" + nodes.size() + "]";
+	}
+
 }
@@ -38,7 +38,6 @@ import org.eclipse.cmf.occi.docker.Machinevmwarefusion;
 import org.eclipse.cmf.occi.docker.Machinevmwarevsphere;
 import org.eclipse.cmf.occi.docker.connector.DockerClientManager;
 import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
-import org.eclipse.cmf.occi.docker.connector.helpers.DockerConfigurationHelper;
 import org.eclipse.cmf.occi.docker.connector.helpers.DockerMachineHelper;
 import org.eclipse.cmf.occi.docker.connector.helpers.Provider;
 import org.eclipse.cmf.occi.infrastructure.Compute;
@@ -47,7 +46,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.command.InspectContainerResponse;
 import com.github.dockerjava.api.model.ExposedPort;
 import com.github.dockerjava.api.model.Link;
@@ -161,32 +159,34 @@ public class ModelHandler {
 			if (!machineExists) { // ignore the machine if it exists.
 				// Check machine state
 				if (vbox.getOcciComputeState().toString().equalsIgnoreCase("active")) {
-					DockerClient dockerClient = DockerConfigurationHelper.buildDockerClient(vbox);
-					instance.setDockerClient(dockerClient);
-					instance.setCompute(vbox);
-
-					// Introspect containers
-					List<com.github.dockerjava.api.model.Container> containers = instance.listContainer(vbox);
-					if (containers != null && !containers.isEmpty()) {
-						List<Container> modelContainers = buildContainer(vbox, containers);
-						for (Container container : modelContainers) {
-							HashSet<String> existingLinks = new HashSet<>();
-							linkContainerToMachine(container, vbox);
-							InspectContainerResponse inspectContainer = instance.inspectContainer(vbox,
-									container.getContainerid());
-							if (inspectContainer.getHostConfig().getLinks().length > 0) { // ignore the link if it is
-																							// already taken into
-																							// account
-								for (Link link : inspectContainer.getHostConfig().getLinks()) {
-									if (!existingLinks.contains(link.getName())) {
-										linkContainerToContainer(container,
-												getContainerByName(modelContainers, link.getName()));
-										existingLinks.add(link.getName());
-									}
+					// Shared docker client of this machine.
+					instance.preCheckDockerClient(vbox);
+					try {
+						// Introspect containers
+						List<com.github.dockerjava.api.model.Container> containers = instance.listContainer(vbox);
+						if (containers != null && !containers.isEmpty()) {
+							List<Container> modelContainers = buildContainer(vbox, containers);
+							for (Container container : modelContainers) {
+								HashSet<String> existingLinks = new HashSet<>();
+								linkContainerToMachine(container, vbox);
+								InspectContainerResponse inspectContainer = instance.inspectContainer(vbox,
+										container.getContainerid());
+								if (inspectContainer.getHostConfig().getLinks().length > 0) { // ignore the link if it
+																								// is already taken into
+																								// account
+									for (Link link : inspectContainer.getHostConfig().getLinks()) {
+										if (!existingLinks.contains(link.getName())) {
+											linkContainerToContainer(container,
+													getContainerByName(modelContainers, link.getName()));
+											existingLinks.add(link.getName());
+										}
 
+									}
 								}
 							}
 						}
+					} finally {
+						instance.releaseDockerClients();
 					}
 
 				}
@@ -227,15 +227,19 @@ public class ModelHandler {
 		DockerClientManager instance = new DockerClientManager(machine);
 
 		List<Container> containerList = new ArrayList<>();
-		for (com.github.dockerjava.api.model.Container c : containers) {
-			InspectContainerResponse currentContainer = instance.inspectContainer(machine, c.getId());
-			currentContainer.getId();
+		try {
+			for (com.github.dockerjava.api.model.Container c : containers) {
+				InspectContainerResponse currentContainer = instance.inspectContainer(machine, c.getId());
+				currentContainer.getId();
 
-			// Retrieve the default factory singleton
-			Container modelContainer = DockerFactory.eINSTANCE.createContainer();
-			updateContainerModel(modelContainer, currentContainer);
+				// Retrieve the default factory singleton
+				Container modelContainer = DockerFactory.eINSTANCE.createContainer();
+				updateContainerModel(modelContainer, currentContainer);
 
-			containerList.add(modelContainer);
+				containerList.add(modelContainer);
+			}
+		} finally {
+			instance.releaseDockerClients();
 		}
 
 		return containerList;
@@ -379,7 +383,12 @@ public class ModelHandler {
 	 */
 	public Container buildContainer(Compute machine, String containerId) throws DockerException {
 		DockerClientManager instance = new DockerClientManager(machine);
-		InspectContainerResponse currentContainer = instance.inspectContainer(machine, containerId);
+		InspectContainerResponse currentContainer;
+		try {
+			currentContainer = instance.inspectContainer(machine, containerId);
+		} finally {
+			instance.releaseDockerClients();
+		}
 		Container modelContainer = DockerFactory.eINSTANCE.createContainer();
 
 		currentContainer.getId();
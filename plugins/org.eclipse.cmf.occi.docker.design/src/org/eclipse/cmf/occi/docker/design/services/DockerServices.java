@@ -18,6 +18,8 @@ import org.eclipse.cmf.occi.docker.Machine;
 import org.eclipse.cmf.occi.docker.connector.ContainerConnector;
 import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
 import org.eclipse.cmf.occi.docker.connector.helpers.DockerModelHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.MachineProvisioner;
+import org.eclipse.cmf.occi.docker.connector.helpers.ProvisioningListener;
 import org.eclipse.emf.common.util.Monitor;
 import org.eclipse.emf.ecore.EObject;
 import java.lang.reflect.InvocationTargetException;
@@ -31,6 +33,7 @@ import org.eclipse.swt.widgets.Shell;
 import org.eclipse.cmf.occi.core.Configuration;
 import org.eclipse.cmf.occi.core.Entity;
 import org.eclipse.cmf.occi.core.Link;
+import org.eclipse.cmf.occi.core.Resource;
 import org.eclipse.cmf.occi.docker.Network;
 import org.eclipse.cmf.occi.infrastructure.Compute;
 import org.eclipse.cmf.occi.infrastructure.RestartMethod;
@@ -75,6 +78,81 @@ public class DockerServices {
 		}
 	}
 
+	/**
+	 * Popup menu StartAll action of a configuration, its machines are started in
+	 * parallel with the limits of {@link MachineProvisioner}.
+	 */
+	public void startAllMachines(final Configuration conf) {
+		Shell shell = this.getShell();
+		try {
+			IRunnableWithProgress runnable = new IRunnableWithProgress() {
+				@Override
+				public void run(final IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+					final int total = countMachines(conf);
+					monitor.beginTask("Starting " + total + " machines", total);
+					MachineProvisioner provisioner = new MachineProvisioner();
+					// The listener is called by the provisioning threads, the monitor is
+					// updated in the UI thread.
+					final Display display = Display.getCurrent();
+					provisioner.addListener(new ProvisioningListener() {
+						@Override
+						public void machineQueued(Machine machine) {
+						}
+
+						@Override
+						public void machineStarting(Machine machine) {
+							display.asyncExec(() -> monitor.subTask("Starting machine " + machine.getName()));
+						}
+
+						@Override
+						public void machineStarted(Machine machine, long duration) {
+							display.asyncExec(() -> {
+								monitor.subTask("Machine " + machine.getName() + " started in " + duration + "ms");
+								monitor.worked(1);
+							});
+						}
+
+						@Override
+						public void machineFailed(Machine machine, Throwable error) {
+							display.asyncExec(() -> {
+								monitor.subTask("Machine " + machine.getName() + " failed to start");
+								monitor.worked(1);
+							});
+						}
+					});
+					if (monitor.isCanceled()) {
+						monitor.done();
+						throw new InterruptedException("Operation startall cancelled.");
+					}
+					try {
+						new DockerModelHelper(conf).startAllMachines(provisioner);
+					} catch (DockerException ex) {
+						throw new InvocationTargetException(ex);
+					} finally {
+						monitor.done();
+					}
+				}
+			};
+			ProgressMonitorDialog dialog = new ProgressMonitorDialog(shell);
+			dialog.run(false, true, runnable);
+		} catch (InvocationTargetException ex) {
+			ex.printStackTrace();
+			MessageDialog.openError(shell, "Error on command startall", ex.getCause().getMessage());
+		} catch (Throwable ex) {
+			ex.printStackTrace();
+		}
+	}
+
+	private int countMachines(final Configuration conf) {
+		int count = 0;
+		for (Resource resource : conf.getResources()) {
+			if (resource instanceof Machine) {
+				count++;
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * Popup menu StartAll action
 	 */
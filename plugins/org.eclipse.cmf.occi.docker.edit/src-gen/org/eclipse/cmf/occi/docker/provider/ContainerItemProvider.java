@@ -116,6 +116,12 @@ public class ContainerItemProvider extends ComputeItemProvider {
 			addCpuSetCpusPropertyDescriptor(object);
 			addCpuSetMemsPropertyDescriptor(object);
 			addTtyPropertyDescriptor(object);
+			addNetworkRxRatePropertyDescriptor(object);
+			addNetworkTxRatePropertyDescriptor(object);
+			addDiskReadRatePropertyDescriptor(object);
+			addDiskWriteRatePropertyDescriptor(object);
+			addDiskReadOpsPropertyDescriptor(object);
+			addDiskWriteOpsPropertyDescriptor(object);
 		}
 		return itemPropertyDescriptors;
 	}
@@ -1264,6 +1270,138 @@ public class ContainerItemProvider extends ComputeItemProvider {
 				 null));
 	}
 
+	/**
+	 * This adds a property descriptor for the Network Rx Rate feature.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	protected void addNetworkRxRatePropertyDescriptor(Object object) {
+		itemPropertyDescriptors.add
+			(createItemPropertyDescriptor
+				(((ComposeableAdapterFactory)adapterFactory).getRootAdapterFactory(),
+				 getResourceLocator(),
+				 getString("_UI_Container_networkRxRate_feature"),
+				 getString("_UI_PropertyDescriptor_description", "_UI_Container_networkRxRate_feature", "_UI_Container_type"),
+				 DockerPackage.Literals.CONTAINER__NETWORK_RX_RATE,
+				 true,
+				 false,
+				 false,
+				 ItemPropertyDescriptor.GENERIC_VALUE_IMAGE,
+				 null,
+				 null));
+	}
+
+	/**
+	 * This adds a property descriptor for the Network Tx Rate feature.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	protected void addNetworkTxRatePropertyDescriptor(Object object) {
+		itemPropertyDescriptors.add
+			(createItemPropertyDescriptor
+				(((ComposeableAdapterFactory)adapterFactory).getRootAdapterFactory(),
+				 getResourceLocator(),
+				 getString("_UI_Container_networkTxRate_feature"),
+				 getString("_UI_PropertyDescriptor_description", "_UI_Container_networkTxRate_feature", "_UI_Container_type"),
+				 DockerPackage.Literals.CONTAINER__NETWORK_TX_RATE,
+				 true,
+				 false,
+				 false,
+				 ItemPropertyDescriptor.GENERIC_VALUE_IMAGE,
+				 null,
+				 null));
+	}
+
+	/**
+	 * This adds a property descriptor for the Disk Read Rate feature.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	protected void addDiskReadRatePropertyDescriptor(Object object) {
+		itemPropertyDescriptors.add
+			(createItemPropertyDescriptor
+				(((ComposeableAdapterFactory)adapterFactory).getRootAdapterFactory(),
+				 getResourceLocator(),
+				 getString("_UI_Container_diskReadRate_feature"),
+				 getString("_UI_PropertyDescriptor_description", "_UI_Container_diskReadRate_feature", "_UI_Container_type"),
+				 DockerPackage.Literals.CONTAINER__DISK_READ_RATE,
+				 true,
+				 false,
+				 false,
+				 ItemPropertyDescriptor.GENERIC_VALUE_IMAGE,
+				 null,
+				 null));
+	}
+
+	/**
+	 * This adds a property descriptor for the Disk Write Rate feature.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	protected void addDiskWriteRatePropertyDescriptor(Object object) {
+		itemPropertyDescriptors.add
+			(createItemPropertyDescriptor
+				(((ComposeableAdapterFactory)adapterFactory).getRootAdapterFactory(),
+				 getResourceLocator(),
+				 getString("_UI_Container_diskWriteRate_feature"),
+				 getString("_UI_PropertyDescriptor_description", "_UI_Container_diskWriteRate_feature", "_UI_Container_type"),
+				 DockerPackage.Literals.CONTAINER__DISK_WRITE_RATE,
+				 true,
+				 false,
+				 false,
+				 ItemPropertyDescriptor.GENERIC_VALUE_IMAGE,
+				 null,
+				 null));
+	}
+
+	/**
+	 * This adds a property descriptor for the Disk Read Ops feature.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	protected void addDiskReadOpsPropertyDescriptor(Object object) {
+		itemPropertyDescriptors.add
+			(createItemPropertyDescriptor
+				(((ComposeableAdapterFactory)adapterFactory).getRootAdapterFactory(),
+				 getResourceLocator(),
+				 getString("_UI_Container_diskReadOps_feature"),
+				 getString("_UI_PropertyDescriptor_description", "_UI_Container_diskReadOps_feature", "_UI_Container_type"),
+				 DockerPackage.Literals.CONTAINER__DISK_READ_OPS,
+				 true,
+				 false,
+				 false,
+				 ItemPropertyDescriptor.GENERIC_VALUE_IMAGE,
+				 null,
+				 null));
+	}
+
+	/**
+	 * This adds a property descriptor for the Disk Write Ops feature.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	protected void addDiskWriteOpsPropertyDescriptor(Object object) {
+		itemPropertyDescriptors.add
+			(createItemPropertyDescriptor
+				(((ComposeableAdapterFactory)adapterFactory).getRootAdapterFactory(),
+				 getResourceLocator(),
+				 getString("_UI_Container_diskWriteOps_feature"),
+				 getString("_UI_PropertyDescriptor_description", "_UI_Container_diskWriteOps_feature", "_UI_Container_type"),
+				 DockerPackage.Literals.CONTAINER__DISK_WRITE_OPS,
+				 true,
+				 false,
+				 false,
+				 ItemPropertyDescriptor.GENERIC_VALUE_IMAGE,
+				 null,
+				 null));
+	}
+
 	/**
 	 * This returns Container.gif.
 	 * <!-- begin-user-doc -->
@@ -1354,6 +1492,12 @@ public class ContainerItemProvider extends ComputeItemProvider {
 			case DockerPackage.CONTAINER__CPU_SET_CPUS:
 			case DockerPackage.CONTAINER__CPU_SET_MEMS:
 			case DockerPackage.CONTAINER__TTY:
+			case DockerPackage.CONTAINER__NETWORK_RX_RATE:
+			case DockerPackage.CONTAINER__NETWORK_TX_RATE:
+			case DockerPackage.CONTAINER__DISK_READ_RATE:
+			case DockerPackage.CONTAINER__DISK_WRITE_RATE:
+			case DockerPackage.CONTAINER__DISK_READ_OPS:
+			case DockerPackage.CONTAINER__DISK_WRITE_OPS:
 				fireNotifyChanged(new ViewerNotification(notification, notification.getNotifier(), false, true));
 				return;
 		}
@@ -17,6 +17,8 @@ import junit.framework.TestSuite;
 
 import junit.textui.TestRunner;
 
+import org.eclipse.cmf.occi.docker.tests.connector.ConnectorTests;
+
 /**
  * <!-- begin-user-doc -->
  * A test suite for the '<em><b>Docker</b></em>' model.
@@ -37,11 +39,12 @@ public class DockerAllTests extends TestSuite {
 	/**
 	 * <!-- begin-user-doc -->
 	 * <!-- end-user-doc -->
-	 * @generated
+	 * @generated NOT
 	 */
 	public static Test suite() {
 		TestSuite suite = new DockerAllTests("Docker Tests");
 		suite.addTest(DockerTests.suite());
+		suite.addTest(ConnectorTests.suite());
 		return suite;
 	}
 
@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.tests.connector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.eclipse.cmf.occi.docker.Container;
+import org.eclipse.cmf.occi.docker.DockerFactory;
+import org.eclipse.cmf.occi.docker.connector.helpers.CgroupHelper;
+import org.eclipse.cmf.occi.docker.connector.helpers.CgroupWriteBatch;
+import org.eclipse.cmf.occi.docker.connector.helpers.CgroupWriteBatch.Status;
+import org.eclipse.cmf.occi.docker.connector.helpers.CgroupWriteBatch.Write;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Cgroup write batch : the writes kept by the batch, the generated script, the
+ * outcome of each write read from the script output, and the script executed
+ * on a local copy of the cgroup files.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class CgroupWriteBatchTest extends TestCase {
+
+	private static final String CGROUP = "/sys/fs/cgroup/";
+
+	private static final String MEMORY_FILE = CGROUP + "memory/docker/c1/memory.limit_in_bytes";
+
+	private static final String BLKIO_FILE = CGROUP + "blkio/docker/c2/blkio.throttle.read_bps_device";
+
+	private static final String SHELL = "/bin/sh";
+
+	private File root;
+
+	private CgroupWriteBatch batch;
+
+	public static void main(String[] args) {
+		TestRunner.run(CgroupWriteBatchTest.class);
+	}
+
+	public CgroupWriteBatchTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		root = Files.createTempDirectory("cgroup").toFile();
+		Container web = newContainer("web", "c1");
+		batch = new CgroupWriteBatch("192.168.99.100", "/store/machines/vbox/id_rsa");
+		batch.add(web, CgroupHelper.memory_subsystem, CgroupHelper.memory_max_mem, "536870912.0");
+		batch.add(newContainer("db", "c2"), CgroupHelper.blkio_subsystem, CgroupHelper.blkio_read, "8:0 1048576");
+		// Ignored writes.
+		batch.add(web, CgroupHelper.memory_subsystem, CgroupHelper.memory_max_mem, null);
+		batch.add(web, null, CgroupHelper.memory_max_mem, "1");
+		batch.add(newContainer("created", null), CgroupHelper.memory_subsystem, CgroupHelper.memory_max_mem, "1");
+		batch.add(web, CgroupHelper.cpu_subsystem, CgroupHelper.cpu_cfs_quota, "50000");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(root);
+	}
+
+	public void testAdd() throws Exception {
+		assertEquals(2, batch.size());
+		List<Write> writes = batch.getWrites();
+		assertEquals("web", writes.get(0).getContainerName());
+		assertEquals(MEMORY_FILE, writes.get(0).getPath());
+		assertEquals("rounded", "536870912", writes.get(0).getValue());
+		assertEquals(BLKIO_FILE, writes.get(1).getPath());
+		assertEquals("8:0 1048576", writes.get(1).getValue());
+		for (Write write : writes) {
+			assertEquals(Status.SKIPPED, write.getStatus());
+			assertNull(write.getPreviousValue());
+		}
+	}
+
+	public void testScript() throws Exception {
+		String script = batch.buildScript();
+		assertTrue(script.startsWith("failed=\n"));
+		assertTrue(script.contains("old_0=$(cat '" + MEMORY_FILE + "' 2>&1)"));
+		assertTrue(script.contains("printf '%s\\n' '536870912' 2>&1 > '" + MEMORY_FILE + "'"));
+		assertTrue(script.contains("echo \"OK 0\""));
+		assertTrue(script.contains("old_1=$(cat '" + BLKIO_FILE + "' 2>&1)"));
+		assertTrue(script.contains("printf '%s\\n' '8:0 1048576' 2>&1 > '" + BLKIO_FILE + "'"));
+		assertTrue(script.contains("echo \"FAIL 1 "));
+		assertTrue(script.contains("[ -z \"$failed\" ] && exit 0\n"));
+
+		// Rollback of the written files, last written first.
+		int rollback1 = script.indexOf("if [ \"$failed\" -gt 1 ]");
+		int rollback0 = script.indexOf("if [ \"$failed\" -gt 0 ]");
+		assertTrue(rollback1 > script.indexOf("&& exit 0"));
+		assertTrue(rollback0 > rollback1);
+		assertTrue("an empty throttle is reset by a zero limit",
+				script.substring(rollback1, rollback0).contains("printf '%s\\n' '8:0 0' > '" + BLKIO_FILE + "'"));
+		assertTrue(script.endsWith("exit 1\n"));
+	}
+
+	public void testParseOutput() throws Exception {
+		batch.parseOutput("PREV 0 9223372036854771712 \nOK 0\nPREV 1  \nFAIL 1 sh: can't create: Permission denied \n"
+				+ "ROLLBACK 0 OK\nunexpected line\nOK 7\nOK x\n");
+		List<Write> writes = batch.getWrites();
+		assertEquals(Status.ROLLED_BACK, writes.get(0).getStatus());
+		assertEquals("9223372036854771712", writes.get(0).getPreviousValue());
+		assertNull(writes.get(0).getError());
+		assertEquals(Status.FAILED, writes.get(1).getStatus());
+		assertEquals("", writes.get(1).getPreviousValue());
+		assertEquals("sh: can't create: Permission denied", writes.get(1).getError());
+	}
+
+	public void testParseRollbackFailure() throws Exception {
+		batch.parseOutput("PREV 0 1024\nOK 0\nPREV 1 8:0 0\nFAIL 1 No such device\nROLLBACK 0 FAIL Device or resource busy\n");
+		List<Write> writes = batch.getWrites();
+		assertEquals(Status.ROLLBACK_FAILED, writes.get(0).getStatus());
+		assertEquals("Device or resource busy", writes.get(0).getError());
+		assertEquals("8:0 0", writes.get(1).getPreviousValue());
+		assertEquals("No such device", writes.get(1).getError());
+	}
+
+	public void testParseNoOutput() throws Exception {
+		batch.parseOutput(null);
+		batch.parseOutput("");
+		for (Write write : batch.getWrites()) {
+			assertEquals(Status.SKIPPED, write.getStatus());
+		}
+	}
+
+	public void testRunScript() throws Exception {
+		if (!new File(SHELL).canExecute()) {
+			return;
+		}
+		File memory = createFile(MEMORY_FILE, "9223372036854771712\n");
+		File blkio = createFile(BLKIO_FILE, "");
+		batch.parseOutput(run(batch.buildScript()));
+
+		for (Write write : batch.getWrites()) {
+			assertEquals(write.toString(), Status.APPLIED, write.getStatus());
+		}
+		assertEquals("9223372036854771712", batch.getWrites().get(0).getPreviousValue());
+		assertEquals("536870912\n", read(memory));
+		assertEquals("8:0 1048576\n", read(blkio));
+	}
+
+	public void testRunScriptRollback() throws Exception {
+		if (!new File(SHELL).canExecute()) {
+			return;
+		}
+		// No cgroup for the second container.
+		File memory = createFile(MEMORY_FILE, "9223372036854771712\n");
+		batch.parseOutput(run(batch.buildScript()));
+
+		List<Write> writes = batch.getWrites();
+		assertEquals(Status.ROLLED_BACK, writes.get(0).getStatus());
+		assertEquals(Status.FAILED, writes.get(1).getStatus());
+		assertNotNull(writes.get(1).getError());
+		assertEquals("previous content restored", "9223372036854771712\n", read(memory));
+	}
+
+	private Container newContainer(final String name, final String id) {
+		Container container = DockerFactory.eINSTANCE.createContainer();
+		container.setName(name);
+		container.setContainerid(id);
+		return container;
+	}
+
+	/**
+	 * Create a file in the local copy of the cgroup tree.
+	 */
+	private File createFile(final String path, final String content) throws IOException {
+		File file = new File(root, path.substring(CGROUP.length()));
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * Run the script on the local copy of the cgroup tree.
+	 *
+	 * @return the standard output of the script.
+	 */
+	private String run(final String script) throws IOException, InterruptedException {
+		Process process = new ProcessBuilder(SHELL, "-c", script.replace(CGROUP, root.getPath() + File.separator))
+				.redirectErrorStream(false).start();
+		process.getOutputStream().close();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (InputStream in = process.getInputStream()) {
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				output.write(buffer, 0, read);
+			}
+		}
+		process.waitFor();
+		return new String(output.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static String read(final File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private static void delete(final File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+}
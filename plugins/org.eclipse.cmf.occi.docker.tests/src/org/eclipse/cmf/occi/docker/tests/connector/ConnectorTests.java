@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.tests.connector;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * A test suite for the docker connector, without docker daemon.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class ConnectorTests extends TestSuite {
+
+	public static void main(String[] args) {
+		TestRunner.run(suite());
+	}
+
+	public static Test suite() {
+		TestSuite suite = new ConnectorTests("Connector Tests");
+		suite.addTestSuite(StatsCollectorTest.class);
+		suite.addTestSuite(StatsDecoderTest.class);
+		suite.addTestSuite(GraphTest.class);
+		suite.addTestSuite(MachineStoreTest.class);
+		suite.addTestSuite(MetricsLogTest.class);
+		suite.addTestSuite(CgroupWriteBatchTest.class);
+		suite.addTestSuite(ContainerMetricsTest.class);
+		return suite;
+	}
+
+	public ConnectorTests(String name) {
+		super(name);
+	}
+
+}
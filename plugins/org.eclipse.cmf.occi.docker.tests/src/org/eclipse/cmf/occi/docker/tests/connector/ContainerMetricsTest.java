@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.tests.connector;
+
+import org.eclipse.cmf.occi.docker.connector.observer.ContainerMetrics;
+import org.eclipse.cmf.occi.docker.connector.observer.ContainerMetrics.Metric;
+import org.eclipse.cmf.occi.docker.connector.observer.ContainerMetrics.Window;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Metrics history of a container : the buffers growing up to the capacity,
+ * the overwrite of the oldest samples, and the window, rate and percentile
+ * queries.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class ContainerMetricsTest extends TestCase {
+
+	private static final long START = 1506816000000L;
+
+	private static final long SECOND = 1000L;
+
+	public static void main(String[] args) {
+		TestRunner.run(ContainerMetricsTest.class);
+	}
+
+	public ContainerMetricsTest(String name) {
+		super(name);
+	}
+
+	public void testEmpty() throws Exception {
+		ContainerMetrics metrics = new ContainerMetrics();
+		assertEquals(0, metrics.size());
+		assertEquals("nothing allocated before the first sample", 0, metrics.getAllocated());
+		assertEquals(0, metrics.getLastTime());
+		assertEquals(0.0, metrics.getLast(Metric.MEMORY), 0.0);
+		assertEquals(0.0, metrics.getPrevious(Metric.MEMORY), 0.0);
+		assertTrue(metrics.query(Metric.MEMORY, 60 * SECOND).isEmpty());
+		assertTrue(metrics.query(Metric.MEMORY, 0, Long.MAX_VALUE).isEmpty());
+	}
+
+	public void testGrow() throws Exception {
+		ContainerMetrics metrics = new ContainerMetrics();
+		for (int i = 0; i < 10; i++) {
+			record(metrics, i, 1);
+		}
+		assertTrue(metrics.getAllocated() > 0);
+		assertTrue("a new container does not allocate the whole capacity",
+				metrics.getAllocated() < ContainerMetrics.DEFAULT_CAPACITY);
+
+		int samples = 1000;
+		for (int i = 10; i < samples; i++) {
+			record(metrics, i, 1);
+		}
+		assertEquals(samples, metrics.size());
+		assertTrue(metrics.getAllocated() >= samples);
+		assertTrue(metrics.getAllocated() <= ContainerMetrics.DEFAULT_CAPACITY);
+		for (int i = 0; i < samples; i++) {
+			Window window = metrics.query(Metric.MEMORY, START + i * SECOND, START + i * SECOND);
+			assertEquals("sample " + i + " kept by the growth", 1, window.getCount());
+			assertEquals(i * 1024.0, window.getMax(), 0.0);
+		}
+
+		for (int i = samples; i < 2 * ContainerMetrics.DEFAULT_CAPACITY; i++) {
+			record(metrics, i, 1);
+		}
+		assertEquals(ContainerMetrics.DEFAULT_CAPACITY, metrics.size());
+		assertEquals(ContainerMetrics.DEFAULT_CAPACITY, metrics.getAllocated());
+	}
+
+	public void testWrapAround() throws Exception {
+		int capacity = 100;
+		ContainerMetrics metrics = new ContainerMetrics(capacity);
+		int samples = 250;
+		for (int i = 0; i < samples; i++) {
+			record(metrics, i, 1);
+		}
+		assertEquals(capacity, metrics.size());
+		assertEquals(capacity, metrics.getAllocated());
+		assertEquals(START + (samples - 1) * SECOND, metrics.getLastTime());
+		assertEquals((samples - 1) * 1024.0, metrics.getLast(Metric.MEMORY), 0.0);
+		assertEquals((samples - 2) * 1024.0, metrics.getPrevious(Metric.MEMORY), 0.0);
+
+		// Only the last samples are kept, in time order.
+		Window all = metrics.query(Metric.MEMORY, 0, Long.MAX_VALUE);
+		assertEquals(capacity, all.getCount());
+		assertEquals(START + (samples - capacity) * SECOND, all.getFrom());
+		assertEquals(START + (samples - 1) * SECOND, all.getTo());
+		assertEquals((samples - capacity) * 1024.0, all.getMin(), 0.0);
+		assertEquals((samples - 1) * 1024.0, all.getMax(), 0.0);
+		assertTrue(metrics.query(Metric.MEMORY, 0, START + (samples - capacity - 1) * SECOND).isEmpty());
+
+		metrics.clear();
+		assertEquals(0, metrics.size());
+		record(metrics, 0, 1);
+		record(metrics, 1, 1);
+		assertEquals(2, metrics.query(Metric.MEMORY, 0, Long.MAX_VALUE).getCount());
+	}
+
+	public void testWindow() throws Exception {
+		ContainerMetrics metrics = new ContainerMetrics(100);
+		// Cpu 1 to 100 %.
+		for (int i = 0; i < 100; i++) {
+			record(metrics, i, i + 1);
+		}
+		Window last = metrics.query(Metric.CPU_PERCENT, 9 * SECOND);
+		assertEquals("10 seconds, both ends included", 10, last.getCount());
+		assertEquals(91.0, last.getMin(), 0.0);
+		assertEquals(100.0, last.getMax(), 0.0);
+		assertEquals(95.5, last.getAvg(), 1e-9);
+
+		Window all = metrics.query(Metric.CPU_PERCENT, START, START + 99 * SECOND);
+		assertEquals(100, all.getCount());
+		assertEquals(50.5, all.getAvg(), 1e-9);
+		assertEquals("nearest rank", 95.0, all.getP95(), 0.0);
+
+		Window one = metrics.query(Metric.CPU_PERCENT, START + 5 * SECOND, START + 5 * SECOND);
+		assertEquals(1, one.getCount());
+		assertEquals(6.0, one.getP95(), 0.0);
+		assertEquals("no rate on a single sample", 0.0, one.getRate(), 0.0);
+	}
+
+	public void testRate() throws Exception {
+		ContainerMetrics metrics = new ContainerMetrics(100);
+		for (int i = 0; i < 10; i++) {
+			record(metrics, i, 1);
+		}
+		// 1 KB by second received.
+		assertEquals(1024.0, metrics.query(Metric.NETWORK_RX, 0, Long.MAX_VALUE).getRate(), 1e-9);
+
+		// Restarted container, the counter starts again from zero.
+		record(metrics, 10, 1, 512);
+		record(metrics, 11, 1, 1536);
+		Window window = metrics.query(Metric.NETWORK_RX, 0, Long.MAX_VALUE);
+		assertEquals((9 * 1024 + 512 + 1024) / 11.0, window.getRate(), 1e-9);
+	}
+
+	private static void record(final ContainerMetrics metrics, final int second, final double cpuPercent) {
+		record(metrics, second, cpuPercent, second * 1024L);
+	}
+
+	/**
+	 * Record a sample, its memory grows by 1 KB by second.
+	 */
+	private static void record(final ContainerMetrics metrics, final int second, final double cpuPercent,
+			final long networkRx) {
+		metrics.record(START + second * SECOND, second * 1000000L, second * 4000000L, cpuPercent, second * 1024L,
+				1073741824L, networkRx, 0, 0, 0, 0, 0);
+	}
+
+}
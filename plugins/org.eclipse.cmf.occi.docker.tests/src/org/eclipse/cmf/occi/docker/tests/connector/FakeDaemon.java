@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.tests.connector;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal docker daemon on a local port : HTTP/1.1 with persistent
+ * connections, one thread by connection, the responses are given by
+ * {@link #handle(String, String)}. The accepted connections are counted.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public abstract class FakeDaemon implements Closeable {
+
+	private final ServerSocket serverSocket;
+
+	private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+
+	private final AtomicInteger connections = new AtomicInteger();
+
+	private volatile boolean closed = false;
+
+	/**
+	 * A response with a json body.
+	 */
+	public static class Response {
+		private final int status;
+		private final String body;
+
+		public Response(final int status, final String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	public FakeDaemon() throws IOException {
+		serverSocket = new ServerSocket(0, 128, InetAddress.getByName("127.0.0.1"));
+		Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "fake-daemon-" + getPort());
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 *
+	 * @param method
+	 * @param path
+	 *            the path of the request, without its query.
+	 * @return the response of the request.
+	 * @throws InterruptedException
+	 */
+	protected abstract Response handle(String method, String path) throws InterruptedException;
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 *
+	 * @return the number of connections accepted since the start.
+	 */
+	public int getConnections() {
+		return connections.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+	}
+
+	private void accept() {
+		while (!closed) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException ex) {
+				return;
+			}
+			connections.incrementAndGet();
+			sockets.add(socket);
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					serve(socket);
+				}
+			}, "fake-daemon-connection-" + connections.get());
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private void serve(final Socket socket) {
+		try (InputStream in = new BufferedInputStream(socket.getInputStream());
+				OutputStream out = socket.getOutputStream()) {
+			String requestLine;
+			while ((requestLine = readLine(in)) != null) {
+				String header;
+				long length = 0;
+				while ((header = readLine(in)) != null && !header.isEmpty()) {
+					if (header.toLowerCase().startsWith("content-length:")) {
+						length = Long.parseLong(header.substring("content-length:".length()).trim());
+					}
+				}
+				for (long i = 0; i < length; i++) {
+					in.read();
+				}
+				String[] parts = requestLine.split(" ");
+				String path = parts.length > 1 ? parts[1] : "/";
+				int query = path.indexOf('?');
+				if (query >= 0) {
+					path = path.substring(0, query);
+				}
+				Response response = handle(parts[0], path);
+				byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+				String head = "HTTP/1.1 " + response.status + " " + (response.status == 200 ? "OK" : "Error")
+						+ "\r\nContent-Type: application/json\r\nContent-Length: " + body.length + "\r\n\r\n";
+				out.write(head.getBytes(StandardCharsets.US_ASCII));
+				out.write(body);
+				out.flush();
+			}
+		} catch (IOException ex) {
+			// Connection closed by the client or by close().
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} finally {
+			sockets.remove(socket);
+		}
+	}
+
+	private static String readLine(final InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int c;
+		while ((c = in.read()) != -1) {
+			if (c == '\n') {
+				String value = new String(line.toByteArray(), StandardCharsets.US_ASCII);
+				return value.endsWith("\r") ? value.substring(0, value.length() - 1) : value;
+			}
+			line.write(c);
+		}
+		return line.size() == 0 ? null : new String(line.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+}
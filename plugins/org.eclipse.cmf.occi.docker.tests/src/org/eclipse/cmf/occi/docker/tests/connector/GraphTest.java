@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.tests.connector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.cmf.occi.docker.connector.exceptions.DependencyCycleException;
+import org.eclipse.cmf.occi.docker.connector.utils.Graph;
+import org.eclipse.cmf.occi.docker.connector.utils.GraphNode;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Deployment levels of the container dependency graph, the reported cycles,
+ * and the time to order a large graph.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class GraphTest extends TestCase {
+
+	private static final int NODES = 10000;
+
+	private static final int EDGES_BY_NODE = 5;
+
+	private static final int ROUNDS = 20;
+
+	/**
+	 * Bound of one ordering of the large graph, far above the linear time.
+	 */
+	private static final long MAX_MILLIS_BY_ORDER = 1000;
+
+	public static void main(String[] args) {
+		TestRunner.run(GraphTest.class);
+	}
+
+	public GraphTest(String name) {
+		super(name);
+	}
+
+	public void testLevels() throws Exception {
+		// web -> app -> db, web -> cache, app -> cache, batch alone.
+		Graph<String> graph = new Graph<>();
+		graph.addDependency("web", "app");
+		graph.addDependency("app", "db");
+		graph.addDependency("web", "cache");
+		graph.addDependency("app", "cache");
+		graph.addNode("batch");
+
+		List<List<GraphNode<String>>> levels = graph.deploymentLevels();
+		assertEquals(3, levels.size());
+		assertEquals(Arrays.asList("db", "cache", "batch"), values(levels.get(0)));
+		assertEquals(Arrays.asList("app"), values(levels.get(1)));
+		assertEquals(Arrays.asList("web"), values(levels.get(2)));
+		assertEquals(Arrays.asList("db", "cache", "batch", "app", "web"), values(graph.deploymentOrder()));
+	}
+
+	public void testEmpty() throws Exception {
+		Graph<String> graph = new Graph<>();
+		assertTrue(graph.deploymentLevels().isEmpty());
+		assertTrue(graph.deploymentOrder().isEmpty());
+	}
+
+	public void testCycle() throws Exception {
+		// front -> a -> b -> c -> a, the cycle is a, b, c.
+		Graph<String> graph = new Graph<>();
+		graph.addDependency("front", "a");
+		graph.addDependency("a", "b");
+		graph.addDependency("b", "c");
+		graph.addDependency("c", "a");
+		graph.addDependency("b", "db");
+		try {
+			graph.deploymentLevels();
+			fail("the cycle is not detected");
+		} catch (DependencyCycleException ex) {
+			List<Object> cycle = ex.getCycle();
+			assertEquals(3, cycle.size());
+			assertTrue(cycle.containsAll(Arrays.asList("a", "b", "c")));
+			assertFalse("front is not in the cycle", cycle.contains("front"));
+		}
+	}
+
+	public void testSelfDependency() throws Exception {
+		Graph<String> graph = new Graph<>();
+		graph.addDependency("a", "a");
+		try {
+			graph.deploymentOrder();
+			fail("the cycle is not detected");
+		} catch (DependencyCycleException ex) {
+			assertEquals(Arrays.asList((Object) "a"), ex.getCycle());
+		}
+	}
+
+	/**
+	 * A chain of {@link #NODES} containers, one container by level.
+	 */
+	public void testLongChain() throws Exception {
+		Graph<Integer> graph = new Graph<>();
+		for (int i = 1; i < NODES; i++) {
+			graph.addDependency(i, i - 1);
+		}
+		List<List<GraphNode<Integer>>> levels = graph.deploymentLevels();
+		assertEquals(NODES, levels.size());
+		for (int i = 0; i < NODES; i++) {
+			assertEquals(Integer.valueOf(i), levels.get(i).get(0).value);
+		}
+	}
+
+	/**
+	 * {@link #NODES} containers, each one depends on up to
+	 * {@link #EDGES_BY_NODE} containers created before it.
+	 */
+	public void testLargeGraph() throws Exception {
+		Random random = new Random(42);
+		Graph<Integer> graph = new Graph<>();
+		graph.addNode(0);
+		for (int i = 1; i < NODES; i++) {
+			for (int e = 0; e < EDGES_BY_NODE; e++) {
+				graph.addDependency(i, random.nextInt(i));
+			}
+		}
+		assertEquals(NODES, graph.size());
+
+		List<GraphNode<Integer>> order = null;
+		long start = System.nanoTime();
+		for (int round = 0; round < ROUNDS; round++) {
+			order = graph.deploymentOrder();
+		}
+		long millisByOrder = (System.nanoTime() - start) / 1000000L / ROUNDS;
+
+		assertEquals(NODES, order.size());
+		Map<GraphNode<Integer>, Integer> positions = new HashMap<>();
+		for (GraphNode<Integer> node : order) {
+			positions.put(node, positions.size());
+		}
+		for (GraphNode<Integer> node : order) {
+			if (node.getGoingOutNodes() == null) {
+				continue;
+			}
+			for (GraphNode<Integer> dependency : node.getGoingOutNodes()) {
+				assertTrue(dependency.value + " deployed before " + node.value,
+						positions.get(dependency) < positions.get(node));
+			}
+		}
+		assertTrue("at most " + MAX_MILLIS_BY_ORDER + " ms to order " + NODES + " nodes, was " + millisByOrder,
+				millisByOrder <= MAX_MILLIS_BY_ORDER);
+	}
+
+	private static <T> List<T> values(final List<GraphNode<T>> nodes) {
+		List<T> values = new ArrayList<>(nodes.size());
+		for (GraphNode<T> node : nodes) {
+			values.add(node.value);
+		}
+		return values;
+	}
+
+}
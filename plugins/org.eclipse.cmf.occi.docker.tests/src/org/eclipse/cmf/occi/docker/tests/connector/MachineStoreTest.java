@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.tests.connector;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.eclipse.cmf.occi.docker.connector.exceptions.DockerException;
+import org.eclipse.cmf.occi.docker.connector.helpers.MachineStore;
+import org.eclipse.cmf.occi.docker.connector.helpers.MachineStore.MachineInfo;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Reading of a docker-machine store directory : the config.json of the
+ * drivers, the machines never started, the unreadable configurations and the
+ * address of a started machine.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class MachineStoreTest extends TestCase {
+
+	private static final String VIRTUALBOX = "{\"ConfigVersion\":3,"
+			+ "\"Driver\":{\"IPAddress\":\"192.168.99.100\",\"MachineName\":\"vbox\",\"SSHUser\":\"docker\","
+			+ "\"SSHPort\":45321,\"SSHKeyPath\":\"/store/machines/vbox/id_rsa\",\"StorePath\":\"/store\","
+			+ "\"SwarmMaster\":false,\"SwarmHost\":\"tcp://0.0.0.0:3376\",\"SwarmDiscovery\":\"\","
+			+ "\"CPU\":2,\"Memory\":2048,\"DiskSize\":20000,\"Boot2DockerURL\":\"\",\"HostOnlyCIDR\":\"192.168.99.1/24\","
+			+ "\"HostOnlyNicType\":\"82540EM\",\"NoShare\":false,\"DNSProxy\":true},"
+			+ "\"DriverName\":\"virtualbox\","
+			+ "\"HostOptions\":{\"Driver\":\"\",\"Memory\":0,\"Disk\":0,"
+			+ "\"EngineOptions\":{\"ArbitraryFlags\":[],\"Dns\":null,\"Env\":[],\"InsecureRegistry\":[],"
+			+ "\"Labels\":[],\"StorageDriver\":\"\",\"TlsVerify\":true,\"InstallURL\":\"https://get.docker.com\"},"
+			+ "\"SwarmOptions\":{\"IsSwarm\":false,\"Address\":\"\",\"Discovery\":\"\"},"
+			+ "\"AuthOptions\":{\"CertDir\":\"/certs\",\"CaCertPath\":\"/certs/ca.pem\","
+			+ "\"CaPrivateKeyPath\":\"/certs/ca-key.pem\",\"ClientKeyPath\":\"/certs/key.pem\","
+			+ "\"ServerCertPath\":\"/store/machines/vbox/server.pem\",\"ClientCertPath\":\"/certs/cert.pem\","
+			+ "\"ServerCertSANs\":[],\"StorePath\":\"/store/machines/vbox\"}},"
+			+ "\"Name\":\"vbox\"}";
+
+	private static final String GENERIC = "{\"ConfigVersion\":3,"
+			+ "\"Driver\":{\"IPAddress\":\"10.0.0.12\",\"MachineName\":\"remote\",\"SSHUser\":\"ubuntu\","
+			+ "\"SSHPort\":2222,\"SSHKeyPath\":\"/keys/id_rsa\",\"EnginePort\":2377},"
+			+ "\"DriverName\":\"generic\",\"HostOptions\":{\"AuthOptions\":{\"StorePath\":\"/store/machines/remote\"}},"
+			+ "\"Name\":\"remote\"}";
+
+	private static final String NEVER_STARTED = "{\"ConfigVersion\":3,"
+			+ "\"Driver\":{\"IPAddress\":\"\",\"MachineName\":\"created\",\"SSHUser\":\"docker\",\"SSHPort\":0},"
+			+ "\"DriverName\":\"virtualbox\",\"HostOptions\":null,\"Name\":\"created\"}";
+
+	private File storePath;
+
+	private MachineStore store;
+
+	public static void main(String[] args) {
+		TestRunner.run(MachineStoreTest.class);
+	}
+
+	public MachineStoreTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		storePath = Files.createTempDirectory("machine-store").toFile();
+		writeConfig("vbox", VIRTUALBOX);
+		writeConfig("remote", GENERIC);
+		writeConfig("created", NEVER_STARTED);
+		// Not a machine : no config.json.
+		new File(new File(storePath, MachineStore.MACHINES_DIRECTORY), "empty").mkdirs();
+		store = new MachineStore(storePath);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(storePath);
+	}
+
+	public void testListMachineNames() throws Exception {
+		assertEquals(Arrays.asList("created", "remote", "vbox"), store.listMachineNames());
+		assertTrue(store.exists("vbox"));
+		assertFalse(store.exists("empty"));
+		assertFalse(store.exists("unknown"));
+	}
+
+	public void testVirtualBox() throws Exception {
+		MachineInfo info = store.getMachine("vbox");
+		assertEquals("vbox", info.getName());
+		assertEquals("virtualbox", info.getDriverName());
+		assertEquals("192.168.99.100", info.getIpAddress());
+		assertEquals("docker", info.getSshUser());
+		assertEquals(45321, info.getSshPort());
+		assertEquals("/store/machines/vbox/id_rsa", info.getSshKeyPath());
+		assertEquals(2, info.getCpu());
+		assertEquals(2048, info.getMemory());
+		assertEquals(20000, info.getDiskSize());
+		assertEquals("/certs", info.getCertDir());
+		assertEquals("/certs/ca.pem", info.getCaCertPath());
+		assertEquals("/certs/cert.pem", info.getClientCertPath());
+		assertEquals("/certs/key.pem", info.getClientKeyPath());
+		assertEquals("/store/machines/vbox", info.getCertPath());
+		assertEquals("tcp://192.168.99.100:2376", info.getUrl());
+	}
+
+	public void testGeneric() throws Exception {
+		MachineInfo info = store.getMachine("remote");
+		assertEquals("generic", info.getDriverName());
+		assertEquals("ubuntu", info.getSshUser());
+		assertEquals(2222, info.getSshPort());
+		assertEquals("tcp://10.0.0.12:2377", info.getUrl());
+	}
+
+	public void testNeverStarted() throws Exception {
+		MachineInfo info = store.getMachine("created");
+		assertEquals("created", info.getName());
+		assertEquals("", info.getIpAddress());
+		assertNull("no url without address", info.getUrl());
+		assertNull(info.getCertPath());
+	}
+
+	public void testUnknownMachine() throws Exception {
+		assertNull(store.getMachine("unknown"));
+		assertNull(store.getMachine(null));
+		assertNull(store.readRawConfig("unknown"));
+	}
+
+	public void testUnreadableConfig() throws Exception {
+		writeConfig("broken", "[\"not a machine\"]");
+		try {
+			store.getMachine("broken");
+			fail("an invalid config.json is not reported");
+		} catch (DockerException ex) {
+			assertTrue(ex.getMessage().contains("broken"));
+		}
+		// The other machines are still read.
+		assertNotNull(store.getMachine("vbox"));
+	}
+
+	public void testModifiedConfig() throws Exception {
+		assertEquals("192.168.99.100", store.getMachine("vbox").getIpAddress());
+		File config = writeConfig("vbox", VIRTUALBOX.replace("192.168.99.100", "192.168.99.101"));
+		config.setLastModified(config.lastModified() + 2000);
+		assertEquals("192.168.99.101", store.getMachine("vbox").getIpAddress());
+	}
+
+	public void testStartedMachineAddress() throws Exception {
+		assertEquals("192.168.99.100", store.getMachine("vbox").getIpAddress());
+
+		// Address given by docker-machine after a start.
+		store.setIpAddress("vbox", "192.168.99.102");
+		assertEquals("192.168.99.102", store.getMachine("vbox").getIpAddress());
+		assertEquals("tcp://192.168.99.102:2376", store.getMachine("vbox").getUrl());
+
+		// Stopped.
+		store.setIpAddress("vbox", null);
+		assertEquals("192.168.99.100", store.getMachine("vbox").getIpAddress());
+
+		// Written again by docker-machine, its address is used.
+		store.setIpAddress("vbox", "192.168.99.102");
+		File config = writeConfig("vbox", VIRTUALBOX.replace("192.168.99.100", "192.168.99.103"));
+		config.setLastModified(config.lastModified() + 2000);
+		assertEquals("192.168.99.103", store.getMachine("vbox").getIpAddress());
+	}
+
+	private File writeConfig(final String machineName, final String json) throws IOException {
+		File dir = new File(new File(storePath, MachineStore.MACHINES_DIRECTORY), machineName);
+		dir.mkdirs();
+		File config = new File(dir, MachineStore.CONFIG_FILENAME);
+		Files.write(config.toPath(), json.getBytes(StandardCharsets.UTF_8));
+		return config;
+	}
+
+	private static void delete(final File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.tests.connector;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cmf.occi.docker.connector.observer.MetricsLog;
+import org.eclipse.cmf.occi.docker.connector.observer.MetricsLog.Field;
+import org.eclipse.cmf.occi.docker.connector.observer.MetricsLog.Range;
+import org.eclipse.cmf.occi.docker.connector.observer.MetricsLog.Tier;
+import org.eclipse.cmf.occi.docker.connector.observer.StatsDecoder;
+import org.eclipse.cmf.occi.docker.connector.observer.StatsSample;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Metrics log of a container in a temporary directory : the queries by time
+ * range, the roll of the segments, the reopening and the downsampling.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class MetricsLogTest extends TestCase {
+
+	/**
+	 * 2017-10-01T00:00:00Z, the start of a 10 minutes bucket.
+	 */
+	private static final long START = 1506816000000L;
+
+	private static final long SECOND = TimeUnit.SECONDS.toMillis(1);
+
+	private File dir;
+
+	private MetricsLog log;
+
+	private final StatsSample sample = new StatsSample();
+
+	private final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'000000Z'");
+
+	public static void main(String[] args) {
+		TestRunner.run(MetricsLogTest.class);
+	}
+
+	public MetricsLogTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		dir = Files.createTempDirectory("metrics-log").toFile();
+		log = new MetricsLog(dir);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		log.close();
+		delete(dir);
+	}
+
+	public void testQuery() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			append(START + i * SECOND, i);
+		}
+		// Older than the last sample.
+		append(START + 50 * SECOND, 1000);
+
+		Range range = log.query(Tier.RAW, START + 10 * SECOND, START + 20 * SECOND);
+		assertEquals(Tier.RAW, range.getTier());
+		assertEquals(10, range.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(START + (10 + i) * SECOND, range.getTime(i));
+			assertEquals(10.0 + i, range.getDouble(Field.CPU_PERCENT, i), 0.0);
+			assertEquals(1, range.getLong(Field.COUNT, i));
+			assertEquals((10 + i) * 1024L, range.getLong(Field.MEMORY, i));
+		}
+		assertEquals("1 KB by second", 1024, range.getRate(Field.NETWORK_RX, 1));
+
+		assertEquals(100, log.query(Tier.RAW, 0, Long.MAX_VALUE).size());
+		assertTrue(log.query(Tier.RAW, START + 100 * SECOND, Long.MAX_VALUE).isEmpty());
+		assertTrue(log.query(Tier.RAW, START + 20 * SECOND, START + 10 * SECOND).isEmpty());
+	}
+
+	public void testRoll() throws Exception {
+		int samples = Tier.RAW.getCapacity() + 10;
+		for (int i = 0; i < samples; i++) {
+			append(START + i * SECOND, i % 100);
+		}
+		assertEquals(2, segments(Tier.RAW));
+
+		// Across the two segments.
+		long boundary = START + Tier.RAW.getCapacity() * SECOND;
+		Range range = log.query(Tier.RAW, boundary - 5 * SECOND, boundary + 5 * SECOND);
+		assertEquals(10, range.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(boundary + (i - 5) * SECOND, range.getTime(i));
+		}
+		assertEquals(samples, log.query(Tier.RAW, 0, Long.MAX_VALUE).size());
+
+		// Reopened, the appends go on after the last sample.
+		log.close();
+		log = new MetricsLog(dir);
+		assertEquals(samples, log.query(Tier.RAW, 0, Long.MAX_VALUE).size());
+		append(START, 0);
+		append(START + samples * SECOND, 0);
+		assertEquals(samples + 1, log.query(Tier.RAW, 0, Long.MAX_VALUE).size());
+		assertEquals(2, segments(Tier.RAW));
+	}
+
+	public void testDownsample() throws Exception {
+		// 1 minute of samples, cpu 0 to 59 %.
+		for (int i = 0; i < 60; i++) {
+			append(START + i * SECOND, i);
+		}
+		log.downsample(START + TimeUnit.HOURS.toMillis(1));
+
+		Range seconds = log.query(Tier.SECONDS_10, 0, Long.MAX_VALUE);
+		assertEquals(6, seconds.size());
+		for (int i = 0; i < 6; i++) {
+			assertEquals(START + i * 10 * SECOND, seconds.getTime(i));
+			assertEquals(10, seconds.getLong(Field.COUNT, i));
+			assertEquals("average", i * 10 + 4.5, seconds.getDouble(Field.CPU_PERCENT, i), 1e-9);
+			assertEquals("maximum", i * 10 + 9.0, seconds.getDouble(Field.CPU_PERCENT_MAX, i), 0.0);
+			assertEquals("last value of the counter", (i * 10 + 9) * 1024L, seconds.getLong(Field.NETWORK_RX, i));
+		}
+
+		Range minute = log.query(Tier.MINUTE_1, 0, Long.MAX_VALUE);
+		assertEquals(1, minute.size());
+		assertEquals(START, minute.getTime(0));
+		assertEquals(60, minute.getLong(Field.COUNT, 0));
+		assertEquals(29.5, minute.getDouble(Field.CPU_PERCENT, 0), 1e-9);
+		assertEquals(59.0, minute.getDouble(Field.CPU_PERCENT_MAX, 0), 0.0);
+		assertEquals(59 * 1024L, minute.getLong(Field.MEMORY_MAX, 0));
+
+		Range minutes = log.query(Tier.MINUTES_10, 0, Long.MAX_VALUE);
+		assertEquals(1, minutes.size());
+		assertEquals(60, minutes.getLong(Field.COUNT, 0));
+
+		// Already downsampled.
+		log.downsample(START + TimeUnit.HOURS.toMillis(2));
+		assertEquals(6, log.query(Tier.SECONDS_10, 0, Long.MAX_VALUE).size());
+	}
+
+	public void testIncompleteBucket() throws Exception {
+		for (int i = 0; i < 15; i++) {
+			append(START + i * SECOND, i);
+		}
+		// The second bucket may still receive samples.
+		log.downsample(START + 15 * SECOND);
+		assertEquals(1, log.query(Tier.SECONDS_10, 0, Long.MAX_VALUE).size());
+
+		log.downsample(START + 30 * SECOND);
+		Range seconds = log.query(Tier.SECONDS_10, 0, Long.MAX_VALUE);
+		assertEquals(2, seconds.size());
+		assertEquals(5, seconds.getLong(Field.COUNT, 1));
+	}
+
+	public void testQueryMaxPoints() throws Exception {
+		for (int i = 0; i < 600; i++) {
+			append(START + i * SECOND, 1);
+		}
+		log.downsample(START + TimeUnit.HOURS.toMillis(1));
+		long to = START + 600 * SECOND;
+
+		assertEquals(Tier.RAW, log.query(START, to, 600).getTier());
+		Range range = log.query(START, to, 100);
+		assertEquals(Tier.SECONDS_10, range.getTier());
+		assertEquals(60, range.size());
+		assertEquals(Tier.MINUTE_1, log.query(START, to, 10).getTier());
+		assertEquals(Tier.MINUTES_10, log.query(START, to, 0).getTier());
+	}
+
+	public void testClosed() throws Exception {
+		append(START, 1);
+		log.close();
+		assertTrue(log.isClosed());
+		try {
+			log.query(Tier.RAW, 0, Long.MAX_VALUE);
+			fail("a closed log is read");
+		} catch (IOException ex) {
+			// Expected.
+		}
+	}
+
+	/**
+	 * Append a sample, its memory and its network counter grow with the cpu.
+	 */
+	private void append(final long time, final int cpuPercent) throws IOException {
+		String json = "{\"read\":\"" + format.format(new Date(time)) + "\","
+				+ "\"cpu_stats\":{\"cpu_usage\":{\"total_usage\":" + time + "}},"
+				+ "\"memory_stats\":{\"usage\":" + cpuPercent * 1024L + ",\"limit\":1073741824},"
+				+ "\"networks\":{\"eth0\":{\"rx_bytes\":" + cpuPercent * 1024L + ",\"tx_bytes\":0}}}";
+		byte[] data = json.getBytes(StandardCharsets.UTF_8);
+		StatsDecoder.decode(data, 0, data.length, sample);
+		assertEquals(time, sample.getTime());
+		log.append(sample, cpuPercent);
+	}
+
+	private int segments(final Tier tier) {
+		File[] files = new File(dir, tier.getDirectory()).listFiles();
+		int count = 0;
+		if (files != null) {
+			for (File file : files) {
+				if (file.getName().endsWith(MetricsLog.SEGMENT_SUFFIX)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static void delete(final File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.tests.connector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.cmf.occi.docker.Container;
+import org.eclipse.cmf.occi.docker.DockerFactory;
+import org.eclipse.cmf.occi.docker.connector.observer.StatsCallBack;
+import org.eclipse.cmf.occi.docker.connector.observer.StatsCollector;
+import org.eclipse.cmf.occi.docker.connector.observer.StatsSample;
+import org.eclipse.cmf.occi.infrastructure.ComputeStatus;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Stats collection of many containers on a fake docker daemon : the requests
+ * and the sockets are bounded by the parallelism of the collector, the
+ * containers unknown by the daemon are no more monitored, and the requests of a
+ * round complete within its interval with the latency of a real daemon.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class StatsCollectorTest extends TestCase {
+
+	private static final int CONTAINERS = 500;
+
+	private static final int MISSING = 50;
+
+	private static final int PARALLELISM = 4;
+
+	private static final long TIMEOUT = 60000;
+
+	/**
+	 * A real daemon answers a stats request after a second sample.
+	 */
+	private static final long DAEMON_LATENCY = 1000;
+
+	private static final int SLOW_CONTAINERS = 50;
+
+	private static final long SLOW_ROUND_INTERVAL = 3000;
+
+	private static final int SLOW_ROUNDS = 3;
+
+	private static final String STATS = "{\"read\":\"2017-10-01T10:00:00.000000000Z\","
+			+ "\"cpu_stats\":{\"cpu_usage\":{\"total_usage\":2000,\"percpu_usage\":[1000,1000]},\"system_cpu_usage\":20000},"
+			+ "\"precpu_stats\":{\"cpu_usage\":{\"total_usage\":1000,\"percpu_usage\":[500,500]},\"system_cpu_usage\":10000},"
+			+ "\"memory_stats\":{\"usage\":1048576,\"limit\":4194304},"
+			+ "\"networks\":{\"eth0\":{\"rx_bytes\":100,\"tx_bytes\":200}}}";
+
+	private FakeDaemon daemon;
+
+	private StatsCollector collector;
+
+	private final List<String> registered = new ArrayList<>();
+
+	private final AtomicInteger active = new AtomicInteger();
+
+	private final AtomicInteger maxActive = new AtomicInteger();
+
+	private final Map<String, AtomicInteger> samples = new ConcurrentHashMap<>();
+
+	private volatile long latency = 5;
+
+	public static void main(String[] args) {
+		TestRunner.run(StatsCollectorTest.class);
+	}
+
+	public StatsCollectorTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		daemon = new FakeDaemon() {
+			@Override
+			protected Response handle(final String method, final String path) throws InterruptedException {
+				int current = active.incrementAndGet();
+				try {
+					int max;
+					while (current > (max = maxActive.get()) && !maxActive.compareAndSet(max, current)) {
+						// retry
+					}
+					// The daemon waits for a second sample.
+					Thread.sleep(latency);
+					String id = path.substring(path.indexOf("/containers/") + "/containers/".length(),
+							path.lastIndexOf("/stats"));
+					if (id.startsWith("missing")) {
+						return new Response(404, "{\"message\":\"No such container\"}");
+					}
+					return new Response(200, STATS);
+				} finally {
+					active.decrementAndGet();
+				}
+			}
+		};
+		collector = StatsCollector.forApi("http://127.0.0.1:" + daemon.getPort() + "/v1.32", 200, PARALLELISM);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (String id : registered) {
+			collector.unregister(id);
+		}
+		daemon.close();
+	}
+
+	public void testBoundedCollection() throws Exception {
+		for (int i = 0; i < CONTAINERS; i++) {
+			String id = (i < MISSING ? "missing" : "container") + i;
+			collector.register(null, newContainer(id), new CountingCallBack(id));
+		}
+		assertEquals(CONTAINERS, collector.size());
+
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while ((samples.size() < CONTAINERS - MISSING || collector.size() > CONTAINERS - MISSING)
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+
+		assertEquals("every running container is sampled", CONTAINERS - MISSING, samples.size());
+		assertEquals("the removed containers are no more monitored", CONTAINERS - MISSING, collector.size());
+		for (String id : samples.keySet()) {
+			assertFalse(id.startsWith("missing"));
+		}
+		assertTrue("at most " + PARALLELISM + " requests at the same time, was " + maxActive.get(),
+				maxActive.get() <= PARALLELISM);
+		assertTrue("at most " + PARALLELISM + " sockets, was " + daemon.getConnections(),
+				daemon.getConnections() <= PARALLELISM);
+	}
+
+	public void testStopWithLastContainer() throws Exception {
+		collector.register(null, newContainer("container0"), new CountingCallBack("container0"));
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (samples.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertFalse(samples.isEmpty());
+		collector.unregister("container0");
+		assertEquals(0, collector.size());
+		assertEquals(0, collector.getActiveRequests());
+	}
+
+	/**
+	 * A container is skipped by a round while its previous request is pending :
+	 * every container is sampled at each round only if the requests of a round
+	 * complete within the interval.
+	 */
+	public void testRoundWithinInterval() throws Exception {
+		latency = DAEMON_LATENCY;
+		String apiUri = "http://127.0.0.1:" + daemon.getPort() + "/v1.32";
+		collector = StatsCollector.forApi(apiUri, SLOW_ROUND_INTERVAL, SLOW_CONTAINERS);
+		for (int i = 0; i < SLOW_CONTAINERS; i++) {
+			String id = "container" + i;
+			collector.register(null, newContainer(id), new CountingCallBack(id));
+		}
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (samples.size() < SLOW_CONTAINERS && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertEquals("every container is sampled", SLOW_CONTAINERS, samples.size());
+
+		Map<String, Integer> before = new HashMap<>();
+		for (Map.Entry<String, AtomicInteger> entry : samples.entrySet()) {
+			before.put(entry.getKey(), entry.getValue().get());
+		}
+		Thread.sleep(SLOW_ROUNDS * SLOW_ROUND_INTERVAL);
+		for (Map.Entry<String, AtomicInteger> entry : samples.entrySet()) {
+			int sampled = entry.getValue().get() - before.get(entry.getKey());
+			assertTrue(entry.getKey() + " sampled at least " + (SLOW_ROUNDS - 1) + " times in " + SLOW_ROUNDS
+					+ " rounds, was " + sampled, sampled >= SLOW_ROUNDS - 1);
+		}
+
+		// The pending requests hold no thread.
+		int threads = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("docker-stats-" + apiUri)) {
+				threads++;
+			}
+		}
+		assertEquals("one thread for the collector", 1, threads);
+	}
+
+	private Container newContainer(final String id) {
+		Container container = DockerFactory.eINSTANCE.createContainer();
+		container.setName(id);
+		container.setContainerid(id);
+		container.setOcciComputeState(ComputeStatus.ACTIVE);
+		registered.add(id);
+		return container;
+	}
+
+	/**
+	 * Count the samples of a container without updating the model.
+	 */
+	private class CountingCallBack extends StatsCallBack {
+
+		private final String id;
+
+		CountingCallBack(final String id) {
+			super(null);
+			this.id = id;
+		}
+
+		@Override
+		public boolean acceptSample(long time) {
+			return true;
+		}
+
+		@Override
+		public void process(StatsSample sample) {
+			AtomicInteger count = samples.get(id);
+			if (count == null) {
+				samples.putIfAbsent(id, new AtomicInteger());
+				count = samples.get(id);
+			}
+			count.incrementAndGet();
+		}
+	}
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2016-2017 Inria
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * - Christophe Gourdin <christophe.gourdin@inria.fr>
+ *  
+ */
+package org.eclipse.cmf.occi.docker.tests.connector;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.cmf.occi.docker.connector.observer.StatsDecoder;
+import org.eclipse.cmf.occi.docker.connector.observer.StatsSample;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Decoding of the docker stats payload, and the memory allocated by a decode :
+ * the decoder is called for every container at every round, it must not build
+ * the json tree nor the String values.
+ *
+ * @author Christophe Gourdin
+ *
+ */
+public class StatsDecoderTest extends TestCase {
+
+	private static final String STATS = "{\"read\":\"2017-10-01T10:00:00.250000000Z\","
+			+ "\"preread\":\"2017-10-01T09:59:59.250000000Z\",\"pids_stats\":{\"current\":3},"
+			+ "\"cpu_stats\":{\"cpu_usage\":{\"total_usage\":2000,\"percpu_usage\":[1000,1000],"
+			+ "\"usage_in_kernelmode\":100,\"usage_in_usermode\":1900},\"system_cpu_usage\":20000,"
+			+ "\"online_cpus\":2,\"throttling_data\":{\"periods\":0,\"throttled_periods\":0}},"
+			+ "\"precpu_stats\":{\"cpu_usage\":{\"total_usage\":1000,\"percpu_usage\":[500,500]},"
+			+ "\"system_cpu_usage\":10000},"
+			+ "\"memory_stats\":{\"usage\":1048576,\"max_usage\":2097152,\"stats\":{\"cache\":4096,\"rss\":8192},"
+			+ "\"limit\":18446744073709551615},"
+			+ "\"blkio_stats\":{\"io_service_bytes_recursive\":[{\"major\":8,\"minor\":0,\"op\":\"Read\",\"value\":300},"
+			+ "{\"major\":8,\"minor\":0,\"op\":\"Write\",\"value\":400},{\"major\":8,\"minor\":0,\"op\":\"Total\",\"value\":700}],"
+			+ "\"io_serviced_recursive\":[{\"major\":8,\"minor\":0,\"op\":\"Read\",\"value\":3},"
+			+ "{\"major\":8,\"minor\":0,\"op\":\"Write\",\"value\":4}]},"
+			+ "\"networks\":{\"eth0\":{\"rx_bytes\":100,\"tx_bytes\":200},\"eth1\":{\"rx_bytes\":10,\"tx_bytes\":20}}}";
+
+	private static final int WARMUP = 20000;
+
+	private static final int DECODES = 10000;
+
+	/**
+	 * Bound of the bytes allocated by a decode : the parser and its context,
+	 * the buffers are recycled by Jackson.
+	 */
+	private static final long MAX_BYTES_BY_DECODE = 2048;
+
+	public static void main(String[] args) {
+		TestRunner.run(StatsDecoderTest.class);
+	}
+
+	public StatsDecoderTest(String name) {
+		super(name);
+	}
+
+	public void testDecode() throws Exception {
+		byte[] data = STATS.getBytes(StandardCharsets.UTF_8);
+		StatsSample sample = new StatsSample();
+		StatsDecoder.decode(data, 0, data.length, sample);
+
+		assertEquals(1506852000250L, sample.getTime());
+		assertEquals(2000, sample.getCpuTotal());
+		assertEquals(20000, sample.getCpuSystem());
+		assertEquals(1000, sample.getPreCpuTotal());
+		assertEquals(10000, sample.getPreCpuSystem());
+		assertEquals(2, sample.getCores());
+		assertEquals(1048576, sample.getMemoryUsage());
+		assertEquals("no limit is an unsigned 64 bits value", Long.MAX_VALUE, sample.getMemoryLimit());
+		assertEquals(4096, sample.getMemoryCache());
+		assertEquals(110, sample.getNetworkRx());
+		assertEquals(220, sample.getNetworkTx());
+		assertEquals(300, sample.getBlkioRead());
+		assertEquals(400, sample.getBlkioWrite());
+		assertEquals(3, sample.getBlkioReadOps());
+		assertEquals(4, sample.getBlkioWriteOps());
+	}
+
+	public void testReuseSample() throws Exception {
+		byte[] data = STATS.getBytes(StandardCharsets.UTF_8);
+		StatsSample sample = new StatsSample();
+		StatsDecoder.decode(data, 0, data.length, sample);
+		StatsDecoder.decode(data, 0, data.length, sample);
+		assertEquals("the sums restart at each decode", 110, sample.getNetworkRx());
+		assertEquals(300, sample.getBlkioRead());
+
+		byte[] empty = "{}".getBytes(StandardCharsets.UTF_8);
+		StatsDecoder.decode(empty, 0, empty.length, sample);
+		assertEquals(0, sample.getCpuTotal());
+		assertEquals(0, sample.getNetworkRx());
+	}
+
+	public void testAllocation() throws Exception {
+		Method allocatedBytes = getAllocatedBytesMethod();
+		if (allocatedBytes == null) {
+			// Allocation counter not supported by this jvm.
+			return;
+		}
+		byte[] data = STATS.getBytes(StandardCharsets.UTF_8);
+		StatsSample sample = new StatsSample();
+		long checksum = 0;
+		for (int i = 0; i < WARMUP; i++) {
+			StatsDecoder.decode(data, 0, data.length, sample);
+			checksum += sample.getCpuTotal();
+		}
+		Object threads = ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long before = (Long) allocatedBytes.invoke(threads, threadId);
+		for (int i = 0; i < DECODES; i++) {
+			StatsDecoder.decode(data, 0, data.length, sample);
+			checksum += sample.getCpuTotal();
+		}
+		long after = (Long) allocatedBytes.invoke(threads, threadId);
+		assertEquals(2000L * (WARMUP + DECODES), checksum);
+
+		long bytesByDecode = (after - before) / DECODES;
+		assertTrue("at most " + MAX_BYTES_BY_DECODE + " bytes allocated by a decode, was " + bytesByDecode,
+				bytesByDecode <= MAX_BYTES_BY_DECODE);
+	}
+
+	/**
+	 *
+	 * @return ThreadMXBean.getThreadAllocatedBytes(long) of the hotspot jvm,
+	 *         null if it is not available or disabled.
+	 */
+	private static Method getAllocatedBytesMethod() {
+		try {
+			Class<?> type = Class.forName("com.sun.management.ThreadMXBean", true,
+					ClassLoader.getSystemClassLoader());
+			Object threads = ManagementFactory.getThreadMXBean();
+			if (!type.isInstance(threads)) {
+				return null;
+			}
+			if (!(Boolean) type.getMethod("isThreadAllocatedMemorySupported").invoke(threads)
+					|| !(Boolean) type.getMethod("isThreadAllocatedMemoryEnabled").invoke(threads)) {
+				return null;
+			}
+			return type.getMethod("getThreadAllocatedBytes", long.class);
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			return null;
+		}
+	}
+
+}
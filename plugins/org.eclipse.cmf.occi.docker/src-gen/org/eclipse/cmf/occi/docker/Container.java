@@ -79,6 +79,12 @@ import org.eclipse.cmf.occi.infrastructure.Compute;
  *   <li>{@link org.eclipse.cmf.occi.docker.Container#getCpuSetCpus <em>Cpu Set Cpus</em>}</li>
  *   <li>{@link org.eclipse.cmf.occi.docker.Container#getCpuSetMems <em>Cpu Set Mems</em>}</li>
  *   <li>{@link org.eclipse.cmf.occi.docker.Container#isTty <em>Tty</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.Container#getNetworkRxRate <em>Network Rx Rate</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.Container#getNetworkTxRate <em>Network Tx Rate</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.Container#getDiskReadRate <em>Disk Read Rate</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.Container#getDiskWriteRate <em>Disk Write Rate</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.Container#getDiskReadOps <em>Disk Read Ops</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.Container#getDiskWriteOps <em>Disk Write Ops</em>}</li>
  * </ul>
  *
  * @see org.eclipse.cmf.occi.docker.DockerPackage#getContainer()
@@ -1449,6 +1455,162 @@ public interface Container extends Compute {
 	 */
 	void setTty(boolean value);
 
+	/**
+	 * Returns the value of the '<em><b>Network Rx Rate</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * <!-- begin-model-doc -->
+	 * 
+	 * <!-- end-model-doc -->
+	 * @return the value of the '<em>Network Rx Rate</em>' attribute.
+	 * @see #setNetworkRxRate(Integer)
+	 * @see org.eclipse.cmf.occi.docker.DockerPackage#getContainer_NetworkRxRate()
+	 * @model dataType="org.eclipse.cmf.occi.core.Integer"
+	 *        annotation="http://www.eclipse.org/emf/2002/GenModel get='throw new UnsupportedOperationException();  // FIXME Unimplemented http://occiware.org/occi/docker/ecore!Container!networkRxRate'"
+	 * @generated
+	 */
+	Integer getNetworkRxRate();
+
+	/**
+	 * Sets the value of the '{@link org.eclipse.cmf.occi.docker.Container#getNetworkRxRate <em>Network Rx Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @param value the new value of the '<em>Network Rx Rate</em>' attribute.
+	 * @see #getNetworkRxRate()
+	 * @generated
+	 */
+	void setNetworkRxRate(Integer value);
+
+	/**
+	 * Returns the value of the '<em><b>Network Tx Rate</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * <!-- begin-model-doc -->
+	 * 
+	 * <!-- end-model-doc -->
+	 * @return the value of the '<em>Network Tx Rate</em>' attribute.
+	 * @see #setNetworkTxRate(Integer)
+	 * @see org.eclipse.cmf.occi.docker.DockerPackage#getContainer_NetworkTxRate()
+	 * @model dataType="org.eclipse.cmf.occi.core.Integer"
+	 *        annotation="http://www.eclipse.org/emf/2002/GenModel get='throw new UnsupportedOperationException();  // FIXME Unimplemented http://occiware.org/occi/docker/ecore!Container!networkTxRate'"
+	 * @generated
+	 */
+	Integer getNetworkTxRate();
+
+	/**
+	 * Sets the value of the '{@link org.eclipse.cmf.occi.docker.Container#getNetworkTxRate <em>Network Tx Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @param value the new value of the '<em>Network Tx Rate</em>' attribute.
+	 * @see #getNetworkTxRate()
+	 * @generated
+	 */
+	void setNetworkTxRate(Integer value);
+
+	/**
+	 * Returns the value of the '<em><b>Disk Read Rate</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * <!-- begin-model-doc -->
+	 * 
+	 * <!-- end-model-doc -->
+	 * @return the value of the '<em>Disk Read Rate</em>' attribute.
+	 * @see #setDiskReadRate(Integer)
+	 * @see org.eclipse.cmf.occi.docker.DockerPackage#getContainer_DiskReadRate()
+	 * @model dataType="org.eclipse.cmf.occi.core.Integer"
+	 *        annotation="http://www.eclipse.org/emf/2002/GenModel get='throw new UnsupportedOperationException();  // FIXME Unimplemented http://occiware.org/occi/docker/ecore!Container!diskReadRate'"
+	 * @generated
+	 */
+	Integer getDiskReadRate();
+
+	/**
+	 * Sets the value of the '{@link org.eclipse.cmf.occi.docker.Container#getDiskReadRate <em>Disk Read Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @param value the new value of the '<em>Disk Read Rate</em>' attribute.
+	 * @see #getDiskReadRate()
+	 * @generated
+	 */
+	void setDiskReadRate(Integer value);
+
+	/**
+	 * Returns the value of the '<em><b>Disk Write Rate</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * <!-- begin-model-doc -->
+	 * 
+	 * <!-- end-model-doc -->
+	 * @return the value of the '<em>Disk Write Rate</em>' attribute.
+	 * @see #setDiskWriteRate(Integer)
+	 * @see org.eclipse.cmf.occi.docker.DockerPackage#getContainer_DiskWriteRate()
+	 * @model dataType="org.eclipse.cmf.occi.core.Integer"
+	 *        annotation="http://www.eclipse.org/emf/2002/GenModel get='throw new UnsupportedOperationException();  // FIXME Unimplemented http://occiware.org/occi/docker/ecore!Container!diskWriteRate'"
+	 * @generated
+	 */
+	Integer getDiskWriteRate();
+
+	/**
+	 * Sets the value of the '{@link org.eclipse.cmf.occi.docker.Container#getDiskWriteRate <em>Disk Write Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @param value the new value of the '<em>Disk Write Rate</em>' attribute.
+	 * @see #getDiskWriteRate()
+	 * @generated
+	 */
+	void setDiskWriteRate(Integer value);
+
+	/**
+	 * Returns the value of the '<em><b>Disk Read Ops</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * <!-- begin-model-doc -->
+	 * 
+	 * <!-- end-model-doc -->
+	 * @return the value of the '<em>Disk Read Ops</em>' attribute.
+	 * @see #setDiskReadOps(Integer)
+	 * @see org.eclipse.cmf.occi.docker.DockerPackage#getContainer_DiskReadOps()
+	 * @model dataType="org.eclipse.cmf.occi.core.Integer"
+	 *        annotation="http://www.eclipse.org/emf/2002/GenModel get='throw new UnsupportedOperationException();  // FIXME Unimplemented http://occiware.org/occi/docker/ecore!Container!diskReadOps'"
+	 * @generated
+	 */
+	Integer getDiskReadOps();
+
+	/**
+	 * Sets the value of the '{@link org.eclipse.cmf.occi.docker.Container#getDiskReadOps <em>Disk Read Ops</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @param value the new value of the '<em>Disk Read Ops</em>' attribute.
+	 * @see #getDiskReadOps()
+	 * @generated
+	 */
+	void setDiskReadOps(Integer value);
+
+	/**
+	 * Returns the value of the '<em><b>Disk Write Ops</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * <!-- begin-model-doc -->
+	 * 
+	 * <!-- end-model-doc -->
+	 * @return the value of the '<em>Disk Write Ops</em>' attribute.
+	 * @see #setDiskWriteOps(Integer)
+	 * @see org.eclipse.cmf.occi.docker.DockerPackage#getContainer_DiskWriteOps()
+	 * @model dataType="org.eclipse.cmf.occi.core.Integer"
+	 *        annotation="http://www.eclipse.org/emf/2002/GenModel get='throw new UnsupportedOperationException();  // FIXME Unimplemented http://occiware.org/occi/docker/ecore!Container!diskWriteOps'"
+	 * @generated
+	 */
+	Integer getDiskWriteOps();
+
+	/**
+	 * Sets the value of the '{@link org.eclipse.cmf.occi.docker.Container#getDiskWriteOps <em>Disk Write Ops</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @param value the new value of the '<em>Disk Write Ops</em>' attribute.
+	 * @see #getDiskWriteOps()
+	 * @generated
+	 */
+	void setDiskWriteOps(Integer value);
+
 	/**
 	 * <!-- begin-user-doc -->
 	 * <!-- end-user-doc -->
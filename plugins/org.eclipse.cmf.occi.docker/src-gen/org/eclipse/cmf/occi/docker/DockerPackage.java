@@ -749,6 +749,60 @@ public interface DockerPackage extends EPackage {
 	 */
 	int CONTAINER__TTY = InfrastructurePackage.COMPUTE_FEATURE_COUNT + 51;
 
+	/**
+	 * The feature id for the '<em><b>Network Rx Rate</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 * @ordered
+	 */
+	int CONTAINER__NETWORK_RX_RATE = InfrastructurePackage.COMPUTE_FEATURE_COUNT + 52;
+
+	/**
+	 * The feature id for the '<em><b>Network Tx Rate</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 * @ordered
+	 */
+	int CONTAINER__NETWORK_TX_RATE = InfrastructurePackage.COMPUTE_FEATURE_COUNT + 53;
+
+	/**
+	 * The feature id for the '<em><b>Disk Read Rate</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 * @ordered
+	 */
+	int CONTAINER__DISK_READ_RATE = InfrastructurePackage.COMPUTE_FEATURE_COUNT + 54;
+
+	/**
+	 * The feature id for the '<em><b>Disk Write Rate</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 * @ordered
+	 */
+	int CONTAINER__DISK_WRITE_RATE = InfrastructurePackage.COMPUTE_FEATURE_COUNT + 55;
+
+	/**
+	 * The feature id for the '<em><b>Disk Read Ops</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 * @ordered
+	 */
+	int CONTAINER__DISK_READ_OPS = InfrastructurePackage.COMPUTE_FEATURE_COUNT + 56;
+
+	/**
+	 * The feature id for the '<em><b>Disk Write Ops</b></em>' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 * @ordered
+	 */
+	int CONTAINER__DISK_WRITE_OPS = InfrastructurePackage.COMPUTE_FEATURE_COUNT + 57;
+
 	/**
 	 * The number of structural features of the '<em>Container</em>' class.
 	 * <!-- begin-user-doc -->
@@ -756,7 +810,7 @@ public interface DockerPackage extends EPackage {
 	 * @generated
 	 * @ordered
 	 */
-	int CONTAINER_FEATURE_COUNT = InfrastructurePackage.COMPUTE_FEATURE_COUNT + 52;
+	int CONTAINER_FEATURE_COUNT = InfrastructurePackage.COMPUTE_FEATURE_COUNT + 58;
 
 	/**
 	 * The operation id for the '<em>Occi Create</em>' operation.
@@ -11556,6 +11610,72 @@ public interface DockerPackage extends EPackage {
 	 */
 	EAttribute getContainer_Tty();
 
+	/**
+	 * Returns the meta object for the attribute '{@link org.eclipse.cmf.occi.docker.Container#getNetworkRxRate <em>Network Rx Rate</em>}'.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @return the meta object for the attribute '<em>Network Rx Rate</em>'.
+	 * @see org.eclipse.cmf.occi.docker.Container#getNetworkRxRate()
+	 * @see #getContainer()
+	 * @generated
+	 */
+	EAttribute getContainer_NetworkRxRate();
+
+	/**
+	 * Returns the meta object for the attribute '{@link org.eclipse.cmf.occi.docker.Container#getNetworkTxRate <em>Network Tx Rate</em>}'.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @return the meta object for the attribute '<em>Network Tx Rate</em>'.
+	 * @see org.eclipse.cmf.occi.docker.Container#getNetworkTxRate()
+	 * @see #getContainer()
+	 * @generated
+	 */
+	EAttribute getContainer_NetworkTxRate();
+
+	/**
+	 * Returns the meta object for the attribute '{@link org.eclipse.cmf.occi.docker.Container#getDiskReadRate <em>Disk Read Rate</em>}'.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @return the meta object for the attribute '<em>Disk Read Rate</em>'.
+	 * @see org.eclipse.cmf.occi.docker.Container#getDiskReadRate()
+	 * @see #getContainer()
+	 * @generated
+	 */
+	EAttribute getContainer_DiskReadRate();
+
+	/**
+	 * Returns the meta object for the attribute '{@link org.eclipse.cmf.occi.docker.Container#getDiskWriteRate <em>Disk Write Rate</em>}'.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @return the meta object for the attribute '<em>Disk Write Rate</em>'.
+	 * @see org.eclipse.cmf.occi.docker.Container#getDiskWriteRate()
+	 * @see #getContainer()
+	 * @generated
+	 */
+	EAttribute getContainer_DiskWriteRate();
+
+	/**
+	 * Returns the meta object for the attribute '{@link org.eclipse.cmf.occi.docker.Container#getDiskReadOps <em>Disk Read Ops</em>}'.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @return the meta object for the attribute '<em>Disk Read Ops</em>'.
+	 * @see org.eclipse.cmf.occi.docker.Container#getDiskReadOps()
+	 * @see #getContainer()
+	 * @generated
+	 */
+	EAttribute getContainer_DiskReadOps();
+
+	/**
+	 * Returns the meta object for the attribute '{@link org.eclipse.cmf.occi.docker.Container#getDiskWriteOps <em>Disk Write Ops</em>}'.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @return the meta object for the attribute '<em>Disk Write Ops</em>'.
+	 * @see org.eclipse.cmf.occi.docker.Container#getDiskWriteOps()
+	 * @see #getContainer()
+	 * @generated
+	 */
+	EAttribute getContainer_DiskWriteOps();
+
 	/**
 	 * Returns the meta object for the '{@link org.eclipse.cmf.occi.docker.Container#create() <em>Create</em>}' operation.
 	 * <!-- begin-user-doc -->
@@ -14522,6 +14642,54 @@ public interface DockerPackage extends EPackage {
 		 */
 		EAttribute CONTAINER__TTY = eINSTANCE.getContainer_Tty();
 
+		/**
+		 * The meta object literal for the '<em><b>Network Rx Rate</b></em>' attribute feature.
+		 * <!-- begin-user-doc -->
+		 * <!-- end-user-doc -->
+		 * @generated
+		 */
+		EAttribute CONTAINER__NETWORK_RX_RATE = eINSTANCE.getContainer_NetworkRxRate();
+
+		/**
+		 * The meta object literal for the '<em><b>Network Tx Rate</b></em>' attribute feature.
+		 * <!-- begin-user-doc -->
+		 * <!-- end-user-doc -->
+		 * @generated
+		 */
+		EAttribute CONTAINER__NETWORK_TX_RATE = eINSTANCE.getContainer_NetworkTxRate();
+
+		/**
+		 * The meta object literal for the '<em><b>Disk Read Rate</b></em>' attribute feature.
+		 * <!-- begin-user-doc -->
+		 * <!-- end-user-doc -->
+		 * @generated
+		 */
+		EAttribute CONTAINER__DISK_READ_RATE = eINSTANCE.getContainer_DiskReadRate();
+
+		/**
+		 * The meta object literal for the '<em><b>Disk Write Rate</b></em>' attribute feature.
+		 * <!-- begin-user-doc -->
+		 * <!-- end-user-doc -->
+		 * @generated
+		 */
+		EAttribute CONTAINER__DISK_WRITE_RATE = eINSTANCE.getContainer_DiskWriteRate();
+
+		/**
+		 * The meta object literal for the '<em><b>Disk Read Ops</b></em>' attribute feature.
+		 * <!-- begin-user-doc -->
+		 * <!-- end-user-doc -->
+		 * @generated
+		 */
+		EAttribute CONTAINER__DISK_READ_OPS = eINSTANCE.getContainer_DiskReadOps();
+
+		/**
+		 * The meta object literal for the '<em><b>Disk Write Ops</b></em>' attribute feature.
+		 * <!-- begin-user-doc -->
+		 * <!-- end-user-doc -->
+		 * @generated
+		 */
+		EAttribute CONTAINER__DISK_WRITE_OPS = eINSTANCE.getContainer_DiskWriteOps();
+
 		/**
 		 * The meta object literal for the '<em><b>Create</b></em>' operation.
 		 * <!-- begin-user-doc -->
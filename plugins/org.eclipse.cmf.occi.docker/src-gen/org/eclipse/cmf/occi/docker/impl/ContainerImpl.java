@@ -89,6 +89,12 @@ import org.eclipse.emf.ecore.impl.ENotificationImpl;
  *   <li>{@link org.eclipse.cmf.occi.docker.impl.ContainerImpl#getCpuSetCpus <em>Cpu Set Cpus</em>}</li>
  *   <li>{@link org.eclipse.cmf.occi.docker.impl.ContainerImpl#getCpuSetMems <em>Cpu Set Mems</em>}</li>
  *   <li>{@link org.eclipse.cmf.occi.docker.impl.ContainerImpl#isTty <em>Tty</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.impl.ContainerImpl#getNetworkRxRate <em>Network Rx Rate</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.impl.ContainerImpl#getNetworkTxRate <em>Network Tx Rate</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.impl.ContainerImpl#getDiskReadRate <em>Disk Read Rate</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.impl.ContainerImpl#getDiskWriteRate <em>Disk Write Rate</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.impl.ContainerImpl#getDiskReadOps <em>Disk Read Ops</em>}</li>
+ *   <li>{@link org.eclipse.cmf.occi.docker.impl.ContainerImpl#getDiskWriteOps <em>Disk Write Ops</em>}</li>
  * </ul>
  *
  * @generated
@@ -1134,6 +1140,126 @@ public class ContainerImpl extends ComputeImpl implements org.eclipse.cmf.occi.d
 	 */
 	protected boolean tty = TTY_EDEFAULT;
 
+	/**
+	 * The default value of the '{@link #getNetworkRxRate() <em>Network Rx Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getNetworkRxRate()
+	 * @generated
+	 * @ordered
+	 */
+	protected static final Integer NETWORK_RX_RATE_EDEFAULT = null;
+
+	/**
+	 * The cached value of the '{@link #getNetworkRxRate() <em>Network Rx Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getNetworkRxRate()
+	 * @generated
+	 * @ordered
+	 */
+	protected Integer networkRxRate = NETWORK_RX_RATE_EDEFAULT;
+
+	/**
+	 * The default value of the '{@link #getNetworkTxRate() <em>Network Tx Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getNetworkTxRate()
+	 * @generated
+	 * @ordered
+	 */
+	protected static final Integer NETWORK_TX_RATE_EDEFAULT = null;
+
+	/**
+	 * The cached value of the '{@link #getNetworkTxRate() <em>Network Tx Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getNetworkTxRate()
+	 * @generated
+	 * @ordered
+	 */
+	protected Integer networkTxRate = NETWORK_TX_RATE_EDEFAULT;
+
+	/**
+	 * The default value of the '{@link #getDiskReadRate() <em>Disk Read Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getDiskReadRate()
+	 * @generated
+	 * @ordered
+	 */
+	protected static final Integer DISK_READ_RATE_EDEFAULT = null;
+
+	/**
+	 * The cached value of the '{@link #getDiskReadRate() <em>Disk Read Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getDiskReadRate()
+	 * @generated
+	 * @ordered
+	 */
+	protected Integer diskReadRate = DISK_READ_RATE_EDEFAULT;
+
+	/**
+	 * The default value of the '{@link #getDiskWriteRate() <em>Disk Write Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getDiskWriteRate()
+	 * @generated
+	 * @ordered
+	 */
+	protected static final Integer DISK_WRITE_RATE_EDEFAULT = null;
+
+	/**
+	 * The cached value of the '{@link #getDiskWriteRate() <em>Disk Write Rate</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getDiskWriteRate()
+	 * @generated
+	 * @ordered
+	 */
+	protected Integer diskWriteRate = DISK_WRITE_RATE_EDEFAULT;
+
+	/**
+	 * The default value of the '{@link #getDiskReadOps() <em>Disk Read Ops</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getDiskReadOps()
+	 * @generated
+	 * @ordered
+	 */
+	protected static final Integer DISK_READ_OPS_EDEFAULT = null;
+
+	/**
+	 * The cached value of the '{@link #getDiskReadOps() <em>Disk Read Ops</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getDiskReadOps()
+	 * @generated
+	 * @ordered
+	 */
+	protected Integer diskReadOps = DISK_READ_OPS_EDEFAULT;
+
+	/**
+	 * The default value of the '{@link #getDiskWriteOps() <em>Disk Write Ops</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getDiskWriteOps()
+	 * @generated
+	 * @ordered
+	 */
+	protected static final Integer DISK_WRITE_OPS_EDEFAULT = null;
+
+	/**
+	 * The cached value of the '{@link #getDiskWriteOps() <em>Disk Write Ops</em>}' attribute.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @see #getDiskWriteOps()
+	 * @generated
+	 * @ordered
+	 */
+	protected Integer diskWriteOps = DISK_WRITE_OPS_EDEFAULT;
+
 	/**
 	 * <!-- begin-user-doc -->
 	 * <!-- end-user-doc -->
@@ -2245,6 +2371,132 @@ public class ContainerImpl extends ComputeImpl implements org.eclipse.cmf.occi.d
 			eNotify(new ENotificationImpl(this, Notification.SET, DockerPackage.CONTAINER__TTY, oldTty, tty));
 	}
 
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public Integer getNetworkRxRate() {
+		return networkRxRate;
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public void setNetworkRxRate(Integer newNetworkRxRate) {
+		Integer oldNetworkRxRate = networkRxRate;
+		networkRxRate = newNetworkRxRate;
+		if (eNotificationRequired())
+			eNotify(new ENotificationImpl(this, Notification.SET, DockerPackage.CONTAINER__NETWORK_RX_RATE, oldNetworkRxRate, networkRxRate));
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public Integer getNetworkTxRate() {
+		return networkTxRate;
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public void setNetworkTxRate(Integer newNetworkTxRate) {
+		Integer oldNetworkTxRate = networkTxRate;
+		networkTxRate = newNetworkTxRate;
+		if (eNotificationRequired())
+			eNotify(new ENotificationImpl(this, Notification.SET, DockerPackage.CONTAINER__NETWORK_TX_RATE, oldNetworkTxRate, networkTxRate));
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public Integer getDiskReadRate() {
+		return diskReadRate;
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public void setDiskReadRate(Integer newDiskReadRate) {
+		Integer oldDiskReadRate = diskReadRate;
+		diskReadRate = newDiskReadRate;
+		if (eNotificationRequired())
+			eNotify(new ENotificationImpl(this, Notification.SET, DockerPackage.CONTAINER__DISK_READ_RATE, oldDiskReadRate, diskReadRate));
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public Integer getDiskWriteRate() {
+		return diskWriteRate;
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public void setDiskWriteRate(Integer newDiskWriteRate) {
+		Integer oldDiskWriteRate = diskWriteRate;
+		diskWriteRate = newDiskWriteRate;
+		if (eNotificationRequired())
+			eNotify(new ENotificationImpl(this, Notification.SET, DockerPackage.CONTAINER__DISK_WRITE_RATE, oldDiskWriteRate, diskWriteRate));
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public Integer getDiskReadOps() {
+		return diskReadOps;
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public void setDiskReadOps(Integer newDiskReadOps) {
+		Integer oldDiskReadOps = diskReadOps;
+		diskReadOps = newDiskReadOps;
+		if (eNotificationRequired())
+			eNotify(new ENotificationImpl(this, Notification.SET, DockerPackage.CONTAINER__DISK_READ_OPS, oldDiskReadOps, diskReadOps));
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public Integer getDiskWriteOps() {
+		return diskWriteOps;
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated
+	 */
+	public void setDiskWriteOps(Integer newDiskWriteOps) {
+		Integer oldDiskWriteOps = diskWriteOps;
+		diskWriteOps = newDiskWriteOps;
+		if (eNotificationRequired())
+			eNotify(new ENotificationImpl(this, Notification.SET, DockerPackage.CONTAINER__DISK_WRITE_OPS, oldDiskWriteOps, diskWriteOps));
+	}
+
 	/**
 	 * <!-- begin-user-doc -->
 	 * <!-- end-user-doc -->
@@ -2411,6 +2663,18 @@ public class ContainerImpl extends ComputeImpl implements org.eclipse.cmf.occi.d
 				return getCpuSetMems();
 			case DockerPackage.CONTAINER__TTY:
 				return isTty();
+			case DockerPackage.CONTAINER__NETWORK_RX_RATE:
+				return getNetworkRxRate();
+			case DockerPackage.CONTAINER__NETWORK_TX_RATE:
+				return getNetworkTxRate();
+			case DockerPackage.CONTAINER__DISK_READ_RATE:
+				return getDiskReadRate();
+			case DockerPackage.CONTAINER__DISK_WRITE_RATE:
+				return getDiskWriteRate();
+			case DockerPackage.CONTAINER__DISK_READ_OPS:
+				return getDiskReadOps();
+			case DockerPackage.CONTAINER__DISK_WRITE_OPS:
+				return getDiskWriteOps();
 		}
 		return super.eGet(featureID, resolve, coreType);
 	}
@@ -2579,6 +2843,24 @@ public class ContainerImpl extends ComputeImpl implements org.eclipse.cmf.occi.d
 			case DockerPackage.CONTAINER__TTY:
 				setTty((Boolean)newValue);
 				return;
+			case DockerPackage.CONTAINER__NETWORK_RX_RATE:
+				setNetworkRxRate((Integer)newValue);
+				return;
+			case DockerPackage.CONTAINER__NETWORK_TX_RATE:
+				setNetworkTxRate((Integer)newValue);
+				return;
+			case DockerPackage.CONTAINER__DISK_READ_RATE:
+				setDiskReadRate((Integer)newValue);
+				return;
+			case DockerPackage.CONTAINER__DISK_WRITE_RATE:
+				setDiskWriteRate((Integer)newValue);
+				return;
+			case DockerPackage.CONTAINER__DISK_READ_OPS:
+				setDiskReadOps((Integer)newValue);
+				return;
+			case DockerPackage.CONTAINER__DISK_WRITE_OPS:
+				setDiskWriteOps((Integer)newValue);
+				return;
 		}
 		super.eSet(featureID, newValue);
 	}
@@ -2747,6 +3029,24 @@ public class ContainerImpl extends ComputeImpl implements org.eclipse.cmf.occi.d
 			case DockerPackage.CONTAINER__TTY:
 				setTty(TTY_EDEFAULT);
 				return;
+			case DockerPackage.CONTAINER__NETWORK_RX_RATE:
+				setNetworkRxRate(NETWORK_RX_RATE_EDEFAULT);
+				return;
+			case DockerPackage.CONTAINER__NETWORK_TX_RATE:
+				setNetworkTxRate(NETWORK_TX_RATE_EDEFAULT);
+				return;
+			case DockerPackage.CONTAINER__DISK_READ_RATE:
+				setDiskReadRate(DISK_READ_RATE_EDEFAULT);
+				return;
+			case DockerPackage.CONTAINER__DISK_WRITE_RATE:
+				setDiskWriteRate(DISK_WRITE_RATE_EDEFAULT);
+				return;
+			case DockerPackage.CONTAINER__DISK_READ_OPS:
+				setDiskReadOps(DISK_READ_OPS_EDEFAULT);
+				return;
+			case DockerPackage.CONTAINER__DISK_WRITE_OPS:
+				setDiskWriteOps(DISK_WRITE_OPS_EDEFAULT);
+				return;
 		}
 		super.eUnset(featureID);
 	}
@@ -2863,6 +3163,18 @@ public class ContainerImpl extends ComputeImpl implements org.eclipse.cmf.occi.d
 				return CPU_SET_MEMS_EDEFAULT == null ? cpuSetMems != null : !CPU_SET_MEMS_EDEFAULT.equals(cpuSetMems);
 			case DockerPackage.CONTAINER__TTY:
 				return tty != TTY_EDEFAULT;
+			case DockerPackage.CONTAINER__NETWORK_RX_RATE:
+				return NETWORK_RX_RATE_EDEFAULT == null ? networkRxRate != null : !NETWORK_RX_RATE_EDEFAULT.equals(networkRxRate);
+			case DockerPackage.CONTAINER__NETWORK_TX_RATE:
+				return NETWORK_TX_RATE_EDEFAULT == null ? networkTxRate != null : !NETWORK_TX_RATE_EDEFAULT.equals(networkTxRate);
+			case DockerPackage.CONTAINER__DISK_READ_RATE:
+				return DISK_READ_RATE_EDEFAULT == null ? diskReadRate != null : !DISK_READ_RATE_EDEFAULT.equals(diskReadRate);
+			case DockerPackage.CONTAINER__DISK_WRITE_RATE:
+				return DISK_WRITE_RATE_EDEFAULT == null ? diskWriteRate != null : !DISK_WRITE_RATE_EDEFAULT.equals(diskWriteRate);
+			case DockerPackage.CONTAINER__DISK_READ_OPS:
+				return DISK_READ_OPS_EDEFAULT == null ? diskReadOps != null : !DISK_READ_OPS_EDEFAULT.equals(diskReadOps);
+			case DockerPackage.CONTAINER__DISK_WRITE_OPS:
+				return DISK_WRITE_OPS_EDEFAULT == null ? diskWriteOps != null : !DISK_WRITE_OPS_EDEFAULT.equals(diskWriteOps);
 		}
 		return super.eIsSet(featureID);
 	}
@@ -3011,6 +3323,18 @@ public class ContainerImpl extends ComputeImpl implements org.eclipse.cmf.occi.d
 		result.append(cpuSetMems);
 		result.append(", tty: ");
 		result.append(tty);
+		result.append(", networkRxRate: ");
+		result.append(networkRxRate);
+		result.append(", networkTxRate: ");
+		result.append(networkTxRate);
+		result.append(", diskReadRate: ");
+		result.append(diskReadRate);
+		result.append(", diskWriteRate: ");
+		result.append(diskWriteRate);
+		result.append(", diskReadOps: ");
+		result.append(diskReadOps);
+		result.append(", diskWriteOps: ");
+		result.append(diskWriteOps);
 		result.append(')');
 		return result.toString();
 	}